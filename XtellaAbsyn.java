@@ -1,5 +1,11 @@
-import java.util.HashMap;
+package xtella;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 interface Visitor {
   void visit(ProgramNode node);
@@ -51,16 +57,32 @@ interface Visitor {
   void visit(DelimitedStringNode node);
 
   void visit(RegexConstNode node);
+
+  void visit(AbsynListNode node);
+
+  void visit(PrimaryExprNode node);
+
+  void visit(FunctionCallNode node);
+
+  void visit(RegexExprNode node);
+
+  void visit(HashMapNode node);
+
+  void visit(NumberNode node);
+
+  void visit(StringConstNode node);
+
+  void visit(FStringConstNode node);
 }
 
 abstract class AbsynNode {
-  void accept(Visitor visitor) {
-    visitor.visit(this);
-  }
+  abstract void accept(Visitor visitor);
 
   abstract void interpretSelf(XtellaVM vm);
 
-  abstract int getOpcode();
+  int getOpcode() {
+    throw new IllegalStateException(getClass().getSimpleName() + " has no single opcode");
+  }
 }
 
 class AbsynListNode extends AbsynNode {
@@ -70,16 +92,38 @@ class AbsynListNode extends AbsynNode {
     this.nodes.add(node);
   }
 
+  public AbsynListNode() {
+    this.nodes = new ArrayList<>();
+  }
+
   public AbsynListNode(AbsynNode initNode) {
-    this.nodes = new List.of(initNode);
+    this();
+    this.nodes.add(initNode);
+  }
+
+  public List<AbsynNode> getNodes() {
+    return this.nodes;
   }
 
-  @override
+  public void setNode(int index, AbsynNode node) {
+    this.nodes.set(index, node);
+  }
+
+  public int size() {
+    return this.nodes.size();
+  }
+
+  @Override
   public void interpretSelf(XtellaVM vm) {
     for (AbsynNode elementNode : this.nodes) {
       elementNode.interpretSelf(vm);
     }
   }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class ProgramNode extends AbsynNode {
@@ -89,10 +133,30 @@ class ProgramNode extends AbsynNode {
     this.statementList = statementList;
   }
 
-  @override
+  public StatementListNode getStatementList() {
+    return this.statementList;
+  }
+
+  public void compile(XtellaVM vm) {
+    accept(new XtellaConstantFolder());
+
+    XtellaResolver resolver = new XtellaResolver();
+    accept(resolver);
+
+    vm.beginChunk(resolver.getLocalCount());
+    interpretSelf(vm);
+    vm.endChunk();
+  }
+
+  @Override
   public void interpretSelf(XtellaVM vm) {
     this.statementList.interpretSelf(vm);
   }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class StatementListNode extends AbsynNode {
@@ -102,12 +166,25 @@ class StatementListNode extends AbsynNode {
     this.statements = statements;
   }
 
-  @override
+  public List<StatementNode> getStatements() {
+    return this.statements;
+  }
+
+  public void setStatements(List<StatementNode> statements) {
+    this.statements = statements;
+  }
+
+  @Override
   public void interpretSelf(XtellaVM vm) {
     for (StatementNode statement : this.statements) {
       statement.interpretSelf(vm);
     }
   }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 abstract class StatementNode extends AbsynNode {}
@@ -121,11 +198,27 @@ class AssignStmtNode extends StatementNode {
     this.expression = expression;
   }
 
-  @override
+  public IdentifierNode getIdentifier() {
+    return this.identifier;
+  }
+
+  public ExpressionNode getExpression() {
+    return this.expression;
+  }
+
+  public void setExpression(ExpressionNode expression) {
+    this.expression = expression;
+  }
+
+  @Override
   public void interpretSelf(XtellaVM vm) {
     this.expression.interpretSelf(vm);
-    vm.addInstruction(identifier.getOpcode());
-    vm.addOperand(identifier.getValue());
+    this.identifier.interpretStore(vm);
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
   }
 }
 
@@ -140,11 +233,48 @@ class ControlFlowStmtNode extends StatementNode {
     this.elseBlock = elseBlock;
   }
 
-  @override
+  public ConditionNode getCondition() {
+    return this.condition;
+  }
+
+  public void setCondition(ConditionNode condition) {
+    this.condition = condition;
+  }
+
+  public BlockNode getIfBlock() {
+    return this.ifBlock;
+  }
+
+  public BlockNode getElseBlock() {
+    return this.elseBlock;
+  }
+
+  @Override
   public void interpretSelf(XtellaVM vm) {
     this.condition.interpretSelf(vm);
+    vm.addInstruction(XtellaVM.JUMP_IF_FALSE);
+    int elseOperand = vm.getCodeOffset();
+    vm.addOperand(0);
+
     this.ifBlock.interpretSelf(vm);
+
+    if (this.elseBlock == null) {
+      vm.patchOperand(elseOperand, vm.getCodeOffset());
+      return;
+    }
+
+    vm.addInstruction(XtellaVM.JUMP);
+    int endOperand = vm.getCodeOffset();
+    vm.addOperand(0);
+
+    vm.patchOperand(elseOperand, vm.getCodeOffset());
     this.elseBlock.interpretSelf(vm);
+    vm.patchOperand(endOperand, vm.getCodeOffset());
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
   }
 }
 
@@ -155,10 +285,17 @@ class ExecStmtNode extends StatementNode {
     this.command = command;
   }
 
-  @override
+  @Override
   public void interpretSelf(XtellaVM vm) {
-    vm.addInstruction(XtellaVM.EXEC_COMMAND);
+    vm.addInstruction(XtellaVM.PUSH_STRING);
     vm.addOperand(this.command);
+    vm.addInstruction(XtellaVM.EXEC_COMMAND);
+    vm.addInstruction(XtellaVM.WAIT_PROCESS);
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
   }
 }
 
@@ -172,7 +309,7 @@ enum RWMode {
 class RWStmtNode extends StatementNode {
   private RWMode rwMode;
   private ExpressionNode expression;
-  private IdentifierNode fileHandle;
+  private String fileHandle;
 
   public RWStmtNode(RWMode rwMode, ExpressionNode expression, String fileHandle) {
     this.rwMode = rwMode;
@@ -180,24 +317,61 @@ class RWStmtNode extends StatementNode {
     this.fileHandle = fileHandle;
   }
 
-  @override
+  public ExpressionNode getExpression() {
+    return this.expression;
+  }
+
+  public void setExpression(ExpressionNode expression) {
+    this.expression = expression;
+  }
+
+  public RWMode getRWMode() {
+    return this.rwMode;
+  }
+
+  @Override
   public void interpretSelf(XtellaVM vm) {
     switch (this.rwMode) {
-      case RWMode.READING:
+      case READING:
         vm.addInstruction(XtellaVM.READ_FILE);
+        vm.addOperand(this.fileHandle);
+        ((IdentifierNode) this.expression).interpretStore(vm);
         break;
-      case RWMode.WRITING:
-        vm.addInstruction(XtellaVM.WRITE_FILE);
+      case WRITING:
+        interpretWrite(vm, XtellaVM.WRITE_FILE);
         break;
-      case RWMode.APPENDING:
-        vm.addInstruction(XtellaVM.APPEND_FILE);
+      case APPENDING:
+        interpretWrite(vm, XtellaVM.APPEND_FILE);
         break;
       default:
         break;
     }
+  }
 
-    this.expression.interpretSelf(vm);
-    vm.addOperand(this.fileHandle.getValue());
+  private void interpretWrite(XtellaVM vm, int opcode) {
+    AbsynListNode parts = null;
+
+    if (this.expression instanceof FStringConstNode) {
+      parts = ((FStringConstNode) this.expression).getValue();
+    } else if (this.expression instanceof DelimitedStringNode) {
+      parts = ((DelimitedStringNode) this.expression).getContents();
+    }
+
+    if (parts != null) {
+      parts.interpretSelf(vm);
+      vm.addInstruction(XtellaVM.WRITE_FILE_PARTS);
+      vm.addOperand(this.fileHandle);
+      vm.addOperand(parts.size());
+    } else {
+      this.expression.interpretSelf(vm);
+      vm.addInstruction(opcode);
+      vm.addOperand(this.fileHandle);
+    }
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
   }
 }
 
@@ -208,11 +382,21 @@ class CloseStmtNode extends StatementNode {
     this.fileHandle = fileHandle;
   }
 
-  @override
+  @Override
   public void interpretSelf(XtellaVM vm) {
-    vm.addInstruction(XtellaVM.CLOSE_FILE);
+    vm.addInstruction(getOpcode());
     vm.addOperand(this.fileHandle);
   }
+
+  @Override
+  public int getOpcode() {
+    return XtellaVM.CLOSE_FILE;
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class OpenStmtNode extends StatementNode {
@@ -226,50 +410,77 @@ class OpenStmtNode extends StatementNode {
     this.fileHandle = fileHandle;
   }
 
-  @override
+  @Override
   public void interpretSelf(XtellaVM vm) {
+    vm.addInstruction(getOpcode());
+    vm.addOperand(this.fileName);
+    vm.addOperand(this.fileHandle);
+  }
+
+  @Override
+  public int getOpcode() {
     switch (this.rwMode) {
-      case RWMode.READING:
-        vm.addInstruction(XtellaVM.OPEN_FILE_FOR_READING);
-        break;
-      case RWMode.WRITING:
-        vm.addInstruction(XtellaVM.OPEN_FILE_FOR_WRITING);
-        break;
-      case RWMode.APPENDING:
-        vm.addInstruction(XtellaVM.OPEN_FILE_FOR_WRITING);
-        break;
-      case RWMode.READ_AND_WRITE:
-        vm.addInstruction(XtellaVM.OPEN_FILE_FOR_READING_AND_WRITING);
-        break;
+      case READING:
+        return XtellaVM.OPEN_FILE_FOR_READING;
+      case WRITING:
+        return XtellaVM.OPEN_FILE_FOR_WRITING;
+      case APPENDING:
+        return XtellaVM.OPEN_FILE_FOR_APPENDING;
+      case READ_AND_WRITE:
+        return XtellaVM.OPEN_FILE_FOR_READING_AND_WRITING;
       default:
-        break;
+        throw new IllegalArgumentException("No opcode for file mode " + this.rwMode);
     }
+  }
 
-    vm.addOperand(this.fileName);
-    vm.addOperand(this.fileHandle.getValue());
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
   }
 }
 
 class IfStmtNode extends ControlFlowStmtNode {
-  private ConditionNode condition;
-  private BlockNode ifBlock;
-  private BlockNode elseBlock;
-
   public IfStmtNode(ConditionNode condition, BlockNode ifBlock, BlockNode elseBlock) {
-    this.condition = condition;
-    this.ifBlock = ifBlock;
-    this.elseBlock = elseBlock;
+    super(condition, ifBlock, elseBlock);
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
   }
 }
 
 class WhileStmtNode extends ControlFlowStmtNode {
-  private ConditionNode condition;
   private BlockNode whileBlock;
 
   public WhileStmtNode(ConditionNode condition, BlockNode whileBlock) {
-    this.condition = condition;
+    super(condition, null, null);
     this.whileBlock = whileBlock;
   }
+
+  public BlockNode getWhileBlock() {
+    return this.whileBlock;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    int loopStart = vm.getCodeOffset();
+    getCondition().interpretSelf(vm);
+    vm.addInstruction(XtellaVM.JUMP_IF_FALSE);
+    int exitOperand = vm.getCodeOffset();
+    vm.addOperand(0);
+
+    this.whileBlock.interpretSelf(vm);
+    vm.addInstruction(XtellaVM.JUMP);
+    vm.addOperand(loopStart);
+
+    vm.patchOperand(exitOperand, vm.getCodeOffset());
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class ReturnStmtNode extends StatementNode {
@@ -278,6 +489,24 @@ class ReturnStmtNode extends StatementNode {
   public ReturnStmtNode(ExpressionNode expression) {
     this.expression = expression;
   }
+
+  public ExpressionNode getExpression() {
+    return this.expression;
+  }
+
+  public void setExpression(ExpressionNode expression) {
+    this.expression = expression;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    throw new IllegalStateException("Cannot RETURN outside a function body");
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class ForStmtNode extends ControlFlowStmtNode {
@@ -286,20 +515,318 @@ class ForStmtNode extends ControlFlowStmtNode {
   private BlockNode forBlock;
 
   public ForStmtNode(ExpressionNode iterable, ExpressionNode loopVariable, BlockNode forBlock) {
+    super(null, null, null);
     this.iterable = iterable;
     this.loopVariable = loopVariable;
     this.forBlock = forBlock;
   }
+
+  public ExpressionNode getIterable() {
+    return this.iterable;
+  }
+
+  public void setIterable(ExpressionNode iterable) {
+    this.iterable = iterable;
+  }
+
+  public ExpressionNode getLoopVariable() {
+    return this.loopVariable;
+  }
+
+  public BlockNode getForBlock() {
+    return this.forBlock;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    interpretIterable(vm);
+    vm.addInstruction(XtellaVM.GET_ITER);
+
+    int loopStart = vm.getCodeOffset();
+    vm.addInstruction(XtellaVM.FOR_NEXT);
+    int exitOperand = vm.getCodeOffset();
+    vm.addOperand(0);
+
+    ((IdentifierNode) this.loopVariable).interpretStore(vm);
+    this.forBlock.interpretSelf(vm);
+    vm.addInstruction(XtellaVM.JUMP);
+    vm.addOperand(loopStart);
+
+    vm.patchOperand(exitOperand, vm.getCodeOffset());
+  }
+
+  private void interpretIterable(XtellaVM vm) {
+    if (!(this.iterable instanceof FunctionCallNode)) {
+      this.iterable.interpretSelf(vm);
+      return;
+    }
+
+    FunctionCallNode call = (FunctionCallNode) this.iterable;
+    List<ExpressionNode> arguments = call.getArgumentList();
+
+    switch (call.getIdentifier()) {
+      case "range":
+        if (arguments.size() == 1) {
+          vm.addInstruction(XtellaVM.PUSH_INT);
+          vm.addOperand(0);
+          arguments.get(0).interpretSelf(vm);
+        } else if (arguments.size() == 2 || arguments.size() == 3) {
+          arguments.get(0).interpretSelf(vm);
+          arguments.get(1).interpretSelf(vm);
+        } else {
+          throw new IllegalArgumentException("range expects one to three arguments");
+        }
+
+        if (arguments.size() == 3) {
+          arguments.get(2).interpretSelf(vm);
+        } else {
+          vm.addInstruction(XtellaVM.PUSH_INT);
+          vm.addOperand(1);
+        }
+
+        vm.addInstruction(XtellaVM.MAKE_RANGE);
+        return;
+      case "lines":
+        if (arguments.size() != 1 || !(arguments.get(0) instanceof IdentifierNode)) {
+          throw new IllegalArgumentException("lines expects a file handle");
+        }
+
+        vm.addInstruction(XtellaVM.FILE_LINES);
+        vm.addOperand(((IdentifierNode) arguments.get(0)).getValue());
+        return;
+      case "exec":
+        if (arguments.size() != 1) {
+          throw new IllegalArgumentException("exec expects a command");
+        }
+
+        arguments.get(0).interpretSelf(vm);
+        vm.addInstruction(XtellaVM.EXEC_COMMAND);
+        return;
+      case "matches":
+        if (arguments.size() != 2 || !(arguments.get(1) instanceof RegexConstNode)) {
+          throw new IllegalArgumentException("matches expects a subject and a regex literal");
+        }
+
+        arguments.get(0).interpretSelf(vm);
+        vm.addInstruction(XtellaVM.REGEX_FIND_ALL);
+        vm.addPatternOperand(((RegexConstNode) arguments.get(1)).getPattern());
+        return;
+      default:
+        this.iterable.interpretSelf(vm);
+    }
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class MatchStmtNode extends ControlFlowStmtNode {
   private ExpressionNode expression;
   private List<MatchCaseNode> matchCases;
+  private int subjectSlot;
 
   public MatchStmtNode(ExpressionNode expression, List<MatchCaseNode> matchCases) {
+    super(null, null, null);
+    this.expression = expression;
+    this.matchCases = matchCases;
+  }
+
+  public ExpressionNode getExpression() {
+    return this.expression;
+  }
+
+  public void setExpression(ExpressionNode expression) {
     this.expression = expression;
+  }
+
+  public List<MatchCaseNode> getMatchCases() {
+    return this.matchCases;
+  }
+
+  public void setMatchCases(List<MatchCaseNode> matchCases) {
     this.matchCases = matchCases;
   }
+
+  public void resolveSubjectSlot(int subjectSlot) {
+    this.subjectSlot = subjectSlot;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    Map<Object, Integer> integerCases = new LinkedHashMap<>();
+    Map<Object, Integer> stringCases = new LinkedHashMap<>();
+    Map<Object, Integer> regexCases = new LinkedHashMap<>();
+
+    for (int i = 0; i < this.matchCases.size(); i++) {
+      ExpressionNode pattern = this.matchCases.get(i).getPattern();
+      Object key = literalKey(pattern);
+
+      if (key instanceof Integer) {
+        integerCases.putIfAbsent(key, i);
+      } else if (key instanceof String) {
+        stringCases.putIfAbsent(key, i);
+      } else if (pattern instanceof RegexConstNode) {
+        regexCases.putIfAbsent(((RegexConstNode) pattern).getPattern(), i);
+      } else {
+        interpretCaseChain(vm);
+        return;
+      }
+    }
+
+    int kinds =
+        (integerCases.isEmpty() ? 0 : 1)
+            + (stringCases.isEmpty() ? 0 : 1)
+            + (regexCases.isEmpty() ? 0 : 1);
+
+    if (kinds != 1) {
+      interpretCaseChain(vm);
+      return;
+    }
+
+    this.expression.interpretSelf(vm);
+
+    if (!integerCases.isEmpty()) {
+      interpretIntegerSwitch(vm, integerCases);
+    } else if (!stringCases.isEmpty()) {
+      vm.addInstruction(XtellaVM.STRING_SWITCH);
+      vm.addOperand(new XtellaStringSwitch(stringCases.keySet().toArray(new String[0])));
+      interpretSwitchArms(vm, new ArrayList<>(stringCases.values()));
+    } else {
+      vm.addInstruction(XtellaVM.REGEX_SWITCH);
+      vm.addOperand(new XtellaRegexSwitch(regexCases.keySet().toArray(new String[0])));
+      interpretSwitchArms(vm, new ArrayList<>(regexCases.values()));
+    }
+  }
+
+  private static Object literalKey(ExpressionNode pattern) {
+    Object value = null;
+
+    if (pattern instanceof LiteralNode) {
+      value = ((LiteralNode) pattern).getValue();
+    } else if (pattern instanceof StringConstNode) {
+      value = ((StringConstNode) pattern).getValue();
+    } else if (pattern instanceof NumberNode
+        && ((NumberNode) pattern).getNumberType() == NumberNode.NumberType.INTEGER) {
+      value = XtellaNumbers.parseInteger(((NumberNode) pattern).getValue());
+    }
+
+    return value instanceof Integer || value instanceof String ? value : null;
+  }
+
+  private void interpretIntegerSwitch(XtellaVM vm, Map<Object, Integer> cases) {
+    int[] keys = new int[cases.size()];
+    int index = 0;
+
+    for (Object key : cases.keySet()) {
+      keys[index++] = (Integer) key;
+    }
+
+    Arrays.sort(keys);
+
+    long low = keys[0];
+    long high = keys[keys.length - 1];
+    long tableCost = 4 + (high - low + 1) + 3 * 3;
+    long lookupCost = 3 + 2 * keys.length + 3 * keys.length;
+    List<Integer> arms = new ArrayList<>();
+
+    if (tableCost <= lookupCost) {
+      vm.addInstruction(XtellaVM.TABLE_SWITCH);
+      vm.addOperand((int) low);
+      vm.addOperand((int) (high - low + 1));
+
+      for (long key = low; key <= high; key++) {
+        Integer matchCase = cases.get((int) key);
+        arms.add(matchCase != null ? matchCase : -1);
+      }
+    } else {
+      vm.addInstruction(XtellaVM.LOOKUP_SWITCH);
+      vm.addOperand(keys);
+
+      for (int key : keys) {
+        arms.add(cases.get(key));
+      }
+    }
+
+    interpretSwitchArms(vm, arms);
+  }
+
+  private void interpretSwitchArms(XtellaVM vm, List<Integer> arms) {
+    int[] armOperands = new int[arms.size()];
+    List<Integer> endOperands = new ArrayList<>();
+
+    for (int i = 0; i < arms.size(); i++) {
+      vm.addInstruction(XtellaVM.JUMP);
+      armOperands[i] = vm.getCodeOffset();
+      vm.addOperand(0);
+    }
+
+    vm.addInstruction(XtellaVM.JUMP);
+    endOperands.add(vm.getCodeOffset());
+    vm.addOperand(0);
+
+    int[] caseOffsets = new int[this.matchCases.size()];
+
+    for (int i = 0; i < this.matchCases.size(); i++) {
+      caseOffsets[i] = vm.getCodeOffset();
+      this.matchCases.get(i).getBlock().interpretSelf(vm);
+      vm.addInstruction(XtellaVM.JUMP);
+      endOperands.add(vm.getCodeOffset());
+      vm.addOperand(0);
+    }
+
+    int end = vm.getCodeOffset();
+
+    for (int i = 0; i < arms.size(); i++) {
+      vm.patchOperand(armOperands[i], arms.get(i) >= 0 ? caseOffsets[arms.get(i)] : end);
+    }
+
+    for (int operand : endOperands) {
+      vm.patchOperand(operand, end);
+    }
+  }
+
+  private void interpretCaseChain(XtellaVM vm) {
+    List<Integer> endOperands = new ArrayList<>();
+
+    this.expression.interpretSelf(vm);
+    vm.addInstruction(XtellaVM.STORE_LOCAL);
+    vm.addOperand(this.subjectSlot);
+
+    for (MatchCaseNode matchCase : this.matchCases) {
+      vm.addInstruction(XtellaVM.LOAD_LOCAL);
+      vm.addOperand(this.subjectSlot);
+
+      if (matchCase.getPattern() instanceof RegexConstNode) {
+        vm.addInstruction(XtellaVM.REGEX_MATCH_CONSTANT);
+        vm.addPatternOperand(((RegexConstNode) matchCase.getPattern()).getPattern());
+      } else {
+        matchCase.getPattern().interpretSelf(vm);
+        vm.addInstruction(XtellaVM.EQUAL);
+      }
+
+      vm.addInstruction(XtellaVM.JUMP_IF_FALSE);
+      int nextOperand = vm.getCodeOffset();
+      vm.addOperand(0);
+
+      matchCase.getBlock().interpretSelf(vm);
+      vm.addInstruction(XtellaVM.JUMP);
+      endOperands.add(vm.getCodeOffset());
+      vm.addOperand(0);
+
+      vm.patchOperand(nextOperand, vm.getCodeOffset());
+    }
+
+    for (int operand : endOperands) {
+      vm.patchOperand(operand, vm.getCodeOffset());
+    }
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class MatchCaseNode extends AbsynNode {
@@ -310,6 +837,28 @@ class MatchCaseNode extends AbsynNode {
     this.pattern = pattern;
     this.block = block;
   }
+
+  public ExpressionNode getPattern() {
+    return this.pattern;
+  }
+
+  public void setPattern(ExpressionNode pattern) {
+    this.pattern = pattern;
+  }
+
+  public BlockNode getBlock() {
+    return this.block;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    this.block.interpretSelf(vm);
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class BlockNode extends AbsynNode {
@@ -318,6 +867,20 @@ class BlockNode extends AbsynNode {
   public BlockNode(StatementListNode statementList) {
     this.statementList = statementList;
   }
+
+  public StatementListNode getStatementList() {
+    return this.statementList;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    this.statementList.interpretSelf(vm);
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 abstract class ExpressionNode extends AbsynNode {}
@@ -327,11 +890,190 @@ class CompoundExprNode extends ExpressionNode {
   private ExpressionNode right;
   private String operator;
 
-  public CompoundExprNode(ExpressionNode left, ExpressonNode right, String operator) {
+  public CompoundExprNode(ExpressionNode left, ExpressionNode right, String operator) {
     this.left = left;
     this.right = right;
     this.operator = operator;
   }
+
+  public ExpressionNode getLeft() {
+    return this.left;
+  }
+
+  public void setLeft(ExpressionNode left) {
+    this.left = left;
+  }
+
+  public ExpressionNode getRight() {
+    return this.right;
+  }
+
+  public void setRight(ExpressionNode right) {
+    this.right = right;
+  }
+
+  public String getOperator() {
+    return this.operator;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    Operator op = Operator.valueOf(this.operator);
+
+    if (op == Operator.REGEX_MATCH || op == Operator.REGEX_NOT_MATCH) {
+      interpretRegexMatch(vm, op == Operator.REGEX_NOT_MATCH);
+      return;
+    }
+
+    if ((op == Operator.OR || op == Operator.AND) && interpretRegexSet(vm, op)) {
+      return;
+    }
+
+    this.left.interpretSelf(vm);
+    this.right.interpretSelf(vm);
+    vm.addInstruction(getOpcode());
+  }
+
+  private boolean interpretRegexSet(XtellaVM vm, Operator op) {
+    List<ExpressionNode> tests = new ArrayList<>();
+    collectOperands(this, op, tests);
+
+    boolean negated = op == Operator.AND;
+    IdentifierNode subject = null;
+    String[] patterns = new String[tests.size()];
+
+    for (int i = 0; i < patterns.length; i++) {
+      ExpressionNode test = tests.get(i);
+      ExpressionNode tested;
+      boolean testNegated;
+
+      if (test instanceof RegexExprNode) {
+        RegexExprNode regexTest = (RegexExprNode) test;
+        tested = regexTest.getExpression();
+        testNegated = regexTest.getMatchType() == RegexExprNode.RegexMatchType.NOT_MATCHES;
+        patterns[i] = regexTest.getRegex();
+      } else if (test instanceof CompoundExprNode) {
+        CompoundExprNode compound = (CompoundExprNode) test;
+        Operator testOp = Operator.valueOf(compound.operator);
+
+        if (testOp != Operator.REGEX_MATCH && testOp != Operator.REGEX_NOT_MATCH) {
+          return false;
+        }
+
+        tested = compound.left;
+        testNegated = testOp == Operator.REGEX_NOT_MATCH;
+        patterns[i] = constantRegex(compound.right);
+      } else {
+        return false;
+      }
+
+      if (patterns[i] == null || testNegated != negated || !(tested instanceof IdentifierNode)) {
+        return false;
+      }
+
+      IdentifierNode identifier = (IdentifierNode) tested;
+
+      if (subject == null) {
+        subject = identifier;
+      } else if (!subject.getValue().equals(identifier.getValue())
+          || subject.getSlot() != identifier.getSlot()) {
+        return false;
+      }
+    }
+
+    subject.interpretSelf(vm);
+    vm.addInstruction(XtellaVM.MULTI_REGEX_MATCH);
+    vm.addOperand(new XtellaRegexSet(patterns));
+    vm.addInstruction(XtellaVM.PUSH_INT);
+    vm.addOperand(0);
+    vm.addInstruction(negated ? XtellaVM.LESS_THAN : XtellaVM.GREATER_THAN_OR_EQUAL);
+    return true;
+  }
+
+  private static void collectOperands(ExpressionNode node, Operator op, List<ExpressionNode> out) {
+    if (node instanceof CompoundExprNode
+        && Operator.valueOf(((CompoundExprNode) node).operator) == op) {
+      collectOperands(((CompoundExprNode) node).left, op, out);
+      collectOperands(((CompoundExprNode) node).right, op, out);
+    } else {
+      out.add(node);
+    }
+  }
+
+  private static String constantRegex(ExpressionNode node) {
+    if (node instanceof RegexConstNode) {
+      return ((RegexConstNode) node).getPattern();
+    } else if (node instanceof StringConstNode) {
+      return ((StringConstNode) node).getValue();
+    }
+
+    return null;
+  }
+
+  private void interpretRegexMatch(XtellaVM vm, boolean negated) {
+    String regex = constantRegex(this.right);
+
+    if (regex != null) {
+      this.left.interpretSelf(vm);
+      vm.addInstruction(XtellaVM.REGEX_MATCH_CONSTANT);
+      vm.addPatternOperand(regex);
+    } else {
+      this.right.interpretSelf(vm);
+      this.left.interpretSelf(vm);
+      vm.addInstruction(XtellaVM.REGEX_MATCH);
+    }
+
+    if (negated) {
+      vm.addInstruction(XtellaVM.LOGICAL_NOT);
+    }
+  }
+
+  @Override
+  public int getOpcode() {
+    switch (Operator.valueOf(this.operator)) {
+      case OR:
+        return XtellaVM.LOGICAL_OR;
+      case AND:
+        return XtellaVM.LOGICAL_AND;
+      case BIT_AND:
+        return XtellaVM.BITWISE_AND;
+      case BIT_OR:
+        return XtellaVM.BITWISE_OR;
+      case BIT_XOR:
+        return XtellaVM.BITWISE_XOR;
+      case EQ:
+        return XtellaVM.EQUAL;
+      case NEQ:
+        return XtellaVM.NOT_EQUAL;
+      case LT:
+        return XtellaVM.LESS_THAN;
+      case LTE:
+        return XtellaVM.LESS_THAN_OR_EQUAL;
+      case GT:
+        return XtellaVM.GREATER_THAN;
+      case GTE:
+        return XtellaVM.GREATER_THAN_OR_EQUAL;
+      case PLUS:
+        return XtellaVM.ADD;
+      case MINUS:
+        return XtellaVM.SUBTRACT;
+      case MULTIPLY:
+        return XtellaVM.MULTIPLY;
+      case DIVIDE:
+        return XtellaVM.DIVIDE;
+      case MODULO:
+        return XtellaVM.MODULO;
+      case REGEX_MATCH:
+        return XtellaVM.REGEX_MATCH;
+      default:
+        throw new IllegalArgumentException("No opcode for operator " + this.operator);
+    }
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class UnaryExprNode extends ExpressionNode {
@@ -342,25 +1084,111 @@ class UnaryExprNode extends ExpressionNode {
     this.operand = operand;
     this.operator = operator;
   }
+
+  public ExpressionNode getOperand() {
+    return this.operand;
+  }
+
+  public void setOperand(ExpressionNode operand) {
+    this.operand = operand;
+  }
+
+  public String getOperator() {
+    return this.operator;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    switch (this.operator) {
+      case "NOT":
+        this.operand.interpretSelf(vm);
+        vm.addInstruction(XtellaVM.LOGICAL_NOT);
+        break;
+      case "MINUS":
+        vm.addInstruction(XtellaVM.PUSH_INT);
+        vm.addOperand(0);
+        this.operand.interpretSelf(vm);
+        vm.addInstruction(XtellaVM.SUBTRACT);
+        break;
+      case "PLUS":
+        this.operand.interpretSelf(vm);
+        break;
+      default:
+        throw new IllegalArgumentException("No opcode for operator " + this.operator);
+    }
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class IdentifierNode extends ExpressionNode {
+  public static final int UNRESOLVED_SLOT = -1;
+
   private String identifier;
   private int opcode;
+  private int slot;
 
   public IdentifierNode(String identifier, int opcode) {
     this.identifier = identifier;
     this.opcode = opcode;
+    this.slot = UNRESOLVED_SLOT;
   }
 
   public String getValue() {
     return this.identifier;
   }
 
-  @override
+  public int getSlot() {
+    return this.slot;
+  }
+
+  public boolean isLocal() {
+    return this.slot != UNRESOLVED_SLOT;
+  }
+
+  public void resolveSlot(int slot) {
+    this.slot = slot;
+
+    if (this.opcode == XtellaVM.LOAD_VARIABLE) {
+      this.opcode = XtellaVM.LOAD_LOCAL;
+    } else if (this.opcode == XtellaVM.STORE_VARIABLE) {
+      this.opcode = XtellaVM.STORE_LOCAL;
+    }
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    vm.addInstruction(this.opcode);
+
+    if (isLocal()) {
+      vm.addOperand(this.slot);
+    } else {
+      vm.addOperand(this.identifier);
+    }
+  }
+
+  public void interpretStore(XtellaVM vm) {
+    if (isLocal()) {
+      vm.addInstruction(XtellaVM.STORE_LOCAL);
+      vm.addOperand(this.slot);
+    } else {
+      vm.addInstruction(XtellaVM.STORE_VARIABLE);
+      vm.addOperand(this.identifier);
+    }
+  }
+
+  @Override
   public int getOpcode() {
     return this.opcode;
   }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class LiteralNode extends ExpressionNode {
@@ -369,13 +1197,43 @@ class LiteralNode extends ExpressionNode {
   public LiteralNode(Object value) {
     this.value = value;
   }
-}
 
-enum RWMode {
-  READING,
-  WRITING,
-  APPENDING,
-  READ_AND_WRITE
+  public Object getValue() {
+    return this.value;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    if (this.value instanceof Boolean) {
+      vm.addInstruction(XtellaVM.PUSH_BOOLEAN);
+      vm.addOperand(((Boolean) this.value) ? 1 : 0);
+    } else if (this.value instanceof Integer) {
+      vm.addInstruction(XtellaVM.PUSH_INT);
+      vm.addOperand(((Integer) this.value).intValue());
+    } else if (this.value instanceof Long) {
+      vm.addInstruction(XtellaVM.PUSH_LONG);
+      vm.addLongOperand((Long) this.value);
+    } else if (this.value instanceof BigInteger) {
+      vm.addInstruction(XtellaVM.PUSH_BIG_INTEGER);
+      vm.addOperand(this.value);
+    } else if (this.value instanceof Float) {
+      vm.addInstruction(XtellaVM.PUSH_FLOAT);
+      vm.addOperand(Float.floatToRawIntBits((Float) this.value));
+    } else if (this.value instanceof Double) {
+      vm.addInstruction(XtellaVM.PUSH_DOUBLE);
+      vm.addLongOperand(Double.doubleToRawLongBits((Double) this.value));
+    } else if (this.value instanceof String) {
+      vm.addInstruction(XtellaVM.PUSH_STRING);
+      vm.addOperand(this.value);
+    } else {
+      throw new IllegalArgumentException("Invalid literal value: " + this.value);
+    }
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class ConditionNode extends ExpressionNode {
@@ -384,6 +1242,24 @@ class ConditionNode extends ExpressionNode {
   public ConditionNode(ExpressionNode expression) {
     this.expression = expression;
   }
+
+  public ExpressionNode getExpression() {
+    return this.expression;
+  }
+
+  public void setExpression(ExpressionNode expression) {
+    this.expression = expression;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    this.expression.interpretSelf(vm);
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 enum Operator {
@@ -403,7 +1279,9 @@ enum Operator {
   MULTIPLY("MULTIPLY"),
   DIVIDE("DIVIDE"),
   MODULO("MODULO"),
-  POW("POW");
+  POW("POW"),
+  REGEX_MATCH("REGEX_MATCH"),
+  REGEX_NOT_MATCH("REGEX_NOT_MATCH");
 
   private final String symbol;
 
@@ -436,6 +1314,10 @@ class PrimaryExprNode extends ExpressionNode {
   private Object argumentBackRef;
   private PrimaryExprNodeType nodeType;
 
+  protected PrimaryExprNode(PrimaryExprNodeType nodeType) {
+    this.nodeType = nodeType;
+  }
+
   public PrimaryExprNode(String identifier) {
     this.nodeType = PrimaryExprNodeType.IDENTIFIER;
     this.identifier = identifier;
@@ -457,19 +1339,22 @@ class PrimaryExprNode extends ExpressionNode {
     this.functionCall = functionCall;
   }
 
-  public PrimaryExprNode(Object ternaryExpr) {
-    this.nodeType = PrimaryExprNodeType.TERNARY_EXPR;
-    this.ternaryExpr = ternaryExpr;
-  }
-
-  public PrimaryExprNode(Object lambdaExpr) {
-    this.nodeType = PrimaryExprNodeType.LAMBDA_EXPR;
-    this.lambdaExpr = lambdaExpr;
-  }
+  public PrimaryExprNode(PrimaryExprNodeType nodeType, Object expr) {
+    this.nodeType = nodeType;
 
-  public PrimaryExprNode(Object argumentBackRef) {
-    this.nodeType = PrimaryExprNodeType.ARGUMENT_BACK_REF;
-    this.argumentBackRef = argumentBackRef;
+    switch (nodeType) {
+      case TERNARY_EXPR:
+        this.ternaryExpr = expr;
+        break;
+      case LAMBDA_EXPR:
+        this.lambdaExpr = expr;
+        break;
+      case ARGUMENT_BACK_REF:
+        this.argumentBackRef = expr;
+        break;
+      default:
+        throw new IllegalArgumentException("Invalid primary expression type " + nodeType);
+    }
   }
 
   public PrimaryExprNodeType getNodeType() {
@@ -503,6 +1388,34 @@ class PrimaryExprNode extends ExpressionNode {
   public Object getArgumentBackRef() {
     return argumentBackRef;
   }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    switch (this.nodeType) {
+      case IDENTIFIER:
+        vm.addInstruction(XtellaVM.LOAD_VARIABLE);
+        vm.addOperand(this.identifier);
+        break;
+      case IDENTIFIER_WITH_INDEX:
+        this.arrayIndex.interpretSelf(vm);
+        vm.addInstruction(XtellaVM.LOAD_VARIABLE_FROM_ARRAY);
+        vm.addOperand(this.identifier);
+        break;
+      case CONST_VALUE:
+        new LiteralNode(this.constValue).interpretSelf(vm);
+        break;
+      case FUNCTION_CALL:
+        this.functionCall.interpretSelf(vm);
+        break;
+      default:
+        throw new IllegalStateException("Cannot compile primary expression " + this.nodeType);
+    }
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class FunctionCallNode extends PrimaryExprNode {
@@ -510,9 +1423,33 @@ class FunctionCallNode extends PrimaryExprNode {
   private List<ExpressionNode> argumentList;
 
   public FunctionCallNode(String identifier, List<ExpressionNode> argumentList) {
+    super(PrimaryExprNodeType.FUNCTION_CALL);
     this.identifier = identifier;
     this.argumentList = argumentList;
   }
+
+  @Override
+  public String getIdentifier() {
+    return this.identifier;
+  }
+
+  public List<ExpressionNode> getArgumentList() {
+    return this.argumentList;
+  }
+
+  public void setArgumentList(List<ExpressionNode> argumentList) {
+    this.argumentList = argumentList;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    throw new IllegalStateException("Cannot compile a call to " + this.identifier + " here");
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class RegexExprNode extends ExpressionNode {
@@ -530,9 +1467,41 @@ class RegexExprNode extends ExpressionNode {
     this.regex = regex;
     this.matchType = matchType;
   }
+
+  public ExpressionNode getExpression() {
+    return this.expression;
+  }
+
+  public void setExpression(ExpressionNode expression) {
+    this.expression = expression;
+  }
+
+  public String getRegex() {
+    return this.regex;
+  }
+
+  public RegexMatchType getMatchType() {
+    return this.matchType;
+  }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    this.expression.interpretSelf(vm);
+    vm.addInstruction(XtellaVM.REGEX_MATCH_CONSTANT);
+    vm.addPatternOperand(this.regex);
+
+    if (this.matchType == RegexMatchType.NOT_MATCHES) {
+      vm.addInstruction(XtellaVM.LOGICAL_NOT);
+    }
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
-class ConstValueNode extends ExpressionNode {
+abstract class ConstValueNode extends ExpressionNode {
   public enum ConstValueType {
     ARRAY,
     HASHMAP,
@@ -548,31 +1517,86 @@ class ConstValueNode extends ExpressionNode {
   public ConstValueNode(ConstValueType constType) {
     this.constType = constType;
   }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit((ExpressionNode) this);
+  }
 }
 
 class ArrayNode extends ConstValueNode {
   private List<ExpressionNode> elements;
 
   public ArrayNode(List<ExpressionNode> elements) {
+    super(ConstValueType.ARRAY);
+    this.elements = elements;
+  }
+
+  public List<ExpressionNode> getElements() {
+    return this.elements;
+  }
+
+  public void setElements(List<ExpressionNode> elements) {
     this.elements = elements;
   }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    for (ExpressionNode element : this.elements) {
+      element.interpretSelf(vm);
+    }
+
+    vm.addInstruction(getOpcode());
+    vm.addOperand(this.elements.size());
+  }
+
+  @Override
+  public int getOpcode() {
+    return XtellaVM.PUSH_ARRAY;
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class HashMapNode extends ConstValueNode {
-  private HashMap<ExpressionNode, ExpressionNode> keyValues;
+  private Map<ExpressionNode, ExpressionNode> keyValues;
 
   public HashMapNode() {
     super(ConstValueType.HASHMAP);
-    this.keyValues = new HashMap<>();
+    this.keyValues = new LinkedHashMap<>();
   }
 
   public void addKeyValue(ExpressionNode key, ExpressionNode value) {
     keyValues.put(key, value);
   }
 
-  public HashMap<ExpressionNode, ExpressionNode> getKeyValues() {
+  public Map<ExpressionNode, ExpressionNode> getKeyValues() {
     return keyValues;
   }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    for (Map.Entry<ExpressionNode, ExpressionNode> entry : this.keyValues.entrySet()) {
+      entry.getKey().interpretSelf(vm);
+      entry.getValue().interpretSelf(vm);
+    }
+
+    vm.addInstruction(getOpcode());
+    vm.addOperand(this.keyValues.size());
+  }
+
+  @Override
+  public int getOpcode() {
+    return XtellaVM.PUSH_HASHMAP;
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class NumberNode extends ConstValueNode {
@@ -598,6 +1622,20 @@ class NumberNode extends ConstValueNode {
   public NumberType getNumberType() {
     return numberType;
   }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    if (this.numberType == NumberType.INTEGER) {
+      new LiteralNode(XtellaNumbers.parseInteger(this.value)).interpretSelf(vm);
+    } else {
+      new LiteralNode(Double.parseDouble(this.value)).interpretSelf(vm);
+    }
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class StringConstNode extends ConstValueNode {
@@ -611,6 +1649,17 @@ class StringConstNode extends ConstValueNode {
   public String getValue() {
     return value;
   }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    vm.addInstruction(XtellaVM.PUSH_STRING);
+    vm.addOperand(this.value);
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 class FStringConstNode extends ConstValueNode {
@@ -624,6 +1673,60 @@ class FStringConstNode extends ConstValueNode {
   public AbsynListNode getValue() {
     return value;
   }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    this.value.interpretSelf(vm);
+    vm.addInstruction(XtellaVM.CONCAT);
+    vm.addOperand(this.value.size());
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
+}
+
+class StringBodyBuilder {
+  private final AbsynListNode parts;
+  private final StringBuilder text;
+
+  public StringBodyBuilder() {
+    this.parts = new AbsynListNode();
+    this.text = new StringBuilder();
+  }
+
+  public StringBodyBuilder appendChar(char character) {
+    this.text.append(character);
+    return this;
+  }
+
+  public StringBodyBuilder appendText(String text) {
+    this.text.append(text);
+    return this;
+  }
+
+  public StringBodyBuilder appendExpression(ExpressionNode expression) {
+    flushText();
+    this.parts.addToList(expression);
+    return this;
+  }
+
+  private void flushText() {
+    if (this.text.length() > 0) {
+      this.parts.addToList(new StringConstNode(this.text.toString()));
+      this.text.setLength(0);
+    }
+  }
+
+  public ConstValueNode toNode() {
+    if (this.parts.size() == 0) {
+      return new StringConstNode(this.text.toString());
+    }
+
+    flushText();
+    return new FStringConstNode(this.parts);
+  }
 }
 
 class RegexConstNode extends ConstValueNode {
@@ -637,6 +1740,17 @@ class RegexConstNode extends ConstValueNode {
   public String getPattern() {
     return pattern;
   }
+
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    vm.addInstruction(XtellaVM.PUSH_REGEX);
+    vm.addPatternOperand(this.pattern);
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
+  }
 }
 
 enum Delimiter {
@@ -647,12 +1761,13 @@ enum Delimiter {
   PERCENT,
 }
 
-class DelimitedStringNode extends ConstValue {
+class DelimitedStringNode extends ConstValueNode {
   private Delimiter delimLeft;
   private Delimiter delimRight;
   private AbsynListNode contents;
 
-  public DelimitedString(Delimiter delimLeft, Delimiter delimRight, AbsynListNode contents) {
+  public DelimitedStringNode(Delimiter delimLeft, Delimiter delimRight, AbsynListNode contents) {
+    super(ConstValueType.FSTRING);
     this.delimLeft = delimLeft;
     this.delimRight = delimRight;
     this.contents = contents;
@@ -661,16 +1776,20 @@ class DelimitedStringNode extends ConstValue {
   public boolean delimitersMatch() {
     return this.delimLeft == this.delimRight;
   }
-}
 
-class InterpreterVisitor implements Visitor {
-  public void visit(ProgramNode node) {
-    node.getStatementList().accept(this);
+  public AbsynListNode getContents() {
+    return this.contents;
   }
 
-  public void visit(StatementListNode node) {
-    for (StatementNode statement : node.getStatements()) {
-      statement.accept(this);
-    }
+  @Override
+  public void interpretSelf(XtellaVM vm) {
+    this.contents.interpretSelf(vm);
+    vm.addInstruction(XtellaVM.CONCAT);
+    vm.addOperand(this.contents.size());
+  }
+
+  @Override
+  void accept(Visitor visitor) {
+    visitor.visit(this);
   }
 }
@@ -0,0 +1,480 @@
+package xtella;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+public final class XtellaArray implements Iterable<Object> {
+  public enum Kind {
+    BYTE,
+    INT,
+    LONG,
+    FLOAT,
+    DOUBLE,
+    OBJECT
+  }
+
+  private static final int DEFAULT_CAPACITY = 8;
+
+  private Kind kind;
+  private byte[] bytes;
+  private int[] ints;
+  private long[] longs;
+  private float[] floats;
+  private double[] doubles;
+  private Object[] objects;
+  private int size;
+
+  public XtellaArray() {
+    this(Kind.BYTE, DEFAULT_CAPACITY);
+  }
+
+  public XtellaArray(Kind kind, int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Array capacity must not be negative");
+    }
+
+    allocate(kind, capacity);
+    this.size = 0;
+  }
+
+  public static XtellaArray of(Object... values) {
+    Kind kind = Kind.BYTE;
+
+    for (int i = 0; i < values.length; i++) {
+      kind = i == 0 ? kindOf(values[i]) : join(kind, kindOf(values[i]));
+    }
+
+    XtellaArray array = new XtellaArray(kind, values.length);
+
+    for (Object value : values) {
+      array.store(array.size++, value);
+    }
+
+    return array;
+  }
+
+  static Kind kindOf(Object value) {
+    if (value instanceof Integer || value instanceof Long) {
+      return kindOfLong(((Number) value).longValue());
+    } else if (value instanceof Float) {
+      return Kind.FLOAT;
+    } else if (value instanceof Double) {
+      return Kind.DOUBLE;
+    }
+
+    return Kind.OBJECT;
+  }
+
+  static Kind kindOfLong(long value) {
+    if ((byte) value == value) {
+      return Kind.BYTE;
+    }
+
+    return (int) value == value ? Kind.INT : Kind.LONG;
+  }
+
+  static Kind join(Kind left, Kind right) {
+    if (left == right) {
+      return left;
+    } else if (left == Kind.OBJECT || right == Kind.OBJECT) {
+      return Kind.OBJECT;
+    }
+
+    boolean leftIntegral = left.compareTo(Kind.LONG) <= 0;
+    boolean rightIntegral = right.compareTo(Kind.LONG) <= 0;
+
+    if (leftIntegral && rightIntegral) {
+      return left.compareTo(right) > 0 ? left : right;
+    } else if (!leftIntegral && !rightIntegral) {
+      return Kind.DOUBLE;
+    }
+
+    return left == Kind.LONG || right == Kind.LONG ? Kind.OBJECT : Kind.DOUBLE;
+  }
+
+  public Kind getKind() {
+    return this.kind;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public Object get(int index) {
+    Objects.checkIndex(index, this.size);
+
+    switch (this.kind) {
+      case BYTE:
+        return (int) this.bytes[index];
+      case INT:
+        return this.ints[index];
+      case LONG:
+        return XtellaNumbers.narrow(this.longs[index]);
+      case FLOAT:
+        return this.floats[index];
+      case DOUBLE:
+        return this.doubles[index];
+      default:
+        return this.objects[index];
+    }
+  }
+
+  public int getInt(int index) {
+    Objects.checkIndex(index, this.size);
+
+    switch (this.kind) {
+      case BYTE:
+        return this.bytes[index];
+      case INT:
+        return this.ints[index];
+      default:
+        throw new IllegalStateException("Array of kind " + this.kind + " has no int view");
+    }
+  }
+
+  public long getLong(int index) {
+    Objects.checkIndex(index, this.size);
+
+    switch (this.kind) {
+      case BYTE:
+        return this.bytes[index];
+      case INT:
+        return this.ints[index];
+      case LONG:
+        return this.longs[index];
+      default:
+        throw new IllegalStateException("Array of kind " + this.kind + " has no long view");
+    }
+  }
+
+  public float getFloat(int index) {
+    Objects.checkIndex(index, this.size);
+
+    if (this.kind != Kind.FLOAT) {
+      throw new IllegalStateException("Array of kind " + this.kind + " has no float view");
+    }
+
+    return this.floats[index];
+  }
+
+  public double getDouble(int index) {
+    Objects.checkIndex(index, this.size);
+
+    switch (this.kind) {
+      case BYTE:
+        return this.bytes[index];
+      case INT:
+        return this.ints[index];
+      case FLOAT:
+        return this.floats[index];
+      case DOUBLE:
+        return this.doubles[index];
+      default:
+        throw new IllegalStateException("Array of kind " + this.kind + " has no double view");
+    }
+  }
+
+  public void set(int index, Object value) {
+    Objects.checkIndex(index, this.size);
+    widen(kindOf(value));
+    store(index, value);
+  }
+
+  public void setInt(int index, int value) {
+    setLong(index, value);
+  }
+
+  public void setLong(int index, long value) {
+    Objects.checkIndex(index, this.size);
+    widen(kindOfLong(value));
+    storeLong(index, value);
+  }
+
+  public void setFloat(int index, float value) {
+    Objects.checkIndex(index, this.size);
+    widen(Kind.FLOAT);
+    storeFloat(index, value);
+  }
+
+  public void setDouble(int index, double value) {
+    Objects.checkIndex(index, this.size);
+    widen(Kind.DOUBLE);
+    storeDouble(index, value);
+  }
+
+  public void append(Object value) {
+    widen(kindOf(value));
+    ensureCapacity();
+    store(this.size++, value);
+  }
+
+  public void appendInt(int value) {
+    appendLong(value);
+  }
+
+  public void appendLong(long value) {
+    widen(kindOfLong(value));
+    ensureCapacity();
+    storeLong(this.size++, value);
+  }
+
+  public void appendFloat(float value) {
+    widen(Kind.FLOAT);
+    ensureCapacity();
+    storeFloat(this.size++, value);
+  }
+
+  public void appendDouble(double value) {
+    widen(Kind.DOUBLE);
+    ensureCapacity();
+    storeDouble(this.size++, value);
+  }
+
+  public XtellaArray copy() {
+    XtellaArray copy = new XtellaArray(this.kind, 0);
+
+    switch (this.kind) {
+      case BYTE:
+        copy.bytes = Arrays.copyOf(this.bytes, this.size);
+        break;
+      case INT:
+        copy.ints = Arrays.copyOf(this.ints, this.size);
+        break;
+      case LONG:
+        copy.longs = Arrays.copyOf(this.longs, this.size);
+        break;
+      case FLOAT:
+        copy.floats = Arrays.copyOf(this.floats, this.size);
+        break;
+      case DOUBLE:
+        copy.doubles = Arrays.copyOf(this.doubles, this.size);
+        break;
+      default:
+        copy.objects = Arrays.copyOf(this.objects, this.size);
+        break;
+    }
+
+    copy.size = this.size;
+    return copy;
+  }
+
+  public Object[] toArray() {
+    Object[] values = new Object[this.size];
+
+    for (int i = 0; i < this.size; i++) {
+      values[i] = get(i);
+    }
+
+    return values;
+  }
+
+  @Override
+  public Iterator<Object> iterator() {
+    return new Cursor(this);
+  }
+
+  private void widen(Kind valueKind) {
+    Kind target = this.size == 0 ? valueKind : join(this.kind, valueKind);
+
+    if (target == this.kind) {
+      return;
+    }
+
+    XtellaArray widened = new XtellaArray(target, capacity());
+
+    for (int i = 0; i < this.size; i++) {
+      widened.store(i, get(i));
+    }
+
+    this.kind = target;
+    this.bytes = widened.bytes;
+    this.ints = widened.ints;
+    this.longs = widened.longs;
+    this.floats = widened.floats;
+    this.doubles = widened.doubles;
+    this.objects = widened.objects;
+  }
+
+  private void store(int index, Object value) {
+    switch (this.kind) {
+      case BYTE:
+      case INT:
+      case LONG:
+        storeLong(index, ((Number) value).longValue());
+        break;
+      case FLOAT:
+        this.floats[index] = (Float) value;
+        break;
+      case DOUBLE:
+        this.doubles[index] = ((Number) value).doubleValue();
+        break;
+      default:
+        this.objects[index] = value;
+        break;
+    }
+  }
+
+  private void storeLong(int index, long value) {
+    switch (this.kind) {
+      case BYTE:
+        this.bytes[index] = (byte) value;
+        break;
+      case INT:
+        this.ints[index] = (int) value;
+        break;
+      case LONG:
+        this.longs[index] = value;
+        break;
+      case DOUBLE:
+        this.doubles[index] = value;
+        break;
+      default:
+        this.objects[index] = XtellaNumbers.narrow(value);
+        break;
+    }
+  }
+
+  private void storeFloat(int index, float value) {
+    switch (this.kind) {
+      case FLOAT:
+        this.floats[index] = value;
+        break;
+      case DOUBLE:
+        this.doubles[index] = value;
+        break;
+      default:
+        this.objects[index] = value;
+        break;
+    }
+  }
+
+  private void storeDouble(int index, double value) {
+    if (this.kind == Kind.DOUBLE) {
+      this.doubles[index] = value;
+    } else {
+      this.objects[index] = value;
+    }
+  }
+
+  private void allocate(Kind kind, int capacity) {
+    this.kind = kind;
+
+    switch (kind) {
+      case BYTE:
+        this.bytes = new byte[capacity];
+        break;
+      case INT:
+        this.ints = new int[capacity];
+        break;
+      case LONG:
+        this.longs = new long[capacity];
+        break;
+      case FLOAT:
+        this.floats = new float[capacity];
+        break;
+      case DOUBLE:
+        this.doubles = new double[capacity];
+        break;
+      default:
+        this.objects = new Object[capacity];
+        break;
+    }
+  }
+
+  private int capacity() {
+    switch (this.kind) {
+      case BYTE:
+        return this.bytes.length;
+      case INT:
+        return this.ints.length;
+      case LONG:
+        return this.longs.length;
+      case FLOAT:
+        return this.floats.length;
+      case DOUBLE:
+        return this.doubles.length;
+      default:
+        return this.objects.length;
+    }
+  }
+
+  private void ensureCapacity() {
+    int capacity = capacity();
+
+    if (this.size < capacity) {
+      return;
+    }
+
+    int grown = Math.max(DEFAULT_CAPACITY, capacity + (capacity >> 1));
+
+    switch (this.kind) {
+      case BYTE:
+        this.bytes = Arrays.copyOf(this.bytes, grown);
+        break;
+      case INT:
+        this.ints = Arrays.copyOf(this.ints, grown);
+        break;
+      case LONG:
+        this.longs = Arrays.copyOf(this.longs, grown);
+        break;
+      case FLOAT:
+        this.floats = Arrays.copyOf(this.floats, grown);
+        break;
+      case DOUBLE:
+        this.doubles = Arrays.copyOf(this.doubles, grown);
+        break;
+      default:
+        this.objects = Arrays.copyOf(this.objects, grown);
+        break;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder("[");
+
+    for (int i = 0; i < this.size; i++) {
+      if (i > 0) {
+        text.append(", ");
+      }
+
+      text.append(get(i));
+    }
+
+    return text.append(']').toString();
+  }
+
+  static final class Cursor implements Iterator<Object> {
+    private final XtellaArray array;
+    private int position;
+
+    private Cursor(XtellaArray array) {
+      this.array = array;
+      this.position = 0;
+    }
+
+    XtellaArray getArray() {
+      return this.array;
+    }
+
+    int advance() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      return this.position++;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.position < this.array.size;
+    }
+
+    @Override
+    public Object next() {
+      return this.array.get(advance());
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package xtella;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+public class XtellaBytecodeChunk {
+  private static final int INITIAL_CODE_CAPACITY = 64;
+  private static final int INITIAL_CONSTANT_CAPACITY = 16;
+
+  private volatile int[] code;
+  private int codeLength;
+  private Object[] constants;
+  private int constantCount;
+  private Map<Object, Integer> constantIndices;
+  private Map<String, Integer> patternIndices;
+  private int localCount;
+  private volatile AtomicReferenceArray<XtellaInlineCache> inlineCaches;
+  private volatile XtellaTier2.Profile tier2Profile;
+
+  public XtellaBytecodeChunk() {
+    this.code = new int[INITIAL_CODE_CAPACITY];
+    this.codeLength = 0;
+    this.constants = new Object[INITIAL_CONSTANT_CAPACITY];
+    this.constantCount = 0;
+    this.constantIndices = new HashMap<>();
+    this.patternIndices = new HashMap<>();
+    this.localCount = 0;
+  }
+
+  public XtellaBytecodeChunk(int[] code, Object[] constants, int localCount) {
+    this.code = code.length == 0 ? new int[INITIAL_CODE_CAPACITY] : code;
+    this.codeLength = code.length;
+    this.constants = constants.length == 0 ? new Object[INITIAL_CONSTANT_CAPACITY] : constants;
+    this.constantCount = constants.length;
+    this.constantIndices = new HashMap<>();
+    this.patternIndices = new HashMap<>();
+    this.localCount = localCount;
+
+    for (int i = 0; i < constants.length; i++) {
+      if (constants[i] instanceof Pattern) {
+        this.patternIndices.putIfAbsent(((Pattern) constants[i]).pattern(), i);
+      } else {
+        this.constantIndices.putIfAbsent(constants[i], i);
+      }
+    }
+  }
+
+  public int emit(int word) {
+    if (this.codeLength == this.code.length) {
+      this.code = Arrays.copyOf(this.code, this.code.length * 2);
+    }
+
+    this.code[this.codeLength] = word;
+    return this.codeLength++;
+  }
+
+  public void patch(int offset, int word) {
+    if (offset < 0 || offset >= this.codeLength) {
+      throw new IndexOutOfBoundsException("Invalid code offset for patch: " + offset);
+    }
+
+    this.code[offset] = word;
+  }
+
+  public int addConstant(Object constant) {
+    Integer existingIndex = this.constantIndices.get(constant);
+
+    if (existingIndex != null) {
+      return existingIndex;
+    }
+
+    this.constantIndices.put(constant, this.constantCount);
+    return appendConstant(constant);
+  }
+
+  public int addPatternConstant(String regex) {
+    Integer existingIndex = this.patternIndices.get(regex);
+
+    if (existingIndex != null) {
+      return existingIndex;
+    }
+
+    this.patternIndices.put(regex, this.constantCount);
+    return appendConstant(Pattern.compile(regex));
+  }
+
+  private int appendConstant(Object constant) {
+    if (this.constantCount == this.constants.length) {
+      this.constants = Arrays.copyOf(this.constants, this.constants.length * 2);
+    }
+
+    this.constants[this.constantCount] = constant;
+    return this.constantCount++;
+  }
+
+  public int[] getCode() {
+    return this.code;
+  }
+
+  synchronized int[] rewrite(int offset, int opcode, int rewritten) {
+    if (this.code[offset] == opcode) {
+      int[] rewrittenCode = this.code.clone();
+      rewrittenCode[offset] = rewritten;
+      this.code = rewrittenCode;
+    }
+
+    return this.code;
+  }
+
+  public void setCode(int[] code, int codeLength) {
+    if (codeLength < 0 || codeLength > code.length) {
+      throw new IllegalArgumentException("Invalid code length: " + codeLength);
+    }
+
+    this.code = code.length == 0 ? new int[INITIAL_CODE_CAPACITY] : code;
+    this.codeLength = codeLength;
+    this.inlineCaches = null;
+    this.tier2Profile = null;
+  }
+
+  public XtellaInlineCache getInlineCache(int offset, String methodName) {
+    AtomicReferenceArray<XtellaInlineCache> caches = this.inlineCaches;
+
+    if (caches == null || caches.length() <= offset) {
+      caches = growInlineCaches();
+    }
+
+    XtellaInlineCache cache = caches.get(offset);
+
+    if (cache == null) {
+      XtellaInlineCache created = new XtellaInlineCache(methodName);
+      cache = caches.compareAndExchange(offset, null, created);
+
+      if (cache == null) {
+        cache = created;
+      }
+    }
+
+    return cache;
+  }
+
+  private synchronized AtomicReferenceArray<XtellaInlineCache> growInlineCaches() {
+    AtomicReferenceArray<XtellaInlineCache> caches = this.inlineCaches;
+
+    if (caches == null || caches.length() < this.codeLength) {
+      AtomicReferenceArray<XtellaInlineCache> grown = new AtomicReferenceArray<>(this.codeLength);
+
+      for (int i = 0; caches != null && i < caches.length(); i++) {
+        grown.set(i, caches.get(i));
+      }
+
+      this.inlineCaches = grown;
+      caches = grown;
+    }
+
+    return caches;
+  }
+
+  XtellaTier2.Profile getTier2Profile() {
+    XtellaTier2.Profile profile = this.tier2Profile;
+
+    if (profile != null) {
+      return profile;
+    }
+
+    synchronized (this) {
+      if (this.tier2Profile == null) {
+        this.tier2Profile = new XtellaTier2.Profile();
+      }
+
+      return this.tier2Profile;
+    }
+  }
+
+  public int getCodeLength() {
+    return this.codeLength;
+  }
+
+  public Object[] getConstants() {
+    return this.constants;
+  }
+
+  public int getConstantCount() {
+    return this.constantCount;
+  }
+
+  public int getLocalCount() {
+    return this.localCount;
+  }
+
+  public void setLocalCount(int localCount) {
+    this.localCount = localCount;
+  }
+
+  public Object getConstant(int index) {
+    if (index < 0 || index >= this.constantCount) {
+      throw new IndexOutOfBoundsException("Invalid constant pool index: " + index);
+    }
+
+    return this.constants[index];
+  }
+}
@@ -0,0 +1,224 @@
+package xtella;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+public class XtellaChannel implements Iterable<Object> {
+  public static final int DEFAULT_CAPACITY = 16;
+
+  private static final Object CLOSED = new Object();
+
+  private final Object[] buffer;
+  private final ReentrantLock lock;
+  private final Condition notEmpty;
+  private final Condition notFull;
+  private int head;
+  private int count;
+  private boolean closed;
+
+  public XtellaChannel() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public XtellaChannel(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Channel capacity must be positive");
+    }
+
+    this.buffer = new Object[capacity];
+    this.lock = new ReentrantLock();
+    this.notEmpty = this.lock.newCondition();
+    this.notFull = this.lock.newCondition();
+    this.head = 0;
+    this.count = 0;
+    this.closed = false;
+  }
+
+  public int getCapacity() {
+    return this.buffer.length;
+  }
+
+  public int size() {
+    this.lock.lock();
+
+    try {
+      return this.count;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  public boolean isClosed() {
+    this.lock.lock();
+
+    try {
+      return this.closed;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  public void send(Object value) throws InterruptedException {
+    Object message = copyOnSend(value);
+
+    this.lock.lockInterruptibly();
+
+    try {
+      while (this.count == this.buffer.length && !this.closed) {
+        this.notFull.await();
+      }
+
+      if (this.closed) {
+        throw new IllegalStateException("Send on a closed channel");
+      }
+
+      this.buffer[(this.head + this.count) % this.buffer.length] = message;
+      this.count++;
+      this.notEmpty.signal();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  public Object receive() throws InterruptedException {
+    Object message = take();
+
+    if (message == CLOSED) {
+      throw new IllegalStateException("Receive on a closed channel");
+    }
+
+    return message;
+  }
+
+  private Object take() throws InterruptedException {
+    this.lock.lockInterruptibly();
+
+    try {
+      while (this.count == 0 && !this.closed) {
+        this.notEmpty.await();
+      }
+
+      if (this.count == 0) {
+        return CLOSED;
+      }
+
+      Object message = this.buffer[this.head];
+      this.buffer[this.head] = null;
+      this.head = (this.head + 1) % this.buffer.length;
+      this.count--;
+      this.notFull.signal();
+      return message;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  public void close() {
+    this.lock.lock();
+
+    try {
+      this.closed = true;
+      this.notEmpty.signalAll();
+      this.notFull.signalAll();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public Iterator<Object> iterator() {
+    return new Iterator<Object>() {
+      private Object next;
+
+      @Override
+      public boolean hasNext() {
+        if (this.next == null) {
+          try {
+            this.next = take();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while receiving from channel", e);
+          }
+        }
+
+        return this.next != CLOSED;
+      }
+
+      @Override
+      public Object next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        Object message = this.next;
+        this.next = null;
+        return message;
+      }
+    };
+  }
+
+  static Object copyOnSend(Object value) {
+    if (value == null
+        || value instanceof String
+        || value instanceof Number
+        || value instanceof Boolean
+        || value instanceof Pattern
+        || value instanceof XtellaRange
+        || value instanceof XtellaChannel
+        || value instanceof XtellaTask) {
+      return value;
+    } else if (value instanceof CharSequence) {
+      return value.toString();
+    } else if (value instanceof XtellaArray) {
+      XtellaArray copy = ((XtellaArray) value).copy();
+
+      if (copy.getKind() == XtellaArray.Kind.OBJECT) {
+        for (int i = 0; i < copy.size(); i++) {
+          copy.set(i, copyOnSend(copy.get(i)));
+        }
+      }
+
+      return copy;
+    } else if (value instanceof XtellaHashMap) {
+      XtellaHashMap copy = new XtellaHashMap(((XtellaHashMap) value).size());
+      ((XtellaHashMap) value).forEach(
+          (key, element) -> copy.put(copyOnSend(key), copyOnSend(element)));
+      return copy;
+    } else if (value instanceof Object[]) {
+      Object[] elements = (Object[]) value;
+      Object[] copy = new Object[elements.length];
+
+      for (int i = 0; i < elements.length; i++) {
+        copy[i] = copyOnSend(elements[i]);
+      }
+
+      return copy;
+    } else if (value instanceof List) {
+      List<Object> copy = new ArrayList<>();
+
+      for (Object element : (List<?>) value) {
+        copy.add(copyOnSend(element));
+      }
+
+      return copy;
+    } else if (value instanceof Map) {
+      Map<Object, Object> copy = new HashMap<>();
+
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        copy.put(copyOnSend(entry.getKey()), copyOnSend(entry.getValue()));
+      }
+
+      return copy;
+    }
+
+    throw new IllegalArgumentException(
+        "Cannot send a value of type " + value.getClass().getSimpleName() + " between threads");
+  }
+}
@@ -0,0 +1,152 @@
+package xtella;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class XtellaChunkCache {
+  private static final String FILE_SUFFIX = ".xbc";
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final Path directory;
+  private final Map<String, XtellaBytecodeChunk> loadedChunks;
+  private long hitCount;
+  private long missCount;
+
+  public XtellaChunkCache(Path directory) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.loadedChunks = new ConcurrentHashMap<>();
+    this.hitCount = 0;
+    this.missCount = 0;
+  }
+
+  public Path getDirectory() {
+    return this.directory;
+  }
+
+  public synchronized long getHitCount() {
+    return this.hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return this.missCount;
+  }
+
+  public static String key(String source) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(Integer.toString(XtellaChunkFormat.VERSION).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+
+      byte[] hash = digest.digest(source.getBytes(StandardCharsets.UTF_8));
+      char[] hex = new char[hash.length * 2];
+
+      for (int i = 0; i < hash.length; i++) {
+        hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+        hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+      }
+
+      return new String(hex);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private Path pathFor(String key) {
+    return this.directory.resolve(key + FILE_SUFFIX);
+  }
+
+  public XtellaBytecodeChunk getOrCompile(
+      String source, Function<String, XtellaBytecodeChunk> compiler) {
+    String key = key(source);
+    XtellaBytecodeChunk chunk = this.loadedChunks.get(key);
+
+    if (chunk == null) {
+      chunk = load(key);
+    }
+
+    if (chunk == null) {
+      recordLookup(false);
+      chunk = compiler.apply(source);
+      store(key, chunk);
+    } else {
+      recordLookup(true);
+    }
+
+    this.loadedChunks.put(key, chunk);
+    return chunk;
+  }
+
+  private synchronized void recordLookup(boolean hit) {
+    if (hit) {
+      this.hitCount++;
+    } else {
+      this.missCount++;
+    }
+  }
+
+  public XtellaBytecodeChunk load(String key) {
+    Path path = pathFor(key);
+
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return XtellaChunkFormat.read(mapped);
+    } catch (IllegalArgumentException e) {
+      evict(key);
+      return null;
+    } catch (IOException e) {
+      throw new RuntimeException("Error loading compiled chunk " + path, e);
+    }
+  }
+
+  public void store(String key, XtellaBytecodeChunk chunk) {
+    Path path = pathFor(key);
+
+    try {
+      Path temporary = Files.createTempFile(this.directory, key, ".tmp");
+
+      try {
+        Files.write(temporary, XtellaChunkFormat.write(chunk));
+        moveIntoPlace(temporary, path);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error storing compiled chunk " + path, e);
+    }
+  }
+
+  private static void moveIntoPlace(Path source, Path target) throws IOException {
+    try {
+      Files.move(
+          source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  public void evict(String key) {
+    this.loadedChunks.remove(key);
+
+    try {
+      Files.deleteIfExists(pathFor(key));
+    } catch (IOException e) {
+      throw new RuntimeException("Error evicting compiled chunk " + key, e);
+    }
+  }
+}
@@ -0,0 +1,354 @@
+package xtella;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+public final class XtellaChunkFormat {
+  public static final int MAGIC = 0x58544243;
+  public static final int VERSION = 10;
+
+  private static final byte CONSTANT_STRING = 1;
+  private static final byte CONSTANT_PATTERN = 2;
+  private static final byte CONSTANT_INTEGER = 3;
+  private static final byte CONSTANT_FLOAT = 4;
+  private static final byte CONSTANT_BOOLEAN = 5;
+  private static final byte CONSTANT_BIG_INTEGER = 6;
+  private static final byte CONSTANT_INT_KEYS = 7;
+  private static final byte CONSTANT_STRING_SWITCH = 8;
+  private static final byte CONSTANT_REGEX_SWITCH = 9;
+  private static final byte CONSTANT_REGEX_SET = 10;
+
+  private XtellaChunkFormat() {}
+
+  public static byte[] write(XtellaBytecodeChunk chunk) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(chunk.getCodeLength() * 4 + 64);
+
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      int[] code = chunk.getCode();
+      Object[] constants = chunk.getConstants();
+
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(chunk.getLocalCount());
+      output.writeInt(chunk.getCodeLength());
+      output.writeInt(chunk.getConstantCount());
+
+      for (int pc = 0; pc < chunk.getCodeLength(); pc += 1 + XtellaVM.operandCount(code[pc])) {
+        output.writeInt(XtellaVM.genericOpcode(code[pc]));
+
+        for (int i = 1; i <= XtellaVM.operandCount(code[pc]); i++) {
+          output.writeInt(code[pc + i]);
+        }
+      }
+
+      for (int i = 0; i < chunk.getConstantCount(); i++) {
+        writeConstant(output, constants[i]);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error serializing compiled chunk", e);
+    }
+
+    return bytes.toByteArray();
+  }
+
+  private static void writeConstant(DataOutputStream output, Object constant) throws IOException {
+    if (constant instanceof String) {
+      output.writeByte(CONSTANT_STRING);
+      writeString(output, (String) constant);
+    } else if (constant instanceof Pattern) {
+      output.writeByte(CONSTANT_PATTERN);
+      writeString(output, ((Pattern) constant).pattern());
+    } else if (constant instanceof Integer) {
+      output.writeByte(CONSTANT_INTEGER);
+      output.writeInt((Integer) constant);
+    } else if (constant instanceof Float) {
+      output.writeByte(CONSTANT_FLOAT);
+      output.writeInt(Float.floatToRawIntBits((Float) constant));
+    } else if (constant instanceof Boolean) {
+      output.writeByte(CONSTANT_BOOLEAN);
+      output.writeByte((Boolean) constant ? 1 : 0);
+    } else if (constant instanceof BigInteger) {
+      output.writeByte(CONSTANT_BIG_INTEGER);
+      writeString(output, constant.toString());
+    } else if (constant instanceof int[]) {
+      int[] keys = (int[]) constant;
+      output.writeByte(CONSTANT_INT_KEYS);
+      output.writeInt(keys.length);
+
+      for (int key : keys) {
+        output.writeInt(key);
+      }
+    } else if (constant instanceof XtellaStringSwitch) {
+      output.writeByte(CONSTANT_STRING_SWITCH);
+      writeStrings(output, ((XtellaStringSwitch) constant).getKeys());
+    } else if (constant instanceof XtellaRegexSwitch) {
+      output.writeByte(CONSTANT_REGEX_SWITCH);
+      writeStrings(output, ((XtellaRegexSwitch) constant).getPatterns());
+    } else if (constant instanceof XtellaRegexSet) {
+      output.writeByte(CONSTANT_REGEX_SET);
+      writeStrings(output, ((XtellaRegexSet) constant).getPatterns());
+    } else {
+      throw new IllegalArgumentException(
+          "Unsupported constant type in chunk: " + constant.getClass().getName());
+    }
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(encoded.length);
+    output.write(encoded);
+  }
+
+  private static void writeStrings(DataOutputStream output, String[] values) throws IOException {
+    output.writeInt(values.length);
+
+    for (String value : values) {
+      writeString(output, value);
+    }
+  }
+
+  public static XtellaBytecodeChunk read(ByteBuffer buffer) {
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IllegalArgumentException("Invalid compiled chunk: bad magic number");
+      }
+
+      int version = buffer.getInt();
+
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported compiled chunk version: " + version);
+      }
+
+      int localCount = buffer.getInt();
+
+      if (localCount < 0) {
+        throw new IllegalArgumentException("Invalid compiled chunk: negative local count");
+      }
+
+      int codeLength = readCount(buffer, 4);
+      int constantCount = readCount(buffer, 1);
+      int[] code = new int[codeLength];
+      buffer.asIntBuffer().get(code);
+      buffer.position(buffer.position() + codeLength * 4);
+
+      Object[] constants = new Object[constantCount];
+
+      for (int i = 0; i < constantCount; i++) {
+        constants[i] = readConstant(buffer);
+      }
+
+      if (buffer.hasRemaining()) {
+        throw new IllegalArgumentException("Invalid compiled chunk: trailing data");
+      }
+
+      verify(code, constants);
+      return new XtellaBytecodeChunk(code, constants, localCount);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Invalid compiled chunk: truncated data", e);
+    }
+  }
+
+  // Checks everything execute() trusts the compiler for, so a damaged file fails here
+  // instead of jumping or indexing out of bounds at run time.
+  private static void verify(int[] code, Object[] constants) {
+    boolean[] starts = new boolean[code.length + 1];
+    starts[code.length] = true;
+
+    for (int pc = 0; pc < code.length; pc += 1 + operandCount(code[pc], pc)) {
+      if (pc + operandCount(code[pc], pc) >= code.length) {
+        throw new IllegalArgumentException(
+            "Invalid compiled chunk: truncated instruction at " + pc);
+      }
+
+      starts[pc] = true;
+    }
+
+    for (int pc = 0; pc < code.length; pc += 1 + XtellaVM.operandCount(code[pc])) {
+      int opcode = code[pc];
+      int operands = XtellaVM.operandCount(opcode);
+      int jump = XtellaVM.jumpOperandIndex(opcode);
+
+      if (jump >= 0) {
+        int target = code[pc + 1 + jump];
+
+        if (target < 0 || target > code.length || !starts[target]) {
+          throw new IllegalArgumentException(
+              "Invalid compiled chunk: bad jump target " + target + " at " + pc);
+        }
+      }
+
+      for (int i = 0; i < operands; i++) {
+        Class<?> type = constantType(opcode, i);
+
+        if (type != null) {
+          int index = code[pc + 1 + i];
+
+          if (index < 0 || index >= constants.length || !type.isInstance(constants[index])) {
+            throw new IllegalArgumentException(
+                "Invalid compiled chunk: bad constant index " + index + " at " + pc);
+          }
+        }
+      }
+
+      int arms = switchArmCount(code, pc, constants);
+      int table = pc + 1 + operands;
+
+      for (int i = 0; i < arms; i++) {
+        if (table + 2 * i >= code.length || code[table + 2 * i] != XtellaVM.JUMP) {
+          throw new IllegalArgumentException(
+              "Invalid compiled chunk: incomplete jump table at " + pc);
+        }
+      }
+    }
+  }
+
+  private static int operandCount(int opcode, int pc) {
+    try {
+      return XtellaVM.operandCount(opcode);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          "Invalid compiled chunk: unknown opcode " + opcode + " at " + pc, e);
+    }
+  }
+
+  private static Class<?> constantType(int opcode, int operand) {
+    switch (XtellaVM.genericOpcode(opcode)) {
+      case XtellaVM.PUSH_STRING:
+      case XtellaVM.LOAD_VARIABLE:
+      case XtellaVM.STORE_VARIABLE:
+      case XtellaVM.LOAD_VARIABLE_FROM_ARRAY:
+      case XtellaVM.STORE_VARIABLE_INTO_ARRAY:
+      case XtellaVM.LOAD_VARIABLE_FROM_HASHMAP:
+      case XtellaVM.STORE_VARIABLE_INTO_HASHMAP:
+      case XtellaVM.PIPE_PROCESS_TO_FILE:
+      case XtellaVM.FILE_LINES:
+      case XtellaVM.APPEND_TO_ARRAY:
+      case XtellaVM.OPEN_FILE_FOR_READING:
+      case XtellaVM.OPEN_FILE_FOR_WRITING:
+      case XtellaVM.OPEN_FILE_FOR_READING_AND_WRITING:
+      case XtellaVM.OPEN_FILE_FOR_APPENDING:
+      case XtellaVM.CLOSE_FILE:
+      case XtellaVM.READ_FILE:
+      case XtellaVM.WRITE_FILE:
+      case XtellaVM.APPEND_FILE:
+      case XtellaVM.READ_LINE_FROM_FILE:
+        return String.class;
+      case XtellaVM.WRITE_FILE_PARTS:
+        return operand == 0 ? String.class : null;
+      case XtellaVM.PUSH_BIG_INTEGER:
+        return BigInteger.class;
+      case XtellaVM.REGEX_MATCH_CONSTANT:
+      case XtellaVM.PUSH_REGEX:
+      case XtellaVM.REGEX_FIND_ALL:
+        return Pattern.class;
+      case XtellaVM.REGEX_MATCH_CONSTANT_JUMP_IF_FALSE:
+        return operand == 0 ? Pattern.class : null;
+      case XtellaVM.LOAD_LOCAL_REGEX_MATCH_CONSTANT_JUMP_IF_FALSE:
+        return operand == 1 ? Pattern.class : null;
+      case XtellaVM.LOOKUP_SWITCH:
+        return int[].class;
+      case XtellaVM.STRING_SWITCH:
+        return XtellaStringSwitch.class;
+      case XtellaVM.REGEX_SWITCH:
+        return XtellaRegexSwitch.class;
+      case XtellaVM.MULTI_REGEX_MATCH:
+      case XtellaVM.MULTI_REGEX_MATCH_ALL:
+        return XtellaRegexSet.class;
+      default:
+        return null;
+    }
+  }
+
+  // Each switch is followed by one JUMP per arm plus one to the default arm.
+  private static int switchArmCount(int[] code, int pc, Object[] constants) {
+    switch (code[pc]) {
+      case XtellaVM.TABLE_SWITCH:
+        if (code[pc + 2] < 0 || code[pc + 2] >= code.length) {
+          throw new IllegalArgumentException("Invalid compiled chunk: bad switch size at " + pc);
+        }
+
+        return code[pc + 2] + 1;
+      case XtellaVM.LOOKUP_SWITCH:
+        return ((int[]) constants[code[pc + 1]]).length + 1;
+      case XtellaVM.STRING_SWITCH:
+        return ((XtellaStringSwitch) constants[code[pc + 1]]).size() + 1;
+      case XtellaVM.REGEX_SWITCH:
+        return ((XtellaRegexSwitch) constants[code[pc + 1]]).size() + 1;
+      default:
+        return 0;
+    }
+  }
+
+  private static Object readConstant(ByteBuffer buffer) {
+    byte tag = buffer.get();
+
+    switch (tag) {
+      case CONSTANT_STRING:
+        return readString(buffer);
+      case CONSTANT_PATTERN:
+        return Pattern.compile(readString(buffer));
+      case CONSTANT_INTEGER:
+        return buffer.getInt();
+      case CONSTANT_FLOAT:
+        return Float.intBitsToFloat(buffer.getInt());
+      case CONSTANT_BOOLEAN:
+        return buffer.get() != 0;
+      case CONSTANT_BIG_INTEGER:
+        return new BigInteger(readString(buffer));
+      case CONSTANT_INT_KEYS:
+        int[] keys = new int[readCount(buffer, 4)];
+
+        for (int i = 0; i < keys.length; i++) {
+          keys[i] = buffer.getInt();
+        }
+
+        return keys;
+      case CONSTANT_STRING_SWITCH:
+        return new XtellaStringSwitch(readStrings(buffer));
+      case CONSTANT_REGEX_SWITCH:
+        return new XtellaRegexSwitch(readStrings(buffer));
+      case CONSTANT_REGEX_SET:
+        return new XtellaRegexSet(readStrings(buffer));
+      default:
+        throw new IllegalArgumentException("Invalid compiled chunk: unknown constant tag " + tag);
+    }
+  }
+
+  private static int readCount(ByteBuffer buffer, int minimumElementSize) {
+    int count = buffer.getInt();
+
+    if (count < 0 || (long) count * minimumElementSize > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid compiled chunk: bad element count");
+    }
+
+    return count;
+  }
+
+  private static String[] readStrings(ByteBuffer buffer) {
+    String[] values = new String[readCount(buffer, 4)];
+
+    for (int i = 0; i < values.length; i++) {
+      values[i] = readString(buffer);
+    }
+
+    return values;
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid compiled chunk: bad string length");
+    }
+
+    byte[] encoded = new byte[length];
+    buffer.get(encoded);
+    return new String(encoded, StandardCharsets.UTF_8);
+  }
+}
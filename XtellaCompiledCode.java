@@ -0,0 +1,5 @@
+package xtella;
+
+interface XtellaCompiledCode {
+  int run(int[] locals, int entry, long[] state);
+}
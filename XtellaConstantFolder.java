@@ -0,0 +1,631 @@
+package xtella;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class XtellaConstantFolder implements Visitor {
+  private static final int MAX_PASSES = 8;
+
+  private Map<String, Object> constants;
+  private Map<String, Integer> writeCounts;
+  private Set<String> readNames;
+  private List<StatementNode> output;
+  private ExpressionNode folded;
+  private int blockDepth;
+  private boolean changed;
+
+  public XtellaConstantFolder() {
+    this.constants = new HashMap<>();
+    this.writeCounts = new HashMap<>();
+    this.readNames = new HashSet<>();
+    this.blockDepth = 0;
+    this.changed = false;
+  }
+
+  static Object constantValue(ExpressionNode node) {
+    if (node instanceof LiteralNode) {
+      Object value = ((LiteralNode) node).getValue();
+
+      if (XtellaNumbers.isNumeric(value)
+          || value instanceof Boolean
+          || value instanceof String) {
+        return value;
+      }
+    } else if (node instanceof StringConstNode) {
+      return ((StringConstNode) node).getValue();
+    } else if (node instanceof NumberNode) {
+      NumberNode number = (NumberNode) node;
+
+      try {
+        if (number.getNumberType() == NumberNode.NumberType.INTEGER) {
+          return XtellaNumbers.parseInteger(number.getValue());
+        }
+
+        return Double.parseDouble(number.getValue());
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+
+    return null;
+  }
+
+  private static ExpressionNode literalNode(Object value) {
+    if (value instanceof String) {
+      return new StringConstNode((String) value);
+    }
+
+    return new LiteralNode(value);
+  }
+
+  private static Object evaluate(Operator operator, Object left, Object right) {
+    int opcode = numericOpcode(operator);
+
+    if (opcode >= 0 && XtellaNumbers.isNumeric(left) && XtellaNumbers.isNumeric(right)) {
+      try {
+        return XtellaNumbers.evaluate(opcode, left, right);
+      } catch (ArithmeticException e) {
+        return null;
+      }
+    } else if (left instanceof Boolean && right instanceof Boolean) {
+      if (operator == Operator.AND) {
+        return (Boolean) left && (Boolean) right;
+      } else if (operator == Operator.OR) {
+        return (Boolean) left || (Boolean) right;
+      }
+    } else if (left instanceof String && right instanceof String) {
+      if (operator == Operator.EQ) {
+        return left.equals(right);
+      } else if (operator == Operator.NEQ) {
+        return !left.equals(right);
+      }
+    }
+
+    if (operator == Operator.PLUS && (left instanceof String || right instanceof String)) {
+      return String.valueOf(left) + String.valueOf(right);
+    }
+
+    return null;
+  }
+
+  private static int numericOpcode(Operator operator) {
+    switch (operator) {
+      case PLUS:
+        return XtellaVM.ADD;
+      case MINUS:
+        return XtellaVM.SUBTRACT;
+      case MULTIPLY:
+        return XtellaVM.MULTIPLY;
+      case DIVIDE:
+        return XtellaVM.DIVIDE;
+      case MODULO:
+        return XtellaVM.MODULO;
+      case BIT_AND:
+        return XtellaVM.BITWISE_AND;
+      case BIT_OR:
+        return XtellaVM.BITWISE_OR;
+      case BIT_XOR:
+        return XtellaVM.BITWISE_XOR;
+      case EQ:
+        return XtellaVM.EQUAL;
+      case NEQ:
+        return XtellaVM.NOT_EQUAL;
+      case LT:
+        return XtellaVM.LESS_THAN;
+      case LTE:
+        return XtellaVM.LESS_THAN_OR_EQUAL;
+      case GT:
+        return XtellaVM.GREATER_THAN;
+      case GTE:
+        return XtellaVM.GREATER_THAN_OR_EQUAL;
+      default:
+        return -1;
+    }
+  }
+
+  private static Boolean constantCondition(ConditionNode condition) {
+    if (condition == null) {
+      return null;
+    }
+
+    Object value = constantValue(condition.getExpression());
+    return value instanceof Boolean ? (Boolean) value : null;
+  }
+
+  private ExpressionNode fold(ExpressionNode node) {
+    if (node == null) {
+      return null;
+    }
+
+    ExpressionNode previous = this.folded;
+    this.folded = node;
+    node.accept(this);
+
+    ExpressionNode result = this.folded;
+    this.folded = previous;
+
+    if (result != node) {
+      this.changed = true;
+    }
+
+    return result;
+  }
+
+  private void foldCondition(ConditionNode condition) {
+    if (condition != null) {
+      condition.setExpression(fold(condition.getExpression()));
+    }
+  }
+
+  private void visitChild(AbsynNode node) {
+    if (node != null) {
+      node.accept(this);
+    }
+  }
+
+  private void splice(BlockNode block) {
+    if (block != null && block.getStatementList() != null) {
+      block.accept(this);
+      this.output.addAll(block.getStatementList().getStatements());
+    }
+
+    this.changed = true;
+  }
+
+  public void visit(ProgramNode node) {
+    for (int pass = 0; pass < MAX_PASSES; pass++) {
+      UsageCollector usage = new UsageCollector();
+      node.accept(usage);
+
+      this.writeCounts = usage.writeCounts;
+      this.readNames = usage.readNames;
+      this.constants = new HashMap<>();
+      this.changed = false;
+
+      visitChild(node.getStatementList());
+
+      if (!this.changed) {
+        break;
+      }
+    }
+  }
+
+  public void visit(StatementListNode node) {
+    List<StatementNode> previous = this.output;
+    this.output = new ArrayList<>();
+
+    for (StatementNode statement : node.getStatements()) {
+      statement.accept(this);
+    }
+
+    node.setStatements(this.output);
+    this.output = previous;
+  }
+
+  public void visit(AssignStmtNode node) {
+    node.setExpression(fold(node.getExpression()));
+
+    String name = node.getIdentifier().getValue();
+    Object value = constantValue(node.getExpression());
+
+    if (value != null && !this.readNames.contains(name)) {
+      this.changed = true;
+      return;
+    }
+
+    if (value != null && this.blockDepth == 0 && this.writeCounts.get(name) == 1) {
+      this.constants.put(name, value);
+    }
+
+    this.output.add(node);
+  }
+
+  public void visit(ControlFlowStmtNode node) {
+    foldCondition(node.getCondition());
+    visitChild(node.getIfBlock());
+    visitChild(node.getElseBlock());
+    this.output.add(node);
+  }
+
+  public void visit(ExecStmtNode node) {
+    this.output.add(node);
+  }
+
+  public void visit(RWStmtNode node) {
+    if (node.getRWMode() != RWMode.READING) {
+      node.setExpression(fold(node.getExpression()));
+    }
+
+    this.output.add(node);
+  }
+
+  public void visit(CloseStmtNode node) {
+    this.output.add(node);
+  }
+
+  public void visit(OpenStmtNode node) {
+    this.output.add(node);
+  }
+
+  public void visit(IfStmtNode node) {
+    foldCondition(node.getCondition());
+    Boolean condition = constantCondition(node.getCondition());
+
+    if (condition != null) {
+      splice(condition ? node.getIfBlock() : node.getElseBlock());
+      return;
+    }
+
+    visitChild(node.getIfBlock());
+    visitChild(node.getElseBlock());
+    this.output.add(node);
+  }
+
+  public void visit(WhileStmtNode node) {
+    foldCondition(node.getCondition());
+
+    if (Boolean.FALSE.equals(constantCondition(node.getCondition()))) {
+      this.changed = true;
+      return;
+    }
+
+    visitChild(node.getWhileBlock());
+    this.output.add(node);
+  }
+
+  public void visit(ReturnStmtNode node) {
+    node.setExpression(fold(node.getExpression()));
+    this.output.add(node);
+  }
+
+  public void visit(ForStmtNode node) {
+    node.setIterable(fold(node.getIterable()));
+    visitChild(node.getForBlock());
+    this.output.add(node);
+  }
+
+  public void visit(MatchStmtNode node) {
+    node.setExpression(fold(node.getExpression()));
+    Object subject = constantValue(node.getExpression());
+
+    for (MatchCaseNode matchCase : node.getMatchCases()) {
+      matchCase.setPattern(fold(matchCase.getPattern()));
+    }
+
+    if (subject != null) {
+      boolean allConstant = true;
+
+      for (MatchCaseNode matchCase : node.getMatchCases()) {
+        Object pattern = constantValue(matchCase.getPattern());
+
+        if (pattern == null) {
+          allConstant = false;
+          break;
+        }
+
+        if (pattern.equals(subject)) {
+          splice(matchCase.getBlock());
+          return;
+        }
+      }
+
+      if (allConstant) {
+        this.changed = true;
+        return;
+      }
+    }
+
+    for (MatchCaseNode matchCase : node.getMatchCases()) {
+      visitChild(matchCase.getBlock());
+    }
+
+    this.output.add(node);
+  }
+
+  public void visit(MatchCaseNode node) {
+    node.setPattern(fold(node.getPattern()));
+    visitChild(node.getBlock());
+  }
+
+  public void visit(BlockNode node) {
+    this.blockDepth++;
+    visitChild(node.getStatementList());
+    this.blockDepth--;
+  }
+
+  public void visit(ExpressionNode node) {}
+
+  public void visit(CompoundExprNode node) {
+    node.setLeft(fold(node.getLeft()));
+    node.setRight(fold(node.getRight()));
+
+    Object left = constantValue(node.getLeft());
+    Object right = constantValue(node.getRight());
+
+    if (left == null || right == null) {
+      return;
+    }
+
+    Object value = evaluate(Operator.valueOf(node.getOperator()), left, right);
+
+    if (value != null) {
+      this.folded = literalNode(value);
+    }
+  }
+
+  public void visit(UnaryExprNode node) {
+    node.setOperand(fold(node.getOperand()));
+    Object operand = constantValue(node.getOperand());
+
+    if ("NOT".equals(node.getOperator()) && operand instanceof Boolean) {
+      this.folded = literalNode(!(Boolean) operand);
+    } else if ("MINUS".equals(node.getOperator()) && XtellaNumbers.isNumeric(operand)) {
+      this.folded = literalNode(XtellaNumbers.negate(operand));
+    } else if ("PLUS".equals(node.getOperator()) && XtellaNumbers.isNumeric(operand)) {
+      this.folded = literalNode(operand);
+    }
+  }
+
+  public void visit(IdentifierNode node) {
+    Object value = this.constants.get(node.getValue());
+
+    if (value != null) {
+      this.folded = literalNode(value);
+    }
+  }
+
+  public void visit(LiteralNode node) {}
+
+  public void visit(RWMode rwMode) {}
+
+  public void visit(ConditionNode node) {
+    foldCondition(node);
+  }
+
+  public void visit(ArrayNode node) {
+    List<ExpressionNode> elements = new ArrayList<>();
+
+    for (ExpressionNode element : node.getElements()) {
+      elements.add(fold(element));
+    }
+
+    node.setElements(elements);
+  }
+
+  public void visit(DelimitedStringNode node) {
+    visitChild(node.getContents());
+  }
+
+  public void visit(RegexConstNode node) {}
+
+  public void visit(AbsynListNode node) {
+    List<AbsynNode> nodes = node.getNodes();
+
+    for (int i = 0; i < nodes.size(); i++) {
+      if (nodes.get(i) instanceof ExpressionNode) {
+        node.setNode(i, fold((ExpressionNode) nodes.get(i)));
+      }
+    }
+  }
+
+  public void visit(PrimaryExprNode node) {
+    visitChild(node.getFunctionCall());
+  }
+
+  public void visit(FunctionCallNode node) {
+    List<ExpressionNode> arguments = new ArrayList<>();
+
+    for (ExpressionNode argument : node.getArgumentList()) {
+      arguments.add(fold(argument));
+    }
+
+    node.setArgumentList(arguments);
+  }
+
+  public void visit(RegexExprNode node) {
+    node.setExpression(fold(node.getExpression()));
+  }
+
+  public void visit(HashMapNode node) {
+    for (Map.Entry<ExpressionNode, ExpressionNode> entry : node.getKeyValues().entrySet()) {
+      entry.setValue(fold(entry.getValue()));
+    }
+  }
+
+  public void visit(NumberNode node) {}
+
+  public void visit(StringConstNode node) {}
+
+  public void visit(FStringConstNode node) {
+    visitChild(node.getValue());
+
+    StringBuilder text = new StringBuilder();
+
+    for (AbsynNode part : node.getValue().getNodes()) {
+      Object value = part instanceof ExpressionNode ? constantValue((ExpressionNode) part) : null;
+
+      if (value == null) {
+        return;
+      }
+
+      text.append(value);
+    }
+
+    this.folded = literalNode(text.toString());
+  }
+
+  private static class UsageCollector implements Visitor {
+    private final Map<String, Integer> writeCounts = new HashMap<>();
+    private final Set<String> readNames = new HashSet<>();
+
+    private void write(ExpressionNode target) {
+      if (target instanceof IdentifierNode) {
+        this.writeCounts.merge(((IdentifierNode) target).getValue(), 1, Integer::sum);
+      } else {
+        visitChild(target);
+      }
+    }
+
+    private void visitChild(AbsynNode node) {
+      if (node != null) {
+        node.accept(this);
+      }
+    }
+
+    public void visit(ProgramNode node) {
+      visitChild(node.getStatementList());
+    }
+
+    public void visit(StatementListNode node) {
+      for (StatementNode statement : node.getStatements()) {
+        statement.accept(this);
+      }
+    }
+
+    public void visit(AssignStmtNode node) {
+      visitChild(node.getExpression());
+      write(node.getIdentifier());
+    }
+
+    public void visit(ControlFlowStmtNode node) {
+      visitChild(node.getCondition());
+      visitChild(node.getIfBlock());
+      visitChild(node.getElseBlock());
+    }
+
+    public void visit(ExecStmtNode node) {}
+
+    public void visit(RWStmtNode node) {
+      if (node.getRWMode() == RWMode.READING) {
+        write(node.getExpression());
+      } else {
+        visitChild(node.getExpression());
+      }
+    }
+
+    public void visit(CloseStmtNode node) {}
+
+    public void visit(OpenStmtNode node) {}
+
+    public void visit(IfStmtNode node) {
+      visitChild(node.getCondition());
+      visitChild(node.getIfBlock());
+      visitChild(node.getElseBlock());
+    }
+
+    public void visit(WhileStmtNode node) {
+      visitChild(node.getCondition());
+      visitChild(node.getWhileBlock());
+    }
+
+    public void visit(ReturnStmtNode node) {
+      visitChild(node.getExpression());
+    }
+
+    public void visit(ForStmtNode node) {
+      visitChild(node.getIterable());
+      write(node.getLoopVariable());
+      visitChild(node.getForBlock());
+    }
+
+    public void visit(MatchStmtNode node) {
+      visitChild(node.getExpression());
+
+      for (MatchCaseNode matchCase : node.getMatchCases()) {
+        matchCase.accept(this);
+      }
+    }
+
+    public void visit(MatchCaseNode node) {
+      visitChild(node.getPattern());
+      visitChild(node.getBlock());
+    }
+
+    public void visit(BlockNode node) {
+      visitChild(node.getStatementList());
+    }
+
+    public void visit(ExpressionNode node) {}
+
+    public void visit(CompoundExprNode node) {
+      visitChild(node.getLeft());
+      visitChild(node.getRight());
+    }
+
+    public void visit(UnaryExprNode node) {
+      visitChild(node.getOperand());
+    }
+
+    public void visit(IdentifierNode node) {
+      this.readNames.add(node.getValue());
+    }
+
+    public void visit(LiteralNode node) {}
+
+    public void visit(RWMode rwMode) {}
+
+    public void visit(ConditionNode node) {
+      visitChild(node.getExpression());
+    }
+
+    public void visit(ArrayNode node) {
+      for (ExpressionNode element : node.getElements()) {
+        element.accept(this);
+      }
+    }
+
+    public void visit(DelimitedStringNode node) {
+      visitChild(node.getContents());
+    }
+
+    public void visit(RegexConstNode node) {}
+
+    public void visit(AbsynListNode node) {
+      for (AbsynNode element : node.getNodes()) {
+        element.accept(this);
+      }
+    }
+
+    public void visit(PrimaryExprNode node) {
+      if (node.getIdentifier() != null) {
+        this.readNames.add(node.getIdentifier());
+      }
+
+      visitChild(node.getArrayIndex());
+      visitChild(node.getFunctionCall());
+    }
+
+    public void visit(FunctionCallNode node) {
+      if (node.getIdentifier() != null) {
+        this.readNames.add(node.getIdentifier());
+      }
+
+      for (ExpressionNode argument : node.getArgumentList()) {
+        argument.accept(this);
+      }
+    }
+
+    public void visit(RegexExprNode node) {
+      visitChild(node.getExpression());
+    }
+
+    public void visit(HashMapNode node) {
+      for (Map.Entry<ExpressionNode, ExpressionNode> entry : node.getKeyValues().entrySet()) {
+        entry.getKey().accept(this);
+        entry.getValue().accept(this);
+      }
+    }
+
+    public void visit(NumberNode node) {}
+
+    public void visit(StringConstNode node) {}
+
+    public void visit(FStringConstNode node) {
+      visitChild(node.getValue());
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package xtella;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class XtellaFileHandle implements Iterable<String> {
+  public enum Mode {
+    READ,
+    WRITE,
+    APPEND,
+    READ_WRITE
+  }
+
+  private final String name;
+  private final Path path;
+  private final Mode mode;
+  private final Charset charset;
+  private final int bufferSize;
+  private FileChannel channel;
+  private BufferedReader reader;
+  private XtellaOutputSink sink;
+
+  public XtellaFileHandle(String name, Path path, Mode mode, Charset charset, int bufferSize)
+      throws IOException {
+    this.name = name;
+    this.path = path;
+    this.mode = mode;
+    this.charset = charset;
+    this.bufferSize = bufferSize;
+    this.channel = openChannel(path, mode);
+  }
+
+  private static FileChannel openChannel(Path path, Mode mode) throws IOException {
+    switch (mode) {
+      case READ:
+        return FileChannel.open(path, StandardOpenOption.READ);
+      case WRITE:
+        return FileChannel.open(
+            path,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+      case APPEND:
+        return FileChannel.open(
+            path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      default:
+        return FileChannel.open(
+            path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+    }
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public Path getPath() {
+    return this.path;
+  }
+
+  public Mode getMode() {
+    return this.mode;
+  }
+
+  public boolean isOpen() {
+    return this.channel != null;
+  }
+
+  public boolean isReadable() {
+    return this.mode == Mode.READ || this.mode == Mode.READ_WRITE;
+  }
+
+  public boolean isWritable() {
+    return this.mode != Mode.READ;
+  }
+
+  private BufferedReader reader() throws IOException {
+    ensureOpen();
+
+    if (!isReadable()) {
+      throw new IOException("File handle " + this.name + " is not open for reading");
+    }
+
+    if (this.sink != null) {
+      this.sink.flush();
+    }
+
+    if (this.reader == null) {
+      this.reader =
+          new BufferedReader(
+              new InputStreamReader(Channels.newInputStream(this.channel), this.charset),
+              this.bufferSize);
+    }
+
+    return this.reader;
+  }
+
+  private XtellaOutputSink sink() throws IOException {
+    ensureOpen();
+
+    if (!isWritable()) {
+      throw new IOException("File handle " + this.name + " is not open for writing");
+    }
+
+    if (this.sink == null) {
+      this.sink = new XtellaOutputSink(this.channel, this.charset, this.bufferSize);
+    }
+
+    return this.sink;
+  }
+
+  private void ensureOpen() throws IOException {
+    if (this.channel == null) {
+      throw new IOException("File handle " + this.name + " is closed");
+    }
+  }
+
+  public String readLine() throws IOException {
+    return reader().readLine();
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return new LineIterator();
+  }
+
+  public String readAll() throws IOException {
+    BufferedReader reader = reader();
+    StringBuilder content = new StringBuilder();
+    char[] buffer = new char[this.bufferSize];
+    int charsRead;
+
+    while ((charsRead = reader.read(buffer)) != -1) {
+      content.append(buffer, 0, charsRead);
+    }
+
+    return content.toString();
+  }
+
+  public CharSequence readContent(long mappedReadThreshold) throws IOException {
+    ensureOpen();
+
+    if (this.reader == null
+        && isReadable()
+        && XtellaMappedText.supports(this.charset)
+        && this.channel.size() - this.channel.position() >= mappedReadThreshold) {
+      return readMapped();
+    }
+
+    return readAll();
+  }
+
+  public XtellaMappedText readMapped() throws IOException {
+    ensureOpen();
+
+    if (!isReadable()) {
+      throw new IOException("File handle " + this.name + " is not open for reading");
+    }
+
+    if (this.reader != null) {
+      throw new IOException("File handle " + this.name + " has buffered reads in progress");
+    }
+
+    if (this.sink != null) {
+      this.sink.flush();
+    }
+
+    long position = this.channel.position();
+    long size = this.channel.size();
+    XtellaMappedText text =
+        new XtellaMappedText(this.channel, position, size - position, this.charset);
+
+    this.channel.position(size);
+    return text;
+  }
+
+  public void write(CharSequence content) throws IOException {
+    sink().append(content);
+  }
+
+  public void write(Object value) throws IOException {
+    sink().append(value);
+  }
+
+  public void flush() throws IOException {
+    if (this.sink != null) {
+      this.sink.flush();
+    }
+  }
+
+  public void close() throws IOException {
+    if (this.channel == null) {
+      return;
+    }
+
+    try {
+      if (this.sink != null) {
+        this.sink.close();
+      }
+    } finally {
+      this.channel.close();
+      this.channel = null;
+      this.reader = null;
+      this.sink = null;
+    }
+  }
+
+  private class LineIterator implements Iterator<String> {
+    private String nextLine;
+    private boolean finished;
+
+    @Override
+    public boolean hasNext() {
+      if (this.nextLine == null && !this.finished) {
+        try {
+          this.nextLine = readLine();
+        } catch (IOException e) {
+          throw new RuntimeException(
+              "Error reading line from file " + XtellaFileHandle.this.name, e);
+        }
+
+        this.finished = this.nextLine == null;
+      }
+
+      return !this.finished;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      String line = this.nextLine;
+      this.nextLine = null;
+      return line;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package xtella;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class XtellaFileTable {
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  public static final long DEFAULT_MAPPED_READ_THRESHOLD = 1024 * 1024;
+
+  private final Map<String, XtellaFileHandle> handles;
+  private Charset charset;
+  private int bufferSize;
+  private long mappedReadThreshold;
+
+  public XtellaFileTable() {
+    this.handles = new HashMap<>();
+    this.charset = StandardCharsets.UTF_8;
+    this.bufferSize = DEFAULT_BUFFER_SIZE;
+    this.mappedReadThreshold = DEFAULT_MAPPED_READ_THRESHOLD;
+  }
+
+  public int getBufferSize() {
+    return this.bufferSize;
+  }
+
+  public void setBufferSize(int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("File buffer size must be positive");
+    }
+
+    this.bufferSize = bufferSize;
+  }
+
+  public long getMappedReadThreshold() {
+    return this.mappedReadThreshold;
+  }
+
+  public void setMappedReadThreshold(long mappedReadThreshold) {
+    if (mappedReadThreshold < 0) {
+      throw new IllegalArgumentException("Mapped read threshold must not be negative");
+    }
+
+    this.mappedReadThreshold = mappedReadThreshold;
+  }
+
+  public Charset getCharset() {
+    return this.charset;
+  }
+
+  public void setCharset(Charset charset) {
+    this.charset = charset;
+  }
+
+  public XtellaFileHandle open(String handleName, String fileName, XtellaFileHandle.Mode mode)
+      throws IOException {
+    XtellaFileHandle existingHandle = this.handles.get(handleName);
+
+    if (existingHandle != null && existingHandle.isOpen()) {
+      throw new IllegalStateException("File handle already open: " + handleName);
+    }
+
+    XtellaFileHandle handle =
+        new XtellaFileHandle(handleName, Paths.get(fileName), mode, this.charset, this.bufferSize);
+    this.handles.put(handleName, handle);
+    return handle;
+  }
+
+  public XtellaFileHandle get(String handleName) {
+    XtellaFileHandle handle = this.handles.get(handleName);
+
+    if (handle == null) {
+      throw new IllegalArgumentException("Unknown file handle: " + handleName);
+    }
+
+    return handle;
+  }
+
+  public void close(String handleName) throws IOException {
+    XtellaFileHandle handle = this.handles.remove(handleName);
+
+    if (handle == null) {
+      throw new IllegalArgumentException("Unknown file handle: " + handleName);
+    }
+
+    handle.close();
+  }
+
+  public void flushAll() throws IOException {
+    for (XtellaFileHandle handle : this.handles.values()) {
+      handle.flush();
+    }
+  }
+
+  public void closeAll() throws IOException {
+    List<XtellaFileHandle> openHandles = new ArrayList<>(this.handles.values());
+    IOException firstFailure = null;
+
+    this.handles.clear();
+
+    for (XtellaFileHandle handle : openHandles) {
+      try {
+        handle.close();
+      } catch (IOException e) {
+        if (firstFailure == null) {
+          firstFailure = e;
+        } else {
+          firstFailure.addSuppressed(e);
+        }
+      }
+    }
+
+    if (firstFailure != null) {
+      throw firstFailure;
+    }
+  }
+}
@@ -0,0 +1,321 @@
+package xtella;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+public final class XtellaHashMap implements Iterable<Object> {
+  private static final int MINIMUM_CAPACITY = 8;
+  private static final Object REMOVED = new Object();
+
+  private Object[] keys;
+  private Object[] values;
+  private int[] hashes;
+  private int[] slots;
+  private int mask;
+  private int entryCount;
+  private int size;
+  private int modCount;
+
+  public XtellaHashMap() {
+    this(MINIMUM_CAPACITY);
+  }
+
+  public XtellaHashMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Expected map size must not be negative");
+    }
+
+    allocate(Math.max(MINIMUM_CAPACITY, expectedSize));
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  public Object get(Object key) {
+    int entry = indexOf(key);
+    return entry >= 0 ? this.values[entry] : null;
+  }
+
+  public Object put(Object key, Object value) {
+    key = normalize(key);
+    int hash = hash(key);
+    int entry = find(key, hash);
+
+    if (entry >= 0) {
+      Object previous = this.values[entry];
+      this.values[entry] = value;
+      return previous;
+    }
+
+    if (this.entryCount == this.keys.length) {
+      resize();
+    }
+
+    entry = this.entryCount++;
+    this.keys[entry] = key;
+    this.values[entry] = value;
+    this.hashes[entry] = hash;
+    this.size++;
+    this.modCount++;
+    insertSlot(entry, hash);
+    return null;
+  }
+
+  public Object remove(Object key) {
+    key = normalize(key);
+    int hash = hash(key);
+    int slot = mix(hash) & this.mask;
+
+    for (int distance = 0; ; distance++, slot = (slot + 1) & this.mask) {
+      int entry = this.slots[slot] - 1;
+
+      if (entry < 0 || distanceAt(slot, entry) < distance) {
+        return null;
+      }
+
+      if (this.hashes[entry] == hash && keyEquals(this.keys[entry], key)) {
+        Object previous = this.values[entry];
+        this.keys[entry] = REMOVED;
+        this.values[entry] = null;
+        this.size--;
+        this.modCount++;
+        removeSlot(slot);
+        return previous;
+      }
+    }
+  }
+
+  public void forEach(BiConsumer<Object, Object> action) {
+    int expectedModCount = this.modCount;
+
+    for (int entry = 0; entry < this.entryCount; entry++) {
+      if (this.keys[entry] != REMOVED) {
+        action.accept(this.keys[entry], this.values[entry]);
+
+        if (this.modCount != expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+      }
+    }
+  }
+
+  public XtellaHashMap copy() {
+    XtellaHashMap copy = new XtellaHashMap(this.size);
+    forEach(copy::put);
+    return copy;
+  }
+
+  @Override
+  public Iterator<Object> iterator() {
+    return new Iterator<Object>() {
+      private int entry = skipRemoved(0);
+      private final int expectedModCount = XtellaHashMap.this.modCount;
+
+      @Override
+      public boolean hasNext() {
+        return this.entry < XtellaHashMap.this.entryCount;
+      }
+
+      @Override
+      public Object next() {
+        if (XtellaHashMap.this.modCount != this.expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        Object key = XtellaHashMap.this.keys[this.entry];
+        this.entry = skipRemoved(this.entry + 1);
+        return key;
+      }
+    };
+  }
+
+  int indexOf(Object key) {
+    key = key instanceof Long ? XtellaNumbers.narrow((Long) key) : key;
+    return find(key, hash(key));
+  }
+
+  int indexOfInt(int key) {
+    int slot = mix(key) & this.mask;
+
+    for (int distance = 0; ; distance++, slot = (slot + 1) & this.mask) {
+      int entry = this.slots[slot] - 1;
+
+      if (entry < 0 || distanceAt(slot, entry) < distance) {
+        return -1;
+      }
+
+      if (this.hashes[entry] == key
+          && this.keys[entry] instanceof Integer
+          && (Integer) this.keys[entry] == key) {
+        return entry;
+      }
+    }
+  }
+
+  Object valueAt(int entry) {
+    return this.values[entry];
+  }
+
+  private int find(Object key, int hash) {
+    int slot = mix(hash) & this.mask;
+
+    for (int distance = 0; ; distance++, slot = (slot + 1) & this.mask) {
+      int entry = this.slots[slot] - 1;
+
+      if (entry < 0 || distanceAt(slot, entry) < distance) {
+        return -1;
+      }
+
+      if (this.hashes[entry] == hash && keyEquals(this.keys[entry], key)) {
+        return entry;
+      }
+    }
+  }
+
+  private int skipRemoved(int entry) {
+    while (entry < this.entryCount && this.keys[entry] == REMOVED) {
+      entry++;
+    }
+
+    return entry;
+  }
+
+  private int distanceAt(int slot, int entry) {
+    return (slot - (mix(this.hashes[entry]) & this.mask)) & this.mask;
+  }
+
+  private void insertSlot(int entry, int hash) {
+    int slot = mix(hash) & this.mask;
+
+    for (int distance = 0; ; distance++, slot = (slot + 1) & this.mask) {
+      int occupant = this.slots[slot] - 1;
+
+      if (occupant < 0) {
+        this.slots[slot] = entry + 1;
+        return;
+      }
+
+      int occupantDistance = distanceAt(slot, occupant);
+
+      if (occupantDistance < distance) {
+        this.slots[slot] = entry + 1;
+        entry = occupant;
+        distance = occupantDistance;
+      }
+    }
+  }
+
+  private void removeSlot(int slot) {
+    int next = (slot + 1) & this.mask;
+
+    while (this.slots[next] != 0 && distanceAt(next, this.slots[next] - 1) > 0) {
+      this.slots[slot] = this.slots[next];
+      slot = next;
+      next = (next + 1) & this.mask;
+    }
+
+    this.slots[slot] = 0;
+  }
+
+  private void resize() {
+    Object[] keys = this.keys;
+    Object[] values = this.values;
+    int[] hashes = this.hashes;
+    int entryCount = this.entryCount;
+
+    allocate(Math.max(MINIMUM_CAPACITY, this.size + (this.size >> 1) + 1));
+
+    for (int entry = 0; entry < entryCount; entry++) {
+      if (keys[entry] != REMOVED) {
+        int index = this.entryCount++;
+        this.keys[index] = keys[entry];
+        this.values[index] = values[entry];
+        this.hashes[index] = hashes[entry];
+        insertSlot(index, hashes[entry]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    int slotCount = Integer.highestOneBit(Math.max(2, capacity + capacity / 3) - 1) << 1;
+
+    this.keys = new Object[capacity];
+    this.values = new Object[capacity];
+    this.hashes = new int[capacity];
+    this.slots = new int[slotCount];
+    this.mask = slotCount - 1;
+    this.entryCount = 0;
+  }
+
+  private static Object normalize(Object key) {
+    if (key instanceof CharSequence && !(key instanceof String)) {
+      return key.toString();
+    } else if (key instanceof Long) {
+      return XtellaNumbers.narrow((Long) key);
+    }
+
+    return key;
+  }
+
+  private static int hash(Object key) {
+    if (key instanceof String || key instanceof XtellaRope) {
+      return key.hashCode();
+    } else if (key instanceof CharSequence) {
+      CharSequence text = (CharSequence) key;
+      int hash = 0;
+
+      for (int i = 0; i < text.length(); i++) {
+        hash = 31 * hash + text.charAt(i);
+      }
+
+      return hash;
+    }
+
+    return key == null ? 0 : key.hashCode();
+  }
+
+  private static boolean keyEquals(Object stored, Object key) {
+    if (stored == key) {
+      return true;
+    } else if (stored instanceof String && key instanceof CharSequence) {
+      return XtellaRope.contentEquals((String) stored, (CharSequence) key);
+    }
+
+    return stored != null && stored.equals(key);
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder("{");
+
+    forEach(
+        (key, value) -> {
+          if (text.length() > 1) {
+            text.append(", ");
+          }
+
+          text.append(key).append('=').append(value);
+        });
+
+    return text.append('}').toString();
+  }
+}
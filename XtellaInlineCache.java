@@ -0,0 +1,112 @@
+package xtella;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class XtellaInlineCache {
+  public static final int POLYMORPHIC_LIMIT = 4;
+
+  private static final Entry[] NO_ENTRIES = new Entry[0];
+
+  private final String methodName;
+  private volatile Entry[] entries;
+  private volatile boolean megamorphic;
+  private final LongAdder hitCount;
+  private final LongAdder missCount;
+
+  public XtellaInlineCache(String methodName) {
+    this.methodName = methodName;
+    this.entries = NO_ENTRIES;
+    this.megamorphic = false;
+    this.hitCount = new LongAdder();
+    this.missCount = new LongAdder();
+  }
+
+  public String getMethodName() {
+    return this.methodName;
+  }
+
+  public XtellaObject lookup(XtellaObject receiver) {
+    XtellaObject.XtellaType type = receiver.getType();
+    Map<String, XtellaObject> table = receiver.getMethodTable();
+    int version = receiver.getMethodTableVersion();
+
+    for (Entry entry : this.entries) {
+      if (entry.type == type && entry.table == table && entry.version == version) {
+        this.hitCount.increment();
+        return entry.method;
+      }
+    }
+
+    this.missCount.increment();
+    XtellaObject method = table.get(this.methodName);
+
+    if (!this.megamorphic) {
+      update(new Entry(type, table, version, method));
+    }
+
+    return method;
+  }
+
+  private synchronized void update(Entry entry) {
+    Entry[] current = this.entries;
+
+    for (int i = 0; i < current.length; i++) {
+      if (current[i].type == entry.type && current[i].table == entry.table) {
+        Entry[] replaced = current.clone();
+        replaced[i] = entry;
+        this.entries = replaced;
+        return;
+      }
+    }
+
+    if (current.length == POLYMORPHIC_LIMIT) {
+      this.megamorphic = true;
+      this.entries = NO_ENTRIES;
+      return;
+    }
+
+    Entry[] extended = Arrays.copyOf(current, current.length + 1);
+    extended[current.length] = entry;
+    this.entries = extended;
+  }
+
+  public int size() {
+    return this.entries.length;
+  }
+
+  public boolean isMonomorphic() {
+    return !this.megamorphic && this.entries.length == 1;
+  }
+
+  public boolean isMegamorphic() {
+    return this.megamorphic;
+  }
+
+  public long getHitCount() {
+    return this.hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return this.missCount.sum();
+  }
+
+  private static final class Entry {
+    private final XtellaObject.XtellaType type;
+    private final Map<String, XtellaObject> table;
+    private final int version;
+    private final XtellaObject method;
+
+    private Entry(
+        XtellaObject.XtellaType type,
+        Map<String, XtellaObject> table,
+        int version,
+        XtellaObject method) {
+      this.type = type;
+      this.table = table;
+      this.version = version;
+      this.method = method;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package xtella;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+final class XtellaIterators {
+  private XtellaIterators() {}
+
+  static Iterator<?> of(Object value) {
+    if (value instanceof Iterator) {
+      return (Iterator<?>) value;
+    } else if (value instanceof Iterable) {
+      return ((Iterable<?>) value).iterator();
+    } else if (value instanceof Object[]) {
+      return Arrays.asList((Object[]) value).iterator();
+    } else if (value instanceof Map) {
+      return ((Map<?, ?>) value).keySet().iterator();
+    } else if (value instanceof XtellaMappedText) {
+      return ((XtellaMappedText) value).lines();
+    } else if (value instanceof CharSequence) {
+      return lines((CharSequence) value);
+    }
+
+    return null;
+  }
+
+  static Iterator<String> lines(CharSequence text) {
+    return new Iterator<String>() {
+      private int position = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.position < text.length();
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        int start = this.position;
+        int end = start;
+
+        while (end < text.length() && text.charAt(end) != '\n') {
+          end++;
+        }
+
+        this.position = end + 1;
+
+        if (end > start && text.charAt(end - 1) == '\r') {
+          end--;
+        }
+
+        return text.subSequence(start, end).toString();
+      }
+    };
+  }
+
+  static Iterator<Object> matches(Pattern pattern, CharSequence input) {
+    Matcher matcher = pattern.matcher(input);
+
+    return new Iterator<Object>() {
+      private boolean found = matcher.find();
+
+      @Override
+      public boolean hasNext() {
+        return this.found;
+      }
+
+      @Override
+      public Object next() {
+        if (!this.found) {
+          throw new NoSuchElementException();
+        }
+
+        Object match;
+
+        if (matcher.groupCount() == 0) {
+          match = matcher.group();
+        } else {
+          Object[] groups = new Object[matcher.groupCount()];
+
+          for (int i = 0; i < groups.length; i++) {
+            String group = matcher.group(i + 1);
+            groups[i] = group != null ? group : "";
+          }
+
+          match = XtellaArray.of(groups);
+        }
+
+        this.found = matcher.find();
+        return match;
+      }
+    };
+  }
+}
@@ -0,0 +1,243 @@
+package xtella;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class XtellaMappedText implements CharSequence {
+  private static final int SEGMENT_SHIFT = 30;
+  private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+  private static final int BLOCK_SIZE = 64 * 1024;
+
+  private final MappedByteBuffer[] segments;
+  private final long byteLength;
+  private final Charset charset;
+  private final boolean singleByte;
+
+  private long[] blockByteStarts;
+  private int[] blockCharStarts;
+  private int blockCount;
+  private int charLength;
+
+  private int cachedBlock;
+  private char[] cachedChars;
+
+  public XtellaMappedText(FileChannel channel, long position, long byteLength, Charset charset)
+      throws IOException {
+    if (!supports(charset)) {
+      throw new IllegalArgumentException("Unsupported charset for mapped text: " + charset);
+    }
+
+    int segmentCount = (int) ((byteLength + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+    this.segments = new MappedByteBuffer[segmentCount];
+
+    for (int i = 0; i < segmentCount; i++) {
+      long segmentStart = (long) i << SEGMENT_SHIFT;
+      long segmentLength = Math.min(SEGMENT_SIZE, byteLength - segmentStart);
+      this.segments[i] =
+          channel.map(FileChannel.MapMode.READ_ONLY, position + segmentStart, segmentLength);
+    }
+
+    this.byteLength = byteLength;
+    this.charset = charset;
+    this.singleByte = !StandardCharsets.UTF_8.equals(charset);
+    this.charLength = -1;
+    this.cachedBlock = -1;
+  }
+
+  public static boolean supports(Charset charset) {
+    return StandardCharsets.UTF_8.equals(charset)
+        || StandardCharsets.US_ASCII.equals(charset)
+        || StandardCharsets.ISO_8859_1.equals(charset);
+  }
+
+  public long byteLength() {
+    return this.byteLength;
+  }
+
+  private byte byteAt(long position) {
+    return this.segments[(int) (position >>> SEGMENT_SHIFT)].get(
+        (int) (position & (SEGMENT_SIZE - 1)));
+  }
+
+  private byte[] bytes(long start, long end) {
+    byte[] bytes = new byte[(int) (end - start)];
+    int copied = 0;
+
+    while (copied < bytes.length) {
+      long position = start + copied;
+      int segmentOffset = (int) (position & (SEGMENT_SIZE - 1));
+      MappedByteBuffer segment = this.segments[(int) (position >>> SEGMENT_SHIFT)];
+      int length = Math.min(bytes.length - copied, segment.limit() - segmentOffset);
+
+      segment.get(segmentOffset, bytes, copied, length);
+      copied += length;
+    }
+
+    return bytes;
+  }
+
+  private void indexBlocks() {
+    if (this.blockByteStarts != null) {
+      return;
+    }
+
+    int estimatedBlocks = (int) (this.byteLength / BLOCK_SIZE) + 2;
+    long[] byteStarts = new long[estimatedBlocks];
+    int[] charStarts = new int[estimatedBlocks];
+    long start = 0;
+    long chars = 0;
+    int count = 0;
+
+    while (start < this.byteLength) {
+      long end = Math.min(start + BLOCK_SIZE, this.byteLength);
+
+      while (end < this.byteLength && (byteAt(end) & 0xC0) == 0x80) {
+        end++;
+      }
+
+      if (count == byteStarts.length) {
+        byteStarts = Arrays.copyOf(byteStarts, count * 2);
+        charStarts = Arrays.copyOf(charStarts, count * 2);
+      }
+
+      byteStarts[count] = start;
+      charStarts[count] = (int) chars;
+      count++;
+
+      for (long i = start; i < end; i++) {
+        int b = byteAt(i);
+
+        if ((b & 0xC0) != 0x80) {
+          chars++;
+        }
+
+        if ((b & 0xF8) == 0xF0) {
+          chars++;
+        }
+      }
+
+      if (chars > Integer.MAX_VALUE) {
+        throw new IllegalStateException(
+            "Mapped file too large for a character view; iterate its lines instead");
+      }
+
+      start = end;
+    }
+
+    this.blockByteStarts = byteStarts;
+    this.blockCharStarts = charStarts;
+    this.blockCount = count;
+    this.charLength = (int) chars;
+  }
+
+  private char[] decodeBlock(int block) {
+    if (block != this.cachedBlock) {
+      long start = this.blockByteStarts[block];
+      long end = block + 1 < this.blockCount ? this.blockByteStarts[block + 1] : this.byteLength;
+      this.cachedChars = this.charset.decode(ByteBuffer.wrap(bytes(start, end))).array();
+      this.cachedBlock = block;
+    }
+
+    return this.cachedChars;
+  }
+
+  @Override
+  public int length() {
+    if (this.singleByte) {
+      if (this.byteLength > Integer.MAX_VALUE) {
+        throw new IllegalStateException(
+            "Mapped file too large for a character view; iterate its lines instead");
+      }
+
+      return (int) this.byteLength;
+    }
+
+    indexBlocks();
+    return this.charLength;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length()) {
+      throw new IndexOutOfBoundsException("Invalid index for mapped text: " + index);
+    }
+
+    if (this.singleByte) {
+      return (char) (byteAt(index) & 0xFF);
+    }
+
+    int block = Arrays.binarySearch(this.blockCharStarts, 0, this.blockCount, index);
+
+    if (block < 0) {
+      block = -block - 2;
+    }
+
+    return decodeBlock(block)[index - this.blockCharStarts[block]];
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > length() || start > end) {
+      throw new IndexOutOfBoundsException("Invalid range for mapped text: " + start + ", " + end);
+    }
+
+    StringBuilder slice = new StringBuilder(end - start);
+
+    for (int i = start; i < end; i++) {
+      slice.append(charAt(i));
+    }
+
+    return slice.toString();
+  }
+
+  @Override
+  public String toString() {
+    return this.charset.decode(ByteBuffer.wrap(bytes(0, this.byteLength))).toString();
+  }
+
+  public Iterator<String> lines() {
+    return new LineIterator();
+  }
+
+  private class LineIterator implements Iterator<String> {
+    private long position;
+
+    LineIterator() {
+      this.position = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.position < XtellaMappedText.this.byteLength;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      long start = this.position;
+      long end = start;
+
+      while (end < XtellaMappedText.this.byteLength && byteAt(end) != '\n') {
+        end++;
+      }
+
+      this.position = end + 1;
+
+      if (end > start && byteAt(end - 1) == '\r') {
+        end--;
+      }
+
+      return new String(bytes(start, end), XtellaMappedText.this.charset);
+    }
+  }
+}
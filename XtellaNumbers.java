@@ -0,0 +1,296 @@
+package xtella;
+
+import java.math.BigInteger;
+
+final class XtellaNumbers {
+  static final int MAX_BIT_LENGTH = 1 << 16;
+
+  private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+  private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+  private static final BigInteger INT_MAX = BigInteger.valueOf(Integer.MAX_VALUE);
+
+  private XtellaNumbers() {}
+
+  static boolean isIntegral(Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof BigInteger;
+  }
+
+  static boolean isFloating(Object value) {
+    return value instanceof Float || value instanceof Double;
+  }
+
+  static boolean isNumeric(Object value) {
+    return isIntegral(value) || isFloating(value);
+  }
+
+  static boolean isComparison(int opcode) {
+    switch (opcode) {
+      case XtellaVM.EQUAL:
+      case XtellaVM.NOT_EQUAL:
+      case XtellaVM.LESS_THAN:
+      case XtellaVM.LESS_THAN_OR_EQUAL:
+      case XtellaVM.GREATER_THAN:
+      case XtellaVM.GREATER_THAN_OR_EQUAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  static boolean isFloatingOperation(int opcode) {
+    switch (opcode) {
+      case XtellaVM.ADD:
+      case XtellaVM.SUBTRACT:
+      case XtellaVM.MULTIPLY:
+      case XtellaVM.DIVIDE:
+        return true;
+      default:
+        return isComparison(opcode);
+    }
+  }
+
+  static Object narrow(long value) {
+    if ((int) value == value) {
+      return Integer.valueOf((int) value);
+    }
+
+    return Long.valueOf(value);
+  }
+
+  static Object narrow(BigInteger value) {
+    if (value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0) {
+      return narrow(value.longValue());
+    }
+
+    return value;
+  }
+
+  static Object parseInteger(String text) {
+    return narrow(new BigInteger(text));
+  }
+
+  static BigInteger toBigInteger(Object value) {
+    if (value instanceof BigInteger) {
+      return (BigInteger) value;
+    }
+
+    return BigInteger.valueOf(((Number) value).longValue());
+  }
+
+  static Object negate(Object value) {
+    if (value instanceof Integer || value instanceof Long) {
+      long operand = ((Number) value).longValue();
+      return operand == Long.MIN_VALUE ? BigInteger.valueOf(operand).negate() : narrow(-operand);
+    } else if (value instanceof BigInteger) {
+      return narrow(((BigInteger) value).negate());
+    } else if (value instanceof Float) {
+      return -(Float) value;
+    } else if (value instanceof Double) {
+      return -(Double) value;
+    }
+
+    return null;
+  }
+
+  static boolean compare(int opcode, long left, long right) {
+    switch (opcode) {
+      case XtellaVM.EQUAL:
+        return left == right;
+      case XtellaVM.NOT_EQUAL:
+        return left != right;
+      case XtellaVM.LESS_THAN:
+        return left < right;
+      case XtellaVM.LESS_THAN_OR_EQUAL:
+        return left <= right;
+      case XtellaVM.GREATER_THAN:
+        return left > right;
+      case XtellaVM.GREATER_THAN_OR_EQUAL:
+        return left >= right;
+      default:
+        throw new IllegalArgumentException("Not a comparison opcode: " + opcode);
+    }
+  }
+
+  static boolean compare(int opcode, double left, double right) {
+    switch (opcode) {
+      case XtellaVM.EQUAL:
+        return Double.compare(left, right) == 0;
+      case XtellaVM.NOT_EQUAL:
+        return Double.compare(left, right) != 0;
+      case XtellaVM.LESS_THAN:
+        return left < right;
+      case XtellaVM.LESS_THAN_OR_EQUAL:
+        return left <= right;
+      case XtellaVM.GREATER_THAN:
+        return left > right;
+      case XtellaVM.GREATER_THAN_OR_EQUAL:
+        return left >= right;
+      default:
+        throw new IllegalArgumentException("Not a comparison opcode: " + opcode);
+    }
+  }
+
+  static boolean compare(int opcode, BigInteger left, BigInteger right) {
+    int order = left.compareTo(right);
+
+    switch (opcode) {
+      case XtellaVM.EQUAL:
+        return order == 0;
+      case XtellaVM.NOT_EQUAL:
+        return order != 0;
+      case XtellaVM.LESS_THAN:
+        return order < 0;
+      case XtellaVM.LESS_THAN_OR_EQUAL:
+        return order <= 0;
+      case XtellaVM.GREATER_THAN:
+        return order > 0;
+      case XtellaVM.GREATER_THAN_OR_EQUAL:
+        return order >= 0;
+      default:
+        throw new IllegalArgumentException("Not a comparison opcode: " + opcode);
+    }
+  }
+
+  static long applyExact(int opcode, long left, long right) {
+    switch (opcode) {
+      case XtellaVM.ADD:
+        return Math.addExact(left, right);
+      case XtellaVM.SUBTRACT:
+        return Math.subtractExact(left, right);
+      case XtellaVM.MULTIPLY:
+        return Math.multiplyExact(left, right);
+      case XtellaVM.DIVIDE:
+        if (left == Long.MIN_VALUE && right == -1) {
+          throw new ArithmeticException("long overflow");
+        }
+
+        return left / right;
+      case XtellaVM.MODULO:
+        return left % right;
+      case XtellaVM.BITWISE_AND:
+        return left & right;
+      case XtellaVM.BITWISE_OR:
+        return left | right;
+      case XtellaVM.BITWISE_XOR:
+        return left ^ right;
+      case XtellaVM.SHIFT_LEFT:
+        return shiftLeftExact(left, shiftDistance(right));
+      case XtellaVM.SHIFT_RIGHT:
+        return left >> Math.min(shiftDistance(right), Long.SIZE - 1);
+      default:
+        throw new IllegalArgumentException("Not an integral opcode: " + opcode);
+    }
+  }
+
+  private static long shiftLeftExact(long value, long distance) {
+    if (value != 0 && (distance >= Long.SIZE || (value << distance) >> distance != value)) {
+      throw new ArithmeticException("long overflow");
+    }
+
+    return value << distance;
+  }
+
+  private static long shiftDistance(long distance) {
+    if (distance < 0) {
+      throw new ArithmeticException("Negative shift distance: " + distance);
+    }
+
+    return distance;
+  }
+
+  private static int shiftDistance(BigInteger distance) {
+    if (distance.signum() < 0) {
+      throw new ArithmeticException("Negative shift distance: " + distance);
+    }
+
+    return distance.intValueExact();
+  }
+
+  private static void checkBitLength(long bitLength) {
+    if (bitLength > MAX_BIT_LENGTH) {
+      throw new ArithmeticException("Integer result exceeds " + MAX_BIT_LENGTH + " bits");
+    }
+  }
+
+  static double apply(int opcode, double left, double right) {
+    switch (opcode) {
+      case XtellaVM.ADD:
+        return left + right;
+      case XtellaVM.SUBTRACT:
+        return left - right;
+      case XtellaVM.MULTIPLY:
+        return left * right;
+      case XtellaVM.DIVIDE:
+        return left / right;
+      default:
+        throw new IllegalArgumentException("Not a floating point opcode: " + opcode);
+    }
+  }
+
+  static Object apply(int opcode, BigInteger left, BigInteger right) {
+    switch (opcode) {
+      case XtellaVM.ADD:
+        return narrow(left.add(right));
+      case XtellaVM.SUBTRACT:
+        return narrow(left.subtract(right));
+      case XtellaVM.MULTIPLY:
+        checkBitLength((long) left.bitLength() + right.bitLength());
+        return narrow(left.multiply(right));
+      case XtellaVM.DIVIDE:
+        return narrow(left.divide(right));
+      case XtellaVM.MODULO:
+        return narrow(left.remainder(right));
+      case XtellaVM.BITWISE_AND:
+        return narrow(left.and(right));
+      case XtellaVM.BITWISE_OR:
+        return narrow(left.or(right));
+      case XtellaVM.BITWISE_XOR:
+        return narrow(left.xor(right));
+      case XtellaVM.SHIFT_LEFT:
+        int distance = shiftDistance(right);
+
+        if (left.signum() != 0) {
+          checkBitLength((long) left.bitLength() + distance);
+        }
+
+        return narrow(left.shiftLeft(distance));
+      case XtellaVM.SHIFT_RIGHT:
+        return narrow(left.shiftRight(shiftDistance(right.min(INT_MAX))));
+      default:
+        return compare(opcode, left, right);
+    }
+  }
+
+  static Object evaluate(int opcode, Object left, Object right) {
+    if (isIntegral(left) && isIntegral(right)) {
+      if (left instanceof BigInteger || right instanceof BigInteger) {
+        return apply(opcode, toBigInteger(left), toBigInteger(right));
+      }
+
+      long leftValue = ((Number) left).longValue();
+      long rightValue = ((Number) right).longValue();
+
+      if (isComparison(opcode)) {
+        return compare(opcode, leftValue, rightValue);
+      }
+
+      try {
+        return narrow(applyExact(opcode, leftValue, rightValue));
+      } catch (ArithmeticException e) {
+        return apply(opcode, BigInteger.valueOf(leftValue), BigInteger.valueOf(rightValue));
+      }
+    } else if (isNumeric(left) && isNumeric(right) && isFloatingOperation(opcode)) {
+      double leftValue = ((Number) left).doubleValue();
+      double rightValue = ((Number) right).doubleValue();
+
+      if (isComparison(opcode)) {
+        return compare(opcode, leftValue, rightValue);
+      }
+
+      double result = apply(opcode, leftValue, rightValue);
+      return left instanceof Float && right instanceof Float ? (Object) (float) result : result;
+    }
+
+    return null;
+  }
+}
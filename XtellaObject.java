@@ -1,3 +1,7 @@
+package xtella;
+
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,112 +22,138 @@ public class XtellaObject {
     SYMBOL,
   }
 
+  private static final Map<String, XtellaObject> NO_METHODS = Collections.emptyMap();
+  private static final Map<String, XtellaObject> NO_FIELDS = Collections.emptyMap();
+  private static final Map<XtellaType, Map<String, XtellaObject>> METHOD_TABLES =
+      buildMethodTables();
+
   private XtellaBytecodeChunk bytecodeChunk;
   private XtellaObject parent;
   private XtellaType type;
   private Map<String, XtellaObject> methods;
   private Map<String, XtellaObject> fields;
+  private int methodTableVersion;
 
   public XtellaObject(XtellaType type, XtellaBytecodeChunk bytecodeChunk, XtellaObject parent) {
     this.type = type;
     this.bytecodeChunk = bytecodeChunk;
     this.parent = parent;
+    this.methods = sharedMethodTable(type);
+    this.fields = NO_FIELDS;
+  }
+
+  private XtellaObject(XtellaType type) {
+    this.type = type;
+    this.bytecodeChunk = new XtellaBytecodeChunk();
+    this.parent = null;
     this.methods = new HashMap<>();
-    initializeDefaults();
+    this.fields = NO_FIELDS;
+  }
+
+  private XtellaObject(XtellaBytecodeChunk bytecodeChunk, XtellaObject owner) {
+    this.type = XtellaType.METHOD;
+    this.bytecodeChunk = bytecodeChunk;
+    this.parent = owner;
+    this.methods = NO_METHODS;
+    this.fields = NO_FIELDS;
+  }
+
+  private static Map<String, XtellaObject> sharedMethodTable(XtellaType type) {
+    return METHOD_TABLES.get(type);
   }
 
-  private void addBinaryOpMethods() {
+  private static Map<XtellaType, Map<String, XtellaObject>> buildMethodTables() {
+    Map<XtellaType, Map<String, XtellaObject>> tables = new EnumMap<>(XtellaType.class);
+
+    for (XtellaType type : XtellaType.values()) {
+      XtellaObject owner = new XtellaObject(type);
+      addDefaultMethods(type, owner);
+      owner.methods =
+          owner.methods.isEmpty() ? NO_METHODS : Collections.unmodifiableMap(owner.methods);
+      tables.put(type, owner.methods);
+    }
+
+    return tables;
+  }
+
+  private static void addSharedMethod(XtellaObject owner, String methodName) {
+    owner.methods.put(methodName, new XtellaObject(new XtellaBytecodeChunk(), owner));
+  }
+
+  private static void addBinaryOpMethods(XtellaType type, XtellaObject owner) {
     if (type == XtellaType.INTEGER || type == XtellaType.FLOAT || type == XtellaType.STRING) {
-      addMethod("binaryAdd", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod(
-          "binarySubtract", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod(
-          "binaryMultiply", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod(
-          "binaryDivide", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod(
-          "binaryModulo", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("binaryXor", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("binaryAnd", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("binaryOr", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-
-      addMethod("binaryShr", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("binaryShl", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("binaryEq", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("binaryNe", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("binaryGt", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("binaryGe", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("binaryLt", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("binaryLe", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod(
-          "binaryRegexMatch", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod(
-          "binaryRegexNonMatch",
-          new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod(
-          "binaryLogicalAnd", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod(
-          "binaryLogicalOr", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
+      addSharedMethod(owner, "binaryAdd");
+      addSharedMethod(owner, "binarySubtract");
+      addSharedMethod(owner, "binaryMultiply");
+      addSharedMethod(owner, "binaryDivide");
+      addSharedMethod(owner, "binaryModulo");
+      addSharedMethod(owner, "binaryXor");
+      addSharedMethod(owner, "binaryAnd");
+      addSharedMethod(owner, "binaryOr");
+
+      addSharedMethod(owner, "binaryShr");
+      addSharedMethod(owner, "binaryShl");
+      addSharedMethod(owner, "binaryEq");
+      addSharedMethod(owner, "binaryNe");
+      addSharedMethod(owner, "binaryGt");
+      addSharedMethod(owner, "binaryGe");
+      addSharedMethod(owner, "binaryLt");
+      addSharedMethod(owner, "binaryLe");
+      addSharedMethod(owner, "binaryRegexMatch");
+      addSharedMethod(owner, "binaryRegexNonMatch");
+      addSharedMethod(owner, "binaryLogicalAnd");
+      addSharedMethod(owner, "binaryLogicalOr");
     }
   }
 
-  private void addUnaryOpMethods() {
+  private static void addUnaryOpMethods(XtellaType type, XtellaObject owner) {
     if (type == XtellaType.INTEGER || type == XtellaType.FLOAT || type == XtellaType.STRING) {
-      addMethod("unaryPlus", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("unaryMinus", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("unaryNot", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod(
-          "unaryLogicalNot", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod(
-          "unaryPreIncrement",
-          new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-
-      addMethod(
-          "unaryPreDecrement",
-          new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod(
-          "unaryPostIncrement",
-          new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-
-      addMethod(
-          "unaryPostDecrement",
-          new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
+      addSharedMethod(owner, "unaryPlus");
+      addSharedMethod(owner, "unaryMinus");
+      addSharedMethod(owner, "unaryNot");
+      addSharedMethod(owner, "unaryLogicalNot");
+      addSharedMethod(owner, "unaryPreIncrement");
+
+      addSharedMethod(owner, "unaryPreDecrement");
+      addSharedMethod(owner, "unaryPostIncrement");
+
+      addSharedMethod(owner, "unaryPostDecrement");
     }
   }
 
-  private void initializeDefaults() {
+  private static void addDefaultMethods(XtellaType type, XtellaObject owner) {
     if (type == XtellaType.INTEGER) {
-      addMethod("assignment", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addBinaryOpMethods();
-      addUnaryOpMethods();
+      addSharedMethod(owner, "assignment");
+      addBinaryOpMethods(type, owner);
+      addUnaryOpMethods(type, owner);
     } else if (type == XtellaType.FLOAT) {
-      addMethod("assignment", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addBinaryOpMethods();
-      addUnaryOpMethods();
+      addSharedMethod(owner, "assignment");
+      addBinaryOpMethods(type, owner);
+      addUnaryOpMethods(type, owner);
     } else if (type == XtellaType.CLOSURE) {
-      addMethod("assignment", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
+      addSharedMethod(owner, "assignment");
     } else if (type == XtellaType.STRING) {
-      addMethod("assignment", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addBinaryOpMethods();
+      addSharedMethod(owner, "assignment");
+      addBinaryOpMethods(type, owner);
     } else if (type == XtellaType.REGEX) {
-      addMethod("match", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("replace", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
+      addSharedMethod(owner, "match");
+      addSharedMethod(owner, "replace");
     } else if (type == XtellaType.FILEHANDLE) {
-      addMethod("read", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("write", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
+      addSharedMethod(owner, "read");
+      addSharedMethod(owner, "write");
     } else if (type == XtellaType.FIELD) {
-      addMethod("get", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
-      addMethod("set", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
+      addSharedMethod(owner, "get");
+      addSharedMethod(owner, "set");
     } else if (type == XtellaType.BINARYOP) {
-      addMethod("evaluate", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
+      addSharedMethod(owner, "evaluate");
     } else if (type == XtellaType.UNARYOP) {
-      addMethod("apply", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
+      addSharedMethod(owner, "apply");
     } else if (type == XtellaType.TERNARYOP) {
-      addMethod("operate", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
+      addSharedMethod(owner, "operate");
     } else if (type == XtellaType.SYMBOL) {
-      addMethod("evaluate", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
+      addSharedMethod(owner, "evaluate");
     } else if (type == XtellaType.CALLABLE) {
-      addMethod("call", new XtellaObject(XtellaType.METHOD, new XtellaBytecodeChunk(), this));
+      addSharedMethod(owner, "call");
     }
   }
 
@@ -139,11 +169,46 @@ public class XtellaObject {
     this.bytecodeChunk = bytecodeChunk;
   }
 
+  public XtellaObject getParent() {
+    return this.parent;
+  }
+
+  public XtellaObject getMethod(String methodName) {
+    return this.methods.get(methodName);
+  }
+
+  public Map<String, XtellaObject> getMethods() {
+    return Collections.unmodifiableMap(this.methods);
+  }
+
+  public XtellaObject getField(String fieldName) {
+    return this.fields.get(fieldName);
+  }
+
+  public Map<String, XtellaObject> getFields() {
+    return this.fields;
+  }
+
   public void addMethod(String methodName, XtellaObject method) {
-    methods.put(methodName, method);
+    if (this.methods == sharedMethodTable(this.type)) {
+      this.methods = new HashMap<>(this.methods);
+    }
+
+    this.methods.put(methodName, method);
+    this.methodTableVersion++;
+  }
+
+  Map<String, XtellaObject> getMethodTable() {
+    return this.methods;
+  }
+
+  int getMethodTableVersion() {
+    return this.methodTableVersion;
   }
 
   public void addField(String fieldName, XtellaObject field) {
+    Map<String, XtellaObject> fields = new HashMap<>(this.fields);
     fields.put(fieldName, field);
+    this.fields = Collections.unmodifiableMap(fields);
   }
 }
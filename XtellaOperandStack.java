@@ -0,0 +1,284 @@
+package xtella;
+
+import java.util.Arrays;
+
+public class XtellaOperandStack {
+  public static final byte TAG_NONE = 0;
+  public static final byte TAG_INT = 1;
+  public static final byte TAG_FLOAT = 2;
+  public static final byte TAG_BOOLEAN = 3;
+  public static final byte TAG_REFERENCE = 4;
+  public static final byte TAG_LONG = 5;
+  public static final byte TAG_DOUBLE = 6;
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private byte[] tags;
+  private long[] values;
+  private Object[] references;
+  private int size;
+
+  public XtellaOperandStack() {
+    this(INITIAL_CAPACITY);
+  }
+
+  public XtellaOperandStack(int initialCapacity) {
+    this.tags = new byte[initialCapacity];
+    this.values = new long[initialCapacity];
+    this.references = new Object[initialCapacity];
+    this.size = 0;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(this.references, 0, this.size, null);
+    this.size = 0;
+  }
+
+  public void reserve(int slotCount) {
+    while (this.size + slotCount > this.tags.length) {
+      grow();
+    }
+
+    Arrays.fill(this.tags, this.size, this.size + slotCount, TAG_NONE);
+    this.size += slotCount;
+  }
+
+  public byte tagAt(int index) {
+    return this.tags[index];
+  }
+
+  public int intAt(int index) {
+    return (int) this.values[index];
+  }
+
+  public long longAt(int index) {
+    return this.values[index];
+  }
+
+  public float floatAt(int index) {
+    return Float.intBitsToFloat((int) this.values[index]);
+  }
+
+  public double doubleAt(int index) {
+    return Double.longBitsToDouble(this.values[index]);
+  }
+
+  public Object referenceAt(int index) {
+    return this.references[index];
+  }
+
+  public void setInt(int index, int value) {
+    this.tags[index] = TAG_INT;
+    this.values[index] = value;
+    this.references[index] = null;
+  }
+
+  public void setIntegral(int index, long value) {
+    this.tags[index] = (int) value == value ? TAG_INT : TAG_LONG;
+    this.values[index] = value;
+    this.references[index] = null;
+  }
+
+  public void load(int index) {
+    ensureCapacity();
+    this.tags[this.size] = this.tags[index];
+    this.values[this.size] = this.values[index];
+    this.references[this.size++] = this.references[index];
+  }
+
+  public void store(int index) {
+    int top = --this.size;
+
+    this.tags[index] = this.tags[top];
+    this.values[index] = this.values[top];
+    this.references[index] = this.references[top];
+    this.references[top] = null;
+  }
+
+  public byte peekTag() {
+    return peekTag(0);
+  }
+
+  public byte peekTag(int depth) {
+    return this.tags[this.size - 1 - depth];
+  }
+
+  public void pushInt(int value) {
+    ensureCapacity();
+    this.tags[this.size] = TAG_INT;
+    this.values[this.size++] = value;
+  }
+
+  public void pushFloat(float value) {
+    ensureCapacity();
+    this.tags[this.size] = TAG_FLOAT;
+    this.values[this.size++] = Float.floatToRawIntBits(value);
+  }
+
+  public void pushLong(long value) {
+    ensureCapacity();
+    this.tags[this.size] = TAG_LONG;
+    this.values[this.size++] = value;
+  }
+
+  public void pushIntegral(long value) {
+    ensureCapacity();
+    this.tags[this.size] = (int) value == value ? TAG_INT : TAG_LONG;
+    this.values[this.size++] = value;
+  }
+
+  public void pushDouble(double value) {
+    ensureCapacity();
+    this.tags[this.size] = TAG_DOUBLE;
+    this.values[this.size++] = Double.doubleToRawLongBits(value);
+  }
+
+  public void pushBoolean(boolean value) {
+    ensureCapacity();
+    this.tags[this.size] = TAG_BOOLEAN;
+    this.values[this.size++] = value ? 1L : 0L;
+  }
+
+  public void pushReference(Object value) {
+    ensureCapacity();
+    this.tags[this.size] = TAG_REFERENCE;
+    this.references[this.size++] = value;
+  }
+
+  public void push(Object value) {
+    if (value instanceof Integer) {
+      pushInt((Integer) value);
+    } else if (value instanceof Long) {
+      pushLong((Long) value);
+    } else if (value instanceof Float) {
+      pushFloat((Float) value);
+    } else if (value instanceof Double) {
+      pushDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      pushBoolean((Boolean) value);
+    } else {
+      pushReference(value);
+    }
+  }
+
+  public int popInt() {
+    return (int) this.values[--this.size];
+  }
+
+  public float popFloat() {
+    return Float.intBitsToFloat((int) this.values[--this.size]);
+  }
+
+  public long popLong() {
+    return this.values[--this.size];
+  }
+
+  public double popDouble() {
+    int top = --this.size;
+
+    if (this.tags[top] == TAG_FLOAT) {
+      return Float.intBitsToFloat((int) this.values[top]);
+    }
+
+    return Double.longBitsToDouble(this.values[top]);
+  }
+
+  public boolean popBoolean() {
+    return this.values[--this.size] != 0L;
+  }
+
+  public Object popReference() {
+    Object value = this.references[--this.size];
+    this.references[this.size] = null;
+    return value;
+  }
+
+  public Object pop() {
+    switch (this.tags[this.size - 1]) {
+      case TAG_INT:
+        return popInt();
+      case TAG_LONG:
+        return popLong();
+      case TAG_FLOAT:
+        return popFloat();
+      case TAG_DOUBLE:
+        return popDouble();
+      case TAG_BOOLEAN:
+        return popBoolean();
+      default:
+        return popReference();
+    }
+  }
+
+  public Object peek() {
+    return get(this.size - 1);
+  }
+
+  public Object get(int index) {
+    switch (this.tags[index]) {
+      case TAG_INT:
+        return (int) this.values[index];
+      case TAG_LONG:
+        return this.values[index];
+      case TAG_FLOAT:
+        return Float.intBitsToFloat((int) this.values[index]);
+      case TAG_DOUBLE:
+        return Double.longBitsToDouble(this.values[index]);
+      case TAG_BOOLEAN:
+        return this.values[index] != 0L;
+      default:
+        return this.references[index];
+    }
+  }
+
+  public void drop(int count) {
+    Arrays.fill(this.references, this.size - count, this.size, null);
+    this.size -= count;
+  }
+
+  public void duplicate() {
+    ensureCapacity();
+    this.tags[this.size] = this.tags[this.size - 1];
+    this.values[this.size] = this.values[this.size - 1];
+    this.references[this.size] = this.references[this.size - 1];
+    this.size++;
+  }
+
+  public void swap() {
+    int top = this.size - 1;
+    int below = this.size - 2;
+
+    byte tag = this.tags[top];
+    long value = this.values[top];
+    Object reference = this.references[top];
+
+    this.tags[top] = this.tags[below];
+    this.values[top] = this.values[below];
+    this.references[top] = this.references[below];
+
+    this.tags[below] = tag;
+    this.values[below] = value;
+    this.references[below] = reference;
+  }
+
+  private void ensureCapacity() {
+    if (this.size == this.tags.length) {
+      grow();
+    }
+  }
+
+  private void grow() {
+    int newCapacity = this.tags.length * 2;
+    this.tags = Arrays.copyOf(this.tags, newCapacity);
+    this.values = Arrays.copyOf(this.values, newCapacity);
+    this.references = Arrays.copyOf(this.references, newCapacity);
+  }
+}
@@ -0,0 +1,146 @@
+package xtella;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+public class XtellaOutputSink {
+  public static final int DEFAULT_BUFFER_COUNT = 8;
+
+  private final GatheringByteChannel channel;
+  private final CharsetEncoder encoder;
+  private final ByteBuffer[] buffers;
+  private final char[] pendingSurrogate;
+  private int currentBuffer;
+  private boolean hasPendingSurrogate;
+  private long bytesWritten;
+
+  public XtellaOutputSink(GatheringByteChannel channel, Charset charset, int bufferSize) {
+    this(channel, charset, bufferSize, DEFAULT_BUFFER_COUNT);
+  }
+
+  public XtellaOutputSink(
+      GatheringByteChannel channel, Charset charset, int bufferSize, int bufferCount) {
+    this.channel = channel;
+    this.encoder =
+        charset
+            .newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.buffers = new ByteBuffer[bufferCount];
+
+    for (int i = 0; i < bufferCount; i++) {
+      this.buffers[i] = ByteBuffer.allocateDirect(Math.max(bufferSize, 16));
+    }
+
+    this.pendingSurrogate = new char[1];
+    this.currentBuffer = 0;
+    this.hasPendingSurrogate = false;
+    this.bytesWritten = 0;
+  }
+
+  public long getBytesWritten() {
+    return this.bytesWritten;
+  }
+
+  public void append(CharSequence content) throws IOException {
+    if (content.length() == 0) {
+      return;
+    }
+
+    if (content instanceof XtellaRope) {
+      ((XtellaRope) content).writeTo(this);
+      return;
+    }
+
+    if (this.hasPendingSurrogate) {
+      this.hasPendingSurrogate = false;
+      CharBuffer joined = CharBuffer.allocate(2);
+      joined.put(this.pendingSurrogate[0]).put(content.charAt(0)).flip();
+      encode(joined);
+      content = content.subSequence(1, content.length());
+    }
+
+    CharBuffer input = CharBuffer.wrap(content);
+    encode(input);
+
+    if (input.hasRemaining()) {
+      this.pendingSurrogate[0] = input.get();
+      this.hasPendingSurrogate = true;
+    }
+  }
+
+  public void append(Object value) throws IOException {
+    if (value instanceof CharSequence) {
+      append((CharSequence) value);
+    } else {
+      append(String.valueOf(value));
+    }
+  }
+
+  private void encode(CharBuffer input) throws IOException {
+    while (true) {
+      CoderResult result = this.encoder.encode(input, this.buffers[this.currentBuffer], false);
+
+      if (result.isOverflow()) {
+        nextBuffer();
+      } else if (result.isUnderflow()) {
+        return;
+      } else {
+        result.throwException();
+      }
+    }
+  }
+
+  private void nextBuffer() throws IOException {
+    if (this.currentBuffer + 1 < this.buffers.length) {
+      this.currentBuffer++;
+    } else {
+      drain();
+    }
+  }
+
+  private void drain() throws IOException {
+    int used = this.currentBuffer + 1;
+
+    for (int i = 0; i < used; i++) {
+      this.buffers[i].flip();
+    }
+
+    while (this.buffers[this.currentBuffer].hasRemaining()) {
+      this.bytesWritten += this.channel.write(this.buffers, 0, used);
+    }
+
+    for (int i = 0; i < used; i++) {
+      this.buffers[i].clear();
+    }
+
+    this.currentBuffer = 0;
+  }
+
+  public void flush() throws IOException {
+    drain();
+  }
+
+  public void close() throws IOException {
+    CharBuffer tail =
+        this.hasPendingSurrogate ? CharBuffer.wrap(this.pendingSurrogate) : CharBuffer.allocate(0);
+    this.hasPendingSurrogate = false;
+
+    while (this.encoder.encode(tail, this.buffers[this.currentBuffer], true).isOverflow()) {
+      nextBuffer();
+    }
+
+    while (this.encoder.flush(this.buffers[this.currentBuffer]).isOverflow()) {
+      nextBuffer();
+    }
+
+    drain();
+    this.encoder.reset();
+  }
+}
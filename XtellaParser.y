@@ -140,12 +140,13 @@ integer          : DECIMAL_NUM			{ $$ = $1; }
 multi_ln_quoted_string : quote_openers multi_ln_quoted_str_body quote_closers 
 		       {
 		          if ($1 != $3) { // handle error }
-			  $$ = $2;
+			  $$ = $2.toString();
 		       }
 
-multi_ln_quoted_str_body  : character		      { $$ = $1.toString(); }
-		 | NEWLINE			      { $$ = "\n";	    }
-		 | quoted_str_body character	      { $$ = $1 + $2;	    }
+multi_ln_quoted_str_body  : character		      { $$ = new StringBuilder().append($1); }
+		 | NEWLINE			      { $$ = new StringBuilder().append('\n'); }
+		 | multi_ln_quoted_str_body character	      { $$ = $1.append($2); }
+		 | multi_ln_quoted_str_body NEWLINE	      { $$ = $1.append('\n'); }
 
 
 quote_closers    : SLASH        { $$ = QUOTE_DELIM_SLASH;   }
@@ -162,23 +163,24 @@ quote_openers    : Q_SLASH      { $$ = QUOTE_DELIM_SLASH;   }
                   | Q_PERCENT   { $$ = QUOTE_DELIM_PERCENT; }
                   | Q_LSQUARE	{ $$ = QUOTE_DELIM_SQUARE;  }
 
-multi_ln_string  : BACKTICK multi_ln_string_body BACKTICK	   { $$ = $2; }
+multi_ln_string  : BACKTICK multi_ln_string_body BACKTICK	   { $$ = $2.toNode(); }
 
-multi_ln_string_body : character				   { $$ = $1.toString(); }
-		  | NEWLINE					   { $$ = "\n";		 }
-                  | multi_ln_string_body character		   { $$ = $1 + $2;       }
-                  | multi_ln_string_body DOLLAR expression RPAREN  { $$ = $3.toString(); }
+multi_ln_string_body : character				   { $$ = new StringBodyBuilder().appendChar($1); }
+		  | NEWLINE					   { $$ = new StringBodyBuilder().appendChar('\n'); }
+                  | multi_ln_string_body character		   { $$ = $1.appendChar($2); }
+                  | multi_ln_string_body NEWLINE		   { $$ = $1.appendChar('\n'); }
+                  | multi_ln_string_body DOLLAR expression RPAREN  { $$ = $1.appendExpression($3); }
 
-quoted_string    : SQUOTE quoted_str_body SQUOTE	  { $$ = $2; }
+quoted_string    : SQUOTE quoted_str_body SQUOTE	  { $$ = $2.toString(); }
 
-quoted_str_body  : character				  { $$ = $1.toString(); }
-		 | quoted_str_body character		  { $$ = $1 + $2;	}
+quoted_str_body  : character				  { $$ = new StringBuilder().append($1); }
+		 | quoted_str_body character		  { $$ = $1.append($2);	}
 
-string           : DQUOTE string_body DQUOTE		  { $$ = $2; }
+string           : DQUOTE string_body DQUOTE		  { $$ = $2.toNode(); }
 
-string_body      : character				  { $$ = $1.toString(); }
-                  | string_body character		  { $$ = $1 + $2;	}
-                  | string_body DOLLAR expression RPAREN  { $$ = $3.toString(); }
+string_body      : character				  { $$ = new StringBodyBuilder().appendChar($1); }
+                  | string_body character		  { $$ = $1.appendChar($2); }
+                  | string_body DOLLAR expression RPAREN  { $$ = $1.appendExpression($3); }
 
 character        : LETTER				{ $$ = $1; }
                   | c_escapes				{ $$ = $1; }
@@ -0,0 +1,189 @@
+package xtella;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+public class XtellaPeephole {
+  public static final class Fusion {
+    private final int[] opcodes;
+    private final int fusedOpcode;
+
+    public Fusion(int fusedOpcode, int... opcodes) {
+      if (opcodes.length < 2) {
+        throw new IllegalArgumentException("A fusion needs at least two opcodes");
+      }
+
+      int operandTotal = 0;
+      int jumpOperand = -1;
+
+      for (int i = 0; i < opcodes.length; i++) {
+        int opcodeJump = XtellaVM.jumpOperandIndex(opcodes[i]);
+
+        if (opcodeJump >= 0) {
+          if (i != opcodes.length - 1) {
+            throw new IllegalArgumentException("Only the last opcode of a fusion may jump");
+          }
+
+          jumpOperand = operandTotal + opcodeJump;
+        }
+
+        operandTotal += XtellaVM.operandCount(opcodes[i]);
+      }
+
+      if (XtellaVM.operandCount(fusedOpcode) != operandTotal
+          || XtellaVM.jumpOperandIndex(fusedOpcode) != jumpOperand) {
+        throw new IllegalArgumentException(
+            "Fused opcode " + fusedOpcode + " does not match the operands of its sequence");
+      }
+
+      this.opcodes = opcodes.clone();
+      this.fusedOpcode = fusedOpcode;
+    }
+
+    public int getFusedOpcode() {
+      return this.fusedOpcode;
+    }
+
+    public int length() {
+      return this.opcodes.length;
+    }
+  }
+
+  public static final List<Fusion> DEFAULT_FUSIONS =
+      List.of(
+          new Fusion(
+              XtellaVM.LOAD_LOCAL_LOAD_LOCAL_LT_JUMP_IF_FALSE,
+              XtellaVM.LOAD_LOCAL,
+              XtellaVM.LOAD_LOCAL,
+              XtellaVM.LESS_THAN,
+              XtellaVM.JUMP_IF_FALSE),
+          new Fusion(
+              XtellaVM.LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE,
+              XtellaVM.LOAD_LOCAL,
+              XtellaVM.PUSH_INT,
+              XtellaVM.LESS_THAN,
+              XtellaVM.JUMP_IF_FALSE),
+          new Fusion(
+              XtellaVM.LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL,
+              XtellaVM.LOAD_LOCAL,
+              XtellaVM.PUSH_INT,
+              XtellaVM.ADD,
+              XtellaVM.STORE_LOCAL),
+          new Fusion(
+              XtellaVM.LOAD_LOCAL_LOAD_LOCAL_ADD_STORE_LOCAL,
+              XtellaVM.LOAD_LOCAL,
+              XtellaVM.LOAD_LOCAL,
+              XtellaVM.ADD,
+              XtellaVM.STORE_LOCAL),
+          new Fusion(
+              XtellaVM.LOAD_LOCAL_REGEX_MATCH_CONSTANT_JUMP_IF_FALSE,
+              XtellaVM.LOAD_LOCAL,
+              XtellaVM.REGEX_MATCH_CONSTANT,
+              XtellaVM.JUMP_IF_FALSE),
+          new Fusion(
+              XtellaVM.REGEX_MATCH_CONSTANT_JUMP_IF_FALSE,
+              XtellaVM.REGEX_MATCH_CONSTANT,
+              XtellaVM.JUMP_IF_FALSE));
+
+  private final List<Fusion> fusions;
+
+  public XtellaPeephole() {
+    this(DEFAULT_FUSIONS);
+  }
+
+  public XtellaPeephole(List<Fusion> fusions) {
+    this.fusions = new ArrayList<>(fusions);
+    this.fusions.sort(Comparator.comparingInt(Fusion::length).reversed());
+  }
+
+  public List<Fusion> getFusions() {
+    return this.fusions;
+  }
+
+  public int optimize(XtellaBytecodeChunk chunk) {
+    int[] code = chunk.getCode();
+    int codeLength = chunk.getCodeLength();
+    BitSet jumpTargets = new BitSet(codeLength + 1);
+
+    for (int pc = 0; pc < codeLength; pc += 1 + XtellaVM.operandCount(code[pc])) {
+      int jumpOperand = XtellaVM.jumpOperandIndex(code[pc]);
+
+      if (jumpOperand >= 0) {
+        jumpTargets.set(code[pc + 1 + jumpOperand]);
+      }
+    }
+
+    int[] fused = new int[codeLength];
+    int[] newOffsets = new int[codeLength + 1];
+    int fusedLength = 0;
+    int fusionCount = 0;
+    int pc = 0;
+
+    while (pc < codeLength) {
+      Fusion fusion = match(code, codeLength, pc, jumpTargets);
+      newOffsets[pc] = fusedLength;
+
+      if (fusion == null) {
+        int length = 1 + XtellaVM.operandCount(code[pc]);
+        System.arraycopy(code, pc, fused, fusedLength, length);
+        fusedLength += length;
+        pc += length;
+        continue;
+      }
+
+      fused[fusedLength++] = fusion.fusedOpcode;
+
+      for (int i = 0; i < fusion.opcodes.length; i++) {
+        int operands = XtellaVM.operandCount(code[pc]);
+        System.arraycopy(code, pc + 1, fused, fusedLength, operands);
+        fusedLength += operands;
+        pc += 1 + operands;
+      }
+
+      fusionCount++;
+    }
+
+    newOffsets[codeLength] = fusedLength;
+
+    if (fusionCount == 0) {
+      return 0;
+    }
+
+    for (int newPc = 0; newPc < fusedLength; newPc += 1 + XtellaVM.operandCount(fused[newPc])) {
+      int jumpOperand = XtellaVM.jumpOperandIndex(fused[newPc]);
+
+      if (jumpOperand >= 0) {
+        int target = newPc + 1 + jumpOperand;
+        fused[target] = newOffsets[fused[target]];
+      }
+    }
+
+    chunk.setCode(fused, fusedLength);
+    return fusionCount;
+  }
+
+  private Fusion match(int[] code, int codeLength, int start, BitSet jumpTargets) {
+    for (Fusion fusion : this.fusions) {
+      int pc = start;
+      int matched = 0;
+
+      while (matched < fusion.opcodes.length && pc < codeLength) {
+        if (XtellaVM.genericOpcode(code[pc]) != fusion.opcodes[matched]
+            || (matched > 0 && jumpTargets.get(pc))) {
+          break;
+        }
+
+        pc += 1 + XtellaVM.operandCount(code[pc]);
+        matched++;
+      }
+
+      if (matched == fusion.opcodes.length) {
+        return fusion;
+      }
+    }
+
+    return null;
+  }
+}
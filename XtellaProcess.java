@@ -0,0 +1,90 @@
+package xtella;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+
+public class XtellaProcess implements Iterable<String>, AutoCloseable {
+  public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+  private final String command;
+  private final Process process;
+  private final BufferedReader reader;
+  private volatile boolean timedOut;
+
+  XtellaProcess(String command, Process process, Charset charset) {
+    this.command = command;
+    this.process = process;
+    this.reader =
+        new BufferedReader(
+            new InputStreamReader(process.getInputStream(), charset), DEFAULT_BUFFER_SIZE);
+    this.timedOut = false;
+  }
+
+  public String getCommand() {
+    return this.command;
+  }
+
+  public boolean isAlive() {
+    return this.process.isAlive();
+  }
+
+  public boolean isTimedOut() {
+    return this.timedOut;
+  }
+
+  public String readLine() throws IOException {
+    return this.reader.readLine();
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return this.reader.lines().iterator();
+  }
+
+  public long pipeTo(XtellaFileHandle handle) throws IOException {
+    char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+    long charsCopied = 0;
+    int charsRead;
+
+    while ((charsRead = this.reader.read(buffer)) != -1) {
+      handle.write(CharBuffer.wrap(buffer, 0, charsRead));
+      charsCopied += charsRead;
+    }
+
+    return charsCopied;
+  }
+
+  public int waitFor() throws IOException, InterruptedException {
+    char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+
+    while (this.reader.read(buffer) != -1) {}
+
+    int exitCode = this.process.waitFor();
+
+    if (this.timedOut) {
+      throw new IllegalStateException("Command timed out: " + this.command);
+    }
+
+    return exitCode;
+  }
+
+  void kill() {
+    if (this.process.isAlive()) {
+      this.timedOut = true;
+      this.process.destroyForcibly();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (this.process.isAlive()) {
+      this.process.destroyForcibly();
+    }
+
+    this.reader.close();
+  }
+}
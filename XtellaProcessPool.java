@@ -0,0 +1,129 @@
+package xtella;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class XtellaProcessPool {
+  public static final int DEFAULT_MAX_PROCESSES =
+      Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+  private static final XtellaProcessPool DEFAULT = new XtellaProcessPool();
+
+  private static final class Timers {
+    private static final ScheduledThreadPoolExecutor INSTANCE = newTimers();
+
+    private static ScheduledThreadPoolExecutor newTimers() {
+      ScheduledThreadPoolExecutor timers =
+          new ScheduledThreadPoolExecutor(
+              1,
+              runnable -> {
+                Thread thread = new Thread(runnable, "xtella-process-timer");
+                thread.setDaemon(true);
+                return thread;
+              });
+      timers.setRemoveOnCancelPolicy(true);
+      return timers;
+    }
+  }
+
+  private final int maxProcesses;
+  private final long timeoutMillis;
+  private final Charset charset;
+  private final Semaphore permits;
+
+  public XtellaProcessPool() {
+    this(DEFAULT_MAX_PROCESSES, 0);
+  }
+
+  public XtellaProcessPool(int maxProcesses, long timeoutMillis) {
+    this(maxProcesses, timeoutMillis, StandardCharsets.UTF_8);
+  }
+
+  public XtellaProcessPool(int maxProcesses, long timeoutMillis, Charset charset) {
+    if (maxProcesses <= 0) {
+      throw new IllegalArgumentException("Process pool size must be positive");
+    }
+
+    if (timeoutMillis < 0) {
+      throw new IllegalArgumentException("Process timeout must not be negative");
+    }
+
+    this.maxProcesses = maxProcesses;
+    this.timeoutMillis = timeoutMillis;
+    this.charset = charset;
+    this.permits = new Semaphore(maxProcesses, true);
+  }
+
+  public static XtellaProcessPool getDefault() {
+    return DEFAULT;
+  }
+
+  public int getMaxProcesses() {
+    return this.maxProcesses;
+  }
+
+  public long getTimeoutMillis() {
+    return this.timeoutMillis;
+  }
+
+  public int getRunningCount() {
+    return this.maxProcesses - this.permits.availablePermits();
+  }
+
+  public XtellaProcess start(String command) throws IOException, InterruptedException {
+    List<String> arguments = tokenize(command);
+
+    if (arguments.isEmpty()) {
+      throw new IllegalArgumentException("Empty command");
+    }
+
+    this.permits.acquire();
+    Process process;
+
+    try {
+      process =
+          new ProcessBuilder(arguments).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    } catch (IOException | RuntimeException e) {
+      this.permits.release();
+      throw e;
+    }
+
+    XtellaProcess handle = new XtellaProcess(command, process, this.charset);
+    ScheduledFuture<?> timer =
+        this.timeoutMillis > 0
+            ? Timers.INSTANCE.schedule(handle::kill, this.timeoutMillis, TimeUnit.MILLISECONDS)
+            : null;
+
+    process
+        .onExit()
+        .whenComplete(
+            (exited, e) -> {
+              if (timer != null) {
+                timer.cancel(false);
+              }
+
+              this.permits.release();
+            });
+
+    return handle;
+  }
+
+  private static List<String> tokenize(String command) {
+    StringTokenizer tokenizer = new StringTokenizer(command);
+    List<String> arguments = new ArrayList<>();
+
+    while (tokenizer.hasMoreTokens()) {
+      arguments.add(tokenizer.nextToken());
+    }
+
+    return arguments;
+  }
+}
@@ -0,0 +1,65 @@
+package xtella;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public final class XtellaRange implements Iterable<Object> {
+  private final long start;
+  private final long end;
+  private final long step;
+
+  public XtellaRange(long start, long end, long step) {
+    if (step == 0) {
+      throw new IllegalArgumentException("Range step must not be zero");
+    }
+
+    this.start = start;
+    this.end = end;
+    this.step = step;
+  }
+
+  public long getStart() {
+    return this.start;
+  }
+
+  public long getEnd() {
+    return this.end;
+  }
+
+  public long getStep() {
+    return this.step;
+  }
+
+  @Override
+  public Iterator<Object> iterator() {
+    return new Iterator<Object>() {
+      private long next = XtellaRange.this.start;
+      private boolean overflowed = false;
+
+      @Override
+      public boolean hasNext() {
+        return !this.overflowed
+            && (XtellaRange.this.step > 0
+                ? this.next < XtellaRange.this.end
+                : this.next > XtellaRange.this.end);
+      }
+
+      @Override
+      public Object next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        long value = this.next;
+        this.next = value + XtellaRange.this.step;
+        this.overflowed = ((value ^ this.next) & (XtellaRange.this.step ^ this.next)) < 0;
+        return XtellaNumbers.narrow(value);
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "range(" + this.start + ", " + this.end + ", " + this.step + ")";
+  }
+}
@@ -0,0 +1,71 @@
+package xtella;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class XtellaRegexCache {
+  public static final int DEFAULT_CAPACITY = 256;
+
+  private final int capacity;
+  private final LinkedHashMap<String, Pattern> patterns;
+  private long hitCount;
+  private long missCount;
+
+  public XtellaRegexCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public XtellaRegexCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Regex cache capacity must be positive");
+    }
+
+    this.capacity = capacity;
+    this.patterns =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+            return size() > XtellaRegexCache.this.capacity;
+          }
+        };
+    this.hitCount = 0;
+    this.missCount = 0;
+  }
+
+  public Pattern compile(String regex) {
+    Pattern pattern = this.patterns.get(regex);
+
+    if (pattern != null) {
+      this.hitCount++;
+      return pattern;
+    }
+
+    this.missCount++;
+    pattern = Pattern.compile(regex);
+    this.patterns.put(regex, pattern);
+    return pattern;
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  public int size() {
+    return this.patterns.size();
+  }
+
+  public long getHitCount() {
+    return this.hitCount;
+  }
+
+  public long getMissCount() {
+    return this.missCount;
+  }
+
+  public void clear() {
+    this.patterns.clear();
+    this.hitCount = 0;
+    this.missCount = 0;
+  }
+}
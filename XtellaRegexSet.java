@@ -0,0 +1,422 @@
+package xtella;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public final class XtellaRegexSet {
+  private static final Pattern INLINE_FLAGS = Pattern.compile("\\(\\?[a-zA-Z-]+\\)");
+  private static final int[] NO_MATCHES = new int[0];
+
+  private final String[] patterns;
+  private final Pattern[] compiled;
+  private final String[] literals;
+  private final long[] unfiltered;
+  private final boolean prefiltered;
+
+  private char[][] labels;
+  private int[][] children;
+  private int[] failures;
+  private int[][] outputs;
+
+  public XtellaRegexSet(String[] patterns) {
+    this.patterns = patterns.clone();
+    this.compiled = new Pattern[patterns.length];
+    this.literals = new String[patterns.length];
+    this.unfiltered = new long[(patterns.length + 63) >>> 6];
+
+    boolean prefiltered = false;
+
+    for (int i = 0; i < patterns.length; i++) {
+      this.compiled[i] = Pattern.compile(patterns[i]);
+      this.literals[i] = this.compiled[i].flags() == 0 ? requiredLiteral(patterns[i]) : null;
+
+      if (this.literals[i] == null) {
+        this.unfiltered[i >>> 6] |= 1L << i;
+      } else {
+        prefiltered = true;
+      }
+    }
+
+    this.prefiltered = prefiltered;
+
+    if (prefiltered) {
+      buildAutomaton();
+    }
+  }
+
+  public String[] getPatterns() {
+    return this.patterns.clone();
+  }
+
+  public int size() {
+    return this.patterns.length;
+  }
+
+  public String getRequiredLiteral(int index) {
+    return this.literals[index];
+  }
+
+  public int firstMatch(CharSequence input) {
+    long[] candidates = candidates(input);
+
+    for (int word = 0; word < candidates.length; word++) {
+      for (long bits = candidates[word]; bits != 0; bits &= bits - 1) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+
+        if (this.compiled[index].matcher(input).matches()) {
+          return index;
+        }
+      }
+    }
+
+    return -1;
+  }
+
+  public int[] allMatches(CharSequence input) {
+    long[] candidates = candidates(input);
+    int[] matches = NO_MATCHES;
+    int count = 0;
+
+    for (int word = 0; word < candidates.length; word++) {
+      for (long bits = candidates[word]; bits != 0; bits &= bits - 1) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+
+        if (this.compiled[index].matcher(input).matches()) {
+          if (count == matches.length) {
+            matches = Arrays.copyOf(matches, Math.max(4, count * 2));
+          }
+
+          matches[count++] = index;
+        }
+      }
+    }
+
+    return count == matches.length ? matches : Arrays.copyOf(matches, count);
+  }
+
+  private long[] candidates(CharSequence input) {
+    long[] candidates = this.unfiltered.clone();
+
+    if (!this.prefiltered) {
+      return candidates;
+    }
+
+    int state = 0;
+
+    for (int i = 0, length = input.length(); i < length; i++) {
+      char c = input.charAt(i);
+      int next;
+
+      while ((next = child(state, c)) < 0 && state != 0) {
+        state = this.failures[state];
+      }
+
+      state = next < 0 ? 0 : next;
+
+      for (int index : this.outputs[state]) {
+        candidates[index >>> 6] |= 1L << index;
+      }
+    }
+
+    return candidates;
+  }
+
+  private int child(int state, char c) {
+    char[] labels = this.labels[state];
+    int position = Arrays.binarySearch(labels, c);
+    return position < 0 ? -1 : this.children[state][position];
+  }
+
+  private void buildAutomaton() {
+    List<char[]> labels = new ArrayList<>();
+    List<int[]> children = new ArrayList<>();
+    List<int[]> outputs = new ArrayList<>();
+
+    labels.add(new char[0]);
+    children.add(new int[0]);
+    outputs.add(NO_MATCHES);
+
+    for (int i = 0; i < this.literals.length; i++) {
+      String literal = this.literals[i];
+
+      if (literal == null) {
+        continue;
+      }
+
+      int state = 0;
+
+      for (int j = 0; j < literal.length(); j++) {
+        char c = literal.charAt(j);
+        char[] stateLabels = labels.get(state);
+        int position = Arrays.binarySearch(stateLabels, c);
+
+        if (position >= 0) {
+          state = children.get(state)[position];
+          continue;
+        }
+
+        position = -position - 1;
+        labels.set(state, insert(stateLabels, position, c));
+        children.set(state, insert(children.get(state), position, labels.size()));
+        state = labels.size();
+        labels.add(new char[0]);
+        children.add(new int[0]);
+        outputs.add(NO_MATCHES);
+      }
+
+      outputs.set(state, append(outputs.get(state), i));
+    }
+
+    this.labels = labels.toArray(new char[0][]);
+    this.children = children.toArray(new int[0][]);
+    this.outputs = outputs.toArray(new int[0][]);
+    this.failures = new int[this.labels.length];
+
+    int[] queue = new int[this.labels.length];
+    int head = 0;
+    int tail = 0;
+
+    for (int child : this.children[0]) {
+      queue[tail++] = child;
+    }
+
+    while (head < tail) {
+      int state = queue[head++];
+
+      for (int k = 0; k < this.labels[state].length; k++) {
+        char c = this.labels[state][k];
+        int child = this.children[state][k];
+        int failure = this.failures[state];
+        int next;
+
+        while ((next = child(failure, c)) < 0 && failure != 0) {
+          failure = this.failures[failure];
+        }
+
+        this.failures[child] = next < 0 ? 0 : next;
+
+        for (int index : this.outputs[this.failures[child]]) {
+          this.outputs[child] = append(this.outputs[child], index);
+        }
+
+        queue[tail++] = child;
+      }
+    }
+  }
+
+  private static char[] insert(char[] values, int position, char value) {
+    char[] result = new char[values.length + 1];
+    System.arraycopy(values, 0, result, 0, position);
+    result[position] = value;
+    System.arraycopy(values, position, result, position + 1, values.length - position);
+    return result;
+  }
+
+  private static int[] insert(int[] values, int position, int value) {
+    int[] result = new int[values.length + 1];
+    System.arraycopy(values, 0, result, 0, position);
+    result[position] = value;
+    System.arraycopy(values, position, result, position + 1, values.length - position);
+    return result;
+  }
+
+  private static int[] append(int[] values, int value) {
+    int[] result = Arrays.copyOf(values, values.length + 1);
+    result[values.length] = value;
+    return result;
+  }
+
+  static String requiredLiteral(String regex) {
+    if (INLINE_FLAGS.matcher(regex).find()) {
+      return null;
+    }
+
+    String longest = "";
+    StringBuilder run = new StringBuilder();
+    boolean lastWasLiteral = false;
+    int i = 0;
+
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+
+      if (c == '|') {
+        return null;
+      } else if (c == '?' || c == '*' || c == '{') {
+        if (lastWasLiteral) {
+          run.setLength(run.length() - 1);
+
+          if (run.length() > 0 && Character.isHighSurrogate(run.charAt(run.length() - 1))) {
+            run.setLength(run.length() - 1);
+          }
+        }
+
+        longest = longer(longest, run);
+        run.setLength(0);
+        i = c == '{' ? skipPast(regex, i, '}') : i + 1;
+        lastWasLiteral = false;
+        continue;
+      } else if (c == '+') {
+        longest = longer(longest, run);
+        run.setLength(0);
+        lastWasLiteral = false;
+        i++;
+        continue;
+      }
+
+      lastWasLiteral = false;
+
+      if (c == '\\' && i + 1 < regex.length()) {
+        char escaped = regex.charAt(i + 1);
+
+        if (!Character.isLetterOrDigit(escaped)) {
+          run.append(escaped);
+          lastWasLiteral = true;
+          i += 2;
+          continue;
+        }
+
+        longest = longer(longest, run);
+        run.setLength(0);
+        i = skipEscape(regex, i);
+      } else if (c == '[') {
+        longest = longer(longest, run);
+        run.setLength(0);
+        i = skipClass(regex, i);
+      } else if (c == '(') {
+        longest = longer(longest, run);
+        run.setLength(0);
+        i = skipGroup(regex, i);
+
+        if (i < 0) {
+          return null;
+        }
+      } else if (c == '.' || c == '^' || c == '$' || c == ')' || c == ']' || c == '}') {
+        longest = longer(longest, run);
+        run.setLength(0);
+        i++;
+      } else {
+        run.append(c);
+        lastWasLiteral = true;
+        i++;
+      }
+    }
+
+    longest = longer(longest, run);
+    return longest.isEmpty() ? null : longest;
+  }
+
+  private static String longer(String longest, CharSequence run) {
+    return run.length() > longest.length() ? run.toString() : longest;
+  }
+
+  private static int skipPast(String regex, int i, char terminator) {
+    int end = regex.indexOf(terminator, i + 1);
+    return end < 0 ? regex.length() : end + 1;
+  }
+
+  private static int skipEscape(String regex, int i) {
+    char escaped = regex.charAt(i + 1);
+    int next = i + 2;
+
+    switch (escaped) {
+      case 'Q':
+        int end = regex.indexOf("\\E", next);
+        return end < 0 ? regex.length() : end + 2;
+      case 'x':
+        return next < regex.length() && regex.charAt(next) == '{'
+            ? skipPast(regex, next, '}')
+            : Math.min(regex.length(), next + 2);
+      case 'u':
+        return Math.min(regex.length(), next + 4);
+      case 'c':
+        return Math.min(regex.length(), next + 1);
+      case 'p':
+      case 'P':
+      case 'N':
+        return next < regex.length() && regex.charAt(next) == '{'
+            ? skipPast(regex, next, '}')
+            : Math.min(regex.length(), next + 1);
+      case 'k':
+        return skipPast(regex, next, '>');
+      default:
+        while (Character.isDigit(escaped) && next < regex.length()
+            && Character.isDigit(regex.charAt(next))) {
+          next++;
+        }
+
+        return next;
+    }
+  }
+
+  private static int skipClass(String regex, int i) {
+    int depth = 0;
+    int j = i;
+
+    while (j < regex.length()) {
+      char c = regex.charAt(j);
+
+      if (c == '\\') {
+        j += 2;
+        continue;
+      }
+
+      if (c == '[') {
+        depth++;
+        j++;
+
+        if (j < regex.length() && regex.charAt(j) == '^') {
+          j++;
+        }
+
+        if (j < regex.length() && regex.charAt(j) == ']') {
+          j++;
+        }
+
+        continue;
+      }
+
+      j++;
+
+      if (c == ']' && --depth == 0) {
+        return j;
+      }
+    }
+
+    return regex.length();
+  }
+
+  private static int skipGroup(String regex, int i) {
+    int depth = 0;
+    int j = i;
+
+    while (j < regex.length()) {
+      char c = regex.charAt(j);
+
+      if (c == '\\') {
+        j += 2;
+      } else if (c == '[') {
+        j = skipClass(regex, j);
+      } else if (c == '(') {
+        depth++;
+        j++;
+      } else if (c == ')') {
+        j++;
+
+        if (--depth == 0) {
+          return j;
+        }
+      } else {
+        j++;
+      }
+    }
+
+    return -1;
+  }
+
+  @Override
+  public String toString() {
+    return "XtellaRegexSet" + Arrays.toString(this.patterns);
+  }
+}
@@ -0,0 +1,30 @@
+package xtella;
+
+import java.util.Arrays;
+
+public final class XtellaRegexSwitch {
+  private final String[] patterns;
+  private final XtellaRegexSet set;
+
+  public XtellaRegexSwitch(String[] patterns) {
+    this.patterns = patterns.clone();
+    this.set = new XtellaRegexSet(patterns);
+  }
+
+  public String[] getPatterns() {
+    return this.patterns.clone();
+  }
+
+  public int size() {
+    return this.patterns.length;
+  }
+
+  public int indexOf(Object subject) {
+    return subject instanceof CharSequence ? this.set.firstMatch((CharSequence) subject) : -1;
+  }
+
+  @Override
+  public String toString() {
+    return "XtellaRegexSwitch" + Arrays.toString(this.patterns);
+  }
+}
@@ -0,0 +1,229 @@
+package xtella;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Chunks are shared across concurrent renders and are not read-only: quickened code, inline caches
+// and the tier-2 profile are published through the chunk's thread-safe accessors. Everything else
+// (stack, regex cache, file table) lives in a pooled context owned by one render at a time.
+// Timeouts interrupt the worker, which both the interpreter and tier-2 loop headers poll.
+public class XtellaRenderEngine implements AutoCloseable {
+  public static final int DEFAULT_POOL_SIZE = 256;
+
+  public static final class Limits {
+    public static final Limits DEFAULT = new Limits(XtellaVM.DEFAULT_INSTRUCTION_BUDGET, 0);
+
+    private final long instructionBudget;
+    private final long timeoutMillis;
+
+    public Limits(long instructionBudget, long timeoutMillis) {
+      if (instructionBudget <= 0) {
+        throw new IllegalArgumentException("Instruction budget must be positive");
+      }
+
+      if (timeoutMillis < 0) {
+        throw new IllegalArgumentException("Render timeout must not be negative");
+      }
+
+      this.instructionBudget = instructionBudget;
+      this.timeoutMillis = timeoutMillis;
+    }
+
+    public long getInstructionBudget() {
+      return this.instructionBudget;
+    }
+
+    public long getTimeoutMillis() {
+      return this.timeoutMillis;
+    }
+  }
+
+  private static final class RenderTask extends FutureTask<Object> {
+    private volatile ScheduledFuture<?> timer;
+
+    private RenderTask(
+        XtellaRenderEngine engine, XtellaBytecodeChunk chunk, Limits limits, Object[] arguments) {
+      super(() -> engine.renderInContext(chunk, limits, arguments));
+    }
+
+    @Override
+    protected void done() {
+      ScheduledFuture<?> timer = this.timer;
+
+      if (timer != null) {
+        timer.cancel(false);
+      }
+    }
+  }
+
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final ScheduledThreadPoolExecutor timers;
+  private final XtellaTier2 tier2;
+  private final ConcurrentLinkedQueue<XtellaVM> idleContexts;
+  private final AtomicInteger idleCount;
+  private final int poolSize;
+
+  public XtellaRenderEngine() {
+    this(newVirtualThreadExecutor(), true, DEFAULT_POOL_SIZE);
+  }
+
+  public XtellaRenderEngine(ExecutorService executor, int poolSize) {
+    this(executor, false, poolSize);
+  }
+
+  private XtellaRenderEngine(ExecutorService executor, boolean ownsExecutor, int poolSize) {
+    if (poolSize < 0) {
+      throw new IllegalArgumentException("Context pool size must not be negative");
+    }
+
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.timers =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = new Thread(runnable, "xtella-render-timer");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.timers.setRemoveOnCancelPolicy(true);
+    this.tier2 = new XtellaTier2();
+    this.idleContexts = new ConcurrentLinkedQueue<>();
+    this.idleCount = new AtomicInteger();
+    this.poolSize = poolSize;
+  }
+
+  static ExecutorService newVirtualThreadExecutor() {
+    try {
+      MethodHandle factory =
+          MethodHandles.publicLookup()
+              .findStatic(
+                  Executors.class,
+                  "newVirtualThreadPerTaskExecutor",
+                  MethodType.methodType(ExecutorService.class));
+      return (ExecutorService) factory.invokeExact();
+    } catch (NoSuchMethodException | IllegalAccessException | UnsupportedOperationException e) {
+      return Executors.newCachedThreadPool(
+          runnable -> {
+            Thread thread = new Thread(runnable, "xtella-worker");
+            thread.setDaemon(true);
+            return thread;
+          });
+    } catch (Throwable e) {
+      throw new RuntimeException("Error creating worker executor", e);
+    }
+  }
+
+  public XtellaTier2 getTier2() {
+    return this.tier2;
+  }
+
+  public int getIdleContextCount() {
+    return this.idleCount.get();
+  }
+
+  public Future<Object> submit(XtellaBytecodeChunk chunk, Object... arguments) {
+    return submit(chunk, Limits.DEFAULT, arguments);
+  }
+
+  public Future<Object> submit(XtellaBytecodeChunk chunk, Limits limits, Object... arguments) {
+    RenderTask task = new RenderTask(this, chunk, limits, arguments);
+    this.executor.execute(task);
+
+    if (limits.getTimeoutMillis() > 0 && !task.isDone()) {
+      task.timer =
+          this.timers.schedule(
+              () -> task.cancel(true), limits.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+
+      if (task.isDone()) {
+        task.timer.cancel(false);
+      }
+    }
+
+    return task;
+  }
+
+  public Object render(XtellaBytecodeChunk chunk, Object... arguments) {
+    return render(chunk, Limits.DEFAULT, arguments);
+  }
+
+  public Object render(XtellaBytecodeChunk chunk, Limits limits, Object... arguments) {
+    Future<Object> future = submit(chunk, limits, arguments);
+
+    try {
+      return future.get();
+    } catch (CancellationException e) {
+      throw new IllegalStateException(
+          "Render cancelled or exceeded its time limit of " + limits.getTimeoutMillis() + " ms");
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Error waiting for render", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+
+      throw new RuntimeException("Error rendering template", cause);
+    }
+  }
+
+  private Object renderInContext(XtellaBytecodeChunk chunk, Limits limits, Object[] arguments) {
+    XtellaVM vm = acquire();
+
+    try {
+      return vm.evaluate(chunk, limits.getInstructionBudget(), arguments);
+    } finally {
+      release(vm);
+    }
+  }
+
+  private XtellaVM acquire() {
+    XtellaVM vm = this.idleContexts.poll();
+
+    if (vm != null) {
+      this.idleCount.decrementAndGet();
+      return vm;
+    }
+
+    vm = new XtellaVM();
+    vm.setTier2(this.tier2);
+    return vm;
+  }
+
+  private void release(XtellaVM vm) {
+    vm.reset();
+
+    if (this.idleCount.incrementAndGet() <= this.poolSize) {
+      this.idleContexts.offer(vm);
+    } else {
+      this.idleCount.decrementAndGet();
+    }
+  }
+
+  @Override
+  public void close() {
+    this.timers.shutdownNow();
+
+    if (this.ownsExecutor) {
+      this.executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package xtella;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+class XtellaResolver implements Visitor {
+  private Deque<Map<String, Integer>> scopes;
+  private Deque<Integer> scopeSlotBases;
+  private Set<String> pinnedNames;
+  private boolean collecting;
+  private int nextSlot;
+  private int localCount;
+
+  public XtellaResolver() {
+    this.scopes = new ArrayDeque<>();
+    this.scopeSlotBases = new ArrayDeque<>();
+    this.pinnedNames = new HashSet<>();
+    this.collecting = false;
+    this.nextSlot = 0;
+    this.localCount = 0;
+  }
+
+  public int getLocalCount() {
+    return this.localCount;
+  }
+
+  public boolean isPinned(String identifier) {
+    return this.pinnedNames.contains(identifier);
+  }
+
+  private void beginScope() {
+    this.scopes.push(new HashMap<>());
+    this.scopeSlotBases.push(this.nextSlot);
+  }
+
+  private void endScope() {
+    this.scopes.pop();
+    this.nextSlot = this.scopeSlotBases.pop();
+  }
+
+  private Integer lookup(String identifier) {
+    for (Map<String, Integer> scope : this.scopes) {
+      Integer slot = scope.get(identifier);
+
+      if (slot != null) {
+        return slot;
+      }
+    }
+
+    return null;
+  }
+
+  private void declare(IdentifierNode identifier) {
+    if (isPinned(identifier.getValue())) {
+      return;
+    }
+
+    Integer slot = lookup(identifier.getValue());
+
+    if (slot == null) {
+      slot = this.nextSlot++;
+      this.scopes.peek().put(identifier.getValue(), slot);
+      this.localCount = Math.max(this.localCount, this.nextSlot);
+    }
+
+    if (!this.collecting) {
+      identifier.resolveSlot(slot);
+    }
+  }
+
+  private void pin(String identifier) {
+    if (this.collecting && identifier != null) {
+      this.pinnedNames.add(identifier);
+    }
+  }
+
+  private void visitChild(AbsynNode node) {
+    if (node != null) {
+      node.accept(this);
+    }
+  }
+
+  public void visit(ProgramNode node) {
+    this.collecting = true;
+    resolveProgram(node);
+    this.collecting = false;
+    this.localCount = 0;
+    resolveProgram(node);
+  }
+
+  private void resolveProgram(ProgramNode node) {
+    beginScope();
+    visitChild(node.getStatementList());
+    endScope();
+  }
+
+  public void visit(StatementListNode node) {
+    for (StatementNode statement : node.getStatements()) {
+      statement.accept(this);
+    }
+  }
+
+  public void visit(AssignStmtNode node) {
+    visitChild(node.getExpression());
+    declare(node.getIdentifier());
+  }
+
+  public void visit(ControlFlowStmtNode node) {
+    visitChild(node.getCondition());
+    visitChild(node.getIfBlock());
+    visitChild(node.getElseBlock());
+  }
+
+  public void visit(ExecStmtNode node) {}
+
+  public void visit(RWStmtNode node) {
+    if (node.getRWMode() == RWMode.READING && node.getExpression() instanceof IdentifierNode) {
+      declare((IdentifierNode) node.getExpression());
+    } else {
+      visitChild(node.getExpression());
+    }
+  }
+
+  public void visit(CloseStmtNode node) {}
+
+  public void visit(OpenStmtNode node) {}
+
+  public void visit(IfStmtNode node) {
+    visitChild(node.getCondition());
+    visitChild(node.getIfBlock());
+    visitChild(node.getElseBlock());
+  }
+
+  public void visit(WhileStmtNode node) {
+    visitChild(node.getCondition());
+    visitChild(node.getWhileBlock());
+  }
+
+  public void visit(ReturnStmtNode node) {
+    visitChild(node.getExpression());
+  }
+
+  public void visit(ForStmtNode node) {
+    visitChild(node.getIterable());
+    beginScope();
+
+    if (node.getLoopVariable() instanceof IdentifierNode) {
+      declare((IdentifierNode) node.getLoopVariable());
+    } else {
+      visitChild(node.getLoopVariable());
+    }
+
+    visitChild(node.getForBlock());
+    endScope();
+  }
+
+  public void visit(MatchStmtNode node) {
+    visitChild(node.getExpression());
+
+    if (!this.collecting) {
+      node.resolveSubjectSlot(this.nextSlot);
+    }
+
+    this.nextSlot++;
+    this.localCount = Math.max(this.localCount, this.nextSlot);
+
+    for (MatchCaseNode matchCase : node.getMatchCases()) {
+      matchCase.accept(this);
+    }
+
+    this.nextSlot--;
+  }
+
+  public void visit(MatchCaseNode node) {
+    visitChild(node.getPattern());
+    visitChild(node.getBlock());
+  }
+
+  public void visit(BlockNode node) {
+    beginScope();
+    visitChild(node.getStatementList());
+    endScope();
+  }
+
+  public void visit(ExpressionNode node) {}
+
+  public void visit(CompoundExprNode node) {
+    visitChild(node.getLeft());
+    visitChild(node.getRight());
+  }
+
+  public void visit(UnaryExprNode node) {
+    visitChild(node.getOperand());
+  }
+
+  public void visit(IdentifierNode node) {
+    Integer slot = lookup(node.getValue());
+
+    if (slot == null) {
+      pin(node.getValue());
+    } else if (!this.collecting) {
+      node.resolveSlot(slot);
+    }
+  }
+
+  public void visit(LiteralNode node) {}
+
+  public void visit(RWMode rwMode) {}
+
+  public void visit(ConditionNode node) {
+    visitChild(node.getExpression());
+  }
+
+  public void visit(ArrayNode node) {
+    for (ExpressionNode element : node.getElements()) {
+      element.accept(this);
+    }
+  }
+
+  public void visit(DelimitedStringNode node) {
+    visitChild(node.getContents());
+  }
+
+  public void visit(RegexConstNode node) {}
+
+  public void visit(AbsynListNode node) {
+    for (AbsynNode element : node.getNodes()) {
+      element.accept(this);
+    }
+  }
+
+  public void visit(PrimaryExprNode node) {
+    pin(node.getIdentifier());
+    visitChild(node.getArrayIndex());
+    visitChild(node.getFunctionCall());
+  }
+
+  public void visit(FunctionCallNode node) {
+    pin(node.getIdentifier());
+
+    for (ExpressionNode argument : node.getArgumentList()) {
+      argument.accept(this);
+    }
+  }
+
+  public void visit(RegexExprNode node) {
+    visitChild(node.getExpression());
+  }
+
+  public void visit(HashMapNode node) {
+    for (Map.Entry<ExpressionNode, ExpressionNode> entry : node.getKeyValues().entrySet()) {
+      entry.getKey().accept(this);
+      entry.getValue().accept(this);
+    }
+  }
+
+  public void visit(NumberNode node) {}
+
+  public void visit(StringConstNode node) {}
+
+  public void visit(FStringConstNode node) {
+    visitChild(node.getValue());
+  }
+}
@@ -0,0 +1,239 @@
+package xtella;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+public final class XtellaRope implements CharSequence {
+  private static final int CHUNK_SHIFT = 13;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final int FLAT_LIMIT = 128;
+
+  private final Chunks chunks;
+  private final int length;
+  private String flattened;
+  private int hash;
+
+  private XtellaRope(Chunks chunks, int length) {
+    this.chunks = chunks;
+    this.length = length;
+  }
+
+  public static XtellaRope of(CharSequence content) {
+    if (content instanceof XtellaRope) {
+      return (XtellaRope) content;
+    }
+
+    Chunks chunks = new Chunks();
+    chunks.append(content);
+    return new XtellaRope(chunks, chunks.length);
+  }
+
+  public static CharSequence concat(Object left, Object right) {
+    CharSequence leftText = stringValue(left);
+    CharSequence rightText = stringValue(right);
+
+    if (leftText.length() == 0) {
+      return rightText;
+    } else if (rightText.length() == 0) {
+      return leftText;
+    } else if (!(leftText instanceof XtellaRope)
+        && leftText.length() + rightText.length() <= FLAT_LIMIT) {
+      return leftText.toString().concat(rightText.toString());
+    }
+
+    return of(leftText).append(rightText);
+  }
+
+  private static CharSequence stringValue(Object value) {
+    return value instanceof CharSequence ? (CharSequence) value : String.valueOf(value);
+  }
+
+  public static boolean contentEquals(CharSequence left, CharSequence right) {
+    if (left instanceof String && right instanceof String) {
+      return left.equals(right);
+    }
+
+    int length = left.length();
+
+    if (length != right.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < length; i++) {
+      if (left.charAt(i) != right.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  public XtellaRope append(Object value) {
+    return append(stringValue(value));
+  }
+
+  public XtellaRope append(CharSequence content) {
+    int contentLength = content.length();
+
+    if (contentLength == 0) {
+      return this;
+    }
+
+    if (this.chunks.appendAt(this.length, content)) {
+      return new XtellaRope(this.chunks, this.length + contentLength);
+    }
+
+    Chunks copy = new Chunks();
+    copy.append(this);
+    copy.append(content);
+    return new XtellaRope(copy, copy.length);
+  }
+
+  @Override
+  public int length() {
+    return this.length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= this.length) {
+      throw new IndexOutOfBoundsException("Invalid index for string: " + index);
+    }
+
+    return this.chunks.data[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > this.length || start > end) {
+      throw new IndexOutOfBoundsException("Invalid range for string: " + start + ", " + end);
+    }
+
+    return toString().substring(start, end);
+  }
+
+  public void getChars(int start, int end, char[] destination, int offset) {
+    char[][] data = this.chunks.data;
+
+    while (start < end) {
+      int chunkOffset = start & CHUNK_MASK;
+      int count = Math.min(end - start, CHUNK_SIZE - chunkOffset);
+      System.arraycopy(data[start >>> CHUNK_SHIFT], chunkOffset, destination, offset, count);
+      start += count;
+      offset += count;
+    }
+  }
+
+  public void writeTo(XtellaOutputSink sink) throws IOException {
+    char[][] data = this.chunks.data;
+    int remaining = this.length;
+
+    for (int i = 0; remaining > 0; i++) {
+      int count = Math.min(remaining, CHUNK_SIZE);
+      sink.append(CharBuffer.wrap(data[i], 0, count));
+      remaining -= count;
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (this.flattened == null) {
+      char[] flat = new char[this.length];
+      getChars(0, this.length, flat, 0);
+      this.flattened = new String(flat);
+    }
+
+    return this.flattened;
+  }
+
+  // Ropes only equal other ropes; compare against any other text with contentEquals.
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof XtellaRope && contentEquals(this, (XtellaRope) other);
+  }
+
+  @Override
+  public int hashCode() {
+    if (this.hash == 0 && this.length > 0) {
+      int h = 0;
+
+      for (int i = 0; i < this.length; i++) {
+        h = 31 * h + charAt(i);
+      }
+
+      this.hash = h;
+    }
+
+    return this.hash;
+  }
+
+  private static final class Chunks {
+    private char[][] data;
+    private int length;
+
+    Chunks() {
+      this.data = new char[4][];
+      this.length = 0;
+    }
+
+    synchronized boolean appendAt(int expectedLength, CharSequence content) {
+      if (this.length != expectedLength) {
+        return false;
+      }
+
+      append(content);
+      return true;
+    }
+
+    void append(CharSequence content) {
+      int contentLength = content.length();
+      int copied = 0;
+
+      while (copied < contentLength) {
+        int chunkIndex = this.length >>> CHUNK_SHIFT;
+        int chunkOffset = this.length & CHUNK_MASK;
+
+        if (chunkIndex == this.data.length) {
+          char[][] grown = new char[this.data.length * 2][];
+          System.arraycopy(this.data, 0, grown, 0, this.data.length);
+          this.data = grown;
+        }
+
+        int count = Math.min(contentLength - copied, CHUNK_SIZE - chunkOffset);
+
+        if (this.data[chunkIndex] == null || this.data[chunkIndex].length < chunkOffset + count) {
+          this.data[chunkIndex] = grow(this.data[chunkIndex], chunkOffset + count);
+        }
+
+        copyChars(content, copied, copied + count, this.data[chunkIndex], chunkOffset);
+        copied += count;
+        this.length += count;
+      }
+    }
+
+    private static char[] grow(char[] chunk, int required) {
+      if (chunk == null) {
+        return new char[required];
+      }
+
+      return Arrays.copyOf(chunk, Math.min(CHUNK_SIZE, Math.max(required, chunk.length * 2)));
+    }
+
+    private static void copyChars(
+        CharSequence content, int start, int end, char[] destination, int offset) {
+      if (content instanceof String) {
+        ((String) content).getChars(start, end, destination, offset);
+      } else if (content instanceof StringBuilder) {
+        ((StringBuilder) content).getChars(start, end, destination, offset);
+      } else if (content instanceof XtellaRope) {
+        ((XtellaRope) content).getChars(start, end, destination, offset);
+      } else {
+        for (int i = start; i < end; i++) {
+          destination[offset++] = content.charAt(i);
+        }
+      }
+    }
+  }
+}
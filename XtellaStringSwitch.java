@@ -0,0 +1,86 @@
+package xtella;
+
+import java.util.Arrays;
+
+public final class XtellaStringSwitch {
+  private final String[] keys;
+  private final int[] hashes;
+  private final int[] slots;
+  private final int mask;
+
+  public XtellaStringSwitch(String[] keys) {
+    this.keys = keys.clone();
+    this.hashes = new int[keys.length];
+    this.slots = new int[Integer.highestOneBit(Math.max(1, keys.length) * 2) * 2];
+    this.mask = this.slots.length - 1;
+
+    for (int i = 0; i < keys.length; i++) {
+      int hash = keys[i].hashCode();
+      int slot = mix(hash) & this.mask;
+
+      while (this.slots[slot] != 0) {
+        if (keys[this.slots[slot] - 1].equals(keys[i])) {
+          throw new IllegalArgumentException("Duplicate string switch key: " + keys[i]);
+        }
+
+        slot = (slot + 1) & this.mask;
+      }
+
+      this.hashes[i] = hash;
+      this.slots[slot] = i + 1;
+    }
+  }
+
+  public String[] getKeys() {
+    return this.keys.clone();
+  }
+
+  public int size() {
+    return this.keys.length;
+  }
+
+  public int indexOf(Object subject) {
+    if (!(subject instanceof CharSequence)) {
+      return -1;
+    }
+
+    CharSequence text = (CharSequence) subject;
+    int hash = hash(text);
+    int slot = mix(hash) & this.mask;
+
+    while (this.slots[slot] != 0) {
+      int index = this.slots[slot] - 1;
+
+      if (this.hashes[index] == hash && XtellaRope.contentEquals(this.keys[index], text)) {
+        return index;
+      }
+
+      slot = (slot + 1) & this.mask;
+    }
+
+    return -1;
+  }
+
+  private static int hash(CharSequence text) {
+    if (text instanceof String || text instanceof XtellaRope) {
+      return text.hashCode();
+    }
+
+    int hash = 0;
+
+    for (int i = 0; i < text.length(); i++) {
+      hash = 31 * hash + text.charAt(i);
+    }
+
+    return hash;
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  @Override
+  public String toString() {
+    return "XtellaStringSwitch" + Arrays.toString(this.keys);
+  }
+}
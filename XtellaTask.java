@@ -0,0 +1,56 @@
+package xtella;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+public class XtellaTask {
+  private static final ExecutorService EXECUTOR = XtellaRenderEngine.newVirtualThreadExecutor();
+
+  private final Future<Object> future;
+
+  private XtellaTask(Future<Object> future) {
+    this.future = future;
+  }
+
+  static XtellaTask spawn(
+      XtellaVM context, XtellaBytecodeChunk chunk, long instructionBudget, Object[] arguments) {
+    return new XtellaTask(
+        EXECUTOR.submit(
+            () -> {
+              try {
+                return XtellaChannel.copyOnSend(
+                    context.evaluate(chunk, instructionBudget, arguments));
+              } finally {
+                context.reset();
+              }
+            }));
+  }
+
+  public boolean isDone() {
+    return this.future.isDone();
+  }
+
+  public void cancel() {
+    this.future.cancel(true);
+  }
+
+  public Object join() throws InterruptedException {
+    try {
+      return this.future.get();
+    } catch (CancellationException e) {
+      throw new IllegalStateException("Task was cancelled");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+
+      throw new RuntimeException("Error running task", cause);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package xtella;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class XtellaTier2 {
+  public static final int DEFAULT_INVOCATION_THRESHOLD = 1000;
+  public static final int DEFAULT_BACKEDGE_THRESHOLD = 10000;
+  public static final int MAX_DEOPTIMIZATIONS = 16;
+
+  static final class Profile {
+    private final AtomicInteger invocationCount = new AtomicInteger();
+    private final AtomicInteger backedgeCount = new AtomicInteger();
+    private int deoptimizationCount;
+    private volatile boolean rejected;
+    private volatile XtellaTier2Compiler.Compilation compilation;
+  }
+
+  private final int invocationThreshold;
+  private final int backedgeThreshold;
+  private long compilationCount;
+  private long deoptimizationCount;
+
+  public XtellaTier2() {
+    this(DEFAULT_INVOCATION_THRESHOLD, DEFAULT_BACKEDGE_THRESHOLD);
+  }
+
+  public XtellaTier2(int invocationThreshold, int backedgeThreshold) {
+    if (invocationThreshold <= 0 || backedgeThreshold <= 0) {
+      throw new IllegalArgumentException("Tier 2 thresholds must be positive");
+    }
+
+    this.invocationThreshold = invocationThreshold;
+    this.backedgeThreshold = backedgeThreshold;
+    this.compilationCount = 0;
+    this.deoptimizationCount = 0;
+  }
+
+  public int getInvocationThreshold() {
+    return this.invocationThreshold;
+  }
+
+  public int getBackedgeThreshold() {
+    return this.backedgeThreshold;
+  }
+
+  public synchronized long getCompilationCount() {
+    return this.compilationCount;
+  }
+
+  public synchronized long getDeoptimizationCount() {
+    return this.deoptimizationCount;
+  }
+
+  public boolean isCompiled(XtellaBytecodeChunk chunk) {
+    return chunk.getTier2Profile().compilation != null;
+  }
+
+  int onInvocation(
+      XtellaBytecodeChunk chunk, XtellaOperandStack stack, int localBase, long[] budget) {
+    Profile profile = chunk.getTier2Profile();
+
+    if (profile.compilation == null
+        && (profile.rejected
+            || profile.invocationCount.incrementAndGet() < this.invocationThreshold)) {
+      return 0;
+    }
+
+    return enter(chunk, profile, 0, stack, localBase, budget);
+  }
+
+  int onBackedge(
+      XtellaBytecodeChunk chunk,
+      int target,
+      XtellaOperandStack stack,
+      int localBase,
+      long[] budget) {
+    Profile profile = chunk.getTier2Profile();
+
+    if (profile.compilation == null
+        && (profile.rejected || profile.backedgeCount.incrementAndGet() < this.backedgeThreshold)) {
+      return target;
+    }
+
+    return enter(chunk, profile, target, stack, localBase, budget);
+  }
+
+  private int enter(
+      XtellaBytecodeChunk chunk,
+      Profile profile,
+      int entry,
+      XtellaOperandStack stack,
+      int localBase,
+      long[] budget) {
+    XtellaTier2Compiler.Compilation compilation = compilationFor(chunk, profile);
+
+    if (compilation == null) {
+      return entry;
+    }
+
+    int[] liveSlots = compilation.liveSlotsAt(entry);
+
+    if (liveSlots == null) {
+      return entry;
+    }
+
+    for (int slot : liveSlots) {
+      if (stack.tagAt(localBase + slot) != XtellaOperandStack.TAG_INT) {
+        deoptimize(profile);
+        return entry;
+      }
+    }
+
+    int[] locals = new int[chunk.getLocalCount()];
+
+    for (int slot : liveSlots) {
+      locals[slot] = stack.intAt(localBase + slot);
+    }
+
+    for (int slot : compilation.getWrittenSlots()) {
+      if (slot >= Long.SIZE) {
+        if (stack.tagAt(localBase + slot) != XtellaOperandStack.TAG_INT) {
+          deoptimize(profile);
+          return entry;
+        }
+
+        locals[slot] = stack.intAt(localBase + slot);
+      }
+    }
+
+    long[] state = {budget[0], 0, 0};
+    int resume = compilation.getCode().run(locals, entry, state);
+    budget[0] = state[0];
+
+    for (int slot : compilation.getWrittenSlots()) {
+      if (slot >= Long.SIZE || (state[1] & 1L << slot) != 0) {
+        stack.setInt(localBase + slot, locals[slot]);
+      }
+    }
+
+    if (resume == chunk.getCodeLength() && compilation.returnsValue()) {
+      stack.pushInt((int) state[2]);
+    }
+
+    if (resume != chunk.getCodeLength()) {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new IllegalStateException("Execution interrupted at " + resume);
+      }
+
+      deoptimize(profile);
+    }
+
+    return resume;
+  }
+
+  private XtellaTier2Compiler.Compilation compilationFor(
+      XtellaBytecodeChunk chunk, Profile profile) {
+    XtellaTier2Compiler.Compilation compilation = profile.compilation;
+
+    if (compilation != null) {
+      return compilation;
+    }
+
+    synchronized (profile) {
+      if (profile.compilation == null && !profile.rejected) {
+        profile.compilation = XtellaTier2Compiler.compile(chunk);
+        profile.rejected = profile.compilation == null;
+
+        if (profile.compilation != null) {
+          recordCompilation();
+        }
+      }
+
+      return profile.compilation;
+    }
+  }
+
+  private void deoptimize(Profile profile) {
+    recordDeoptimization();
+
+    synchronized (profile) {
+      if (++profile.deoptimizationCount > MAX_DEOPTIMIZATIONS) {
+        profile.compilation = null;
+        profile.rejected = true;
+      }
+    }
+  }
+
+  private synchronized void recordCompilation() {
+    this.compilationCount++;
+  }
+
+  private synchronized void recordDeoptimization() {
+    this.deoptimizationCount++;
+  }
+}
@@ -0,0 +1,1156 @@
+package xtella;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+final class XtellaTier2Compiler {
+  static final class Compilation {
+    private final XtellaCompiledCode code;
+    private final int[] entryOffsets;
+    private final int[][] liveSlots;
+    private final int[] writtenSlots;
+    private final boolean returnsValue;
+
+    private Compilation(
+        XtellaCompiledCode code,
+        int[] entryOffsets,
+        int[][] liveSlots,
+        int[] writtenSlots,
+        boolean returnsValue) {
+      this.code = code;
+      this.entryOffsets = entryOffsets;
+      this.liveSlots = liveSlots;
+      this.writtenSlots = writtenSlots;
+      this.returnsValue = returnsValue;
+    }
+
+    XtellaCompiledCode getCode() {
+      return this.code;
+    }
+
+    int[] liveSlotsAt(int entry) {
+      int index = Arrays.binarySearch(this.entryOffsets, entry);
+      return index < 0 ? null : this.liveSlots[index];
+    }
+
+    int[] getWrittenSlots() {
+      return this.writtenSlots;
+    }
+
+    // The chunk ends with one int on the stack, which run() leaves in state[2].
+    boolean returnsValue() {
+      return this.returnsValue;
+    }
+  }
+
+  private static final String PACKAGE_PREFIX =
+      XtellaTier2Compiler.class.getPackageName().replace('.', '/') + "/";
+  private static final String CLASS_NAME = PACKAGE_PREFIX + "XtellaCompiledChunk";
+  private static final String COMPILER_CLASS = PACKAGE_PREFIX + "XtellaTier2Compiler";
+  private static final String CODE_INTERFACE = PACKAGE_PREFIX + "XtellaCompiledCode";
+  private static final String RUN_DESCRIPTOR = "([II[J)I";
+  private static final int MAX_JVM_LOCALS = 255;
+  private static final int MAX_BRANCH_OFFSET = Short.MAX_VALUE;
+
+  private static final int ENTRY_PARAMETER = 2;
+  private static final int BUDGET_LOCAL = 4;
+  private static final int RESULT_LOCAL = 6;
+  private static final int ASSIGNED_LOCAL = 7;
+  private static final int FIRST_SLOT_LOCAL = 9;
+
+  private static final int FRAME_BODY = 0;
+  private static final int FRAME_EXIT = 1;
+  private static final int FRAME_HANDLER = 2;
+
+  private final int[] code;
+  private final int codeLength;
+  private final int localCount;
+  private final int[] opcodes;
+  private final int[] unitLengths;
+  private final int[] unitInstructions;
+  private final int[] depths;
+  private final int[] resumeOffsets;
+  private final int[] segmentInstructions;
+  private final BitSet jumpTargets;
+  private final BitSet loopHeaders;
+  private int maxDepth;
+
+  private XtellaTier2Compiler(XtellaBytecodeChunk chunk) {
+    this.code = chunk.getCode();
+    this.codeLength = chunk.getCodeLength();
+    this.localCount = chunk.getLocalCount();
+    this.opcodes = new int[this.codeLength];
+    this.unitLengths = new int[this.codeLength];
+    this.unitInstructions = new int[this.codeLength];
+    this.depths = new int[this.codeLength + 1];
+    this.resumeOffsets = new int[this.codeLength];
+    this.segmentInstructions = new int[this.codeLength];
+    this.jumpTargets = new BitSet(this.codeLength + 1);
+    this.loopHeaders = new BitSet(this.codeLength + 1);
+    this.maxDepth = 0;
+
+    Arrays.fill(this.opcodes, -1);
+    Arrays.fill(this.depths, -1);
+  }
+
+  static Compilation compile(XtellaBytecodeChunk chunk) {
+    if (chunk.getCodeLength() == 0
+        || FIRST_SLOT_LOCAL + chunk.getLocalCount() > MAX_JVM_LOCALS) {
+      return null;
+    }
+
+    XtellaTier2Compiler compiler = new XtellaTier2Compiler(chunk);
+
+    if (!compiler.decode() || !compiler.computeDepths()) {
+      return null;
+    }
+
+    compiler.computeSegments();
+
+    int[] entryOffsets = compiler.entryOffsets();
+    int[][] liveSlots = compiler.liveSlotsAt(entryOffsets);
+    byte[] classBytes = compiler.emitClass(entryOffsets);
+
+    if (classBytes == null) {
+      return null;
+    }
+
+    try {
+      MethodHandles.Lookup lookup =
+          MethodHandles.lookup().defineHiddenClass(classBytes, true);
+      XtellaCompiledCode code =
+          (XtellaCompiledCode)
+              lookup
+                  .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                  .invoke();
+
+      return new Compilation(
+          code, entryOffsets, liveSlots, compiler.writtenSlots(), compiler.returnsValue());
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Error loading tier 2 code", e);
+    }
+  }
+
+  static int divideExact(int dividend, int divisor) {
+    if (dividend == Integer.MIN_VALUE && divisor == -1) {
+      throw new ArithmeticException("integer overflow");
+    }
+
+    return dividend / divisor;
+  }
+
+  static boolean isInterrupted() {
+    return Thread.currentThread().isInterrupted();
+  }
+
+  static int shiftLeftExact(int value, int distance) {
+    if (distance < 0
+        || (value != 0 && (distance >= Integer.SIZE || (value << distance) >> distance != value))) {
+      throw new ArithmeticException("integer overflow");
+    }
+
+    return value << distance;
+  }
+
+  static int shiftRightExact(int value, int distance) {
+    if (distance < 0) {
+      throw new ArithmeticException("Negative shift distance: " + distance);
+    }
+
+    return value >> Math.min(distance, Integer.SIZE - 1);
+  }
+
+  private static boolean isComparison(int opcode) {
+    return opcode >= XtellaVM.EQUAL && opcode <= XtellaVM.GREATER_THAN_OR_EQUAL;
+  }
+
+  private static boolean isConditionalJump(int opcode) {
+    return opcode == XtellaVM.JUMP_IF_FALSE || opcode == XtellaVM.JUMP_IF_TRUE;
+  }
+
+  private static boolean isGuarded(int opcode) {
+    switch (opcode) {
+      case XtellaVM.ADD:
+      case XtellaVM.SUBTRACT:
+      case XtellaVM.MULTIPLY:
+      case XtellaVM.DIVIDE:
+      case XtellaVM.MODULO:
+      case XtellaVM.SHIFT_LEFT:
+      case XtellaVM.SHIFT_RIGHT:
+      case XtellaVM.LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL:
+      case XtellaVM.LOAD_LOCAL_LOAD_LOCAL_ADD_STORE_LOCAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isSupported(int opcode) {
+    switch (opcode) {
+      case XtellaVM.PUSH_INT:
+      case XtellaVM.PUSH_BOOLEAN:
+      case XtellaVM.LOAD_LOCAL:
+      case XtellaVM.STORE_LOCAL:
+      case XtellaVM.ADD:
+      case XtellaVM.SUBTRACT:
+      case XtellaVM.MULTIPLY:
+      case XtellaVM.DIVIDE:
+      case XtellaVM.MODULO:
+      case XtellaVM.BITWISE_AND:
+      case XtellaVM.BITWISE_OR:
+      case XtellaVM.BITWISE_XOR:
+      case XtellaVM.SHIFT_LEFT:
+      case XtellaVM.SHIFT_RIGHT:
+      case XtellaVM.EQUAL:
+      case XtellaVM.NOT_EQUAL:
+      case XtellaVM.LESS_THAN:
+      case XtellaVM.LESS_THAN_OR_EQUAL:
+      case XtellaVM.GREATER_THAN:
+      case XtellaVM.GREATER_THAN_OR_EQUAL:
+      case XtellaVM.JUMP:
+      case XtellaVM.SWAP_VALUE:
+      case XtellaVM.DUPLICATE_VALUE:
+      case XtellaVM.LOAD_LOCAL_LOAD_LOCAL_LT_JUMP_IF_FALSE:
+      case XtellaVM.LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE:
+      case XtellaVM.LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL:
+      case XtellaVM.LOAD_LOCAL_LOAD_LOCAL_ADD_STORE_LOCAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private boolean decode() {
+    BitSet pairedJumps = new BitSet(this.codeLength);
+
+    for (int pc = 0; pc < this.codeLength; ) {
+      int opcode = XtellaVM.genericOpcode(this.code[pc]);
+
+      if (!isSupported(opcode)) {
+        return false;
+      }
+
+      int length = 1 + XtellaVM.operandCount(opcode);
+      int instructions = 1;
+
+      if (isComparison(opcode) || opcode == XtellaVM.PUSH_BOOLEAN) {
+        int next = pc + length;
+
+        if (next >= this.codeLength || !isConditionalJump(this.code[next])) {
+          return false;
+        }
+
+        pairedJumps.set(next);
+        length += 2;
+        instructions = 2;
+      }
+
+      if (pc + length > this.codeLength || !hasValidSlots(opcode, pc)) {
+        return false;
+      }
+
+      this.opcodes[pc] = opcode;
+      this.unitLengths[pc] = length;
+      this.unitInstructions[pc] = instructions;
+      pc += length;
+    }
+
+    for (int pc = 0; pc < this.codeLength; pc += this.unitLengths[pc]) {
+      int target = branchTarget(pc);
+
+      if (target < 0) {
+        continue;
+      }
+
+      if (target > this.codeLength
+          || (target < this.codeLength && this.opcodes[target] < 0)
+          || pairedJumps.get(target)) {
+        return false;
+      }
+
+      this.jumpTargets.set(target);
+
+      if (target <= pc) {
+        this.loopHeaders.set(target);
+      }
+    }
+
+    return true;
+  }
+
+  private boolean hasValidSlots(int opcode, int pc) {
+    switch (opcode) {
+      case XtellaVM.LOAD_LOCAL:
+      case XtellaVM.STORE_LOCAL:
+      case XtellaVM.LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE:
+        return isSlot(this.code[pc + 1]);
+      case XtellaVM.LOAD_LOCAL_LOAD_LOCAL_LT_JUMP_IF_FALSE:
+        return isSlot(this.code[pc + 1]) && isSlot(this.code[pc + 2]);
+      case XtellaVM.LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL:
+        return isSlot(this.code[pc + 1]) && isSlot(this.code[pc + 3]);
+      case XtellaVM.LOAD_LOCAL_LOAD_LOCAL_ADD_STORE_LOCAL:
+        return isSlot(this.code[pc + 1])
+            && isSlot(this.code[pc + 2])
+            && isSlot(this.code[pc + 3]);
+      default:
+        return true;
+    }
+  }
+
+  private boolean isSlot(int slot) {
+    return slot >= 0 && slot < this.localCount;
+  }
+
+  private int branchTarget(int pc) {
+    int opcode = this.opcodes[pc];
+
+    if (opcode == XtellaVM.JUMP) {
+      return this.code[pc + 1];
+    } else if (isComparison(opcode)) {
+      return this.code[pc + 2];
+    } else if (opcode == XtellaVM.PUSH_BOOLEAN) {
+      return this.code[pc + 3];
+    } else if (opcode == XtellaVM.LOAD_LOCAL_LOAD_LOCAL_LT_JUMP_IF_FALSE
+        || opcode == XtellaVM.LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE) {
+      return this.code[pc + 3];
+    }
+
+    return -1;
+  }
+
+  private int conditionalJump(int pc) {
+    int opcode = this.opcodes[pc];
+    return isComparison(opcode) || opcode == XtellaVM.PUSH_BOOLEAN
+        ? this.code[pc + this.unitLengths[pc] - 2]
+        : -1;
+  }
+
+  private boolean computeDepths() {
+    int[] worklist = new int[this.codeLength + 1];
+    int pending = 0;
+
+    this.depths[0] = 0;
+    worklist[pending++] = 0;
+
+    for (int target = this.jumpTargets.nextSetBit(0);
+        target >= 0;
+        target = this.jumpTargets.nextSetBit(target + 1)) {
+      if (this.depths[target] < 0) {
+        this.depths[target] = 0;
+        worklist[pending++] = target;
+      }
+    }
+
+    while (pending > 0) {
+      int pc = worklist[--pending];
+
+      if (pc == this.codeLength) {
+        continue;
+      }
+
+      int depth = this.depths[pc];
+      int after = depthAfter(pc, depth);
+
+      if (after < 0) {
+        return false;
+      }
+
+      this.maxDepth = Math.max(this.maxDepth, Math.max(depth, after));
+
+      int target = branchTarget(pc);
+      boolean fallsThrough = this.opcodes[pc] != XtellaVM.JUMP;
+
+      if (target >= 0 && !mergeDepth(target, after)) {
+        return false;
+      }
+
+      if (fallsThrough) {
+        int next = pc + this.unitLengths[pc];
+
+        if (this.depths[next] < 0) {
+          this.depths[next] = after;
+          worklist[pending++] = next;
+        } else if (this.depths[next] != after) {
+          return false;
+        }
+      }
+    }
+
+    return this.depths[this.codeLength] <= 1;
+  }
+
+  private boolean returnsValue() {
+    return this.depths[this.codeLength] == 1;
+  }
+
+  private boolean mergeDepth(int target, int depth) {
+    return depth == 0 && this.depths[target] == 0;
+  }
+
+  private int depthAfter(int pc, int depth) {
+    switch (this.opcodes[pc]) {
+      case XtellaVM.PUSH_INT:
+      case XtellaVM.LOAD_LOCAL:
+        return depth + 1;
+      case XtellaVM.DUPLICATE_VALUE:
+        return depth >= 1 ? depth + 1 : -1;
+      case XtellaVM.SWAP_VALUE:
+        return depth >= 2 ? depth : -1;
+      case XtellaVM.STORE_LOCAL:
+        return depth == 1 ? 0 : -1;
+      case XtellaVM.ADD:
+      case XtellaVM.SUBTRACT:
+      case XtellaVM.MULTIPLY:
+      case XtellaVM.DIVIDE:
+      case XtellaVM.MODULO:
+      case XtellaVM.BITWISE_AND:
+      case XtellaVM.BITWISE_OR:
+      case XtellaVM.BITWISE_XOR:
+      case XtellaVM.SHIFT_LEFT:
+      case XtellaVM.SHIFT_RIGHT:
+        return depth >= 2 ? depth - 1 : -1;
+      case XtellaVM.EQUAL:
+      case XtellaVM.NOT_EQUAL:
+      case XtellaVM.LESS_THAN:
+      case XtellaVM.LESS_THAN_OR_EQUAL:
+      case XtellaVM.GREATER_THAN:
+      case XtellaVM.GREATER_THAN_OR_EQUAL:
+        return depth == 2 ? 0 : -1;
+      default:
+        return depth == 0 ? 0 : -1;
+    }
+  }
+
+  private void computeSegments() {
+    int resume = 0;
+    int segmentStart = -1;
+
+    for (int pc = 0; pc < this.codeLength; pc += this.unitLengths[pc]) {
+      if (this.depths[pc] == 0) {
+        resume = pc;
+        segmentStart = pc;
+      }
+
+      this.resumeOffsets[pc] = resume;
+
+      if (this.depths[pc] >= 0 && segmentStart >= 0) {
+        this.segmentInstructions[segmentStart] += this.unitInstructions[pc];
+      }
+    }
+  }
+
+  private int[] entryOffsets() {
+    BitSet entries = (BitSet) this.jumpTargets.clone();
+    entries.set(0);
+    entries.clear(this.codeLength);
+    return entries.stream().toArray();
+  }
+
+  private int[] writtenSlots() {
+    BitSet written = new BitSet(this.localCount);
+
+    for (int pc = 0; pc < this.codeLength; pc += this.unitLengths[pc]) {
+      if (this.depths[pc] >= 0) {
+        int slot = definedSlot(pc);
+
+        if (slot >= 0) {
+          written.set(slot);
+        }
+      }
+    }
+
+    return written.stream().toArray();
+  }
+
+  private int definedSlot(int pc) {
+    switch (this.opcodes[pc]) {
+      case XtellaVM.STORE_LOCAL:
+        return this.code[pc + 1];
+      case XtellaVM.LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL:
+      case XtellaVM.LOAD_LOCAL_LOAD_LOCAL_ADD_STORE_LOCAL:
+        return this.code[pc + 3];
+      default:
+        return -1;
+    }
+  }
+
+  private void addUsedSlots(int pc, BitSet used) {
+    switch (this.opcodes[pc]) {
+      case XtellaVM.LOAD_LOCAL:
+      case XtellaVM.LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE:
+      case XtellaVM.LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL:
+        used.set(this.code[pc + 1]);
+        break;
+      case XtellaVM.LOAD_LOCAL_LOAD_LOCAL_LT_JUMP_IF_FALSE:
+      case XtellaVM.LOAD_LOCAL_LOAD_LOCAL_ADD_STORE_LOCAL:
+        used.set(this.code[pc + 1]);
+        used.set(this.code[pc + 2]);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private int[][] liveSlotsAt(int[] entryOffsets) {
+    List<Integer> units = new ArrayList<>();
+
+    for (int pc = 0; pc < this.codeLength; pc += this.unitLengths[pc]) {
+      if (this.depths[pc] >= 0) {
+        units.add(pc);
+      }
+    }
+
+    Map<Integer, BitSet> liveIn = new HashMap<>();
+    boolean changed = true;
+
+    while (changed) {
+      changed = false;
+
+      for (int i = units.size() - 1; i >= 0; i--) {
+        int pc = units.get(i);
+        BitSet live = new BitSet(this.localCount);
+        int target = branchTarget(pc);
+
+        if (this.opcodes[pc] != XtellaVM.JUMP) {
+          addLive(live, liveIn, pc + this.unitLengths[pc]);
+        }
+
+        if (target >= 0) {
+          addLive(live, liveIn, target);
+        }
+
+        int defined = definedSlot(pc);
+
+        if (defined >= 0) {
+          live.clear(defined);
+        }
+
+        addUsedSlots(pc, live);
+
+        if (!live.equals(liveIn.get(pc))) {
+          liveIn.put(pc, live);
+          changed = true;
+        }
+      }
+    }
+
+    int[][] liveSlots = new int[entryOffsets.length][];
+
+    for (int i = 0; i < entryOffsets.length; i++) {
+      BitSet live = liveIn.get(entryOffsets[i]);
+      liveSlots[i] = live == null ? new int[0] : live.stream().toArray();
+    }
+
+    return liveSlots;
+  }
+
+  private void addLive(BitSet live, Map<Integer, BitSet> liveIn, int pc) {
+    BitSet successor = liveIn.get(pc);
+
+    if (successor != null) {
+      live.or(successor);
+    }
+  }
+
+  private byte[] emitClass(int[] entryOffsets) {
+    ConstantPool pool = new ConstantPool();
+    MethodWriter writer = new MethodWriter(pool);
+    int[] unitLabels = new int[this.codeLength + 1];
+    Map<Integer, Integer> handlerLabels = new TreeMap<>();
+    List<int[]> guardedRanges = new ArrayList<>();
+    int exitLabel = writer.newLabel();
+    int defaultLabel = writer.newLabel();
+
+    for (int pc = 0; pc <= this.codeLength; pc++) {
+      unitLabels[pc] = writer.newLabel();
+    }
+
+    writer.emit(0x2d);
+    writer.emit(0x03);
+    writer.emit(0x2f);
+    writer.emitLocal(0x37, BUDGET_LOCAL);
+    writer.emit(0x09);
+    writer.emitLocal(0x37, ASSIGNED_LOCAL);
+
+    for (int slot = 0; slot < this.localCount; slot++) {
+      writer.emit(0x2b);
+      writer.emitInt(slot);
+      writer.emit(0x2e);
+      writer.emitLocal(0x36, FIRST_SLOT_LOCAL + slot);
+    }
+
+    int[] entryLabels = new int[entryOffsets.length];
+
+    for (int i = 0; i < entryOffsets.length; i++) {
+      entryLabels[i] = unitLabels[entryOffsets[i]];
+    }
+
+    writer.emitLocal(0x15, ENTRY_PARAMETER);
+    writer.emitLookupSwitch(defaultLabel, entryOffsets, entryLabels);
+
+    writer.bind(defaultLabel, FRAME_BODY);
+    writer.emitLocal(0x15, ENTRY_PARAMETER);
+    writer.emitJump(0xa7, exitLabel);
+
+    for (int pc = 0; pc < this.codeLength; pc += this.unitLengths[pc]) {
+      if (this.depths[pc] < 0) {
+        continue;
+      }
+
+      if (this.depths[pc] == 0) {
+        writer.bind(unitLabels[pc], FRAME_BODY);
+
+        if (this.loopHeaders.get(pc)) {
+          int continueLabel = writer.newLabel();
+          writer.emitLocal(0x16, BUDGET_LOCAL);
+          writer.emit(0x09);
+          writer.emit(0x94);
+          writer.emitJump(0x9d, continueLabel);
+          writer.emitInt(pc);
+          writer.emitJump(0xa7, exitLabel);
+          writer.bind(continueLabel, FRAME_BODY);
+
+          int runningLabel = writer.newLabel();
+          writer.emitInvokeStatic(COMPILER_CLASS, "isInterrupted", "()Z");
+          writer.emitJump(0x99, runningLabel);
+          writer.emitInt(pc);
+          writer.emitJump(0xa7, exitLabel);
+          writer.bind(runningLabel, FRAME_BODY);
+        }
+
+        writer.emitLocal(0x16, BUDGET_LOCAL);
+        writer.emitInt(this.segmentInstructions[pc]);
+        writer.emit(0x85);
+        writer.emit(0x65);
+        writer.emitLocal(0x37, BUDGET_LOCAL);
+      }
+
+      int start = writer.position();
+      emitUnit(writer, pc, unitLabels);
+
+      if (isGuarded(this.opcodes[pc])) {
+        int resume = this.resumeOffsets[pc];
+        handlerLabels.computeIfAbsent(resume, key -> writer.newLabel());
+        guardedRanges.add(new int[] {start, writer.position(), resume});
+      }
+
+      int defined = definedSlot(pc);
+
+      if (defined >= 0 && defined < Long.SIZE) {
+        writer.emitLocal(0x16, ASSIGNED_LOCAL);
+        writer.emit(0x0a);
+        writer.emitInt(defined);
+        writer.emit(0x79);
+        writer.emit(0x81);
+        writer.emitLocal(0x37, ASSIGNED_LOCAL);
+      }
+    }
+
+    if (returnsValue()) {
+      // Only reached by falling through: jumps to the end must arrive with an empty stack.
+      writer.emitLocal(0x36, RESULT_LOCAL);
+      writer.emit(0x2d);
+      writer.emit(0x05);
+      writer.emitLocal(0x15, RESULT_LOCAL);
+      writer.emit(0x85);
+      writer.emit(0x50);
+    } else {
+      writer.bind(unitLabels[this.codeLength], FRAME_BODY);
+    }
+
+    writer.emitInt(this.codeLength);
+
+    writer.bind(exitLabel, FRAME_EXIT);
+    writer.emitLocal(0x36, RESULT_LOCAL);
+
+    for (int slot : writtenSlots()) {
+      writer.emit(0x2b);
+      writer.emitInt(slot);
+      writer.emitLocal(0x15, FIRST_SLOT_LOCAL + slot);
+      writer.emit(0x4f);
+    }
+
+    writer.emit(0x2d);
+    writer.emit(0x03);
+    writer.emitLocal(0x16, BUDGET_LOCAL);
+    writer.emit(0x50);
+    writer.emit(0x2d);
+    writer.emit(0x04);
+    writer.emitLocal(0x16, ASSIGNED_LOCAL);
+    writer.emit(0x50);
+    writer.emitLocal(0x15, RESULT_LOCAL);
+    writer.emit(0xac);
+
+    for (Map.Entry<Integer, Integer> handler : handlerLabels.entrySet()) {
+      writer.bind(handler.getValue(), FRAME_HANDLER);
+      writer.emit(0x57);
+      writer.emitInt(handler.getKey());
+      writer.emitJump(0xa7, exitLabel);
+    }
+
+    if (!writer.resolve()) {
+      return null;
+    }
+
+    List<int[]> exceptionTable = new ArrayList<>();
+
+    for (int[] range : guardedRanges) {
+      int handler = writer.labelPosition(handlerLabels.get(range[2]));
+      int[] last = exceptionTable.isEmpty() ? null : exceptionTable.get(exceptionTable.size() - 1);
+
+      if (last != null && last[1] == range[0] && last[2] == handler) {
+        last[1] = range[1];
+      } else {
+        exceptionTable.add(new int[] {range[0], range[1], handler});
+      }
+    }
+
+    return writeClass(pool, writer, exceptionTable);
+  }
+
+  private void emitUnit(MethodWriter writer, int pc, int[] unitLabels) {
+    int opcode = this.opcodes[pc];
+
+    switch (opcode) {
+      case XtellaVM.PUSH_INT:
+        writer.emitInt(this.code[pc + 1]);
+        break;
+      case XtellaVM.LOAD_LOCAL:
+        writer.emitLocal(0x15, FIRST_SLOT_LOCAL + this.code[pc + 1]);
+        break;
+      case XtellaVM.STORE_LOCAL:
+        writer.emitLocal(0x36, FIRST_SLOT_LOCAL + this.code[pc + 1]);
+        break;
+      case XtellaVM.ADD:
+        writer.emitInvokeStatic("java/lang/Math", "addExact", "(II)I");
+        break;
+      case XtellaVM.SUBTRACT:
+        writer.emitInvokeStatic("java/lang/Math", "subtractExact", "(II)I");
+        break;
+      case XtellaVM.MULTIPLY:
+        writer.emitInvokeStatic("java/lang/Math", "multiplyExact", "(II)I");
+        break;
+      case XtellaVM.DIVIDE:
+        writer.emitInvokeStatic(COMPILER_CLASS, "divideExact", "(II)I");
+        break;
+      case XtellaVM.MODULO:
+        writer.emit(0x70);
+        break;
+      case XtellaVM.BITWISE_AND:
+        writer.emit(0x7e);
+        break;
+      case XtellaVM.BITWISE_OR:
+        writer.emit(0x80);
+        break;
+      case XtellaVM.BITWISE_XOR:
+        writer.emit(0x82);
+        break;
+      case XtellaVM.SHIFT_LEFT:
+        writer.emitInvokeStatic(COMPILER_CLASS, "shiftLeftExact", "(II)I");
+        break;
+      case XtellaVM.SHIFT_RIGHT:
+        writer.emitInvokeStatic(COMPILER_CLASS, "shiftRightExact", "(II)I");
+        break;
+      case XtellaVM.DUPLICATE_VALUE:
+        writer.emit(0x59);
+        break;
+      case XtellaVM.SWAP_VALUE:
+        writer.emit(0x5f);
+        break;
+      case XtellaVM.JUMP:
+        writer.emitJump(0xa7, unitLabels[this.code[pc + 1]]);
+        break;
+      case XtellaVM.PUSH_BOOLEAN:
+        boolean jumpsWhenTrue = conditionalJump(pc) == XtellaVM.JUMP_IF_TRUE;
+
+        if ((this.code[pc + 1] != 0) == jumpsWhenTrue) {
+          writer.emitJump(0xa7, unitLabels[branchTarget(pc)]);
+        }
+        break;
+      case XtellaVM.LOAD_LOCAL_LOAD_LOCAL_LT_JUMP_IF_FALSE:
+        writer.emitLocal(0x15, FIRST_SLOT_LOCAL + this.code[pc + 1]);
+        writer.emitLocal(0x15, FIRST_SLOT_LOCAL + this.code[pc + 2]);
+        writer.emitJump(0xa2, unitLabels[this.code[pc + 3]]);
+        break;
+      case XtellaVM.LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE:
+        writer.emitLocal(0x15, FIRST_SLOT_LOCAL + this.code[pc + 1]);
+        writer.emitInt(this.code[pc + 2]);
+        writer.emitJump(0xa2, unitLabels[this.code[pc + 3]]);
+        break;
+      case XtellaVM.LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL:
+        writer.emitLocal(0x15, FIRST_SLOT_LOCAL + this.code[pc + 1]);
+        writer.emitInt(this.code[pc + 2]);
+        writer.emitInvokeStatic("java/lang/Math", "addExact", "(II)I");
+        writer.emitLocal(0x36, FIRST_SLOT_LOCAL + this.code[pc + 3]);
+        break;
+      case XtellaVM.LOAD_LOCAL_LOAD_LOCAL_ADD_STORE_LOCAL:
+        writer.emitLocal(0x15, FIRST_SLOT_LOCAL + this.code[pc + 1]);
+        writer.emitLocal(0x15, FIRST_SLOT_LOCAL + this.code[pc + 2]);
+        writer.emitInvokeStatic("java/lang/Math", "addExact", "(II)I");
+        writer.emitLocal(0x36, FIRST_SLOT_LOCAL + this.code[pc + 3]);
+        break;
+      default:
+        boolean whenTrue = conditionalJump(pc) == XtellaVM.JUMP_IF_TRUE;
+        writer.emitJump(compareBranch(opcode, whenTrue), unitLabels[branchTarget(pc)]);
+        break;
+    }
+  }
+
+  private static int compareBranch(int opcode, boolean whenTrue) {
+    switch (opcode) {
+      case XtellaVM.EQUAL:
+        return whenTrue ? 0x9f : 0xa0;
+      case XtellaVM.NOT_EQUAL:
+        return whenTrue ? 0xa0 : 0x9f;
+      case XtellaVM.LESS_THAN:
+        return whenTrue ? 0xa1 : 0xa2;
+      case XtellaVM.LESS_THAN_OR_EQUAL:
+        return whenTrue ? 0xa4 : 0xa3;
+      case XtellaVM.GREATER_THAN:
+        return whenTrue ? 0xa3 : 0xa4;
+      case XtellaVM.GREATER_THAN_OR_EQUAL:
+        return whenTrue ? 0xa2 : 0xa1;
+      default:
+        throw new IllegalArgumentException("Not a comparison opcode: " + opcode);
+    }
+  }
+
+  private byte[] writeClass(ConstantPool pool, MethodWriter writer, List<int[]> exceptions) {
+    int thisClass = pool.classRef(CLASS_NAME);
+    int objectClass = pool.classRef("java/lang/Object");
+    int interfaceClass = pool.classRef(CODE_INTERFACE);
+    int initName = pool.utf8("<init>");
+    int initDescriptor = pool.utf8("()V");
+    int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+    int runName = pool.utf8("run");
+    int runDescriptor = pool.utf8(RUN_DESCRIPTOR);
+    int codeName = pool.utf8("Code");
+    int stackMapName = pool.utf8("StackMapTable");
+    int arithmeticClass = pool.classRef("java/lang/ArithmeticException");
+    int intArrayClass = pool.classRef("[I");
+    int longArrayClass = pool.classRef("[J");
+    byte[] stackMap =
+        writer.stackMap(thisClass, intArrayClass, longArrayClass, arithmeticClass, this.localCount);
+    byte[] body = writer.code();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 512);
+
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeInt(0xCAFEBABE);
+      output.writeShort(0);
+      output.writeShort(52);
+      pool.writeTo(output);
+      output.writeShort(0x0030);
+      output.writeShort(thisClass);
+      output.writeShort(objectClass);
+      output.writeShort(1);
+      output.writeShort(interfaceClass);
+      output.writeShort(0);
+      output.writeShort(2);
+
+      output.writeShort(0x0001);
+      output.writeShort(initName);
+      output.writeShort(initDescriptor);
+      output.writeShort(1);
+      output.writeShort(codeName);
+      output.writeInt(17);
+      output.writeShort(1);
+      output.writeShort(1);
+      output.writeInt(5);
+      output.writeByte(0x2a);
+      output.writeByte(0xb7);
+      output.writeShort(objectInit);
+      output.writeByte(0xb1);
+      output.writeShort(0);
+      output.writeShort(0);
+
+      output.writeShort(0x0001);
+      output.writeShort(runName);
+      output.writeShort(runDescriptor);
+      output.writeShort(1);
+      output.writeShort(codeName);
+      output.writeInt(8 + body.length + 2 + exceptions.size() * 8 + 2 + 6 + stackMap.length);
+      output.writeShort(this.maxDepth + 4);
+      output.writeShort(FIRST_SLOT_LOCAL + this.localCount);
+      output.writeInt(body.length);
+      output.write(body);
+      output.writeShort(exceptions.size());
+
+      for (int[] entry : exceptions) {
+        output.writeShort(entry[0]);
+        output.writeShort(entry[1]);
+        output.writeShort(entry[2]);
+        output.writeShort(arithmeticClass);
+      }
+
+      output.writeShort(1);
+      output.writeShort(stackMapName);
+      output.writeInt(stackMap.length);
+      output.write(stackMap);
+      output.writeShort(0);
+    } catch (IOException e) {
+      throw new RuntimeException("Error writing tier 2 class", e);
+    }
+
+    return bytes.toByteArray();
+  }
+
+  private static final class ConstantPool {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream output = new DataOutputStream(this.bytes);
+    private final Map<String, Integer> indices = new HashMap<>();
+    private int count = 1;
+
+    private int add(String key, byte[] entry) {
+      Integer index = this.indices.get(key);
+
+      if (index != null) {
+        return index;
+      }
+
+      this.bytes.write(entry, 0, entry.length);
+      this.indices.put(key, this.count);
+      return this.count++;
+    }
+
+    private static byte[] entry(int tag, int... shorts) {
+      byte[] entry = new byte[1 + shorts.length * 2];
+      entry[0] = (byte) tag;
+
+      for (int i = 0; i < shorts.length; i++) {
+        entry[1 + i * 2] = (byte) (shorts[i] >> 8);
+        entry[2 + i * 2] = (byte) shorts[i];
+      }
+
+      return entry;
+    }
+
+    int utf8(String value) {
+      ByteArrayOutputStream entry = new ByteArrayOutputStream();
+
+      try (DataOutputStream data = new DataOutputStream(entry)) {
+        data.writeByte(1);
+        data.writeUTF(value);
+      } catch (IOException e) {
+        throw new RuntimeException("Error writing constant pool entry", e);
+      }
+
+      return add("U" + value, entry.toByteArray());
+    }
+
+    int integer(int value) {
+      return add(
+          "I" + value,
+          new byte[] {3, (byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8),
+              (byte) value});
+    }
+
+    int classRef(String name) {
+      int nameIndex = utf8(name);
+      return add("C" + name, entry(7, nameIndex));
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+      int ownerIndex = classRef(owner);
+      int nameIndex = utf8(name);
+      int descriptorIndex = utf8(descriptor);
+      int nameAndType =
+          add("N" + name + ":" + descriptor, entry(12, nameIndex, descriptorIndex));
+      return add("M" + owner + "." + name + descriptor, entry(10, ownerIndex, nameAndType));
+    }
+
+    void writeTo(DataOutputStream target) throws IOException {
+      target.writeShort(this.count);
+      this.bytes.writeTo(target);
+    }
+  }
+
+  private static final class MethodWriter {
+    private final ConstantPool pool;
+    private byte[] code = new byte[256];
+    private int length = 0;
+    private int[] labels = new int[16];
+    private int labelCount = 0;
+    private final List<int[]> fixups = new ArrayList<>();
+    private final TreeMap<Integer, Integer> frames = new TreeMap<>();
+
+    MethodWriter(ConstantPool pool) {
+      this.pool = pool;
+    }
+
+    int position() {
+      return this.length;
+    }
+
+    void emit(int value) {
+      if (this.length == this.code.length) {
+        this.code = Arrays.copyOf(this.code, this.code.length * 2);
+      }
+
+      this.code[this.length++] = (byte) value;
+    }
+
+    void emitShort(int value) {
+      emit(value >> 8);
+      emit(value);
+    }
+
+    void emitWord(int value) {
+      emitShort(value >> 16);
+      emitShort(value);
+    }
+
+    void emitInt(int value) {
+      if (value >= -1 && value <= 5) {
+        emit(0x03 + value);
+      } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+        emit(0x10);
+        emit(value);
+      } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+        emit(0x11);
+        emitShort(value);
+      } else {
+        emit(0x13);
+        emitShort(this.pool.integer(value));
+      }
+    }
+
+    void emitLocal(int opcode, int index) {
+      emit(opcode);
+      emit(index);
+    }
+
+    void emitInvokeStatic(String owner, String name, String descriptor) {
+      emit(0xb8);
+      emitShort(this.pool.methodRef(owner, name, descriptor));
+    }
+
+    int newLabel() {
+      if (this.labelCount == this.labels.length) {
+        this.labels = Arrays.copyOf(this.labels, this.labels.length * 2);
+      }
+
+      this.labels[this.labelCount] = -1;
+      return this.labelCount++;
+    }
+
+    void bind(int label, int frame) {
+      this.labels[label] = this.length;
+      this.frames.put(this.length, frame);
+    }
+
+    int labelPosition(int label) {
+      return this.labels[label];
+    }
+
+    void emitJump(int opcode, int label) {
+      this.fixups.add(new int[] {this.length, this.length + 1, label, 2});
+      emit(opcode);
+      emitShort(0);
+    }
+
+    void emitLookupSwitch(int defaultLabel, int[] keys, int[] keyLabels) {
+      int opcodePosition = this.length;
+      emit(0xab);
+
+      while (this.length % 4 != 0) {
+        emit(0);
+      }
+
+      this.fixups.add(new int[] {opcodePosition, this.length, defaultLabel, 4});
+      emitWord(0);
+      emitWord(keys.length);
+
+      for (int i = 0; i < keys.length; i++) {
+        emitWord(keys[i]);
+        this.fixups.add(new int[] {opcodePosition, this.length, keyLabels[i], 4});
+        emitWord(0);
+      }
+    }
+
+    boolean resolve() {
+      if (this.length > MAX_BRANCH_OFFSET) {
+        return false;
+      }
+
+      for (int[] fixup : this.fixups) {
+        int offset = this.labels[fixup[2]] - fixup[0];
+
+        if (fixup[3] == 2) {
+          this.code[fixup[1]] = (byte) (offset >> 8);
+          this.code[fixup[1] + 1] = (byte) offset;
+        } else {
+          this.code[fixup[1]] = (byte) (offset >> 24);
+          this.code[fixup[1] + 1] = (byte) (offset >> 16);
+          this.code[fixup[1] + 2] = (byte) (offset >> 8);
+          this.code[fixup[1] + 3] = (byte) offset;
+        }
+      }
+
+      return true;
+    }
+
+    byte[] code() {
+      return Arrays.copyOf(this.code, this.length);
+    }
+
+    byte[] stackMap(
+        int thisClass, int intArrayClass, int longArrayClass, int arithmeticClass, int slots) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+      try (DataOutputStream output = new DataOutputStream(bytes)) {
+        output.writeShort(this.frames.size());
+        int previous = -1;
+
+        for (Map.Entry<Integer, Integer> frame : this.frames.entrySet()) {
+          output.writeByte(255);
+          output.writeShort(frame.getKey() - previous - 1);
+          previous = frame.getKey();
+
+          output.writeShort(7 + slots);
+          output.writeByte(7);
+          output.writeShort(thisClass);
+          output.writeByte(7);
+          output.writeShort(intArrayClass);
+          output.writeByte(1);
+          output.writeByte(7);
+          output.writeShort(longArrayClass);
+          output.writeByte(4);
+          output.writeByte(0);
+          output.writeByte(4);
+
+          for (int slot = 0; slot < slots; slot++) {
+            output.writeByte(1);
+          }
+
+          if (frame.getValue() == FRAME_EXIT) {
+            output.writeShort(1);
+            output.writeByte(1);
+          } else if (frame.getValue() == FRAME_HANDLER) {
+            output.writeShort(1);
+            output.writeByte(7);
+            output.writeShort(arithmeticClass);
+          } else {
+            output.writeShort(0);
+          }
+        }
+      } catch (IOException e) {
+        throw new RuntimeException("Error writing tier 2 stack map", e);
+      }
+
+      return bytes.toByteArray();
+    }
+  }
+}
@@ -1,13 +1,14 @@
-import java.io.BufferedReader;
-import java.io.Closeable;
-import java.io.FileReader;
-import java.io.FileWriter;
+package xtella;
+
 import java.io.IOException;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.regex.Pattern;
 
 public class XtellaVM {
 
@@ -59,9 +60,66 @@ public class XtellaVM {
   public static final int READ_LINE_FROM_FILE = 47;
   public static final int SWAP_VALUE = 48;
   public static final int DUPLICATE_VALUE = 49;
-
-  private Stack<int> instructionStack;
-  private Stack<Object> operandStack;
+  public static final int LOAD_LOCAL = 50;
+  public static final int STORE_LOCAL = 51;
+  public static final int REGEX_MATCH_CONSTANT = 52;
+  public static final int PUSH_REGEX = 53;
+  public static final int OPEN_FILE_FOR_APPENDING = 54;
+  public static final int WRITE_FILE_PARTS = 55;
+  public static final int CONCAT = 56;
+  public static final int PUSH_BOOLEAN = 57;
+  public static final int LOAD_LOCAL_LOAD_LOCAL_LT_JUMP_IF_FALSE = 58;
+  public static final int LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE = 59;
+  public static final int LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL = 60;
+  public static final int LOAD_LOCAL_LOAD_LOCAL_ADD_STORE_LOCAL = 61;
+  public static final int LOAD_LOCAL_REGEX_MATCH_CONSTANT_JUMP_IF_FALSE = 62;
+  public static final int REGEX_MATCH_CONSTANT_JUMP_IF_FALSE = 63;
+  public static final int ADD_INT = 64;
+  public static final int ADD_FLOAT = 65;
+  public static final int SUBTRACT_INT = 66;
+  public static final int SUBTRACT_FLOAT = 67;
+  public static final int MULTIPLY_INT = 68;
+  public static final int MULTIPLY_FLOAT = 69;
+  public static final int EQUAL_INT = 70;
+  public static final int EQUAL_FLOAT = 71;
+  public static final int NOT_EQUAL_INT = 72;
+  public static final int NOT_EQUAL_FLOAT = 73;
+  public static final int LESS_THAN_INT = 74;
+  public static final int LESS_THAN_FLOAT = 75;
+  public static final int LESS_THAN_OR_EQUAL_INT = 76;
+  public static final int LESS_THAN_OR_EQUAL_FLOAT = 77;
+  public static final int GREATER_THAN_INT = 78;
+  public static final int GREATER_THAN_FLOAT = 79;
+  public static final int GREATER_THAN_OR_EQUAL_INT = 80;
+  public static final int GREATER_THAN_OR_EQUAL_FLOAT = 81;
+  public static final int PUSH_LONG = 82;
+  public static final int PUSH_DOUBLE = 83;
+  public static final int PUSH_BIG_INTEGER = 84;
+  public static final int READ_LINE_FROM_PROCESS = 85;
+  public static final int PIPE_PROCESS_TO_FILE = 86;
+  public static final int WAIT_PROCESS = 87;
+  public static final int JOIN = 88;
+  public static final int MAKE_CHANNEL = 89;
+  public static final int SEND = 90;
+  public static final int RECEIVE = 91;
+  public static final int CLOSE_CHANNEL = 92;
+  public static final int TABLE_SWITCH = 93;
+  public static final int LOOKUP_SWITCH = 94;
+  public static final int STRING_SWITCH = 95;
+  public static final int REGEX_SWITCH = 96;
+  public static final int MULTI_REGEX_MATCH = 97;
+  public static final int MULTI_REGEX_MATCH_ALL = 98;
+  public static final int GET_ITER = 99;
+  public static final int FOR_NEXT = 100;
+  public static final int MAKE_RANGE = 101;
+  public static final int FILE_LINES = 102;
+  public static final int REGEX_FIND_ALL = 103;
+  public static final int APPEND_TO_ARRAY = 104;
+
+  public static final long DEFAULT_INSTRUCTION_BUDGET = 100_000_000L;
+
+  private XtellaBytecodeChunk chunk;
+  private XtellaOperandStack operandStack;
   private Map<String, Object> globalScope;
   private List<Map<String, Object>> scopes;
   private int instructionPointer;
@@ -69,134 +127,1115 @@ public class XtellaVM {
   private int framePointer;
   private int scopeNumber;
   private int lastExitCode;
+  private int localBase;
+  private long instructionBudget;
+  private long remainingBudget;
+  private XtellaRegexCache regexCache;
+  private XtellaFileTable fileTable;
+  private XtellaProcessPool processPool;
+  private final List<XtellaProcess> processes;
+  private final List<XtellaTask> tasks;
+  private XtellaPeephole peephole;
+  private boolean quickening;
+  private XtellaTier2 tier2;
+  private final long[] tier2Budget;
 
   public XtellaVM() {
-    this.instructionStack = new Stack<>();
-    this.operandStack = new Stack<>();
+    this.chunk = new XtellaBytecodeChunk();
+    this.operandStack = new XtellaOperandStack();
+    this.globalScope = new HashMap<>();
     this.scopes = new ArrayList<>();
+    this.scopes.add(this.globalScope);
+    this.scopeNumber = 0;
     this.instructionPointer = 0;
     this.stackPointer = 0;
     this.framePointer = 0;
+    this.instructionBudget = DEFAULT_INSTRUCTION_BUDGET;
+    this.regexCache = new XtellaRegexCache();
+    this.fileTable = new XtellaFileTable();
+    this.processPool = XtellaProcessPool.getDefault();
+    this.processes = new ArrayList<>();
+    this.tasks = new ArrayList<>();
+    this.peephole = new XtellaPeephole();
+    this.quickening = true;
+    this.tier2 = new XtellaTier2();
+    this.tier2Budget = new long[1];
+  }
+
+  public static int operandCount(int opcode) {
+    switch (opcode) {
+      case ADD:
+      case SUBTRACT:
+      case MULTIPLY:
+      case DIVIDE:
+      case MODULO:
+      case BITWISE_AND:
+      case BITWISE_OR:
+      case BITWISE_XOR:
+      case SHIFT_LEFT:
+      case SHIFT_RIGHT:
+      case LOGICAL_AND:
+      case LOGICAL_OR:
+      case LOGICAL_NOT:
+      case EQUAL:
+      case NOT_EQUAL:
+      case LESS_THAN:
+      case LESS_THAN_OR_EQUAL:
+      case GREATER_THAN:
+      case GREATER_THAN_OR_EQUAL:
+      case RETURN:
+      case REGEX_MATCH:
+      case EXEC_COMMAND:
+      case MAKE_VARIANT:
+      case SWAP_VALUE:
+      case DUPLICATE_VALUE:
+      case ADD_INT:
+      case ADD_FLOAT:
+      case SUBTRACT_INT:
+      case SUBTRACT_FLOAT:
+      case MULTIPLY_INT:
+      case MULTIPLY_FLOAT:
+      case EQUAL_INT:
+      case EQUAL_FLOAT:
+      case NOT_EQUAL_INT:
+      case NOT_EQUAL_FLOAT:
+      case LESS_THAN_INT:
+      case LESS_THAN_FLOAT:
+      case LESS_THAN_OR_EQUAL_INT:
+      case LESS_THAN_OR_EQUAL_FLOAT:
+      case GREATER_THAN_INT:
+      case GREATER_THAN_FLOAT:
+      case GREATER_THAN_OR_EQUAL_INT:
+      case GREATER_THAN_OR_EQUAL_FLOAT:
+      case READ_LINE_FROM_PROCESS:
+      case WAIT_PROCESS:
+      case JOIN:
+      case SEND:
+      case RECEIVE:
+      case CLOSE_CHANNEL:
+      case GET_ITER:
+      case MAKE_RANGE:
+        return 0;
+      case PUSH_INT:
+      case PUSH_STRING:
+      case PUSH_FLOAT:
+      case PUSH_ARRAY:
+      case PUSH_HASHMAP:
+      case PUSH_BOOLEAN:
+      case JUMP:
+      case JUMP_IF_TRUE:
+      case JUMP_IF_FALSE:
+      case LOAD_VARIABLE:
+      case STORE_VARIABLE:
+      case LOAD_VARIABLE_FROM_ARRAY:
+      case STORE_VARIABLE_INTO_ARRAY:
+      case LOAD_VARIABLE_FROM_HASHMAP:
+      case STORE_VARIABLE_INTO_HASHMAP:
+      case CLOSE_FILE:
+      case READ_FILE:
+      case WRITE_FILE:
+      case APPEND_FILE:
+      case READ_LINE_FROM_FILE:
+      case LOAD_LOCAL:
+      case STORE_LOCAL:
+      case REGEX_MATCH_CONSTANT:
+      case PUSH_REGEX:
+      case CONCAT:
+      case PUSH_BIG_INTEGER:
+      case PIPE_PROCESS_TO_FILE:
+      case RUN_THREAD:
+      case MAKE_CHANNEL:
+      case LOOKUP_SWITCH:
+      case STRING_SWITCH:
+      case REGEX_SWITCH:
+      case MULTI_REGEX_MATCH:
+      case MULTI_REGEX_MATCH_ALL:
+      case FOR_NEXT:
+      case FILE_LINES:
+      case REGEX_FIND_ALL:
+      case APPEND_TO_ARRAY:
+        return 1;
+      case OPEN_FILE_FOR_READING:
+      case OPEN_FILE_FOR_WRITING:
+      case OPEN_FILE_FOR_READING_AND_WRITING:
+      case OPEN_FILE_FOR_APPENDING:
+      case WRITE_FILE_PARTS:
+      case REGEX_MATCH_CONSTANT_JUMP_IF_FALSE:
+      case PUSH_LONG:
+      case PUSH_DOUBLE:
+      case TABLE_SWITCH:
+        return 2;
+      case LOAD_LOCAL_LOAD_LOCAL_LT_JUMP_IF_FALSE:
+      case LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE:
+      case LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL:
+      case LOAD_LOCAL_LOAD_LOCAL_ADD_STORE_LOCAL:
+      case LOAD_LOCAL_REGEX_MATCH_CONSTANT_JUMP_IF_FALSE:
+        return 3;
+      default:
+        throw new IllegalArgumentException("Unknown opcode " + opcode);
+    }
+  }
+
+  public static int genericOpcode(int opcode) {
+    switch (opcode) {
+      case ADD_INT:
+      case ADD_FLOAT:
+        return ADD;
+      case SUBTRACT_INT:
+      case SUBTRACT_FLOAT:
+        return SUBTRACT;
+      case MULTIPLY_INT:
+      case MULTIPLY_FLOAT:
+        return MULTIPLY;
+      case EQUAL_INT:
+      case EQUAL_FLOAT:
+        return EQUAL;
+      case NOT_EQUAL_INT:
+      case NOT_EQUAL_FLOAT:
+        return NOT_EQUAL;
+      case LESS_THAN_INT:
+      case LESS_THAN_FLOAT:
+        return LESS_THAN;
+      case LESS_THAN_OR_EQUAL_INT:
+      case LESS_THAN_OR_EQUAL_FLOAT:
+        return LESS_THAN_OR_EQUAL;
+      case GREATER_THAN_INT:
+      case GREATER_THAN_FLOAT:
+        return GREATER_THAN;
+      case GREATER_THAN_OR_EQUAL_INT:
+      case GREATER_THAN_OR_EQUAL_FLOAT:
+        return GREATER_THAN_OR_EQUAL;
+      default:
+        return opcode;
+    }
+  }
+
+  public static String operatorMethodName(int opcode) {
+    switch (opcode) {
+      case ADD:
+        return "binaryAdd";
+      case SUBTRACT:
+        return "binarySubtract";
+      case MULTIPLY:
+        return "binaryMultiply";
+      case DIVIDE:
+        return "binaryDivide";
+      case MODULO:
+        return "binaryModulo";
+      case BITWISE_AND:
+        return "binaryAnd";
+      case BITWISE_OR:
+        return "binaryOr";
+      case BITWISE_XOR:
+        return "binaryXor";
+      case SHIFT_LEFT:
+        return "binaryShl";
+      case SHIFT_RIGHT:
+        return "binaryShr";
+      case LOGICAL_AND:
+        return "binaryLogicalAnd";
+      case LOGICAL_OR:
+        return "binaryLogicalOr";
+      case LOGICAL_NOT:
+        return "unaryLogicalNot";
+      case EQUAL:
+        return "binaryEq";
+      case NOT_EQUAL:
+        return "binaryNe";
+      case LESS_THAN:
+        return "binaryLt";
+      case LESS_THAN_OR_EQUAL:
+        return "binaryLe";
+      case GREATER_THAN:
+        return "binaryGt";
+      case GREATER_THAN_OR_EQUAL:
+        return "binaryGe";
+      default:
+        throw new IllegalArgumentException("No operator method for opcode " + opcode);
+    }
+  }
+
+  public static int jumpOperandIndex(int opcode) {
+    switch (opcode) {
+      case JUMP:
+      case JUMP_IF_TRUE:
+      case JUMP_IF_FALSE:
+      case FOR_NEXT:
+        return 0;
+      case REGEX_MATCH_CONSTANT_JUMP_IF_FALSE:
+        return 1;
+      case LOAD_LOCAL_LOAD_LOCAL_LT_JUMP_IF_FALSE:
+      case LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE:
+      case LOAD_LOCAL_REGEX_MATCH_CONSTANT_JUMP_IF_FALSE:
+        return 2;
+      default:
+        return -1;
+    }
+  }
+
+  public XtellaBytecodeChunk getChunk() {
+    return this.chunk;
+  }
+
+  public void setInstructionBudget(long instructionBudget) {
+    if (instructionBudget <= 0) {
+      throw new IllegalArgumentException("Instruction budget must be positive");
+    }
+
+    this.instructionBudget = instructionBudget;
+  }
+
+  public void addInstruction(int opcode) {
+    this.chunk.emit(opcode);
+  }
+
+  public void addOperand(int operand) {
+    this.chunk.emit(operand);
+  }
+
+  public void addOperand(Object operand) {
+    this.chunk.emit(this.chunk.addConstant(operand));
+  }
+
+  public void addLongOperand(long operand) {
+    this.chunk.emit((int) (operand >>> 32));
+    this.chunk.emit((int) operand);
+  }
+
+  public void addPatternOperand(String regex) {
+    this.chunk.emit(this.chunk.addPatternConstant(regex));
+  }
+
+  public XtellaRegexCache getRegexCache() {
+    return this.regexCache;
+  }
+
+  public XtellaPeephole getPeephole() {
+    return this.peephole;
+  }
+
+  public void setPeephole(XtellaPeephole peephole) {
+    this.peephole = peephole;
+  }
+
+  public boolean isQuickening() {
+    return this.quickening;
+  }
+
+  public void setQuickening(boolean quickening) {
+    this.quickening = quickening;
+  }
+
+  public XtellaTier2 getTier2() {
+    return this.tier2;
+  }
+
+  public void setTier2(XtellaTier2 tier2) {
+    this.tier2 = tier2;
+  }
+
+  public XtellaFileTable getFileTable() {
+    return this.fileTable;
+  }
+
+  public void closeFiles() {
+    try {
+      this.fileTable.closeAll();
+    } catch (IOException e) {
+      throw new RuntimeException("Error closing files", e);
+    }
+  }
+
+  public Object getGlobal(String name) {
+    return this.globalScope.get(name);
+  }
+
+  public void setGlobal(String name, Object value) {
+    this.globalScope.put(name, value);
+  }
+
+  public XtellaProcessPool getProcessPool() {
+    return this.processPool;
+  }
+
+  public void setProcessPool(XtellaProcessPool processPool) {
+    this.processPool = processPool;
+  }
+
+  public void closeProcesses() {
+    List<XtellaProcess> startedProcesses = new ArrayList<>(this.processes);
+    IOException firstFailure = null;
+
+    this.processes.clear();
+
+    for (XtellaProcess process : startedProcesses) {
+      try {
+        process.close();
+      } catch (IOException e) {
+        if (firstFailure == null) {
+          firstFailure = e;
+        } else {
+          firstFailure.addSuppressed(e);
+        }
+      }
+    }
+
+    if (firstFailure != null) {
+      throw new RuntimeException("Error closing processes", firstFailure);
+    }
+  }
+
+  public int getCodeOffset() {
+    return this.chunk.getCodeLength();
+  }
+
+  public void patchOperand(int offset, int operand) {
+    this.chunk.patch(offset, operand);
+  }
+
+  public void beginChunk(int localCount) {
+    this.chunk = new XtellaBytecodeChunk();
+    this.chunk.setLocalCount(localCount);
+  }
+
+  public void endChunk() {
+    if (this.peephole != null) {
+      this.peephole.optimize(this.chunk);
+    }
+  }
+
+  public void run() {
+    run(this.chunk, this.instructionBudget);
+  }
+
+  public void run(XtellaBytecodeChunk chunk, long instructionBudget) {
+    execute(chunk, instructionBudget, this.operandStack.size());
+  }
+
+  public Object evaluate(XtellaBytecodeChunk chunk, long instructionBudget, Object... arguments) {
+    if (arguments.length > chunk.getLocalCount()) {
+      throw new IllegalArgumentException(
+          "Too many arguments for a chunk with " + chunk.getLocalCount() + " locals");
+    }
+
+    int frameBase = this.operandStack.size();
+
+    for (Object argument : arguments) {
+      this.operandStack.push(argument);
+    }
+
+    try {
+      execute(chunk, instructionBudget, frameBase);
+
+      return this.operandStack.size() > frameBase + chunk.getLocalCount()
+          ? this.operandStack.peek()
+          : null;
+    } finally {
+      this.operandStack.drop(this.operandStack.size() - frameBase);
+    }
+  }
+
+  public void reset() {
+    cancelTasks();
+
+    try {
+      closeProcesses();
+    } finally {
+      resetFiles();
+    }
+  }
+
+  public void cancelTasks() {
+    for (XtellaTask task : this.tasks) {
+      task.cancel();
+    }
+
+    this.tasks.clear();
+  }
+
+  private void resetFiles() {
+    try {
+      closeFiles();
+    } finally {
+      this.chunk = new XtellaBytecodeChunk();
+      this.operandStack.clear();
+      this.globalScope.clear();
+      this.scopes.clear();
+      this.scopes.add(this.globalScope);
+      this.instructionPointer = 0;
+      this.stackPointer = 0;
+      this.framePointer = 0;
+      this.scopeNumber = 0;
+      this.lastExitCode = 0;
+      this.localBase = 0;
+    }
+  }
+
+  private void execute(XtellaBytecodeChunk chunk, long instructionBudget, int frameBase) {
+    int[] code = chunk.getCode();
+    final int codeLength = chunk.getCodeLength();
+    final Object[] constants = chunk.getConstants();
+    int ip = 0;
+
+    this.chunk = chunk;
+    this.localBase = frameBase;
+    this.remainingBudget = instructionBudget;
+    this.operandStack.reserve(
+        Math.max(0, chunk.getLocalCount() - (this.operandStack.size() - frameBase)));
+
+    try {
+      if (this.tier2 != null) {
+        this.tier2Budget[0] = this.remainingBudget;
+        ip = this.tier2.onInvocation(chunk, this.operandStack, frameBase, this.tier2Budget);
+        this.remainingBudget = this.tier2Budget[0];
+      }
+
+      while (ip < codeLength) {
+        if (--this.remainingBudget < 0) {
+          throw new IllegalStateException(
+              "Instruction budget of " + instructionBudget + " exhausted at " + ip);
+        }
+
+        this.instructionPointer = ip;
+
+        switch (code[ip++]) {
+          case PUSH_INT:
+            executePushInt(code[ip++]);
+            break;
+          case PUSH_STRING:
+            executePushString(constants[code[ip++]]);
+            break;
+          case PUSH_FLOAT:
+            executePushFloat(Float.intBitsToFloat(code[ip++]));
+            break;
+          case PUSH_BOOLEAN:
+            executePushBoolean(code[ip++] != 0);
+            break;
+          case PUSH_LONG:
+            executePushLong(joinWords(code[ip], code[ip + 1]));
+            ip += 2;
+            break;
+          case PUSH_DOUBLE:
+            executePushDouble(Double.longBitsToDouble(joinWords(code[ip], code[ip + 1])));
+            ip += 2;
+            break;
+          case PUSH_BIG_INTEGER:
+            executePushBigInteger(constants[code[ip++]]);
+            break;
+          case PUSH_ARRAY:
+            executePushArray(code[ip++]);
+            break;
+          case PUSH_HASHMAP:
+            executePushHashMap(code[ip++]);
+            break;
+          case ADD:
+            code = quicken(chunk, code, ip - 1, ADD_INT, ADD_FLOAT);
+            executeAdd();
+            break;
+          case SUBTRACT:
+            code = quicken(chunk, code, ip - 1, SUBTRACT_INT, SUBTRACT_FLOAT);
+            executeSubtract();
+            break;
+          case MULTIPLY:
+            code = quicken(chunk, code, ip - 1, MULTIPLY_INT, MULTIPLY_FLOAT);
+            executeMultiply();
+            break;
+          case DIVIDE:
+            executeDivide();
+            break;
+          case MODULO:
+            executeModulo();
+            break;
+          case BITWISE_AND:
+            executeBitwiseAnd();
+            break;
+          case BITWISE_OR:
+            executeBitwiseOr();
+            break;
+          case BITWISE_XOR:
+            executeBitwiseXor();
+            break;
+          case SHIFT_LEFT:
+            executeShiftLeft();
+            break;
+          case SHIFT_RIGHT:
+            executeShiftRight();
+            break;
+          case LOGICAL_AND:
+            executeLogicalAnd();
+            break;
+          case LOGICAL_OR:
+            executeLogicalOr();
+            break;
+          case LOGICAL_NOT:
+            executeLogicalNot();
+            break;
+          case EQUAL:
+            code = quicken(chunk, code, ip - 1, EQUAL_INT, EQUAL_FLOAT);
+            executeEqual();
+            break;
+          case NOT_EQUAL:
+            code = quicken(chunk, code, ip - 1, NOT_EQUAL_INT, NOT_EQUAL_FLOAT);
+            executeNotEqual();
+            break;
+          case LESS_THAN:
+            code = quicken(chunk, code, ip - 1, LESS_THAN_INT, LESS_THAN_FLOAT);
+            executeLessThan();
+            break;
+          case LESS_THAN_OR_EQUAL:
+            code = quicken(chunk, code, ip - 1, LESS_THAN_OR_EQUAL_INT, LESS_THAN_OR_EQUAL_FLOAT);
+            executeLessThanOrEqual();
+            break;
+          case GREATER_THAN:
+            code = quicken(chunk, code, ip - 1, GREATER_THAN_INT, GREATER_THAN_FLOAT);
+            executeGreaterThan();
+            break;
+          case GREATER_THAN_OR_EQUAL:
+            code =
+                quicken(
+                    chunk, code, ip - 1, GREATER_THAN_OR_EQUAL_INT, GREATER_THAN_OR_EQUAL_FLOAT);
+            executeGreaterThanOrEqual();
+            break;
+          case JUMP:
+            if (code[ip] >= ip) {
+              ip = code[ip];
+            } else if (Thread.currentThread().isInterrupted()) {
+              throw new IllegalStateException("Execution interrupted at " + (ip - 1));
+            } else if (this.tier2 != null) {
+              this.tier2Budget[0] = this.remainingBudget;
+              ip = this.tier2.onBackedge(
+                  chunk, code[ip], this.operandStack, this.localBase, this.tier2Budget);
+              this.remainingBudget = this.tier2Budget[0];
+            } else {
+              ip = code[ip];
+            }
+            break;
+          case JUMP_IF_TRUE:
+            ip = executeJumpIfTrue(code[ip], ip + 1);
+            break;
+          case JUMP_IF_FALSE:
+            ip = executeJumpIfFalse(code[ip], ip + 1);
+            break;
+          case RETURN:
+            ip = executeReturn();
+            break;
+          case LOAD_VARIABLE:
+            executeLoadVariable((String) constants[code[ip++]]);
+            break;
+          case STORE_VARIABLE:
+            executeStoreVariable((String) constants[code[ip++]]);
+            break;
+          case LOAD_VARIABLE_FROM_ARRAY:
+            executeLoadVariableFromArray((String) constants[code[ip++]]);
+            break;
+          case STORE_VARIABLE_INTO_ARRAY:
+            executeStoreVariableIntoArray((String) constants[code[ip++]]);
+            break;
+          case LOAD_VARIABLE_FROM_HASHMAP:
+            executeLoadVariableFromHashMap((String) constants[code[ip++]]);
+            break;
+          case STORE_VARIABLE_INTO_HASHMAP:
+            executeStoreVariableIntoHashMap((String) constants[code[ip++]]);
+            break;
+          case REGEX_MATCH:
+            executeRegexMatch();
+            break;
+          case EXEC_COMMAND:
+            executeExecCommand();
+            break;
+          case READ_LINE_FROM_PROCESS:
+            executeReadLineFromProcess();
+            break;
+          case PIPE_PROCESS_TO_FILE:
+            executePipeProcessToFile((String) constants[code[ip++]]);
+            break;
+          case WAIT_PROCESS:
+            executeWaitProcess();
+            break;
+          case MAKE_VARIANT:
+            executeMakeVariant();
+            break;
+          case RUN_THREAD:
+            executeRunThread(code[ip++]);
+            break;
+          case JOIN:
+            executeJoin();
+            break;
+          case MAKE_CHANNEL:
+            executeMakeChannel(code[ip++]);
+            break;
+          case SEND:
+            executeSend();
+            break;
+          case RECEIVE:
+            executeReceive();
+            break;
+          case CLOSE_CHANNEL:
+            executeCloseChannel();
+            break;
+          case TABLE_SWITCH:
+            ip = executeTableSwitch(code, ip);
+            break;
+          case LOOKUP_SWITCH:
+            ip = executeLookupSwitch(code, ip, (int[]) constants[code[ip]]);
+            break;
+          case STRING_SWITCH:
+            ip = executeStringSwitch(code, ip, (XtellaStringSwitch) constants[code[ip]]);
+            break;
+          case REGEX_SWITCH:
+            ip = executeRegexSwitch(code, ip, (XtellaRegexSwitch) constants[code[ip]]);
+            break;
+          case MULTI_REGEX_MATCH:
+            executeMultiRegexMatch((XtellaRegexSet) constants[code[ip++]], false);
+            break;
+          case MULTI_REGEX_MATCH_ALL:
+            executeMultiRegexMatch((XtellaRegexSet) constants[code[ip++]], true);
+            break;
+          case GET_ITER:
+            executeGetIter();
+            break;
+          case FOR_NEXT:
+            ip = executeForNext(code[ip], ip + 1);
+            break;
+          case MAKE_RANGE:
+            executeMakeRange();
+            break;
+          case FILE_LINES:
+            executeFileLines((String) constants[code[ip++]]);
+            break;
+          case REGEX_FIND_ALL:
+            executeRegexFindAll((Pattern) constants[code[ip++]]);
+            break;
+          case APPEND_TO_ARRAY:
+            executeAppendToArray((String) constants[code[ip++]]);
+            break;
+          case OPEN_FILE_FOR_READING:
+            executeOpenFile(
+                (String) constants[code[ip++]],
+                (String) constants[code[ip++]],
+                XtellaFileHandle.Mode.READ);
+            break;
+          case OPEN_FILE_FOR_WRITING:
+            executeOpenFile(
+                (String) constants[code[ip++]],
+                (String) constants[code[ip++]],
+                XtellaFileHandle.Mode.WRITE);
+            break;
+          case OPEN_FILE_FOR_READING_AND_WRITING:
+            executeOpenFile(
+                (String) constants[code[ip++]],
+                (String) constants[code[ip++]],
+                XtellaFileHandle.Mode.READ_WRITE);
+            break;
+          case OPEN_FILE_FOR_APPENDING:
+            executeOpenFile(
+                (String) constants[code[ip++]],
+                (String) constants[code[ip++]],
+                XtellaFileHandle.Mode.APPEND);
+            break;
+          case CLOSE_FILE:
+            executeCloseFile((String) constants[code[ip++]]);
+            break;
+          case READ_FILE:
+            executeReadFileForReading((String) constants[code[ip++]]);
+            break;
+          case WRITE_FILE:
+            executeWriteFile((String) constants[code[ip++]]);
+            break;
+          case APPEND_FILE:
+            executeAppendFile((String) constants[code[ip++]]);
+            break;
+          case WRITE_FILE_PARTS:
+            executeWriteFileParts((String) constants[code[ip++]], code[ip++]);
+            break;
+          case READ_LINE_FROM_FILE:
+            executeReadLineFromFile((String) constants[code[ip++]]);
+            break;
+          case SWAP_VALUE:
+            executeSwapValue();
+            break;
+          case DUPLICATE_VALUE:
+            executeDuplicateValue();
+            break;
+          case LOAD_LOCAL:
+            executeLoadLocal(code[ip++]);
+            break;
+          case STORE_LOCAL:
+            executeStoreLocal(code[ip++]);
+            break;
+          case REGEX_MATCH_CONSTANT:
+            executeRegexMatchConstant((Pattern) constants[code[ip++]]);
+            break;
+          case PUSH_REGEX:
+            executePushRegex((Pattern) constants[code[ip++]]);
+            break;
+          case CONCAT:
+            executeConcat(code[ip++]);
+            break;
+          case LOAD_LOCAL_LOAD_LOCAL_LT_JUMP_IF_FALSE:
+            ip = executeLoadLocalLoadLocalLessThanJumpIfFalse(
+                code[ip], code[ip + 1], code[ip + 2], ip + 3);
+            break;
+          case LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE:
+            ip = executeLoadLocalPushIntLessThanJumpIfFalse(
+                code[ip], code[ip + 1], code[ip + 2], ip + 3);
+            break;
+          case LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL:
+            executeLoadLocalPushIntAddStoreLocal(code[ip], code[ip + 1], code[ip + 2]);
+            ip += 3;
+            break;
+          case LOAD_LOCAL_LOAD_LOCAL_ADD_STORE_LOCAL:
+            executeLoadLocalLoadLocalAddStoreLocal(code[ip], code[ip + 1], code[ip + 2]);
+            ip += 3;
+            break;
+          case LOAD_LOCAL_REGEX_MATCH_CONSTANT_JUMP_IF_FALSE:
+            ip = executeLoadLocalRegexMatchConstantJumpIfFalse(
+                code[ip], (Pattern) constants[code[ip + 1]], code[ip + 2], ip + 3);
+            break;
+          case REGEX_MATCH_CONSTANT_JUMP_IF_FALSE:
+            executeRegexMatchConstant((Pattern) constants[code[ip]]);
+            ip = executeJumpIfFalse(code[ip + 1], ip + 2);
+            break;
+          case ADD_INT:
+            if (!executeAddInt()) {
+              executeAdd();
+            }
+            break;
+          case ADD_FLOAT:
+            if (!executeAddFloat()) {
+              executeAdd();
+            }
+            break;
+          case SUBTRACT_INT:
+            if (!executeSubtractInt()) {
+              executeSubtract();
+            }
+            break;
+          case SUBTRACT_FLOAT:
+            if (!executeSubtractFloat()) {
+              executeSubtract();
+            }
+            break;
+          case MULTIPLY_INT:
+            if (!executeMultiplyInt()) {
+              executeMultiply();
+            }
+            break;
+          case MULTIPLY_FLOAT:
+            if (!executeMultiplyFloat()) {
+              executeMultiply();
+            }
+            break;
+          case EQUAL_INT:
+            if (!executeEqualInt()) {
+              executeEqual();
+            }
+            break;
+          case EQUAL_FLOAT:
+            if (!executeEqualFloat()) {
+              executeEqual();
+            }
+            break;
+          case NOT_EQUAL_INT:
+            if (!executeNotEqualInt()) {
+              executeNotEqual();
+            }
+            break;
+          case NOT_EQUAL_FLOAT:
+            if (!executeNotEqualFloat()) {
+              executeNotEqual();
+            }
+            break;
+          case LESS_THAN_INT:
+            if (!executeLessThanInt()) {
+              executeLessThan();
+            }
+            break;
+          case LESS_THAN_FLOAT:
+            if (!executeLessThanFloat()) {
+              executeLessThan();
+            }
+            break;
+          case LESS_THAN_OR_EQUAL_INT:
+            if (!executeLessThanOrEqualInt()) {
+              executeLessThanOrEqual();
+            }
+            break;
+          case LESS_THAN_OR_EQUAL_FLOAT:
+            if (!executeLessThanOrEqualFloat()) {
+              executeLessThanOrEqual();
+            }
+            break;
+          case GREATER_THAN_INT:
+            if (!executeGreaterThanInt()) {
+              executeGreaterThan();
+            }
+            break;
+          case GREATER_THAN_FLOAT:
+            if (!executeGreaterThanFloat()) {
+              executeGreaterThan();
+            }
+            break;
+          case GREATER_THAN_OR_EQUAL_INT:
+            if (!executeGreaterThanOrEqualInt()) {
+              executeGreaterThanOrEqual();
+            }
+            break;
+          case GREATER_THAN_OR_EQUAL_FLOAT:
+            if (!executeGreaterThanOrEqualFloat()) {
+              executeGreaterThanOrEqual();
+            }
+            break;
+          default:
+            throw new IllegalStateException("Unknown opcode " + code[ip - 1] + " at " + (ip - 1));
+        }
+      }
+    } finally {
+      this.instructionPointer = ip;
+    }
   }
 
-  public static int getProgramCounter() {
+  public int getProgramCounter() {
     return this.instructionPointer;
   }
 
-  public static int getStackPointer() {
+  public int getStackPointer() {
     return this.stackPointer;
   }
 
-  public static int getFramePointer() {
+  public int getFramePointer() {
     return this.framePointer;
   }
 
-  public static int getScopeNumber() {
+  public int getScopeNumber() {
     return this.scopeNumber;
   }
 
-  public static int getLastExitCode() {
+  public int getLastExitCode() {
     return this.lastExitCode;
   }
 
-  private static int newFrame() {
+  private int newFrame() {
     this.framePointer = this.stackPointer;
     Map<String, Object> newScope = new HashMap<>();
     this.scopes.add(newScope);
     return this.scopeNumber++;
   }
 
-  private static void dropFrame() {
-    this.scopes.remove(this.scopesNumber - 1);
+  private void dropFrame() {
+    this.scopes.remove(this.scopeNumber);
     this.stackPointer += this.framePointer;
-    this.scopesNumber--;
+    this.scopeNumber--;
   }
 
-  private static Object getInScope(String identifier) {
+  private Object getInScope(String identifier) {
     return this.scopes.get(this.scopeNumber).get(identifier);
   }
 
-  private static void putInScope(String identifier, Object object) {
+  private void putInScope(String identifier, Object object) {
     this.scopes.get(this.scopeNumber).put(identifier, object);
   }
 
-  private void executePushInt() {
-    if (this.operandStack.size() < 1) {
-      throw new IllegalStateException("Not enough operands on the stack for PUSH_INT");
-    }
-
-    Object intValue = this.operandStack.pop();
+  private void executePushInt(int intValue) {
+    this.operandStack.pushInt(intValue);
+    this.framePointer++;
+  }
 
-    if (intValue instanceof Integer) {
-      this.operandStack.push(intValue);
+  private void executePushString(Object stringValue) {
+    if (stringValue instanceof String) {
+      this.operandStack.pushReference(stringValue);
     } else {
-      throw new IllegalArgumentException("Invalid operand type for PUSH_INT");
+      throw new IllegalArgumentException("Invalid operand type for PUSH_STRING");
     }
 
     this.framePointer++;
   }
 
-  private void executePushString() {
-    if (this.operandStack.size() < 1) {
-      throw new IllegalStateException("Not enough operands on the stack for PUSH_STRING");
-    }
+  private void executePushFloat(float floatValue) {
+    this.operandStack.pushFloat(floatValue);
+    this.framePointer++;
+  }
+
+  private void executePushBoolean(boolean booleanValue) {
+    this.operandStack.pushBoolean(booleanValue);
+    this.framePointer++;
+  }
 
-    Object stringValue = this.operandStack.pop();
+  private void executePushLong(long longValue) {
+    this.operandStack.pushLong(longValue);
+    this.framePointer++;
+  }
 
-    if (stringValue instanceof String) {
-      this.operandStack.push(stringValue);
+  private void executePushDouble(double doubleValue) {
+    this.operandStack.pushDouble(doubleValue);
+    this.framePointer++;
+  }
+
+  private void executePushBigInteger(Object bigIntegerValue) {
+    if (bigIntegerValue instanceof BigInteger) {
+      this.operandStack.pushReference(bigIntegerValue);
     } else {
-      throw new IllegalArgumentException("Invalid operand type for PUSH_STRING");
+      throw new IllegalArgumentException("Invalid operand type for PUSH_BIG_INTEGER");
     }
 
     this.framePointer++;
   }
 
-  private void executePushFloat() {
-    if (this.operandStack.size() < 1) {
-      throw new IllegalStateException("Not enough operands on the stack for PUSH_FLOAT");
+  private static long joinWords(int high, int low) {
+    return ((long) high << 32) | (low & 0xFFFFFFFFL);
+  }
+
+  private void executePushArray(int elementCount) {
+    if (this.operandStack.size() < elementCount) {
+      throw new IllegalStateException("Not enough operands on the stack for PUSH_ARRAY");
     }
 
-    Object floatValue = this.operandStack.pop();
+    int first = this.operandStack.size() - elementCount;
+    XtellaArray.Kind kind = XtellaArray.Kind.BYTE;
 
-    if (floatValue instanceof Float) {
-      this.operandStack.push(floatValue);
-    } else {
-      throw new IllegalArgumentException("Invalid operand type for PUSH_FLOAT");
+    for (int i = first; i < first + elementCount; i++) {
+      XtellaArray.Kind elementKind = arrayKindAt(i);
+      kind = i == first ? elementKind : XtellaArray.join(kind, elementKind);
+    }
+
+    XtellaArray array = new XtellaArray(kind, elementCount);
+
+    for (int i = first; i < first + elementCount; i++) {
+      switch (this.operandStack.tagAt(i)) {
+        case XtellaOperandStack.TAG_INT:
+        case XtellaOperandStack.TAG_LONG:
+          array.appendLong(this.operandStack.longAt(i));
+          break;
+        case XtellaOperandStack.TAG_FLOAT:
+          array.appendFloat(this.operandStack.floatAt(i));
+          break;
+        case XtellaOperandStack.TAG_DOUBLE:
+          array.appendDouble(this.operandStack.doubleAt(i));
+          break;
+        default:
+          array.append(this.operandStack.get(i));
+          break;
+      }
     }
 
+    this.operandStack.drop(elementCount);
+    this.operandStack.pushReference(array);
     this.framePointer++;
   }
 
-  private void executePushArray() {
+  private XtellaArray.Kind arrayKindAt(int index) {
+    switch (this.operandStack.tagAt(index)) {
+      case XtellaOperandStack.TAG_INT:
+      case XtellaOperandStack.TAG_LONG:
+        return XtellaArray.kindOfLong(this.operandStack.longAt(index));
+      case XtellaOperandStack.TAG_FLOAT:
+        return XtellaArray.Kind.FLOAT;
+      case XtellaOperandStack.TAG_DOUBLE:
+        return XtellaArray.Kind.DOUBLE;
+      default:
+        return XtellaArray.kindOf(this.operandStack.get(index));
+    }
+  }
+
+  private void pushArrayElement(XtellaArray array, int index) {
+    switch (array.getKind()) {
+      case BYTE:
+      case INT:
+        this.operandStack.pushInt(array.getInt(index));
+        break;
+      case LONG:
+        this.operandStack.pushIntegral(array.getLong(index));
+        break;
+      case FLOAT:
+        this.operandStack.pushFloat(array.getFloat(index));
+        break;
+      case DOUBLE:
+        this.operandStack.pushDouble(array.getDouble(index));
+        break;
+      default:
+        this.operandStack.push(array.get(index));
+        break;
+    }
+  }
+
+  private void popIntoArray(XtellaArray array, int index, boolean append) {
+    switch (this.operandStack.peekTag()) {
+      case XtellaOperandStack.TAG_INT:
+      case XtellaOperandStack.TAG_LONG:
+        long integral = this.operandStack.popLong();
+
+        if (append) {
+          array.appendLong(integral);
+        } else {
+          array.setLong(index, integral);
+        }
+
+        break;
+      case XtellaOperandStack.TAG_FLOAT:
+        float single = this.operandStack.popFloat();
+
+        if (append) {
+          array.appendFloat(single);
+        } else {
+          array.setFloat(index, single);
+        }
+
+        break;
+      case XtellaOperandStack.TAG_DOUBLE:
+        double value = this.operandStack.popDouble();
+
+        if (append) {
+          array.appendDouble(value);
+        } else {
+          array.setDouble(index, value);
+        }
+
+        break;
+      default:
+        Object element = this.operandStack.pop();
+
+        if (append) {
+          array.append(element);
+        } else {
+          array.set(index, element);
+        }
+
+        break;
+    }
+  }
+
+  private void executeAppendToArray(String arrayName) {
     if (this.operandStack.size() < 1) {
-      throw new IllegalStateException("Not enough operands on the stack for PUSH_ARRAY");
+      throw new IllegalStateException("Not enough operands on the stack for APPEND_TO_ARRAY");
     }
 
-    Object arrayObject = this.operandStack.pop();
+    Object array = getInScope(arrayName);
 
-    if (arrayObject instanceof List<?>) {
-      this.operandStack.add(array);
-    } else {
-      throw new IllegalArgumentException("Invalid operand type for PUSH_ARRAY");
+    if (!(array instanceof XtellaArray)) {
+      throw new IllegalArgumentException("Invalid array for APPEND_TO_ARRAY");
     }
 
-    this.framePointer += array.size();
+    popIntoArray((XtellaArray) array, 0, true);
   }
 
-  private void executePushHashMap() {
-    if (this.operandStack.size() < 1) {
+  private void executePushHashMap(int entryCount) {
+    if (this.operandStack.size() < entryCount * 2) {
       throw new IllegalStateException("Not enough operands on the stack for PUSH_HASHMAP");
     }
 
-    Object hashMapValue = this.operandStack.pop();
+    Object[] entries = new Object[entryCount * 2];
 
-    if (hashMapValue instanceof HashMap<?, ?>) {
-      this.operandStack.push(hashMapValue);
-    } else {
-      throw new IllegalArgumentException("Invalid operand type for PUSH_HASHMAP");
+    for (int i = entries.length - 1; i >= 0; i--) {
+      entries[i] = this.operandStack.pop();
+    }
+
+    XtellaHashMap hashMapValue = new XtellaHashMap(entryCount);
+
+    for (int i = 0; i < entries.length; i += 2) {
+      hashMapValue.put(entries[i], entries[i + 1]);
     }
 
+    this.operandStack.pushReference(hashMapValue);
     this.framePointer++;
   }
 
@@ -205,15 +1244,31 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for ADD");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
+
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushIntegral((long) operand1 + operand2);
+    } else if (tag1 == XtellaOperandStack.TAG_FLOAT && tag2 == XtellaOperandStack.TAG_FLOAT) {
+      float operand1 = this.operandStack.popFloat();
+      float operand2 = this.operandStack.popFloat();
+      this.operandStack.pushFloat(operand1 + operand2);
+    } else if (hasNumericOperands()) {
+      executeNumeric(ADD);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(ADD, 2);
+    } else if (tag1 == XtellaOperandStack.TAG_REFERENCE
+        || tag2 == XtellaOperandStack.TAG_REFERENCE) {
+      Object operand1 = this.operandStack.pop();
+      Object operand2 = this.operandStack.pop();
+
+      if (!(operand1 instanceof CharSequence || operand2 instanceof CharSequence)) {
+        throw new IllegalArgumentException("Invalid operand types for ADD");
+      }
 
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      int result = (int) operand1 + (int) operand2;
-      this.operandStack.push(result);
-    } else if (operand1 instanceof Float && operand2 instanceof Float) {
-      float result = (float) operand1 + (float) operand2;
-      this.operandStack.push(result);
+      this.operandStack.pushReference(XtellaRope.concat(operand2, operand1));
     } else {
       throw new IllegalArgumentException("Invalid operand types for ADD");
     }
@@ -226,15 +1281,21 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for SUBTRACT");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
-
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      int result = (int) operand2 - (int) operand1;
-      this.operandStack.push(result);
-    } else if (operand1 instanceof Float && operand2 instanceof Float) {
-      float result = (float) operand2 - (float) operand1;
-      this.operandStack.push(result);
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
+
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushIntegral((long) operand2 - operand1);
+    } else if (tag1 == XtellaOperandStack.TAG_FLOAT && tag2 == XtellaOperandStack.TAG_FLOAT) {
+      float operand1 = this.operandStack.popFloat();
+      float operand2 = this.operandStack.popFloat();
+      this.operandStack.pushFloat(operand2 - operand1);
+    } else if (hasNumericOperands()) {
+      executeNumeric(SUBTRACT);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(SUBTRACT, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for SUBTRACT");
     }
@@ -247,15 +1308,21 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for MULTIPLY");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
-
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      int result = (int) operand1 * (int) operand2;
-      this.operandStack.push(result);
-    } else if (operand1 instanceof Float && operand2 instanceof Float) {
-      float result = (float) operand1 * (float) operand2;
-      this.operandStack.push(result);
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
+
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushIntegral((long) operand1 * operand2);
+    } else if (tag1 == XtellaOperandStack.TAG_FLOAT && tag2 == XtellaOperandStack.TAG_FLOAT) {
+      float operand1 = this.operandStack.popFloat();
+      float operand2 = this.operandStack.popFloat();
+      this.operandStack.pushFloat(operand1 * operand2);
+    } else if (hasNumericOperands()) {
+      executeNumeric(MULTIPLY);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(MULTIPLY, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for MULTIPLY");
     }
@@ -268,15 +1335,21 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for DIVIDE");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
-
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      int result = (int) operand2 / (int) operand1;
-      this.operandStack.push(result);
-    } else if (operand1 instanceof Float && operand2 instanceof Float) {
-      float result = (float) operand2 / (float) operand1;
-      this.operandStack.push(result);
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
+
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushIntegral((long) operand2 / operand1);
+    } else if (tag1 == XtellaOperandStack.TAG_FLOAT && tag2 == XtellaOperandStack.TAG_FLOAT) {
+      float operand1 = this.operandStack.popFloat();
+      float operand2 = this.operandStack.popFloat();
+      this.operandStack.pushFloat(operand2 / operand1);
+    } else if (hasNumericOperands()) {
+      executeNumeric(DIVIDE);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(DIVIDE, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for DIVIDE");
     }
@@ -289,12 +1362,17 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for MODULO");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
 
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      int result = (int) operand2 % (int) operand1;
-      this.operandStack.push(result);
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushInt(operand2 % operand1);
+    } else if (hasIntegralOperands()) {
+      executeNumeric(MODULO);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(MODULO, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for MODULO");
     }
@@ -307,12 +1385,17 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for BITWISE_AND");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
 
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      int result = (int) operand1 & (int) operand2;
-      this.operandStack.push(result);
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushInt(operand1 & operand2);
+    } else if (hasIntegralOperands()) {
+      executeNumeric(BITWISE_AND);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(BITWISE_AND, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for BITWISE_AND");
     }
@@ -325,12 +1408,17 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for BITWISE_OR");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
 
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      int result = (int) operand1 | (int) operand2;
-      this.operandStack.push(result);
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushInt(operand1 | operand2);
+    } else if (hasIntegralOperands()) {
+      executeNumeric(BITWISE_OR);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(BITWISE_OR, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for BITWISE_OR");
     }
@@ -343,12 +1431,17 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for BITWISE_XOR");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
 
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      int result = (int) operand1 ^ (int) operand2;
-      this.operandStack.push(result);
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushInt(operand1 ^ operand2);
+    } else if (hasIntegralOperands()) {
+      executeNumeric(BITWISE_XOR);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(BITWISE_XOR, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for BITWISE_XOR");
     }
@@ -361,12 +1454,10 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for SHIFT_LEFT");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
-
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      int result = (int) operand2 << (int) operand1;
-      this.operandStack.push(result);
+    if (hasIntegralOperands()) {
+      executeNumeric(SHIFT_LEFT);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(SHIFT_LEFT, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for SHIFT_LEFT");
     }
@@ -379,12 +1470,10 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for SHIFT_RIGHT");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
-
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      int result = (int) operand2 >> (int) operand1;
-      this.operandStack.push(result);
+    if (hasIntegralOperands()) {
+      executeNumeric(SHIFT_RIGHT);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(SHIFT_RIGHT, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for SHIFT_RIGHT");
     }
@@ -392,27 +1481,95 @@ public class XtellaVM {
     this.framePointer++;
   }
 
+  private void executeLogicalAnd() {
+    if (this.operandStack.size() < 2) {
+      throw new IllegalStateException("Not enough operands on the stack for LOGICAL_AND");
+    }
+
+    if (this.operandStack.peekTag(0) == XtellaOperandStack.TAG_BOOLEAN
+        && this.operandStack.peekTag(1) == XtellaOperandStack.TAG_BOOLEAN) {
+      boolean operand1 = this.operandStack.popBoolean();
+      boolean operand2 = this.operandStack.popBoolean();
+      this.operandStack.pushBoolean(operand2 && operand1);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(LOGICAL_AND, 2);
+    } else {
+      throw new IllegalArgumentException("Invalid operand types for LOGICAL_AND");
+    }
+
+    this.framePointer++;
+  }
+
+  private void executeLogicalOr() {
+    if (this.operandStack.size() < 2) {
+      throw new IllegalStateException("Not enough operands on the stack for LOGICAL_OR");
+    }
+
+    if (this.operandStack.peekTag(0) == XtellaOperandStack.TAG_BOOLEAN
+        && this.operandStack.peekTag(1) == XtellaOperandStack.TAG_BOOLEAN) {
+      boolean operand1 = this.operandStack.popBoolean();
+      boolean operand2 = this.operandStack.popBoolean();
+      this.operandStack.pushBoolean(operand2 || operand1);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(LOGICAL_OR, 2);
+    } else {
+      throw new IllegalArgumentException("Invalid operand types for LOGICAL_OR");
+    }
+
+    this.framePointer++;
+  }
+
+  private void executeLogicalNot() {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for LOGICAL_NOT");
+    }
+
+    if (this.operandStack.peekTag() == XtellaOperandStack.TAG_BOOLEAN) {
+      this.operandStack.pushBoolean(!this.operandStack.popBoolean());
+    } else if (isObjectOperand(1)) {
+      invokeOperatorMethod(LOGICAL_NOT, 1);
+    } else {
+      throw new IllegalArgumentException("Invalid operand type for LOGICAL_NOT");
+    }
+
+    this.framePointer++;
+  }
+
   private void executeEqual() {
     if (this.operandStack.size() < 2) {
       throw new IllegalStateException("Not enough operands on the stack for EQUAL");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
-
-    boolean result;
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
+
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushBoolean(operand1 == operand2);
+    } else if (tag1 == XtellaOperandStack.TAG_FLOAT && tag2 == XtellaOperandStack.TAG_FLOAT) {
+      float operand1 = this.operandStack.popFloat();
+      float operand2 = this.operandStack.popFloat();
+      this.operandStack.pushBoolean(Float.compare(operand1, operand2) == 0);
+    } else if (hasNumericOperands()) {
+      executeNumeric(EQUAL);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(EQUAL, 2);
+    } else if (tag1 == XtellaOperandStack.TAG_REFERENCE
+        && tag2 == XtellaOperandStack.TAG_REFERENCE) {
+      Object operand1 = this.operandStack.popReference();
+      Object operand2 = this.operandStack.popReference();
+
+      if (!(operand1 instanceof CharSequence && operand2 instanceof CharSequence)) {
+        throw new IllegalArgumentException("Invalid operand types for EQUAL");
+      }
 
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      result = ((int) operand1) == ((int) operand2);
-    } else if (operand1 instanceof Float && operand2 instanceof Float) {
-      result = Float.compare((float) operand1, (float) operand2) == 0;
-    } else if (operand1 instanceof String && operand2 instanceof String) {
-      result = operand1.equals(operand2);
+      this.operandStack.pushBoolean(
+          XtellaRope.contentEquals((CharSequence) operand1, (CharSequence) operand2));
     } else {
       throw new IllegalArgumentException("Invalid operand types for EQUAL");
     }
 
-    this.operandStack.push(result);
     this.framePointer++;
   }
 
@@ -421,22 +1578,36 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for NOT_EQUAL");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
-
-    boolean result;
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
+
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushBoolean(operand1 != operand2);
+    } else if (tag1 == XtellaOperandStack.TAG_FLOAT && tag2 == XtellaOperandStack.TAG_FLOAT) {
+      float operand1 = this.operandStack.popFloat();
+      float operand2 = this.operandStack.popFloat();
+      this.operandStack.pushBoolean(Float.compare(operand1, operand2) != 0);
+    } else if (hasNumericOperands()) {
+      executeNumeric(NOT_EQUAL);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(NOT_EQUAL, 2);
+    } else if (tag1 == XtellaOperandStack.TAG_REFERENCE
+        && tag2 == XtellaOperandStack.TAG_REFERENCE) {
+      Object operand1 = this.operandStack.popReference();
+      Object operand2 = this.operandStack.popReference();
+
+      if (!(operand1 instanceof CharSequence && operand2 instanceof CharSequence)) {
+        throw new IllegalArgumentException("Invalid operand types for NOT_EQUAL");
+      }
 
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      result = ((int) operand1) != ((int) operand2);
-    } else if (operand1 instanceof Float && operand2 instanceof Float) {
-      result = Float.compare((float) operand1, (float) operand2) != 0;
-    } else if (operand1 instanceof String && operand2 instanceof String) {
-      result = !operand1.equals(operand2);
+      this.operandStack.pushBoolean(
+          !XtellaRope.contentEquals((CharSequence) operand1, (CharSequence) operand2));
     } else {
       throw new IllegalArgumentException("Invalid operand types for NOT_EQUAL");
     }
 
-    this.operandStack.push(result);
     this.framePointer++;
   }
 
@@ -445,20 +1616,25 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for LESS_THAN");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
-
-    boolean result;
-
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      result = ((int) operand2) < ((int) operand1);
-    } else if (operand1 instanceof Float && operand2 instanceof Float) {
-      result = ((float) operand2) < ((float) operand1);
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
+
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushBoolean(operand2 < operand1);
+    } else if (tag1 == XtellaOperandStack.TAG_FLOAT && tag2 == XtellaOperandStack.TAG_FLOAT) {
+      float operand1 = this.operandStack.popFloat();
+      float operand2 = this.operandStack.popFloat();
+      this.operandStack.pushBoolean(operand2 < operand1);
+    } else if (hasNumericOperands()) {
+      executeNumeric(LESS_THAN);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(LESS_THAN, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for LESS_THAN");
     }
 
-    this.operandStack.push(result);
     this.framePointer++;
   }
 
@@ -467,20 +1643,25 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for LESS_THAN_OR_EQUAL");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
-
-    boolean result;
-
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      result = ((int) operand2) <= ((int) operand1);
-    } else if (operand1 instanceof Float && operand2 instanceof Float) {
-      result = ((float) operand2) <= ((float) operand1);
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
+
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushBoolean(operand2 <= operand1);
+    } else if (tag1 == XtellaOperandStack.TAG_FLOAT && tag2 == XtellaOperandStack.TAG_FLOAT) {
+      float operand1 = this.operandStack.popFloat();
+      float operand2 = this.operandStack.popFloat();
+      this.operandStack.pushBoolean(operand2 <= operand1);
+    } else if (hasNumericOperands()) {
+      executeNumeric(LESS_THAN_OR_EQUAL);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(LESS_THAN_OR_EQUAL, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for LESS_THAN_OR_EQUAL");
     }
 
-    this.operandStack.push(result);
     this.framePointer++;
   }
 
@@ -489,20 +1670,25 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for GREATER_THAN");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
-
-    boolean result;
-
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      result = ((int) operand2) > ((int) operand1);
-    } else if (operand1 instanceof Float && operand2 instanceof Float) {
-      result = ((float) operand2) > ((float) operand1);
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
+
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushBoolean(operand2 > operand1);
+    } else if (tag1 == XtellaOperandStack.TAG_FLOAT && tag2 == XtellaOperandStack.TAG_FLOAT) {
+      float operand1 = this.operandStack.popFloat();
+      float operand2 = this.operandStack.popFloat();
+      this.operandStack.pushBoolean(operand2 > operand1);
+    } else if (hasNumericOperands()) {
+      executeNumeric(GREATER_THAN);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(GREATER_THAN, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for GREATER_THAN");
     }
 
-    this.operandStack.push(result);
     this.framePointer++;
   }
 
@@ -511,74 +1697,640 @@ public class XtellaVM {
       throw new IllegalStateException("Not enough operands on the stack for GREATER_THAN_OR_EQUAL");
     }
 
-    Object operand1 = this.operandStack.pop();
-    Object operand2 = this.operandStack.pop();
-
-    boolean result;
-
-    if (operand1 instanceof Integer && operand2 instanceof Integer) {
-      result = ((int) operand2) >= ((int) operand1);
-    } else if (operand1 instanceof Float && operand2 instanceof Float) {
-      result = ((float) operand2) >= ((float) operand1);
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
+
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      int operand1 = this.operandStack.popInt();
+      int operand2 = this.operandStack.popInt();
+      this.operandStack.pushBoolean(operand2 >= operand1);
+    } else if (tag1 == XtellaOperandStack.TAG_FLOAT && tag2 == XtellaOperandStack.TAG_FLOAT) {
+      float operand1 = this.operandStack.popFloat();
+      float operand2 = this.operandStack.popFloat();
+      this.operandStack.pushBoolean(operand2 >= operand1);
+    } else if (hasNumericOperands()) {
+      executeNumeric(GREATER_THAN_OR_EQUAL);
+    } else if (isObjectOperand(2)) {
+      invokeOperatorMethod(GREATER_THAN_OR_EQUAL, 2);
     } else {
       throw new IllegalArgumentException("Invalid operand types for GREATER_THAN_OR_EQUAL");
     }
 
-    this.operandStack.push(result);
     this.framePointer++;
   }
 
-  private void executeReturn() {
+  private int executeReturn() {
     if (this.framePointer == 0) {
       throw new IllegalStateException("Cannot RETURN from the main frame");
     }
 
-    int returnIP = (int) this.operandStack.pop();
-    this.instructionPointer = returnIP;
+    if (this.operandStack.peekTag() != XtellaOperandStack.TAG_INT) {
+      throw new IllegalArgumentException("Invalid return address for RETURN");
+    }
+
+    int returnIP = this.operandStack.popInt();
 
     dropFrame();
+    return returnIP;
   }
 
-  private void executeJump() {
-    int targetIndex = (int) this.operandStack.pop();
-    this.instructionPointer = targetIndex;
+  private static int switchTarget(int[] code, int table, int index) {
+    return code[table + 2 * index + 1];
   }
 
-  private void executeJumpIfTrue() {
+  private int executeTableSwitch(int[] code, int ip) {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for TABLE_SWITCH");
+    }
 
-    boolean condition = (boolean) this.operandStack.pop();
-    int targetIndex = (int) this.operandStack.pop();
+    int low = code[ip];
+    int count = code[ip + 1];
+    int index = count;
 
-    if (condition) {
+    if (this.operandStack.peekTag() == XtellaOperandStack.TAG_INT) {
+      long offset = (long) this.operandStack.popInt() - low;
 
-      this.instructionPointer = targetIndex;
+      if (offset >= 0 && offset < count) {
+        index = (int) offset;
+      }
     } else {
-
-      this.instructionPointer++;
+      this.operandStack.pop();
     }
+
+    return switchTarget(code, ip + 2, index);
   }
 
-  private void executeJumpIfFalse() {
+  private int executeLookupSwitch(int[] code, int ip, int[] keys) {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for LOOKUP_SWITCH");
+    }
 
-    boolean condition = (boolean) this.operandStack.pop();
-    int targetIndex = (int) this.operandStack.pop();
+    int index = keys.length;
 
-    if (!condition) {
+    if (this.operandStack.peekTag() == XtellaOperandStack.TAG_INT) {
+      int position = Arrays.binarySearch(keys, this.operandStack.popInt());
 
-      this.instructionPointer = targetIndex;
+      if (position >= 0) {
+        index = position;
+      }
     } else {
+      this.operandStack.pop();
+    }
+
+    return switchTarget(code, ip + 1, index);
+  }
+
+  private int executeStringSwitch(int[] code, int ip, XtellaStringSwitch table) {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for STRING_SWITCH");
+    }
+
+    int index = table.indexOf(this.operandStack.pop());
+    return switchTarget(code, ip + 1, index >= 0 ? index : table.size());
+  }
+
+  private int executeRegexSwitch(int[] code, int ip, XtellaRegexSwitch table) {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for REGEX_SWITCH");
+    }
+
+    int index = table.indexOf(this.operandStack.pop());
+    return switchTarget(code, ip + 1, index >= 0 ? index : table.size());
+  }
+
+  private int executeJumpIfTrue(int targetIndex, int nextIndex) {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for JUMP_IF_TRUE");
+    }
+
+    if (this.operandStack.peekTag() != XtellaOperandStack.TAG_BOOLEAN) {
+      throw new IllegalArgumentException("Invalid operand type for JUMP_IF_TRUE");
+    }
+
+    boolean condition = this.operandStack.popBoolean();
+
+    return condition ? targetIndex : nextIndex;
+  }
+
+  private void executeGetIter() {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for GET_ITER");
+    }
+
+    Iterator<?> iterator = XtellaIterators.of(this.operandStack.pop());
+
+    if (iterator == null) {
+      throw new IllegalArgumentException("Invalid operand type for GET_ITER");
+    }
+
+    this.operandStack.pushReference(iterator);
+    this.framePointer++;
+  }
+
+  private int executeForNext(int targetIndex, int nextIndex) {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for FOR_NEXT");
+    }
+
+    Object operand = this.operandStack.peek();
+
+    if (operand instanceof XtellaArray.Cursor) {
+      XtellaArray.Cursor cursor = (XtellaArray.Cursor) operand;
+
+      if (!cursor.hasNext()) {
+        this.operandStack.pop();
+        return targetIndex;
+      }
 
-      this.instructionPointer++;
+      pushArrayElement(cursor.getArray(), cursor.advance());
+      this.framePointer++;
+      return nextIndex;
     }
+
+    if (!(operand instanceof Iterator)) {
+      throw new IllegalArgumentException("Invalid operand type for FOR_NEXT");
+    }
+
+    Iterator<?> iterator = (Iterator<?>) operand;
+
+    if (!iterator.hasNext()) {
+      this.operandStack.pop();
+      return targetIndex;
+    }
+
+    this.operandStack.push(iterator.next());
+    this.framePointer++;
+    return nextIndex;
+  }
+
+  private void executeMakeRange() {
+    if (this.operandStack.size() < 3) {
+      throw new IllegalStateException("Not enough operands on the stack for MAKE_RANGE");
+    }
+
+    Object step = this.operandStack.pop();
+    Object end = this.operandStack.pop();
+    Object start = this.operandStack.pop();
+
+    if (!isRangeBound(start) || !isRangeBound(end) || !isRangeBound(step)) {
+      throw new IllegalArgumentException("Invalid operand types for MAKE_RANGE");
+    }
+
+    this.operandStack.pushReference(
+        new XtellaRange(
+            ((Number) start).longValue(), ((Number) end).longValue(), ((Number) step).longValue()));
+    this.framePointer++;
   }
 
-  private void executeLoadVariable() {
+  private static boolean isRangeBound(Object value) {
+    return value instanceof Integer || value instanceof Long;
+  }
+
+  private int executeJumpIfFalse(int targetIndex, int nextIndex) {
     if (this.operandStack.size() < 1) {
-      throw new IllegalStateException("Not enough operands on the stack for LOAD_VARIABLE");
+      throw new IllegalStateException("Not enough operands on the stack for JUMP_IF_FALSE");
+    }
+
+    if (this.operandStack.peekTag() != XtellaOperandStack.TAG_BOOLEAN) {
+      throw new IllegalArgumentException("Invalid operand type for JUMP_IF_FALSE");
+    }
+
+    boolean condition = this.operandStack.popBoolean();
+
+    return condition ? nextIndex : targetIndex;
+  }
+
+  private int executeLoadLocalLoadLocalLessThanJumpIfFalse(
+      int leftSlot, int rightSlot, int targetIndex, int nextIndex) {
+    int left = this.localBase + leftSlot;
+    int right = this.localBase + rightSlot;
+
+    if (this.operandStack.tagAt(left) == XtellaOperandStack.TAG_INT
+        && this.operandStack.tagAt(right) == XtellaOperandStack.TAG_INT) {
+      return this.operandStack.intAt(left) < this.operandStack.intAt(right)
+          ? nextIndex
+          : targetIndex;
+    }
+
+    executeLoadLocal(leftSlot);
+    executeLoadLocal(rightSlot);
+    executeLessThan();
+    return executeJumpIfFalse(targetIndex, nextIndex);
+  }
+
+  private int executeLoadLocalPushIntLessThanJumpIfFalse(
+      int slot, int intValue, int targetIndex, int nextIndex) {
+    int index = this.localBase + slot;
+
+    if (this.operandStack.tagAt(index) == XtellaOperandStack.TAG_INT) {
+      return this.operandStack.intAt(index) < intValue ? nextIndex : targetIndex;
+    }
+
+    executeLoadLocal(slot);
+    executePushInt(intValue);
+    executeLessThan();
+    return executeJumpIfFalse(targetIndex, nextIndex);
+  }
+
+  private void executeLoadLocalPushIntAddStoreLocal(int sourceSlot, int intValue, int targetSlot) {
+    int source = this.localBase + sourceSlot;
+
+    if (this.operandStack.tagAt(source) == XtellaOperandStack.TAG_INT) {
+      this.operandStack.setIntegral(
+          this.localBase + targetSlot, (long) this.operandStack.intAt(source) + intValue);
+      return;
+    }
+
+    executeLoadLocal(sourceSlot);
+    executePushInt(intValue);
+    executeAdd();
+    executeStoreLocal(targetSlot);
+  }
+
+  private void executeLoadLocalLoadLocalAddStoreLocal(
+      int leftSlot, int rightSlot, int targetSlot) {
+    int left = this.localBase + leftSlot;
+    int right = this.localBase + rightSlot;
+
+    if (this.operandStack.tagAt(left) == XtellaOperandStack.TAG_INT
+        && this.operandStack.tagAt(right) == XtellaOperandStack.TAG_INT) {
+      this.operandStack.setIntegral(
+          this.localBase + targetSlot,
+          (long) this.operandStack.intAt(left) + this.operandStack.intAt(right));
+      return;
+    }
+
+    executeLoadLocal(leftSlot);
+    executeLoadLocal(rightSlot);
+    executeAdd();
+    executeStoreLocal(targetSlot);
+  }
+
+  private int executeLoadLocalRegexMatchConstantJumpIfFalse(
+      int slot, Pattern pattern, int targetIndex, int nextIndex) {
+    int index = this.localBase + slot;
+
+    if (this.operandStack.tagAt(index) == XtellaOperandStack.TAG_REFERENCE
+        && this.operandStack.referenceAt(index) instanceof CharSequence) {
+      CharSequence input = (CharSequence) this.operandStack.referenceAt(index);
+      return pattern.matcher(input).matches() ? nextIndex : targetIndex;
+    }
+
+    executeLoadLocal(slot);
+    executeRegexMatchConstant(pattern);
+    return executeJumpIfFalse(targetIndex, nextIndex);
+  }
+
+  private int[] quicken(
+      XtellaBytecodeChunk chunk, int[] code, int offset, int intOpcode, int floatOpcode) {
+    if (!this.quickening || this.operandStack.size() < 2) {
+      return code;
+    }
+
+    byte tag1 = this.operandStack.peekTag(0);
+    byte tag2 = this.operandStack.peekTag(1);
+
+    if (tag1 == XtellaOperandStack.TAG_INT && tag2 == XtellaOperandStack.TAG_INT) {
+      return chunk.rewrite(offset, code[offset], intOpcode);
+    } else if (tag1 == XtellaOperandStack.TAG_FLOAT && tag2 == XtellaOperandStack.TAG_FLOAT) {
+      return chunk.rewrite(offset, code[offset], floatOpcode);
+    }
+
+    return code;
+  }
+
+  private boolean hasOperandTags(byte tag) {
+    return this.operandStack.size() >= 2
+        && this.operandStack.peekTag(0) == tag
+        && this.operandStack.peekTag(1) == tag;
+  }
+
+  private boolean executeAddInt() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_INT)) {
+      return false;
+    }
+
+    int operand1 = this.operandStack.popInt();
+    int operand2 = this.operandStack.popInt();
+    this.operandStack.pushIntegral((long) operand2 + operand1);
+    return true;
+  }
+
+  private boolean executeAddFloat() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_FLOAT)) {
+      return false;
+    }
+
+    float operand1 = this.operandStack.popFloat();
+    float operand2 = this.operandStack.popFloat();
+    this.operandStack.pushFloat(operand2 + operand1);
+    return true;
+  }
+
+  private boolean executeSubtractInt() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_INT)) {
+      return false;
+    }
+
+    int operand1 = this.operandStack.popInt();
+    int operand2 = this.operandStack.popInt();
+    this.operandStack.pushIntegral((long) operand2 - operand1);
+    return true;
+  }
+
+  private boolean executeSubtractFloat() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_FLOAT)) {
+      return false;
+    }
+
+    float operand1 = this.operandStack.popFloat();
+    float operand2 = this.operandStack.popFloat();
+    this.operandStack.pushFloat(operand2 - operand1);
+    return true;
+  }
+
+  private boolean executeMultiplyInt() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_INT)) {
+      return false;
+    }
+
+    int operand1 = this.operandStack.popInt();
+    int operand2 = this.operandStack.popInt();
+    this.operandStack.pushIntegral((long) operand2 * operand1);
+    return true;
+  }
+
+  private boolean executeMultiplyFloat() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_FLOAT)) {
+      return false;
+    }
+
+    float operand1 = this.operandStack.popFloat();
+    float operand2 = this.operandStack.popFloat();
+    this.operandStack.pushFloat(operand2 * operand1);
+    return true;
+  }
+
+  private boolean executeEqualInt() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_INT)) {
+      return false;
+    }
+
+    int operand1 = this.operandStack.popInt();
+    int operand2 = this.operandStack.popInt();
+    this.operandStack.pushBoolean(operand2 == operand1);
+    return true;
+  }
+
+  private boolean executeEqualFloat() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_FLOAT)) {
+      return false;
+    }
+
+    float operand1 = this.operandStack.popFloat();
+    float operand2 = this.operandStack.popFloat();
+    this.operandStack.pushBoolean(Float.compare(operand2, operand1) == 0);
+    return true;
+  }
+
+  private boolean executeNotEqualInt() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_INT)) {
+      return false;
+    }
+
+    int operand1 = this.operandStack.popInt();
+    int operand2 = this.operandStack.popInt();
+    this.operandStack.pushBoolean(operand2 != operand1);
+    return true;
+  }
+
+  private boolean executeNotEqualFloat() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_FLOAT)) {
+      return false;
+    }
+
+    float operand1 = this.operandStack.popFloat();
+    float operand2 = this.operandStack.popFloat();
+    this.operandStack.pushBoolean(Float.compare(operand2, operand1) != 0);
+    return true;
+  }
+
+  private boolean executeLessThanInt() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_INT)) {
+      return false;
+    }
+
+    int operand1 = this.operandStack.popInt();
+    int operand2 = this.operandStack.popInt();
+    this.operandStack.pushBoolean(operand2 < operand1);
+    return true;
+  }
+
+  private boolean executeLessThanFloat() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_FLOAT)) {
+      return false;
+    }
+
+    float operand1 = this.operandStack.popFloat();
+    float operand2 = this.operandStack.popFloat();
+    this.operandStack.pushBoolean(operand2 < operand1);
+    return true;
+  }
+
+  private boolean executeLessThanOrEqualInt() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_INT)) {
+      return false;
+    }
+
+    int operand1 = this.operandStack.popInt();
+    int operand2 = this.operandStack.popInt();
+    this.operandStack.pushBoolean(operand2 <= operand1);
+    return true;
+  }
+
+  private boolean executeLessThanOrEqualFloat() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_FLOAT)) {
+      return false;
+    }
+
+    float operand1 = this.operandStack.popFloat();
+    float operand2 = this.operandStack.popFloat();
+    this.operandStack.pushBoolean(operand2 <= operand1);
+    return true;
+  }
+
+  private boolean executeGreaterThanInt() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_INT)) {
+      return false;
+    }
+
+    int operand1 = this.operandStack.popInt();
+    int operand2 = this.operandStack.popInt();
+    this.operandStack.pushBoolean(operand2 > operand1);
+    return true;
+  }
+
+  private boolean executeGreaterThanFloat() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_FLOAT)) {
+      return false;
+    }
+
+    float operand1 = this.operandStack.popFloat();
+    float operand2 = this.operandStack.popFloat();
+    this.operandStack.pushBoolean(operand2 > operand1);
+    return true;
+  }
+
+  private boolean executeGreaterThanOrEqualInt() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_INT)) {
+      return false;
+    }
+
+    int operand1 = this.operandStack.popInt();
+    int operand2 = this.operandStack.popInt();
+    this.operandStack.pushBoolean(operand2 >= operand1);
+    return true;
+  }
+
+  private boolean executeGreaterThanOrEqualFloat() {
+    if (!hasOperandTags(XtellaOperandStack.TAG_FLOAT)) {
+      return false;
+    }
+
+    float operand1 = this.operandStack.popFloat();
+    float operand2 = this.operandStack.popFloat();
+    this.operandStack.pushBoolean(operand2 >= operand1);
+    return true;
+  }
+
+  private boolean isIntegralOperand(int depth) {
+    switch (this.operandStack.peekTag(depth)) {
+      case XtellaOperandStack.TAG_INT:
+      case XtellaOperandStack.TAG_LONG:
+        return true;
+      case XtellaOperandStack.TAG_REFERENCE:
+        return this.operandStack.referenceAt(this.operandStack.size() - 1 - depth)
+            instanceof BigInteger;
+      default:
+        return false;
+    }
+  }
+
+  private boolean isFloatingOperand(int depth) {
+    byte tag = this.operandStack.peekTag(depth);
+    return tag == XtellaOperandStack.TAG_FLOAT || tag == XtellaOperandStack.TAG_DOUBLE;
+  }
+
+  private boolean hasIntegralOperands() {
+    return isIntegralOperand(0) && isIntegralOperand(1);
+  }
+
+  private boolean isNumericOperand(int depth) {
+    return isIntegralOperand(depth) || isFloatingOperand(depth);
+  }
+
+  private boolean hasNumericOperands() {
+    return isNumericOperand(0) && isNumericOperand(1);
+  }
+
+  private double popAsDouble() {
+    if (isFloatingOperand(0)) {
+      return this.operandStack.popDouble();
+    } else if (this.operandStack.peekTag(0) == XtellaOperandStack.TAG_REFERENCE) {
+      return ((BigInteger) this.operandStack.popReference()).doubleValue();
+    }
+
+    return this.operandStack.popLong();
+  }
+
+  private void executeNumeric(int opcode) {
+    boolean comparison = XtellaNumbers.isComparison(opcode);
+
+    if (isFloatingOperand(0) || isFloatingOperand(1)) {
+      double operand1 = popAsDouble();
+      double operand2 = popAsDouble();
+
+      if (comparison) {
+        this.operandStack.pushBoolean(XtellaNumbers.compare(opcode, operand2, operand1));
+      } else {
+        this.operandStack.pushDouble(XtellaNumbers.apply(opcode, operand2, operand1));
+      }
+    } else if (this.operandStack.peekTag(0) != XtellaOperandStack.TAG_REFERENCE
+        && this.operandStack.peekTag(1) != XtellaOperandStack.TAG_REFERENCE) {
+      long operand1 = this.operandStack.popLong();
+      long operand2 = this.operandStack.popLong();
+
+      if (comparison) {
+        this.operandStack.pushBoolean(XtellaNumbers.compare(opcode, operand2, operand1));
+        return;
+      }
+
+      try {
+        this.operandStack.pushIntegral(XtellaNumbers.applyExact(opcode, operand2, operand1));
+      } catch (ArithmeticException e) {
+        this.operandStack.push(
+            XtellaNumbers.apply(
+                opcode, BigInteger.valueOf(operand2), BigInteger.valueOf(operand1)));
+      }
+    } else {
+      Object operand1 = this.operandStack.pop();
+      Object operand2 = this.operandStack.pop();
+      this.operandStack.push(XtellaNumbers.evaluate(opcode, operand2, operand1));
+    }
+  }
+
+  private boolean isObjectOperand(int arity) {
+    int index = this.operandStack.size() - arity;
+
+    return this.operandStack.tagAt(index) == XtellaOperandStack.TAG_REFERENCE
+        && this.operandStack.referenceAt(index) instanceof XtellaObject;
+  }
+
+  private void invokeOperatorMethod(int opcode, int arity) {
+    XtellaObject receiver =
+        (XtellaObject) this.operandStack.referenceAt(this.operandStack.size() - arity);
+    XtellaInlineCache cache =
+        this.chunk.getInlineCache(this.instructionPointer, operatorMethodName(opcode));
+    XtellaObject method = cache.lookup(receiver);
+
+    if (method == null || method.getBytecodeChunk().getCodeLength() == 0) {
+      throw new IllegalArgumentException(
+          "Operator " + cache.getMethodName() + " is not implemented for " + receiver.getType());
+    }
+
+    invokeChunk(method.getBytecodeChunk(), arity);
+  }
+
+  private void invokeChunk(XtellaBytecodeChunk callee, int argumentCount) {
+    XtellaBytecodeChunk callerChunk = this.chunk;
+    int callerInstructionPointer = this.instructionPointer;
+    int callerLocalBase = this.localBase;
+    int frameBase = this.operandStack.size() - argumentCount;
+
+    try {
+      execute(callee, this.remainingBudget, frameBase);
+
+      Object result =
+          this.operandStack.size() > frameBase + callee.getLocalCount()
+              ? this.operandStack.pop()
+              : null;
+
+      this.operandStack.drop(this.operandStack.size() - frameBase);
+
+      if (result == null) {
+        throw new IllegalStateException("Method chunk returned no value");
+      }
+
+      this.operandStack.push(result);
+    } finally {
+      this.chunk = callerChunk;
+      this.instructionPointer = callerInstructionPointer;
+      this.localBase = callerLocalBase;
     }
+  }
 
-    Object variableName = this.operandStack.pop();
-    Object variableValue = getInScope((String) variableName);
+  private void executeLoadVariable(String variableName) {
+    Object variableValue = getInScope(variableName);
 
     if (variableValue == null) {
       throw new IllegalArgumentException("Variable not found: " + variableName);
@@ -588,30 +2340,52 @@ public class XtellaVM {
     this.framePointer++;
   }
 
-  private void executeStoreVariable() {
-    if (this.operandStack.size() < 2) {
+  private void executeStoreVariable(String variableName) {
+    if (this.operandStack.size() < 1) {
       throw new IllegalStateException("Not enough operands on the stack for STORE_VARIABLE");
     }
 
-    Object variableName = this.operandStack.pop();
     Object variableValue = this.operandStack.pop();
 
-    putInScope((String) variableName, variableValue);
+    putInScope(variableName, variableValue);
     this.framePointer++;
   }
 
-  private void executeLoadVariableFromArray() {
-    if (this.operandStack.size() < 2) {
+  private void executeLoadLocal(int slot) {
+    int index = this.localBase + slot;
+
+    if (this.operandStack.tagAt(index) == XtellaOperandStack.TAG_NONE) {
+      throw new IllegalStateException("Local variable in slot " + slot + " is not initialized");
+    }
+
+    this.operandStack.load(index);
+  }
+
+  private void executeStoreLocal(int slot) {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for STORE_LOCAL");
+    }
+
+    this.operandStack.store(this.localBase + slot);
+  }
+
+  private void executeLoadVariableFromArray(String arrayName) {
+    if (this.operandStack.size() < 1) {
       throw new IllegalStateException(
           "Not enough operands on the stack for LOAD_VARIABLE_FROM_ARRAY");
     }
 
-    int index = (int) this.operandStack.pop();
-    Object arrayName = this.operandStack.pop();
+    if (this.operandStack.peekTag() != XtellaOperandStack.TAG_INT) {
+      throw new IllegalArgumentException("Invalid index type for array access");
+    }
+
+    int index = this.operandStack.popInt();
 
-    Object array = getInScope((String) arrayName);
+    Object array = getInScope(arrayName);
 
-    if (array instanceof Object[] && index >= 0 && index < ((Object[]) array).size()) {
+    if (array instanceof XtellaArray && index >= 0 && index < ((XtellaArray) array).size()) {
+      pushArrayElement((XtellaArray) array, index);
+    } else if (array instanceof Object[] && index >= 0 && index < ((Object[]) array).length) {
       Object value = ((Object[]) array)[index];
       this.operandStack.push(value);
     } else {
@@ -621,16 +2395,32 @@ public class XtellaVM {
     this.framePointer++;
   }
 
-  private void executeLoadVariableFromHashMap() {
-    if (this.operandStack.size() < 2) {
+  private void executeLoadVariableFromHashMap(String mapName) {
+    if (this.operandStack.size() < 1) {
       throw new IllegalStateException(
           "Not enough operands on the stack for LOAD_VARIABLE_FROM_HASHMAP");
     }
 
-    Object key = this.operandStack.pop();
-    Object mapName = this.operandStack.pop();
+    Object map = getInScope(mapName);
+
+    if (map instanceof XtellaHashMap) {
+      XtellaHashMap hashMap = (XtellaHashMap) map;
+      int entry =
+          this.operandStack.peekTag() == XtellaOperandStack.TAG_INT
+              ? hashMap.indexOfInt(this.operandStack.popInt())
+              : hashMap.indexOf(this.operandStack.pop());
+
+      if (entry < 0) {
+        throw new IllegalArgumentException(
+            "Invalid HashMap or key for LOAD_VARIABLE_FROM_HASHMAP");
+      }
+
+      this.operandStack.push(hashMap.valueAt(entry));
+      this.framePointer++;
+      return;
+    }
 
-    Object map = getInScope((String) mapName);
+    Object key = textKey(this.operandStack.pop());
 
     if (map instanceof HashMap && ((HashMap<?, ?>) map).containsKey(key)) {
       Object value = ((HashMap<?, ?>) map).get(key);
@@ -642,20 +2432,21 @@ public class XtellaVM {
     this.framePointer++;
   }
 
-  private void executeStoreVariableIntoHashMap() {
-    if (this.operandStack.size() < 3) {
+  private void executeStoreVariableIntoHashMap(String mapName) {
+    if (this.operandStack.size() < 2) {
       throw new IllegalStateException(
           "Not enough operands on the stack for STORE_VARIABLE_INTO_HASHMAP");
     }
 
     Object value = this.operandStack.pop();
     Object key = this.operandStack.pop();
-    Object mapName = this.operandStack.pop();
 
-    Object map = getInScope((String) mapName);
+    Object map = getInScope(mapName);
 
-    if (map instanceof HashMap) {
-      ((HashMap<Object, Object>) map).put(key, value);
+    if (map instanceof XtellaHashMap) {
+      ((XtellaHashMap) map).put(key, value);
+    } else if (map instanceof HashMap) {
+      ((HashMap<Object, Object>) map).put(textKey(key), value);
     } else {
       throw new IllegalArgumentException("Invalid HashMap for STORE_VARIABLE_IN_HASHMAP");
     }
@@ -663,19 +2454,29 @@ public class XtellaVM {
     this.framePointer++;
   }
 
-  private void executeStoreVariableIntoArray() {
-    if (this.operandStack.size() < 3) {
+  private static Object textKey(Object key) {
+    return key instanceof CharSequence ? key.toString() : key;
+  }
+
+  private void executeStoreVariableIntoArray(String arrayName) {
+    if (this.operandStack.size() < 2) {
       throw new IllegalStateException(
           "Not enough operands on the stack for STORE_VARIABLE_INTO_ARRAY");
     }
 
-    Object value = this.operandStack.pop();
-    int index = (int) this.operandStack.pop();
-    Object arrayName = this.operandStack.pop();
+    if (this.operandStack.peekTag(1) != XtellaOperandStack.TAG_INT) {
+      throw new IllegalArgumentException("Invalid index type for array access");
+    }
 
-    Object array = getInScope((String) arrayName);
+    int index = this.operandStack.intAt(this.operandStack.size() - 2);
+    Object array = getInScope(arrayName);
 
-    if (array instanceof Object[] && index >= 0 && index < ((Object[]) array).size()) {
+    if (array instanceof XtellaArray && index >= 0 && index < ((XtellaArray) array).size()) {
+      popIntoArray((XtellaArray) array, index, false);
+      this.operandStack.popInt();
+    } else if (array instanceof Object[] && index >= 0 && index < ((Object[]) array).length) {
+      Object value = this.operandStack.pop();
+      this.operandStack.popInt();
       ((Object[]) array)[index] = value;
     } else {
       throw new IllegalArgumentException("Invalid array or index for STORE_VARIABLE_IN_ARRAY");
@@ -692,12 +2493,16 @@ public class XtellaVM {
     Object operand1 = this.operandStack.pop();
     Object operand2 = this.operandStack.pop();
 
-    if (operand1 instanceof String && operand2 instanceof String) {
-      String input = (String) operand1;
-      String pattern = (String) operand2;
+    if (operand1 instanceof CharSequence && operand2 instanceof Pattern) {
+      CharSequence input = (CharSequence) operand1;
+      Pattern pattern = (Pattern) operand2;
 
-      boolean result = input.matches(pattern);
-      this.operandStack.push(result);
+      this.operandStack.pushBoolean(pattern.matcher(input).matches());
+    } else if (operand1 instanceof CharSequence && operand2 instanceof CharSequence) {
+      CharSequence input = (CharSequence) operand1;
+      Pattern pattern = this.regexCache.compile(operand2.toString());
+
+      this.operandStack.pushBoolean(pattern.matcher(input).matches());
     } else {
       throw new IllegalArgumentException("Invalid operand types for REGEX_MATCH");
     }
@@ -705,6 +2510,89 @@ public class XtellaVM {
     this.framePointer++;
   }
 
+  private void executeRegexMatchConstant(Pattern pattern) {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for REGEX_MATCH_CONSTANT");
+    }
+
+    Object operand = this.operandStack.pop();
+
+    if (operand instanceof CharSequence) {
+      this.operandStack.pushBoolean(pattern.matcher((CharSequence) operand).matches());
+    } else {
+      throw new IllegalArgumentException("Invalid operand type for REGEX_MATCH_CONSTANT");
+    }
+
+    this.framePointer++;
+  }
+
+  private void executeMultiRegexMatch(XtellaRegexSet set, boolean all) {
+    String name = all ? "MULTI_REGEX_MATCH_ALL" : "MULTI_REGEX_MATCH";
+
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for " + name);
+    }
+
+    Object operand = this.operandStack.pop();
+
+    if (!(operand instanceof CharSequence)) {
+      throw new IllegalArgumentException("Invalid operand type for " + name);
+    }
+
+    if (all) {
+      int[] matches = set.allMatches((CharSequence) operand);
+      XtellaArray indices = new XtellaArray(XtellaArray.Kind.INT, matches.length);
+
+      for (int match : matches) {
+        indices.appendInt(match);
+      }
+
+      this.operandStack.pushReference(indices);
+    } else {
+      this.operandStack.pushInt(set.firstMatch((CharSequence) operand));
+    }
+
+    this.framePointer++;
+  }
+
+  private void executeRegexFindAll(Pattern pattern) {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for REGEX_FIND_ALL");
+    }
+
+    Object operand = this.operandStack.pop();
+
+    if (operand instanceof CharSequence) {
+      this.operandStack.pushReference(XtellaIterators.matches(pattern, (CharSequence) operand));
+    } else {
+      throw new IllegalArgumentException("Invalid operand type for REGEX_FIND_ALL");
+    }
+
+    this.framePointer++;
+  }
+
+  private void executePushRegex(Pattern pattern) {
+    this.operandStack.pushReference(pattern);
+    this.framePointer++;
+  }
+
+  private void executeConcat(int partCount) {
+    if (this.operandStack.size() < partCount) {
+      throw new IllegalStateException("Not enough operands on the stack for CONCAT");
+    }
+
+    int firstPart = this.operandStack.size() - partCount;
+    CharSequence text = "";
+
+    for (int i = firstPart; i < firstPart + partCount; i++) {
+      text = XtellaRope.concat(text, this.operandStack.get(i));
+    }
+
+    this.operandStack.drop(partCount);
+    this.operandStack.pushReference(text);
+    this.framePointer++;
+  }
+
   private void executeExecCommand() {
     if (this.operandStack.size() < 1) {
       throw new IllegalStateException("Not enough operands on the stack for EXEC_COMMAND");
@@ -712,13 +2600,13 @@ public class XtellaVM {
 
     Object command = this.operandStack.pop();
 
-    if (command instanceof String) {
-      String commandString = (String) command;
+    if (command instanceof CharSequence) {
+      String commandString = command.toString();
 
       try {
-        Process process = Runtime.getRuntime().exec(commandString);
-        this.lastExitCode = process.waitFor();
-        this.operandStack.push(this.lastExitCode);
+        XtellaProcess process = this.processPool.start(commandString);
+        this.processes.add(process);
+        this.operandStack.pushReference(process);
       } catch (IOException | InterruptedException e) {
         throw new RuntimeException("Error executing command: " + commandString, e);
       }
@@ -729,195 +2617,260 @@ public class XtellaVM {
     this.framePointer++;
   }
 
-  private void executeMakeVariant() {
+  private XtellaProcess popProcess(String opcodeName) {
     if (this.operandStack.size() < 1) {
-      throw new IllegalStateExeception("Not enough operands on the stack for MAKE_VARIANT");
+      throw new IllegalStateException("Not enough operands on the stack for " + opcodeName);
     }
 
-    List<String> params = new List<>();
+    Object process = this.operandStack.pop();
+
+    if (!(process instanceof XtellaProcess)) {
+      throw new IllegalArgumentException("Invalid operand type for " + opcodeName);
+    }
 
-    String varianetName = (String) this.operandStack.pop();
-    int numParams = (int) this.operandStack.pop();
+    return (XtellaProcess) process;
+  }
 
-    while (numParams--) {
-      String paramName = this.operandStack.pop();
-      params.add(paramName);
+  private void executeReadLineFromProcess() {
+    XtellaProcess process = popProcess("READ_LINE_FROM_PROCESS");
+
+    try {
+      String line = process.readLine();
+      this.operandStack.pushReference(line != null ? line : "");
+    } catch (IOException e) {
+      throw new RuntimeException("Error reading line from command: " + process.getCommand(), e);
     }
 
-    this.globalScope.put(variantName, params);
+    this.framePointer++;
   }
 
-  private void executeRunThread() {
-    if (this.operandStack.size() < 1) {
-      throw new IllegalStateException("Not enough operands on the stack for RUN_THREAD");
+  private void executePipeProcessToFile(String fileHandle) {
+    XtellaProcess process = popProcess("PIPE_PROCESS_TO_FILE");
+    XtellaFileHandle handle = this.fileTable.get(fileHandle);
+
+    try {
+      process.pipeTo(handle);
+    } catch (IOException e) {
+      throw new RuntimeException("Error piping command output: " + process.getCommand(), e);
     }
 
-    String threadIdentifier = (String) stack.pop();
+    finishProcess(process);
+  }
+
+  private void executeWaitProcess() {
+    finishProcess(popProcess("WAIT_PROCESS"));
+  }
 
-    Thread t = (Thread) this.globalScope.get(threadIdentifier);
+  private void finishProcess(XtellaProcess process) {
+    try {
+      this.lastExitCode = process.waitFor();
+      process.close();
+      this.processes.remove(process);
+      this.operandStack.pushInt(this.lastExitCode);
+    } catch (IOException | InterruptedException e) {
+      throw new RuntimeException("Error waiting for command: " + process.getCommand(), e);
+    }
 
-    t.start();
-    t.join();
+    this.framePointer++;
   }
 
-  private void executeOpenFileForReading() {
-    if (this.operandStack.size() < 1) {
-      throw new IllegalStateException("Not enough operands on the stack for OPEN_FILE");
+  private void executeMakeVariant() {
+    if (this.operandStack.size() < 2) {
+      throw new IllegalStateException("Not enough operands on the stack for MAKE_VARIANT");
     }
 
-    Object filenameObject = this.operandStack.pop();
+    List<String> params = new ArrayList<>();
 
-    if (filenameObject instanceof String) {
-      String filename = (String) filenameObject;
+    String variantName = this.operandStack.pop().toString();
+    int numParams = this.operandStack.popInt();
 
-      try {
-        FileReader fileReader = new FileReader(new File(filename));
-        this.operandStack.push(fileReader);
-      } catch (FileNotFoundException e) {
-        throw new RuntimeException("Error opening file: " + filename, e);
-      }
-    } else {
-      throw new IllegalArgumentException("Invalid operand type for OPEN_FILE");
+    if (this.operandStack.size() < numParams) {
+      throw new IllegalStateException("Not enough operands on the stack for MAKE_VARIANT");
     }
 
-    this.framePointer++;
+    while (numParams-- > 0) {
+      params.add(this.operandStack.pop().toString());
+    }
+
+    this.globalScope.put(variantName, params);
   }
 
-  private void executeOpenFileForWriting() {
-    if (this.operandStack.size() < 1) {
-      throw new IllegalStateException("Not enough operands on the stack for OPEN_FILE");
+  private void executeRunThread(int argumentCount) {
+    if (this.operandStack.size() < argumentCount + 1) {
+      throw new IllegalStateException("Not enough operands on the stack for RUN_THREAD");
     }
 
-    Object filenameObject = this.operandStack.pop();
+    Object[] arguments = new Object[argumentCount];
 
-    if (filenameObject instanceof String) {
-      String filename = (String) filenameObject;
+    for (int i = argumentCount - 1; i >= 0; i--) {
+      arguments[i] = XtellaChannel.copyOnSend(this.operandStack.pop());
+    }
 
-      try {
-        FileWriter fileWriter = new FileWriter(new File(filename));
-        this.operandStack.push(fileWriter);
-      } catch (FileNotFoundException e) {
-        throw new RuntimeException("Error opening file: " + filename, e);
-      }
-    } else {
-      throw new IllegalArgumentException("Invalid operand type for OPEN_FILE");
+    Object callee = this.operandStack.pop();
+
+    if (callee instanceof CharSequence) {
+      callee = getInScope(callee.toString());
     }
 
+    if (callee instanceof XtellaObject) {
+      callee = ((XtellaObject) callee).getBytecodeChunk();
+    }
+
+    if (!(callee instanceof XtellaBytecodeChunk)) {
+      throw new IllegalArgumentException("Invalid operand type for RUN_THREAD");
+    }
+
+    XtellaVM context = new XtellaVM();
+    context.peephole = this.peephole;
+    context.quickening = this.quickening;
+    context.tier2 = this.tier2;
+    context.processPool = this.processPool;
+
+    XtellaTask task =
+        XtellaTask.spawn(
+            context, (XtellaBytecodeChunk) callee, this.remainingBudget, arguments);
+    this.tasks.add(task);
+    this.operandStack.pushReference(task);
     this.framePointer++;
   }
 
-  private void executeOpenFileForReadingAndWriting() {
+  private void executeJoin() {
     if (this.operandStack.size() < 1) {
-      throw new IllegalStateException(
-          "Not enough operands on the stack for OPEN_FILE_FOR_READING_AND_WRITING");
+      throw new IllegalStateException("Not enough operands on the stack for JOIN");
     }
 
-    Object filePathObject = this.operandStack.pop();
+    Object task = this.operandStack.pop();
 
-    if (filePathObject instanceof String) {
-      String filePath = (String) filePathObject;
-      File file = new File(filePath);
+    if (!(task instanceof XtellaTask)) {
+      throw new IllegalArgumentException("Invalid operand type for JOIN");
+    }
 
-      try {
-        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
-        this.operandStack.push(randomAccessFile);
-      } catch (FileNotFoundException e) {
-        throw new RuntimeException("File not found: " + filePath, e);
-      } catch (IOException e) {
-        throw new RuntimeException("Error opening file: " + filePath, e);
-      }
-    } else {
-      throw new IllegalArgumentException(
-          "Invalid operand type for OPEN_FILE_FOR_READING_AND_WRITING");
+    try {
+      Object result = ((XtellaTask) task).join();
+      this.tasks.remove(task);
+      this.operandStack.push(result != null ? result : Boolean.TRUE);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while joining task", e);
     }
 
     this.framePointer++;
   }
 
-  private void executeCloseFile() {
-    if (this.operandStack.size() < 1) {
-      throw new IllegalStateException("Not enough operands on the stack for CLOSE_FILE");
+  private void executeMakeChannel(int capacity) {
+    this.operandStack.pushReference(new XtellaChannel(capacity));
+    this.framePointer++;
+  }
+
+  private XtellaChannel popChannel(String opcodeName) {
+    Object channel = this.operandStack.pop();
+
+    if (!(channel instanceof XtellaChannel)) {
+      throw new IllegalArgumentException("Invalid operand type for " + opcodeName);
+    }
+
+    return (XtellaChannel) channel;
+  }
+
+  private void executeSend() {
+    if (this.operandStack.size() < 2) {
+      throw new IllegalStateException("Not enough operands on the stack for SEND");
     }
 
-    Object fileObject = this.operandStack.pop();
+    Object value = this.operandStack.pop();
+    XtellaChannel channel = popChannel("SEND");
 
-    if (fileObject instanceof Closeable) {
-      Closeable fileToClose = (Closeable) fileObject;
+    try {
+      channel.send(value);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while sending to channel", e);
+    }
+  }
 
-      try {
-        fileToClose.close();
-      } catch (IOException e) {
-        throw new RuntimeException("Error closing file", e);
-      }
-    } else {
-      throw new IllegalArgumentException("Invalid operand type for CLOSE_FILE");
+  private void executeReceive() {
+    if (this.operandStack.size() < 1) {
+      throw new IllegalStateException("Not enough operands on the stack for RECEIVE");
+    }
+
+    XtellaChannel channel = popChannel("RECEIVE");
+
+    try {
+      this.operandStack.push(channel.receive());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while receiving from channel", e);
     }
+
+    this.framePointer++;
   }
 
-  private void executeReadFileForReading() {
+  private void executeCloseChannel() {
     if (this.operandStack.size() < 1) {
-      throw new IllegalStateException("Not enough operands on the stack for READ_FILE");
+      throw new IllegalStateException("Not enough operands on the stack for CLOSE_CHANNEL");
     }
 
-    Object fileObject = this.operandStack.pop();
+    popChannel("CLOSE_CHANNEL").close();
+  }
 
-    if (fileObject instanceof FileReader) {
-      FileReader fileReader = (FileReader) fileObject;
-      try (BufferedReader reader = new BufferedReader(fileReader)) {
-        StringBuilder content = new StringBuilder();
-        String line;
+  private void executeOpenFile(String filename, String fileHandle, XtellaFileHandle.Mode mode) {
+    try {
+      this.fileTable.open(fileHandle, filename, mode);
+    } catch (IOException e) {
+      throw new RuntimeException("Error opening file: " + filename, e);
+    }
+  }
 
-        while ((line = reader.readLine()) != null) {
-          content.append(line).append(System.lineSeparator());
-        }
+  private void executeCloseFile(String fileHandle) {
+    try {
+      this.fileTable.close(fileHandle);
+    } catch (IOException e) {
+      throw new RuntimeException("Error closing file", e);
+    }
+  }
 
-        this.operandStack.push(content.toString().trim());
-      } catch (IOException e) {
-        throw new RuntimeException("Error reading file", e);
-      }
-    } else {
-      throw new IllegalArgumentException("Invalid operand type for READ_FILE");
+  private void executeReadFileForReading(String fileHandle) {
+    XtellaFileHandle handle = this.fileTable.get(fileHandle);
+
+    try {
+      this.operandStack.pushReference(
+          handle.readContent(this.fileTable.getMappedReadThreshold()));
+    } catch (IOException e) {
+      throw new RuntimeException("Error reading file", e);
     }
 
     this.framePointer++;
   }
 
-  private void executeReadLineFromFile() {
-    if (this.operandStack.size() < 1) {
-      throw new IllegalStateException("Not enough operands on the stack for READ_LINE_FROM_FILE");
-    }
+  private void executeFileLines(String fileHandle) {
+    this.operandStack.pushReference(this.fileTable.get(fileHandle).iterator());
+    this.framePointer++;
+  }
 
-    Object fileObject = this.operandStack.pop();
+  private void executeReadLineFromFile(String fileHandle) {
+    XtellaFileHandle handle = this.fileTable.get(fileHandle);
 
-    if (fileObject instanceof FileReader || fileObject instanceof RandomAccessFile) {
-      FileReader fileReader = (FileReader) fileObject;
-      try (BufferedReader reader = new BufferedReader(fileReader)) {
-        String line = reader.readLine();
-        this.operandStack.push(line != null ? line : "");
-      } catch (IOException e) {
-        throw new RuntimeException("Error reading line from file", e);
-      }
-    } else {
-      throw new IllegalArgumentException("Invalid operand type for READ_LINE_FROM_FILE");
+    try {
+      String line = handle.readLine();
+      this.operandStack.pushReference(line != null ? line : "");
+    } catch (IOException e) {
+      throw new RuntimeException("Error reading line from file", e);
     }
 
     this.framePointer++;
   }
 
-  private void executeWriteFile() {
-    if (this.operandStack.size() < 2) {
+  private void executeWriteFile(String fileHandle) {
+    if (this.operandStack.size() < 1) {
       throw new IllegalStateException("Not enough operands on the stack for WRITE_FILE");
     }
 
-    Object fileObject = this.operandStack.pop();
+    XtellaFileHandle handle = this.fileTable.get(fileHandle);
     Object contentObject = this.operandStack.pop();
 
-    if ((fileObject instanceof FileWriter || fileObject instanceof RandomAccessFile)
-        && contentObject instanceof String) {
-      FileWriter fileWriter = (FileWriter) fileObject;
-      String content = (String) contentObject;
-      try (BufferedWriter writer = new BufferedWriter(fileWriter)) {
-        writer.write(content);
+    if (contentObject instanceof CharSequence) {
+      try {
+        handle.write((CharSequence) contentObject);
       } catch (IOException e) {
         throw new RuntimeException("Error writing to file", e);
       }
@@ -928,20 +2881,17 @@ public class XtellaVM {
     this.framePointer++;
   }
 
-  private void executeAppendFile() {
-    if (this.operandStack.size() < 2) {
+  private void executeAppendFile(String fileHandle) {
+    if (this.operandStack.size() < 1) {
       throw new IllegalStateException("Not enough operands on the stack for APPEND_FILE");
     }
 
-    Object fileObject = this.operandStack.pop();
+    XtellaFileHandle handle = this.fileTable.get(fileHandle);
     Object contentObject = this.operandStack.pop();
 
-    if ((fileObject instanceof FileWriter || fileObject instanceof RandomAccessFile)
-        && contentObject instanceof String) {
-      FileWriter fileWriter = (FileWriter) fileObject;
-      String content = (String) contentObject;
-      try (BufferedWriter writer = new BufferedWriter(fileWriter)) {
-        writer.append(content);
+    if (contentObject instanceof CharSequence) {
+      try {
+        handle.write((CharSequence) contentObject);
       } catch (IOException e) {
         throw new RuntimeException("Error appending to file", e);
       }
@@ -950,27 +2900,43 @@ public class XtellaVM {
     }
   }
 
+  private void executeWriteFileParts(String fileHandle, int partCount) {
+    if (this.operandStack.size() < partCount) {
+      throw new IllegalStateException("Not enough operands on the stack for WRITE_FILE_PARTS");
+    }
+
+    XtellaFileHandle handle = this.fileTable.get(fileHandle);
+    int firstPart = this.operandStack.size() - partCount;
+
+    try {
+      for (int i = firstPart; i < firstPart + partCount; i++) {
+        handle.write(this.operandStack.get(i));
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error writing to file", e);
+    }
+
+    this.operandStack.drop(partCount);
+
+    this.framePointer++;
+  }
+
   private void executeSwapValue() {
     if (this.operandStack.size() < 2) {
       throw new IllegalStateException("Not enough operands on the stack for SWAP_VALUE");
     }
 
-    Object swapped = this.operandStack.pop();
-    Object swappee = this.operandStack.pop();
-
-    stack.push(swappee);
-    stack.push(swapped);
+    this.operandStack.swap();
 
     this.framePointer += 2;
   }
 
   private void executeDuplicateValue() {
-    if (opernadStack.size() < 1) {
+    if (this.operandStack.size() < 1) {
       throw new IllegalStateException("Not enough operands on the stack for DUPLICATE_VALUE");
     }
 
-    Object duplicatedValue = this.operandStack.pop();
-    stack.push(duplicatedValue);
+    this.operandStack.duplicate();
 
     this.framePointer++;
   }
@@ -0,0 +1,92 @@
+package xtella;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XtellaArrayBenchmark {
+  private static final String ARRAY = "values";
+
+  @Param({"100000"})
+  public int elements;
+
+  private XtellaBytecodeChunk appendAndLoad;
+  private XtellaBytecodeChunk appendAndIterate;
+
+  @Setup
+  public void setUp() {
+    this.appendAndLoad =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.elements,
+            XtellaArrayBenchmark::emitEmptyArray,
+            chunk -> {
+              emitAppendCounter(chunk);
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.COUNTER_SLOT);
+              chunk.emit(XtellaVM.LOAD_VARIABLE_FROM_ARRAY);
+              chunk.emit(chunk.addConstant(ARRAY));
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+              chunk.emit(XtellaVM.ADD);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+            });
+
+    this.appendAndIterate =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.elements,
+            XtellaArrayBenchmark::emitEmptyArray,
+            XtellaArrayBenchmark::emitAppendCounter);
+    this.appendAndIterate.emit(XtellaVM.LOAD_VARIABLE);
+    this.appendAndIterate.emit(this.appendAndIterate.addConstant(ARRAY));
+    this.appendAndIterate.emit(XtellaVM.GET_ITER);
+    int loopStart = this.appendAndIterate.getCodeLength();
+    this.appendAndIterate.emit(XtellaVM.FOR_NEXT);
+    int exitOperand = this.appendAndIterate.emit(0);
+    this.appendAndIterate.emit(XtellaVM.STORE_LOCAL);
+    this.appendAndIterate.emit(XtellaBenchmarkPrograms.SCRATCH_SLOT);
+    this.appendAndIterate.emit(XtellaVM.JUMP);
+    this.appendAndIterate.emit(loopStart);
+    this.appendAndIterate.patch(exitOperand, this.appendAndIterate.getCodeLength());
+  }
+
+  private static void emitEmptyArray(XtellaBytecodeChunk chunk) {
+    chunk.emit(XtellaVM.PUSH_ARRAY);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.STORE_VARIABLE);
+    chunk.emit(chunk.addConstant(ARRAY));
+    XtellaBenchmarkPrograms.storeInt(chunk, XtellaBenchmarkPrograms.ACCUMULATOR_SLOT, 0);
+  }
+
+  private static void emitAppendCounter(XtellaBytecodeChunk chunk) {
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(XtellaBenchmarkPrograms.COUNTER_SLOT);
+    chunk.emit(XtellaVM.APPEND_TO_ARRAY);
+    chunk.emit(chunk.addConstant(ARRAY));
+  }
+
+  @Benchmark
+  public void appendAndLoad() {
+    XtellaBenchmarkPrograms.run(this.appendAndLoad);
+  }
+
+  @Benchmark
+  public void appendAndIterate() {
+    XtellaBenchmarkPrograms.run(this.appendAndIterate);
+  }
+}
@@ -0,0 +1,97 @@
+package xtella;
+
+import java.util.function.Consumer;
+
+final class XtellaBenchmarkPrograms {
+  static final int COUNTER_SLOT = 0;
+  static final int ACCUMULATOR_SLOT = 1;
+  static final int SCRATCH_SLOT = 2;
+  static final int LOCAL_COUNT = 3;
+
+  private XtellaBenchmarkPrograms() {}
+
+  static XtellaBytecodeChunk countingLoop(
+      int iterations, Consumer<XtellaBytecodeChunk> prologue, Consumer<XtellaBytecodeChunk> body) {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(LOCAL_COUNT);
+
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    prologue.accept(chunk);
+
+    int loopStart = chunk.getCodeLength();
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(iterations);
+    chunk.emit(XtellaVM.LESS_THAN);
+    chunk.emit(XtellaVM.JUMP_IF_FALSE);
+    int exitOperand = chunk.emit(0);
+
+    body.accept(chunk);
+
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.ADD);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    chunk.emit(XtellaVM.JUMP);
+    chunk.emit(loopStart);
+
+    chunk.patch(exitOperand, chunk.getCodeLength());
+    return chunk;
+  }
+
+  static XtellaBytecodeChunk countingLoop(int iterations, Consumer<XtellaBytecodeChunk> body) {
+    return countingLoop(iterations, chunk -> storeInt(chunk, ACCUMULATOR_SLOT, 0), body);
+  }
+
+  static void storeInt(XtellaBytecodeChunk chunk, int slot, int value) {
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(value);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(slot);
+  }
+
+  static void storeString(XtellaBytecodeChunk chunk, int slot, String value) {
+    chunk.emit(XtellaVM.PUSH_STRING);
+    chunk.emit(chunk.addConstant(value));
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(slot);
+  }
+
+  static void openFile(XtellaBytecodeChunk chunk, int opcode, String fileName, String handle) {
+    chunk.emit(opcode);
+    chunk.emit(chunk.addConstant(fileName));
+    chunk.emit(chunk.addConstant(handle));
+  }
+
+  static void closeFile(XtellaBytecodeChunk chunk, String handle) {
+    chunk.emit(XtellaVM.CLOSE_FILE);
+    chunk.emit(chunk.addConstant(handle));
+  }
+
+  static void run(XtellaBytecodeChunk chunk) {
+    run(chunk, true);
+  }
+
+  static void run(XtellaBytecodeChunk chunk, boolean quickening) {
+    run(chunk, quickening, true);
+  }
+
+  static void run(XtellaBytecodeChunk chunk, boolean quickening, boolean tiered) {
+    XtellaVM vm = new XtellaVM();
+    vm.setQuickening(quickening);
+    vm.setTier2(tiered ? new XtellaTier2() : null);
+
+    try {
+      vm.run(chunk, Long.MAX_VALUE);
+    } finally {
+      vm.closeFiles();
+    }
+  }
+}
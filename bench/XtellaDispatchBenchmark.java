@@ -0,0 +1,151 @@
+package xtella;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XtellaDispatchBenchmark {
+  @Param({"10000"})
+  public int iterations;
+
+  @Param({"false", "true"})
+  public boolean fused;
+
+  @Param({"false", "true"})
+  public boolean quickened;
+
+  @Param({"false", "true"})
+  public boolean tiered;
+
+  private XtellaBytecodeChunk emptyLoop;
+  private XtellaBytecodeChunk intAddLoop;
+  private XtellaBytecodeChunk floatAddLoop;
+  private XtellaBytecodeChunk longAddLoop;
+  private XtellaBytecodeChunk variableLoop;
+
+  @Setup
+  public void setUp() {
+    this.emptyLoop = XtellaBenchmarkPrograms.countingLoop(this.iterations, chunk -> {});
+
+    this.intAddLoop =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> {
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.COUNTER_SLOT);
+              chunk.emit(XtellaVM.ADD);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+            });
+
+    this.floatAddLoop =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> {
+              chunk.emit(XtellaVM.PUSH_FLOAT);
+              chunk.emit(Float.floatToRawIntBits(0.0f));
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+            },
+            chunk -> {
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+              chunk.emit(XtellaVM.PUSH_FLOAT);
+              chunk.emit(Float.floatToRawIntBits(0.5f));
+              chunk.emit(XtellaVM.ADD);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+            });
+
+    this.longAddLoop =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> {
+              long start = 1L << 40;
+              chunk.emit(XtellaVM.PUSH_LONG);
+              chunk.emit((int) (start >>> 32));
+              chunk.emit((int) start);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+            },
+            chunk -> {
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.COUNTER_SLOT);
+              chunk.emit(XtellaVM.ADD);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+            });
+
+    this.variableLoop =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> {
+              chunk.emit(XtellaVM.PUSH_INT);
+              chunk.emit(0);
+              chunk.emit(XtellaVM.STORE_VARIABLE);
+              chunk.emit(chunk.addConstant("total"));
+            },
+            chunk -> {
+              chunk.emit(XtellaVM.LOAD_VARIABLE);
+              chunk.emit(chunk.addConstant("total"));
+              chunk.emit(XtellaVM.PUSH_INT);
+              chunk.emit(1);
+              chunk.emit(XtellaVM.ADD);
+              chunk.emit(XtellaVM.STORE_VARIABLE);
+              chunk.emit(chunk.addConstant("total"));
+            });
+
+    if (this.fused) {
+      XtellaPeephole peephole = new XtellaPeephole();
+      peephole.optimize(this.emptyLoop);
+      peephole.optimize(this.intAddLoop);
+      peephole.optimize(this.floatAddLoop);
+      peephole.optimize(this.longAddLoop);
+      peephole.optimize(this.variableLoop);
+    }
+  }
+
+  @Benchmark
+  public void lessThanLoop() {
+    XtellaBenchmarkPrograms.run(this.emptyLoop, this.quickened, this.tiered);
+  }
+
+  @Benchmark
+  public void intAddLoop() {
+    XtellaBenchmarkPrograms.run(this.intAddLoop, this.quickened, this.tiered);
+  }
+
+  @Benchmark
+  public void floatAddLoop() {
+    XtellaBenchmarkPrograms.run(this.floatAddLoop, this.quickened, this.tiered);
+  }
+
+  @Benchmark
+  public void longAddLoop() {
+    XtellaBenchmarkPrograms.run(this.longAddLoop, this.quickened, this.tiered);
+  }
+
+  @Benchmark
+  public void scopedVariableLoop() {
+    XtellaBenchmarkPrograms.run(this.variableLoop, this.quickened, this.tiered);
+  }
+}
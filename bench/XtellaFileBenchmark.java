@@ -0,0 +1,130 @@
+package xtella;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XtellaFileBenchmark {
+  private static final String LINE = "2024-01-01T00:00:00Z INFO request served in 12ms\n";
+  private static final String HANDLE = "bench";
+
+  @Param({"10000"})
+  public int lines;
+
+  private Path directory;
+  private XtellaBytecodeChunk writeLines;
+  private XtellaBytecodeChunk readWhole;
+  private XtellaBytecodeChunk readLines;
+  private XtellaBytecodeChunk iterateLines;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.directory = Files.createTempDirectory("xtella-bench");
+    Path input = this.directory.resolve("input.log");
+    String output = this.directory.resolve("output.log").toString();
+
+    Files.writeString(input, LINE.repeat(this.lines), StandardCharsets.UTF_8);
+
+    this.writeLines =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.lines,
+            chunk ->
+                XtellaBenchmarkPrograms.openFile(
+                    chunk, XtellaVM.OPEN_FILE_FOR_WRITING, output, HANDLE),
+            chunk -> {
+              chunk.emit(XtellaVM.PUSH_STRING);
+              chunk.emit(chunk.addConstant(LINE));
+              chunk.emit(XtellaVM.WRITE_FILE);
+              chunk.emit(chunk.addConstant(HANDLE));
+            });
+    XtellaBenchmarkPrograms.closeFile(this.writeLines, HANDLE);
+
+    this.readWhole = new XtellaBytecodeChunk();
+    this.readWhole.setLocalCount(XtellaBenchmarkPrograms.LOCAL_COUNT);
+    XtellaBenchmarkPrograms.openFile(
+        this.readWhole, XtellaVM.OPEN_FILE_FOR_READING, input.toString(), HANDLE);
+    this.readWhole.emit(XtellaVM.READ_FILE);
+    this.readWhole.emit(this.readWhole.addConstant(HANDLE));
+    this.readWhole.emit(XtellaVM.STORE_LOCAL);
+    this.readWhole.emit(XtellaBenchmarkPrograms.SCRATCH_SLOT);
+    XtellaBenchmarkPrograms.closeFile(this.readWhole, HANDLE);
+
+    this.readLines =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.lines,
+            chunk ->
+                XtellaBenchmarkPrograms.openFile(
+                    chunk, XtellaVM.OPEN_FILE_FOR_READING, input.toString(), HANDLE),
+            chunk -> {
+              chunk.emit(XtellaVM.READ_LINE_FROM_FILE);
+              chunk.emit(chunk.addConstant(HANDLE));
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.SCRATCH_SLOT);
+            });
+    XtellaBenchmarkPrograms.closeFile(this.readLines, HANDLE);
+
+    this.iterateLines = new XtellaBytecodeChunk();
+    this.iterateLines.setLocalCount(XtellaBenchmarkPrograms.LOCAL_COUNT);
+    XtellaBenchmarkPrograms.openFile(
+        this.iterateLines, XtellaVM.OPEN_FILE_FOR_READING, input.toString(), HANDLE);
+    this.iterateLines.emit(XtellaVM.FILE_LINES);
+    this.iterateLines.emit(this.iterateLines.addConstant(HANDLE));
+    this.iterateLines.emit(XtellaVM.GET_ITER);
+    int loopStart = this.iterateLines.getCodeLength();
+    this.iterateLines.emit(XtellaVM.FOR_NEXT);
+    int exitOperand = this.iterateLines.emit(0);
+    this.iterateLines.emit(XtellaVM.STORE_LOCAL);
+    this.iterateLines.emit(XtellaBenchmarkPrograms.SCRATCH_SLOT);
+    this.iterateLines.emit(XtellaVM.JUMP);
+    this.iterateLines.emit(loopStart);
+    this.iterateLines.patch(exitOperand, this.iterateLines.getCodeLength());
+    XtellaBenchmarkPrograms.closeFile(this.iterateLines, HANDLE);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (var paths = Files.walk(this.directory)) {
+      paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public void writeLines() {
+    XtellaBenchmarkPrograms.run(this.writeLines);
+  }
+
+  @Benchmark
+  public void readWholeFile() {
+    XtellaBenchmarkPrograms.run(this.readWhole);
+  }
+
+  @Benchmark
+  public void readLineByLine() {
+    XtellaBenchmarkPrograms.run(this.readLines);
+  }
+
+  @Benchmark
+  public void iterateLines() {
+    XtellaBenchmarkPrograms.run(this.iterateLines);
+  }
+}
@@ -0,0 +1,65 @@
+package xtella;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XtellaHashMapBenchmark {
+  private static final String MAP = "counts";
+
+  @Param({"100000"})
+  public int entries;
+
+  private XtellaBytecodeChunk storeAndLoad;
+
+  @Setup
+  public void setUp() {
+    this.storeAndLoad =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.entries,
+            chunk -> {
+              chunk.emit(XtellaVM.PUSH_HASHMAP);
+              chunk.emit(0);
+              chunk.emit(XtellaVM.STORE_VARIABLE);
+              chunk.emit(chunk.addConstant(MAP));
+              XtellaBenchmarkPrograms.storeInt(chunk, XtellaBenchmarkPrograms.ACCUMULATOR_SLOT, 0);
+            },
+            chunk -> {
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.COUNTER_SLOT);
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.COUNTER_SLOT);
+              chunk.emit(XtellaVM.STORE_VARIABLE_INTO_HASHMAP);
+              chunk.emit(chunk.addConstant(MAP));
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.COUNTER_SLOT);
+              chunk.emit(XtellaVM.LOAD_VARIABLE_FROM_HASHMAP);
+              chunk.emit(chunk.addConstant(MAP));
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+              chunk.emit(XtellaVM.ADD);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.ACCUMULATOR_SLOT);
+            });
+  }
+
+  @Benchmark
+  public void storeAndLoad() {
+    XtellaBenchmarkPrograms.run(this.storeAndLoad);
+  }
+}
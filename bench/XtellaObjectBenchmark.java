@@ -0,0 +1,40 @@
+package xtella;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XtellaObjectBenchmark {
+  private final XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+
+  @Benchmark
+  public XtellaObject constructInteger() {
+    return new XtellaObject(XtellaObject.XtellaType.INTEGER, this.chunk, null);
+  }
+
+  @Benchmark
+  public XtellaObject constructString() {
+    return new XtellaObject(XtellaObject.XtellaType.STRING, this.chunk, null);
+  }
+
+  @Benchmark
+  public XtellaObject constructWithOwnMethod() {
+    XtellaObject object = new XtellaObject(XtellaObject.XtellaType.INTEGER, this.chunk, null);
+    XtellaObject method = new XtellaObject(XtellaObject.XtellaType.METHOD, this.chunk, null);
+    object.addMethod("describe", method);
+    return object;
+  }
+}
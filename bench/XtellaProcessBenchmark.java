@@ -0,0 +1,77 @@
+package xtella;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XtellaProcessBenchmark {
+  private static final int EXIT_CODE = XtellaBenchmarkPrograms.SCRATCH_SLOT;
+
+  @Param({"32"})
+  public int commands;
+
+  @Param({"echo xtella"})
+  public String command;
+
+  private XtellaBytecodeChunk serialCommands;
+  private XtellaBytecodeChunk overlappedCommands;
+
+  @Setup
+  public void setUp() {
+    this.serialCommands = new XtellaBytecodeChunk();
+    this.serialCommands.setLocalCount(XtellaBenchmarkPrograms.LOCAL_COUNT);
+
+    for (int i = 0; i < this.commands; i++) {
+      startCommand(this.serialCommands);
+      waitForCommand(this.serialCommands);
+    }
+
+    this.overlappedCommands = new XtellaBytecodeChunk();
+    this.overlappedCommands.setLocalCount(XtellaBenchmarkPrograms.LOCAL_COUNT);
+
+    for (int i = 0; i < this.commands; i++) {
+      startCommand(this.overlappedCommands);
+    }
+
+    for (int i = 0; i < this.commands; i++) {
+      waitForCommand(this.overlappedCommands);
+    }
+  }
+
+  private void startCommand(XtellaBytecodeChunk chunk) {
+    chunk.emit(XtellaVM.PUSH_STRING);
+    chunk.emit(chunk.addConstant(this.command));
+    chunk.emit(XtellaVM.EXEC_COMMAND);
+  }
+
+  private static void waitForCommand(XtellaBytecodeChunk chunk) {
+    chunk.emit(XtellaVM.WAIT_PROCESS);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(EXIT_CODE);
+  }
+
+  @Benchmark
+  public void serialCommands() {
+    XtellaBenchmarkPrograms.run(this.serialCommands);
+  }
+
+  @Benchmark
+  public void overlappedCommands() {
+    XtellaBenchmarkPrograms.run(this.overlappedCommands);
+  }
+}
@@ -0,0 +1,129 @@
+package xtella;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XtellaRegexBenchmark {
+  private static final String PATTERN = "[a-z]+-[0-9]{2,4}\\.(txt|log)";
+  private static final String INPUT = "access-2024.log";
+  private static final String LOG_LINE = "2024-05-01 12:00:00 WARN worker-7 E0199 retry scheduled";
+
+  @Param({"1000"})
+  public int iterations;
+
+  @Param({"false", "true"})
+  public boolean fused;
+
+  @Param({"200"})
+  public int classifierPatterns;
+
+  private XtellaBytecodeChunk constantPatternLoop;
+  private XtellaBytecodeChunk dynamicPatternLoop;
+  private XtellaBytecodeChunk linearClassifierLoop;
+  private XtellaBytecodeChunk multiPatternClassifierLoop;
+
+  @Setup
+  public void setUp() {
+    this.constantPatternLoop =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> {
+              chunk.emit(XtellaVM.PUSH_STRING);
+              chunk.emit(chunk.addConstant(INPUT));
+              chunk.emit(XtellaVM.REGEX_MATCH_CONSTANT);
+              chunk.emit(chunk.addPatternConstant(PATTERN));
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.SCRATCH_SLOT);
+            });
+
+    this.dynamicPatternLoop =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> {
+              chunk.emit(XtellaVM.PUSH_STRING);
+              chunk.emit(chunk.addConstant(PATTERN));
+              chunk.emit(XtellaVM.PUSH_STRING);
+              chunk.emit(chunk.addConstant(INPUT));
+              chunk.emit(XtellaVM.REGEX_MATCH);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.SCRATCH_SLOT);
+            });
+
+    String[] classifiers = new String[this.classifierPatterns];
+
+    for (int i = 0; i < classifiers.length; i++) {
+      classifiers[i] = String.format(".* E%04d .*", i);
+    }
+
+    this.linearClassifierLoop =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> {
+              for (String classifier : classifiers) {
+                chunk.emit(XtellaVM.PUSH_STRING);
+                chunk.emit(chunk.addConstant(LOG_LINE));
+                chunk.emit(XtellaVM.REGEX_MATCH_CONSTANT);
+                chunk.emit(chunk.addPatternConstant(classifier));
+                chunk.emit(XtellaVM.STORE_LOCAL);
+                chunk.emit(XtellaBenchmarkPrograms.SCRATCH_SLOT);
+              }
+            });
+
+    XtellaRegexSet classifierSet = new XtellaRegexSet(classifiers);
+    this.multiPatternClassifierLoop =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> {
+              chunk.emit(XtellaVM.PUSH_STRING);
+              chunk.emit(chunk.addConstant(LOG_LINE));
+              chunk.emit(XtellaVM.MULTI_REGEX_MATCH);
+              chunk.emit(chunk.addConstant(classifierSet));
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.SCRATCH_SLOT);
+            });
+
+    if (this.fused) {
+      XtellaPeephole peephole = new XtellaPeephole();
+      peephole.optimize(this.constantPatternLoop);
+      peephole.optimize(this.dynamicPatternLoop);
+      peephole.optimize(this.linearClassifierLoop);
+      peephole.optimize(this.multiPatternClassifierLoop);
+    }
+  }
+
+  @Benchmark
+  public void constantPatternMatch() {
+    XtellaBenchmarkPrograms.run(this.constantPatternLoop);
+  }
+
+  @Benchmark
+  public void dynamicPatternMatch() {
+    XtellaBenchmarkPrograms.run(this.dynamicPatternLoop);
+  }
+
+  @Benchmark
+  public void linearClassifier() {
+    XtellaBenchmarkPrograms.run(this.linearClassifierLoop);
+  }
+
+  @Benchmark
+  public void multiPatternClassifier() {
+    XtellaBenchmarkPrograms.run(this.multiPatternClassifierLoop);
+  }
+}
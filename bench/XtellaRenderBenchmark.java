@@ -0,0 +1,85 @@
+package xtella;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XtellaRenderBenchmark {
+  private static final int COUNTER = XtellaBenchmarkPrograms.COUNTER_SLOT;
+  private static final int ACCUMULATOR = XtellaBenchmarkPrograms.ACCUMULATOR_SLOT;
+
+  @Param({"1000"})
+  public int iterations;
+
+  @Param({"1", "1000"})
+  public int renders;
+
+  private XtellaBytecodeChunk interpolationLoop;
+  private XtellaRenderEngine engine;
+
+  @Setup
+  public void setUp() {
+    this.interpolationLoop =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> XtellaBenchmarkPrograms.storeString(chunk, ACCUMULATOR, ""),
+            chunk -> {
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(ACCUMULATOR);
+              chunk.emit(XtellaVM.PUSH_STRING);
+              chunk.emit(chunk.addConstant("<li>"));
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(COUNTER);
+              chunk.emit(XtellaVM.PUSH_STRING);
+              chunk.emit(chunk.addConstant("</li>\n"));
+              chunk.emit(XtellaVM.CONCAT);
+              chunk.emit(4);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(ACCUMULATOR);
+            });
+    this.engine = new XtellaRenderEngine();
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.engine.close();
+  }
+
+  @Benchmark
+  public int concurrentRenders() throws InterruptedException, ExecutionException {
+    List<Future<Object>> results = new ArrayList<>(this.renders);
+
+    for (int i = 0; i < this.renders; i++) {
+      results.add(this.engine.submit(this.interpolationLoop));
+    }
+
+    int completed = 0;
+
+    for (Future<Object> result : results) {
+      result.get();
+      completed++;
+    }
+
+    return completed;
+  }
+}
@@ -0,0 +1,77 @@
+package xtella;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XtellaStringBenchmark {
+  private static final int COUNTER = XtellaBenchmarkPrograms.COUNTER_SLOT;
+  private static final int ACCUMULATOR = XtellaBenchmarkPrograms.ACCUMULATOR_SLOT;
+
+  @Param({"10000"})
+  public int iterations;
+
+  private XtellaBytecodeChunk appendLoop;
+  private XtellaBytecodeChunk interpolationLoop;
+
+  @Setup
+  public void setUp() {
+    this.appendLoop =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> XtellaBenchmarkPrograms.storeString(chunk, ACCUMULATOR, ""),
+            chunk -> {
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(ACCUMULATOR);
+              chunk.emit(XtellaVM.PUSH_STRING);
+              chunk.emit(chunk.addConstant("item, "));
+              chunk.emit(XtellaVM.ADD);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(ACCUMULATOR);
+            });
+
+    this.interpolationLoop =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> XtellaBenchmarkPrograms.storeString(chunk, ACCUMULATOR, ""),
+            chunk -> {
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(ACCUMULATOR);
+              chunk.emit(XtellaVM.PUSH_STRING);
+              chunk.emit(chunk.addConstant("<li id=\""));
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(COUNTER);
+              chunk.emit(XtellaVM.PUSH_STRING);
+              chunk.emit(chunk.addConstant("\">entry</li>\n"));
+              chunk.emit(XtellaVM.CONCAT);
+              chunk.emit(4);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(ACCUMULATOR);
+            });
+  }
+
+  @Benchmark
+  public void appendLoop() {
+    XtellaBenchmarkPrograms.run(this.appendLoop);
+  }
+
+  @Benchmark
+  public void interpolationLoop() {
+    XtellaBenchmarkPrograms.run(this.interpolationLoop);
+  }
+}
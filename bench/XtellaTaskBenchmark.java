@@ -0,0 +1,102 @@
+package xtella;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XtellaTaskBenchmark {
+  private static final int ACCUMULATOR = XtellaBenchmarkPrograms.ACCUMULATOR_SLOT;
+  private static final String WORKER = "worker";
+
+  @Param({"100000"})
+  public int iterations;
+
+  @Param({"8"})
+  public int tasks;
+
+  private XtellaBytecodeChunk worker;
+  private XtellaBytecodeChunk serialWork;
+  private XtellaBytecodeChunk fannedOutWork;
+
+  @Setup
+  public void setUp() {
+    this.worker =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.iterations,
+            chunk -> {
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(ACCUMULATOR);
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(XtellaBenchmarkPrograms.COUNTER_SLOT);
+              chunk.emit(XtellaVM.BITWISE_XOR);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(ACCUMULATOR);
+            });
+    this.worker.emit(XtellaVM.LOAD_LOCAL);
+    this.worker.emit(ACCUMULATOR);
+
+    this.serialWork = new XtellaBytecodeChunk();
+    this.serialWork.setLocalCount(XtellaBenchmarkPrograms.LOCAL_COUNT);
+
+    for (int i = 0; i < this.tasks; i++) {
+      spawn(this.serialWork);
+      this.serialWork.emit(XtellaVM.JOIN);
+      storeResult(this.serialWork);
+    }
+
+    this.fannedOutWork = new XtellaBytecodeChunk();
+    this.fannedOutWork.setLocalCount(XtellaBenchmarkPrograms.LOCAL_COUNT);
+
+    for (int i = 0; i < this.tasks; i++) {
+      spawn(this.fannedOutWork);
+    }
+
+    for (int i = 0; i < this.tasks; i++) {
+      this.fannedOutWork.emit(XtellaVM.JOIN);
+      storeResult(this.fannedOutWork);
+    }
+  }
+
+  private static void spawn(XtellaBytecodeChunk chunk) {
+    chunk.emit(XtellaVM.PUSH_STRING);
+    chunk.emit(chunk.addConstant(WORKER));
+    chunk.emit(XtellaVM.RUN_THREAD);
+    chunk.emit(0);
+  }
+
+  private static void storeResult(XtellaBytecodeChunk chunk) {
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(XtellaBenchmarkPrograms.SCRATCH_SLOT);
+  }
+
+  private void run(XtellaBytecodeChunk chunk) {
+    XtellaVM vm = new XtellaVM();
+    vm.setGlobal(WORKER, this.worker);
+    vm.run(chunk, Long.MAX_VALUE);
+  }
+
+  @Benchmark
+  public void serialWork() {
+    run(this.serialWork);
+  }
+
+  @Benchmark
+  public void fannedOutWork() {
+    run(this.fannedOutWork);
+  }
+}
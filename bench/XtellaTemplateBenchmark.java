@@ -0,0 +1,138 @@
+package xtella;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XtellaTemplateBenchmark {
+  private static final String HANDLE = "page";
+  private static final int COUNTER = XtellaBenchmarkPrograms.COUNTER_SLOT;
+  private static final int ACCUMULATOR = XtellaBenchmarkPrograms.ACCUMULATOR_SLOT;
+
+  @Param({"1000", "100000"})
+  public int rows;
+
+  private Path directory;
+  private XtellaBytecodeChunk streamedTable;
+  private XtellaBytecodeChunk bufferedTable;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.directory = Files.createTempDirectory("xtella-bench");
+    String streamedOutput = this.directory.resolve("streamed.html").toString();
+    String bufferedOutput = this.directory.resolve("buffered.html").toString();
+
+    this.streamedTable =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.rows,
+            chunk -> {
+              XtellaBenchmarkPrograms.openFile(
+                  chunk, XtellaVM.OPEN_FILE_FOR_WRITING, streamedOutput, HANDLE);
+              writeText(chunk, "<table>\n");
+            },
+            chunk -> {
+              emitRow(chunk);
+              chunk.emit(XtellaVM.WRITE_FILE_PARTS);
+              chunk.emit(chunk.addConstant(HANDLE));
+              chunk.emit(5);
+            });
+    writeText(this.streamedTable, "</table>\n");
+    XtellaBenchmarkPrograms.closeFile(this.streamedTable, HANDLE);
+
+    this.bufferedTable =
+        XtellaBenchmarkPrograms.countingLoop(
+            this.rows,
+            chunk -> XtellaBenchmarkPrograms.storeString(chunk, ACCUMULATOR, "<table>\n"),
+            chunk -> {
+              chunk.emit(XtellaVM.LOAD_LOCAL);
+              chunk.emit(ACCUMULATOR);
+              emitRow(chunk);
+              chunk.emit(XtellaVM.CONCAT);
+              chunk.emit(6);
+              chunk.emit(XtellaVM.STORE_LOCAL);
+              chunk.emit(ACCUMULATOR);
+            });
+    XtellaBenchmarkPrograms.openFile(
+        this.bufferedTable, XtellaVM.OPEN_FILE_FOR_WRITING, bufferedOutput, HANDLE);
+    this.bufferedTable.emit(XtellaVM.LOAD_LOCAL);
+    this.bufferedTable.emit(ACCUMULATOR);
+    this.bufferedTable.emit(XtellaVM.WRITE_FILE);
+    this.bufferedTable.emit(this.bufferedTable.addConstant(HANDLE));
+    writeText(this.bufferedTable, "</table>\n");
+    XtellaBenchmarkPrograms.closeFile(this.bufferedTable, HANDLE);
+  }
+
+  private static void emitRow(XtellaBytecodeChunk chunk) {
+    chunk.emit(XtellaVM.PUSH_STRING);
+    chunk.emit(chunk.addConstant("  <tr><td class=\"id\">"));
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(COUNTER);
+    chunk.emit(XtellaVM.PUSH_STRING);
+    chunk.emit(chunk.addConstant("</td><td>"));
+
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(COUNTER);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(2);
+    chunk.emit(XtellaVM.MODULO);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.EQUAL);
+    chunk.emit(XtellaVM.JUMP_IF_FALSE);
+    int oddOperand = chunk.emit(0);
+    chunk.emit(XtellaVM.PUSH_STRING);
+    chunk.emit(chunk.addConstant("even"));
+    chunk.emit(XtellaVM.JUMP);
+    int endOperand = chunk.emit(0);
+    chunk.patch(oddOperand, chunk.getCodeLength());
+    chunk.emit(XtellaVM.PUSH_STRING);
+    chunk.emit(chunk.addConstant("odd"));
+    chunk.patch(endOperand, chunk.getCodeLength());
+
+    chunk.emit(XtellaVM.PUSH_STRING);
+    chunk.emit(chunk.addConstant("</td></tr>\n"));
+  }
+
+  private static void writeText(XtellaBytecodeChunk chunk, String text) {
+    chunk.emit(XtellaVM.PUSH_STRING);
+    chunk.emit(chunk.addConstant(text));
+    chunk.emit(XtellaVM.WRITE_FILE);
+    chunk.emit(chunk.addConstant(HANDLE));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (var paths = Files.walk(this.directory)) {
+      paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public void streamedTable() {
+    XtellaBenchmarkPrograms.run(this.streamedTable);
+  }
+
+  @Benchmark
+  public void bufferedTable() {
+    XtellaBenchmarkPrograms.run(this.bufferedTable);
+  }
+}
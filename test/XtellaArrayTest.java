@@ -0,0 +1,128 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import xtella.XtellaArray.Kind;
+
+class XtellaArrayTest {
+  private static final long BEYOND_DOUBLE = (1L << 53) + 1;
+
+  // xs.append(value) through APPEND_TO_ARRAY, with value pushed by the given opcode
+  private static void append(XtellaVM vm, int pushOpcode, long operand) {
+    vm.beginChunk(0);
+    vm.addInstruction(pushOpcode);
+
+    if (pushOpcode == XtellaVM.PUSH_INT) {
+      vm.addOperand((int) operand);
+    } else {
+      vm.addLongOperand(operand);
+    }
+
+    vm.addInstruction(XtellaVM.APPEND_TO_ARRAY);
+    vm.addOperand((Object) "xs");
+    vm.endChunk();
+    vm.evaluate(vm.getChunk(), 100);
+  }
+
+  @Test
+  void joinFollowsTheWideningLattice() {
+    Kind[] kinds = Kind.values();
+
+    for (Kind left : kinds) {
+      assertEquals(left, XtellaArray.join(left, left));
+      assertEquals(Kind.OBJECT, XtellaArray.join(left, Kind.OBJECT));
+
+      for (Kind right : kinds) {
+        assertEquals(XtellaArray.join(left, right), XtellaArray.join(right, left));
+      }
+    }
+
+    assertEquals(Kind.INT, XtellaArray.join(Kind.BYTE, Kind.INT));
+    assertEquals(Kind.LONG, XtellaArray.join(Kind.INT, Kind.LONG));
+    assertEquals(Kind.DOUBLE, XtellaArray.join(Kind.INT, Kind.FLOAT));
+    assertEquals(Kind.DOUBLE, XtellaArray.join(Kind.BYTE, Kind.DOUBLE));
+    assertEquals(Kind.DOUBLE, XtellaArray.join(Kind.FLOAT, Kind.DOUBLE));
+    assertEquals(Kind.OBJECT, XtellaArray.join(Kind.LONG, Kind.FLOAT));
+    assertEquals(Kind.OBJECT, XtellaArray.join(Kind.LONG, Kind.DOUBLE));
+  }
+
+  @Test
+  void appendsWidenFromByteToIntToLong() {
+    XtellaArray array = new XtellaArray();
+
+    array.appendInt(1);
+    assertEquals(Kind.BYTE, array.getKind());
+    array.appendInt(300);
+    assertEquals(Kind.INT, array.getKind());
+    array.appendLong(1L << 40);
+    assertEquals(Kind.LONG, array.getKind());
+
+    for (int i = 0; i < 20; i++) {
+      array.appendInt(i);
+    }
+
+    assertEquals(23, array.size());
+    assertEquals(1, array.get(0));
+    assertEquals(300, array.get(1));
+    assertEquals(1L << 40, array.get(2));
+    assertEquals(19, array.get(22));
+  }
+
+  @Test
+  void integersMixedWithFloatsBecomeDoubles() {
+    XtellaArray array = XtellaArray.of(3, 1.5f);
+
+    assertEquals(Kind.DOUBLE, array.getKind());
+    assertEquals(3.0, array.getDouble(0));
+    assertEquals(1.5, array.getDouble(1));
+
+    array.appendInt(70_000);
+    assertEquals(Kind.DOUBLE, array.getKind());
+    assertEquals(70_000.0, array.get(2));
+  }
+
+  @Test
+  void largeLongsMixedWithDoublesAreNotRounded() {
+    assertEquals((double) BEYOND_DOUBLE, (double) (BEYOND_DOUBLE - 1));
+
+    XtellaArray mixed = XtellaArray.of(BEYOND_DOUBLE, 0.5);
+    assertEquals(Kind.OBJECT, mixed.getKind());
+    assertArrayEquals(new Object[] {BEYOND_DOUBLE, 0.5}, mixed.toArray());
+
+    XtellaArray doubles = XtellaArray.of(0.5);
+    doubles.appendLong(BEYOND_DOUBLE);
+    assertEquals(Kind.OBJECT, doubles.getKind());
+    assertEquals(BEYOND_DOUBLE, doubles.get(1));
+
+    XtellaArray longs = XtellaArray.of(BEYOND_DOUBLE);
+    longs.appendFloat(0.5f);
+    assertEquals(Kind.OBJECT, longs.getKind());
+    assertEquals(BEYOND_DOUBLE, longs.get(0));
+  }
+
+  @Test
+  void appendToArrayWidensTheNamedArray() {
+    XtellaVM vm = new XtellaVM();
+    XtellaArray array = new XtellaArray();
+    vm.setGlobal("xs", array);
+
+    append(vm, XtellaVM.PUSH_INT, 1);
+    assertEquals(Kind.BYTE, array.getKind());
+    append(vm, XtellaVM.PUSH_INT, 70_000);
+    assertEquals(Kind.INT, array.getKind());
+    append(vm, XtellaVM.PUSH_DOUBLE, Double.doubleToRawLongBits(2.5));
+    assertEquals(Kind.DOUBLE, array.getKind());
+    assertArrayEquals(new Object[] {1.0, 70_000.0, 2.5}, array.toArray());
+
+    XtellaArray longs = new XtellaArray();
+    vm.setGlobal("xs", longs);
+
+    append(vm, XtellaVM.PUSH_LONG, BEYOND_DOUBLE);
+    assertEquals(Kind.LONG, longs.getKind());
+    append(vm, XtellaVM.PUSH_DOUBLE, Double.doubleToRawLongBits(0.5));
+    assertEquals(Kind.OBJECT, longs.getKind());
+    assertArrayEquals(new Object[] {BEYOND_DOUBLE, 0.5}, longs.toArray());
+  }
+}
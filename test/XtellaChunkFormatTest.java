@@ -0,0 +1,155 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class XtellaChunkFormatTest {
+  private static final int HEADER_SIZE = 20;
+  private static final BigInteger LARGE = BigInteger.ONE.shiftLeft(100);
+
+  @TempDir Path directory;
+
+  // x < 10 ? "small" : 2^100
+  private static XtellaBytecodeChunk chunk() {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(1);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(10);
+    chunk.emit(XtellaVM.LESS_THAN);
+    chunk.emit(XtellaVM.JUMP_IF_FALSE);
+    int otherwise = chunk.emit(0);
+    chunk.emit(XtellaVM.PUSH_STRING);
+    chunk.emit(chunk.addConstant("small"));
+    chunk.emit(XtellaVM.JUMP);
+    int end = chunk.emit(0);
+    chunk.patch(otherwise, chunk.getCodeLength());
+    chunk.emit(XtellaVM.PUSH_BIG_INTEGER);
+    chunk.emit(chunk.addConstant(LARGE));
+    chunk.patch(end, chunk.getCodeLength());
+    return chunk;
+  }
+
+  private static int[] code(XtellaBytecodeChunk chunk) {
+    return Arrays.copyOf(chunk.getCode(), chunk.getCodeLength());
+  }
+
+  private static XtellaBytecodeChunk read(byte[] bytes) {
+    return XtellaChunkFormat.read(ByteBuffer.wrap(bytes));
+  }
+
+  private static byte[] withCodeWord(byte[] bytes, int index, int word) {
+    byte[] damaged = bytes.clone();
+    ByteBuffer.wrap(damaged).putInt(HEADER_SIZE + 4 * index, word);
+    return damaged;
+  }
+
+  @Test
+  void chunksSurviveARoundTrip() {
+    XtellaBytecodeChunk chunk = chunk();
+    int[] original = code(chunk);
+    chunk.addConstant(1.5f);
+    chunk.addConstant(true);
+    chunk.addConstant(new int[] {1, 5, 9});
+    chunk.addConstant(new XtellaStringSwitch(new String[] {"Aa", "BB"}));
+    chunk.addConstant(new XtellaRegexSwitch(new String[] {"[0-9]+", "x.*"}));
+    chunk.addConstant(new XtellaRegexSet(new String[] {"a+", "b"}));
+    chunk.addPatternConstant("h(e|a)llo");
+
+    XtellaVM vm = new XtellaVM();
+    assertEquals("small", vm.evaluate(chunk, 1_000, 3));
+
+    XtellaBytecodeChunk loaded = read(XtellaChunkFormat.write(chunk));
+    Object[] constants = loaded.getConstants();
+
+    assertArrayEquals(original, code(loaded));
+    assertEquals(1, loaded.getLocalCount());
+    assertEquals(chunk.getConstantCount(), loaded.getConstantCount());
+    assertEquals("small", constants[0]);
+    assertEquals(LARGE, constants[1]);
+    assertEquals(1.5f, constants[2]);
+    assertEquals(true, constants[3]);
+    assertArrayEquals(new int[] {1, 5, 9}, (int[]) constants[4]);
+    assertArrayEquals(new String[] {"Aa", "BB"}, ((XtellaStringSwitch) constants[5]).getKeys());
+    assertArrayEquals(
+        new String[] {"[0-9]+", "x.*"}, ((XtellaRegexSwitch) constants[6]).getPatterns());
+    assertArrayEquals(new String[] {"a+", "b"}, ((XtellaRegexSet) constants[7]).getPatterns());
+    assertEquals("h(e|a)llo", ((Pattern) constants[8]).pattern());
+    assertEquals("small", vm.evaluate(loaded, 1_000, 3));
+    assertEquals(LARGE, vm.evaluate(loaded, 1_000, 30));
+  }
+
+  @Test
+  void damagedChunksAreRejected() {
+    byte[] bytes = XtellaChunkFormat.write(chunk());
+    byte[] huge = bytes.clone();
+    ByteBuffer.wrap(huge).putInt(12, Integer.MAX_VALUE);
+    byte[] trailing = Arrays.copyOf(bytes, bytes.length + 1);
+
+    assertThrows(IllegalArgumentException.class, () -> read(huge));
+    assertThrows(IllegalArgumentException.class, () -> read(Arrays.copyOf(bytes, 30)));
+    assertThrows(IllegalArgumentException.class, () -> read(trailing));
+    assertThrows(IllegalArgumentException.class, () -> read(withCodeWord(bytes, 0, 9_999)));
+    assertThrows(IllegalArgumentException.class, () -> read(withCodeWord(bytes, 10, 14)));
+    assertThrows(IllegalArgumentException.class, () -> read(withCodeWord(bytes, 6, 3)));
+    assertThrows(IllegalArgumentException.class, () -> read(withCodeWord(bytes, 6, -1)));
+    assertThrows(IllegalArgumentException.class, () -> read(withCodeWord(bytes, 8, 5)));
+    assertThrows(IllegalArgumentException.class, () -> read(withCodeWord(bytes, 12, 0)));
+    assertThrows(IllegalArgumentException.class, () -> read(withCodeWord(bytes, 12, 2)));
+  }
+
+  @Test
+  void damagedSwitchTablesAreRejected() {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.TABLE_SWITCH);
+    chunk.emit(0);
+    chunk.emit(2);
+
+    for (int arm = 0; arm < 3; arm++) {
+      chunk.emit(XtellaVM.JUMP);
+      chunk.emit(11);
+    }
+
+    byte[] bytes = XtellaChunkFormat.write(chunk);
+
+    assertNotNull(read(bytes));
+    assertThrows(IllegalArgumentException.class, () -> read(withCodeWord(bytes, 4, 3)));
+    assertThrows(IllegalArgumentException.class, () -> read(withCodeWord(bytes, 4, -1)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> read(withCodeWord(bytes, 9, XtellaVM.PUSH_INT)));
+  }
+
+  @Test
+  void theCacheEvictsAndRecompilesDamagedFiles() throws IOException {
+    XtellaChunkCache cache = new XtellaChunkCache(this.directory);
+    String source = "x < 10";
+    cache.store(XtellaChunkCache.key(source), chunk());
+    Path file = this.directory.resolve(XtellaChunkCache.key(source) + ".xbc");
+    Files.write(file, withCodeWord(Files.readAllBytes(file), 6, 1_000));
+
+    XtellaBytecodeChunk compiled = cache.getOrCompile(source, ignored -> chunk());
+
+    assertEquals(0, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(11, compiled.getCode()[6]);
+    assertTrue(Files.isRegularFile(file));
+    assertEquals(11, cache.load(XtellaChunkCache.key(source)).getCode()[6]);
+  }
+}
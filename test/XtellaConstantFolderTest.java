@@ -0,0 +1,190 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class XtellaConstantFolderTest {
+  @TempDir Path directory;
+
+  private static IdentifierNode load(String name) {
+    return new IdentifierNode(name, XtellaVM.LOAD_VARIABLE);
+  }
+
+  private static AssignStmtNode assign(String name, ExpressionNode expression) {
+    return new AssignStmtNode(new IdentifierNode(name, XtellaVM.STORE_VARIABLE), expression);
+  }
+
+  private static AssignStmtNode assign(String name, String value) {
+    return assign(name, new StringConstNode(value));
+  }
+
+  private static ExpressionNode binary(Object left, String operator, Object right) {
+    return new CompoundExprNode(literal(left), literal(right), operator);
+  }
+
+  private static ExpressionNode literal(Object value) {
+    return value instanceof ExpressionNode ? (ExpressionNode) value : new LiteralNode(value);
+  }
+
+  private static BlockNode block(StatementNode... statements) {
+    return new BlockNode(new StatementListNode(new ArrayList<>(Arrays.asList(statements))));
+  }
+
+  // write "${expression}\n" to the handle opened by run()
+  private static RWStmtNode print(ExpressionNode expression) {
+    AbsynListNode parts = new AbsynListNode(expression);
+    parts.addToList(new StringConstNode("\n"));
+    return new RWStmtNode(RWMode.WRITING, new FStringConstNode(parts), "out");
+  }
+
+  private static ProgramNode program(StatementNode... statements) {
+    return new ProgramNode(new StatementListNode(new ArrayList<>(Arrays.asList(statements))));
+  }
+
+  private static List<StatementNode> fold(ProgramNode program) {
+    program.accept(new XtellaConstantFolder());
+    return program.getStatementList().getStatements();
+  }
+
+  private static List<Integer> opcodes(XtellaBytecodeChunk chunk) {
+    List<Integer> opcodes = new ArrayList<>();
+    int[] code = chunk.getCode();
+
+    for (int ip = 0; ip < chunk.getCodeLength(); ip += 1 + XtellaVM.operandCount(code[ip])) {
+      opcodes.add(code[ip]);
+    }
+
+    return opcodes;
+  }
+
+  private String run(XtellaVM vm, StatementNode... statements) throws IOException {
+    Path output = this.directory.resolve("out.txt");
+    List<StatementNode> body = new ArrayList<>();
+    body.add(new OpenStmtNode(output.toString(), RWMode.WRITING, "out"));
+    body.addAll(Arrays.asList(statements));
+    body.add(new CloseStmtNode("out"));
+
+    new ProgramNode(new StatementListNode(body)).compile(vm);
+    vm.run();
+    return Files.readString(output);
+  }
+
+  @Test
+  void foldsLiteralArithmetic() throws IOException {
+    XtellaVM vm = new XtellaVM();
+
+    String output =
+        run(vm, assign("x", binary(binary(2, "MULTIPLY", 3), "PLUS", 4)), print(load("x")));
+
+    assertEquals("10\n", output);
+    assertFalse(opcodes(vm.getChunk()).contains(XtellaVM.MULTIPLY));
+    assertFalse(opcodes(vm.getChunk()).contains(XtellaVM.ADD));
+    assertFalse(opcodes(vm.getChunk()).contains(XtellaVM.STORE_LOCAL));
+  }
+
+  @Test
+  void keepsArithmeticThatWouldThrow() {
+    ProgramNode program = program(assign("x", binary(1, "DIVIDE", 0)), print(load("x")));
+
+    List<StatementNode> statements = fold(program);
+
+    assertEquals(2, statements.size());
+    AssignStmtNode assignment = (AssignStmtNode) statements.get(0);
+    assertTrue(assignment.getExpression() instanceof CompoundExprNode);
+  }
+
+  @Test
+  void concatenatesStrings() throws IOException {
+    XtellaVM vm = new XtellaVM();
+
+    String output =
+        run(
+            vm,
+            assign("greeting", binary("Hello, ", "PLUS", "world")),
+            print(binary(load("greeting"), "PLUS", "!")));
+
+    assertEquals("Hello, world!\n", output);
+    assertFalse(opcodes(vm.getChunk()).contains(XtellaVM.WRITE_FILE_PARTS));
+    assertFalse(opcodes(vm.getChunk()).contains(XtellaVM.CONCAT));
+  }
+
+  @Test
+  void splicesTheTakenBranchOfAConstantIf() throws IOException {
+    XtellaVM vm = new XtellaVM();
+    ConditionNode condition = new ConditionNode(binary(1, "LT", 2));
+
+    String output =
+        run(
+            vm,
+            new IfStmtNode(condition, block(assign("y", "then")), block(assign("y", "else"))),
+            print(load("y")));
+
+    assertEquals("then\n", output);
+    assertFalse(opcodes(vm.getChunk()).contains(XtellaVM.JUMP_IF_FALSE));
+    assertFalse(opcodes(vm.getChunk()).contains(XtellaVM.JUMP));
+  }
+
+  @Test
+  void removesAWhileLoopThatNeverRuns() {
+    ProgramNode program =
+        program(
+            new WhileStmtNode(new ConditionNode(binary(2, "LT", 1)), block(print(literal(1)))),
+            print(literal("done")));
+
+    List<StatementNode> statements = fold(program);
+
+    assertEquals(1, statements.size());
+    assertTrue(statements.get(0) instanceof RWStmtNode);
+  }
+
+  @Test
+  void keepsLoopsOverChangingVariables() throws IOException {
+    XtellaVM vm = new XtellaVM();
+    ConditionNode condition = new ConditionNode(new CompoundExprNode(load("i"), literal(3), "LT"));
+
+    String output =
+        run(
+            vm,
+            assign("i", literal(0)),
+            new WhileStmtNode(condition, block(assign("i", binary(load("i"), "PLUS", 1)))),
+            print(load("i")));
+
+    assertEquals("3\n", output);
+    assertTrue(opcodes(vm.getChunk()).contains(XtellaVM.JUMP));
+  }
+
+  @Test
+  void dropsOnlyAssignmentsNothingReads() {
+    List<ExpressionNode> arguments = new ArrayList<>();
+    ProgramNode program =
+        program(
+            assign("unused", literal(5)),
+            assign("called", literal(1)),
+            assign("indexed", literal(2)),
+            assign("position", literal(0)),
+            assign("copied", load("source")),
+            print(new PrimaryExprNode(new FunctionCallNode("called", arguments))),
+            print(new PrimaryExprNode("indexed")),
+            print(new PrimaryExprNode("items", load("position"))));
+
+    List<String> assigned = new ArrayList<>();
+
+    for (StatementNode statement : fold(program)) {
+      if (statement instanceof AssignStmtNode) {
+        assigned.add(((AssignStmtNode) statement).getIdentifier().getValue());
+      }
+    }
+
+    assertEquals(Arrays.asList("called", "indexed", "position", "copied"), assigned);
+  }
+}
@@ -0,0 +1,65 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import org.junit.jupiter.api.Test;
+
+class XtellaHashMapTest {
+  private static XtellaHashMap filled(int count) {
+    XtellaHashMap map = new XtellaHashMap();
+
+    for (int key = 0; key < count; key++) {
+      map.put(key, "value" + key);
+    }
+
+    return map;
+  }
+
+  @Test
+  void iteratorFailsWhenAPutResizesTheMap() {
+    XtellaHashMap map = filled(8);
+    map.remove(0);
+    Iterator<Object> keys = map.iterator();
+    keys.next();
+
+    map.put(100, "resized");
+
+    assertThrows(ConcurrentModificationException.class, keys::next);
+  }
+
+  @Test
+  void iteratorFailsAfterRemove() {
+    XtellaHashMap map = filled(4);
+    Iterator<Object> keys = map.iterator();
+    keys.next();
+
+    map.remove(3);
+
+    assertThrows(ConcurrentModificationException.class, keys::next);
+  }
+
+  @Test
+  void forEachFailsWhenTheActionAddsKeys() {
+    XtellaHashMap map = filled(4);
+
+    assertThrows(
+        ConcurrentModificationException.class, () -> map.forEach((key, value) -> map.put("x", 1)));
+  }
+
+  @Test
+  void updatingExistingKeysKeepsIterating() {
+    XtellaHashMap map = filled(16);
+    int visited = 0;
+
+    for (Object key : map) {
+      map.put(key, "updated");
+      visited++;
+    }
+
+    assertEquals(16, visited);
+    assertEquals("updated", map.get(15));
+  }
+}
@@ -0,0 +1,114 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class XtellaInlineCacheTest {
+  private static XtellaObject object(XtellaObject.XtellaType type) {
+    return new XtellaObject(type, new XtellaBytecodeChunk(), null);
+  }
+
+  // A binaryAdd method that ignores its operands and returns value.
+  private static XtellaObject returning(int value) {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(2);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(value);
+    return new XtellaObject(XtellaObject.XtellaType.METHOD, chunk, null);
+  }
+
+  private static XtellaObject withMethod(XtellaObject method) {
+    XtellaObject receiver = object(XtellaObject.XtellaType.INTEGER);
+    receiver.addMethod("binaryAdd", method);
+    return receiver;
+  }
+
+  @Test
+  void receiversSharingAMethodTableHitOneEntry() {
+    XtellaInlineCache cache = new XtellaInlineCache("binaryAdd");
+    XtellaObject first = object(XtellaObject.XtellaType.INTEGER);
+    XtellaObject second = object(XtellaObject.XtellaType.INTEGER);
+    XtellaObject method = cache.lookup(first);
+
+    for (int i = 0; i < 10; i++) {
+      assertSame(method, cache.lookup(i % 2 == 0 ? first : second));
+    }
+
+    assertSame(first.getMethods().get("binaryAdd"), method);
+    assertTrue(cache.isMonomorphic());
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(10, cache.getHitCount());
+  }
+
+  @Test
+  void becomesMegamorphicPastThePolymorphicLimit() {
+    XtellaInlineCache cache = new XtellaInlineCache("binaryAdd");
+    List<XtellaObject> receivers = new ArrayList<>();
+
+    for (int i = 0; i <= XtellaInlineCache.POLYMORPHIC_LIMIT; i++) {
+      receivers.add(withMethod(returning(i)));
+    }
+
+    for (int i = 0; i < XtellaInlineCache.POLYMORPHIC_LIMIT; i++) {
+      cache.lookup(receivers.get(i));
+    }
+
+    assertEquals(XtellaInlineCache.POLYMORPHIC_LIMIT, cache.size());
+    assertFalse(cache.isMegamorphic());
+
+    cache.lookup(receivers.get(XtellaInlineCache.POLYMORPHIC_LIMIT));
+
+    assertTrue(cache.isMegamorphic());
+    assertEquals(0, cache.size());
+
+    for (XtellaObject receiver : receivers) {
+      assertSame(receiver.getMethods().get("binaryAdd"), cache.lookup(receiver));
+    }
+
+    assertEquals(0, cache.getHitCount());
+    assertEquals(2 * receivers.size(), cache.getMissCount());
+  }
+
+  @Test
+  void addingAMethodInvalidatesTheEntry() {
+    XtellaInlineCache cache = new XtellaInlineCache("binaryAdd");
+    XtellaObject before = returning(10);
+    XtellaObject after = returning(20);
+    XtellaObject receiver = withMethod(before);
+
+    assertSame(before, cache.lookup(receiver));
+    assertSame(before, cache.lookup(receiver));
+    receiver.addMethod("binaryAdd", after);
+
+    assertSame(after, cache.lookup(receiver));
+    assertSame(after, cache.lookup(receiver));
+    assertEquals(1, cache.size());
+    assertEquals(2, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  void callSitesSeeReplacedOperatorMethods() {
+    XtellaBytecodeChunk add = new XtellaBytecodeChunk();
+    add.setLocalCount(1);
+    add.emit(XtellaVM.LOAD_LOCAL);
+    add.emit(0);
+    add.emit(XtellaVM.PUSH_INT);
+    add.emit(1);
+    add.emit(XtellaVM.ADD);
+    XtellaObject receiver = withMethod(returning(10));
+    XtellaVM vm = new XtellaVM();
+
+    assertEquals(10, vm.evaluate(add, 1_000, receiver));
+    assertEquals(10, vm.evaluate(add, 1_000, receiver));
+    receiver.addMethod("binaryAdd", returning(20));
+    assertEquals(20, vm.evaluate(add, 1_000, receiver));
+  }
+}
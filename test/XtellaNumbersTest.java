@@ -0,0 +1,77 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import org.junit.jupiter.api.Test;
+
+class XtellaNumbersTest {
+  private static Object shiftLeft(Object value, Object distance) {
+    return XtellaNumbers.evaluate(XtellaVM.SHIFT_LEFT, value, distance);
+  }
+
+  private static Object shiftRight(Object value, Object distance) {
+    return XtellaNumbers.evaluate(XtellaVM.SHIFT_RIGHT, value, distance);
+  }
+
+  @Test
+  void shiftLeftPromotesInsteadOfWrapping() {
+    assertEquals(1 << 30, shiftLeft(1, 30));
+    assertEquals(1L << 31, shiftLeft(1, 31));
+    assertEquals(1L << 32, shiftLeft(1, 32));
+    assertEquals(1L << 40, shiftLeft(1, 40));
+    assertEquals(Long.MIN_VALUE, shiftLeft(-1, 63));
+    assertEquals(BigInteger.ONE.shiftLeft(63), shiftLeft(1, 63));
+    assertEquals(BigInteger.ONE.shiftLeft(64), shiftLeft(1, 64));
+    assertEquals(BigInteger.valueOf(3).shiftLeft(100), shiftLeft(3L, 100L));
+    assertEquals(0, shiftLeft(0, 64));
+  }
+
+  @Test
+  void shiftRightSaturatesAtTheSignBit() {
+    assertEquals(0, shiftRight(1, 32));
+    assertEquals(0, shiftRight(1L << 40, 64));
+    assertEquals(-1, shiftRight(-1, 64));
+    assertEquals(-1, shiftRight(Long.MIN_VALUE, 100));
+    assertEquals(1, shiftRight(BigInteger.ONE.shiftLeft(64), BigInteger.valueOf(64)));
+    assertEquals(0, shiftRight(BigInteger.ONE, BigInteger.ONE.shiftLeft(40)));
+  }
+
+  @Test
+  void negativeShiftDistancesAreRejected() {
+    assertThrows(ArithmeticException.class, () -> shiftLeft(1, -1));
+    assertThrows(ArithmeticException.class, () -> shiftRight(1, -1));
+    assertThrows(
+        ArithmeticException.class, () -> shiftLeft(BigInteger.TEN, BigInteger.ONE.negate()));
+  }
+
+  @Test
+  void promotedResultsAreCappedInBitLength() {
+    int limit = XtellaNumbers.MAX_BIT_LENGTH;
+    BigInteger large = BigInteger.ONE.shiftLeft(limit - 2);
+
+    assertEquals(large, shiftLeft(1, limit - 2));
+    assertEquals(0, shiftLeft(0, limit * 2));
+    assertThrows(ArithmeticException.class, () -> shiftLeft(1, 2_000_000_000));
+    assertThrows(ArithmeticException.class, () -> shiftLeft(1L, (long) limit));
+    assertThrows(ArithmeticException.class, () -> shiftLeft(large, BigInteger.TEN));
+    assertThrows(
+        ArithmeticException.class, () -> XtellaNumbers.evaluate(XtellaVM.MULTIPLY, large, large));
+  }
+
+  @Test
+  void mixedIntegralAndFloatingOperandsPromoteToDouble() {
+    assertEquals(1.5, XtellaNumbers.evaluate(XtellaVM.ADD, 1, 0.5));
+    assertEquals(1.5, XtellaNumbers.evaluate(XtellaVM.ADD, 0.5f, 1L));
+    assertEquals(-2.5, XtellaNumbers.evaluate(XtellaVM.SUBTRACT, 0.5, 3));
+    BigInteger huge = BigInteger.ONE.shiftLeft(70);
+    assertEquals(0x1p69, XtellaNumbers.evaluate(XtellaVM.MULTIPLY, huge, 0.5));
+    assertEquals(0.25, XtellaNumbers.evaluate(XtellaVM.DIVIDE, 1, 4.0f));
+    assertEquals(true, XtellaNumbers.evaluate(XtellaVM.LESS_THAN, 1L, 1.5));
+    assertEquals(true, XtellaNumbers.evaluate(XtellaVM.EQUAL, 2.0f, 2));
+    assertEquals(1.5f, XtellaNumbers.evaluate(XtellaVM.ADD, 1.0f, 0.5f));
+    assertTrue(XtellaNumbers.evaluate(XtellaVM.MODULO, 1, 0.5) == null);
+  }
+}
@@ -0,0 +1,142 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class XtellaPeepholeTest {
+  private static final long BUDGET = 100_000;
+
+  private static XtellaBytecodeChunk chunk(int localCount, int... code) {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(localCount);
+
+    for (int word : code) {
+      chunk.emit(word);
+    }
+
+    return chunk;
+  }
+
+  private static int[] code(XtellaBytecodeChunk chunk) {
+    return Arrays.copyOf(chunk.getCode(), chunk.getCodeLength());
+  }
+
+  private static List<Integer> opcodes(XtellaBytecodeChunk chunk) {
+    List<Integer> opcodes = new ArrayList<>();
+    int[] code = chunk.getCode();
+
+    for (int ip = 0; ip < chunk.getCodeLength(); ip += 1 + XtellaVM.operandCount(code[ip])) {
+      opcodes.add(code[ip]);
+    }
+
+    return opcodes;
+  }
+
+  // sum = 0; for (i = 0; i < 100; i++) sum += i; sum
+  private static XtellaBytecodeChunk loop() {
+    return chunk(
+        2,
+        XtellaVM.PUSH_INT, 0,
+        XtellaVM.STORE_LOCAL, 0,
+        XtellaVM.PUSH_INT, 0,
+        XtellaVM.STORE_LOCAL, 1,
+        XtellaVM.LOAD_LOCAL, 0,
+        XtellaVM.PUSH_INT, 100,
+        XtellaVM.LESS_THAN,
+        XtellaVM.JUMP_IF_FALSE, 31,
+        XtellaVM.LOAD_LOCAL, 1,
+        XtellaVM.LOAD_LOCAL, 0,
+        XtellaVM.ADD,
+        XtellaVM.STORE_LOCAL, 1,
+        XtellaVM.LOAD_LOCAL, 0,
+        XtellaVM.PUSH_INT, 1,
+        XtellaVM.ADD,
+        XtellaVM.STORE_LOCAL, 0,
+        XtellaVM.JUMP, 8,
+        XtellaVM.LOAD_LOCAL, 1);
+  }
+
+  // x = (x < 5 ? 100 : x) + 1; x, where the else arm jumps into the addition
+  private static XtellaBytecodeChunk branch() {
+    return chunk(
+        1,
+        XtellaVM.LOAD_LOCAL, 0,
+        XtellaVM.PUSH_INT, 5,
+        XtellaVM.LESS_THAN,
+        XtellaVM.JUMP_IF_FALSE, 11,
+        XtellaVM.PUSH_INT, 100,
+        XtellaVM.JUMP, 13,
+        XtellaVM.LOAD_LOCAL, 0,
+        XtellaVM.PUSH_INT, 1,
+        XtellaVM.ADD,
+        XtellaVM.STORE_LOCAL, 0,
+        XtellaVM.LOAD_LOCAL, 0);
+  }
+
+  @Test
+  void fusesALoopAndRewritesItsJumps() {
+    XtellaBytecodeChunk chunk = loop();
+
+    assertEquals(3, new XtellaPeephole().optimize(chunk));
+    assertArrayEquals(
+        new int[] {
+          XtellaVM.PUSH_INT, 0,
+          XtellaVM.STORE_LOCAL, 0,
+          XtellaVM.PUSH_INT, 0,
+          XtellaVM.STORE_LOCAL, 1,
+          XtellaVM.LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE, 0, 100, 22,
+          XtellaVM.LOAD_LOCAL_LOAD_LOCAL_ADD_STORE_LOCAL, 1, 0, 1,
+          XtellaVM.LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL, 0, 1, 0,
+          XtellaVM.JUMP, 8,
+          XtellaVM.LOAD_LOCAL, 1
+        },
+        code(chunk));
+    assertEquals(4950, new XtellaVM().evaluate(chunk, BUDGET));
+    assertEquals(4950, new XtellaVM().evaluate(loop(), BUDGET));
+  }
+
+  @Test
+  void doesNotFuseAcrossAJumpTarget() {
+    XtellaBytecodeChunk chunk = branch();
+
+    assertEquals(1, new XtellaPeephole().optimize(chunk));
+    assertArrayEquals(
+        new int[] {
+          XtellaVM.LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE, 0, 5, 8,
+          XtellaVM.PUSH_INT, 100,
+          XtellaVM.JUMP, 10,
+          XtellaVM.LOAD_LOCAL, 0,
+          XtellaVM.PUSH_INT, 1,
+          XtellaVM.ADD,
+          XtellaVM.STORE_LOCAL, 0,
+          XtellaVM.LOAD_LOCAL, 0
+        },
+        code(chunk));
+
+    for (int x = 0; x < 10; x++) {
+      Object expected = new XtellaVM().evaluate(branch(), BUDGET, x);
+
+      assertEquals(expected, new XtellaVM().evaluate(chunk, BUDGET, x));
+    }
+  }
+
+  @Test
+  void matchesQuickenedOpcodes() {
+    XtellaBytecodeChunk chunk = loop();
+    assertEquals(4950, new XtellaVM().evaluate(chunk, BUDGET));
+
+    assertTrue(opcodes(chunk).contains(XtellaVM.LESS_THAN_INT));
+    assertFalse(opcodes(chunk).contains(XtellaVM.LESS_THAN));
+
+    assertEquals(3, new XtellaPeephole().optimize(chunk));
+    assertEquals(XtellaVM.LOAD_LOCAL_PUSH_INT_LT_JUMP_IF_FALSE, chunk.getCode()[8]);
+    assertEquals(4950, new XtellaVM().evaluate(chunk, BUDGET));
+  }
+}
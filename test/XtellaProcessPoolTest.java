@@ -0,0 +1,99 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class XtellaProcessPoolTest {
+  private static final Duration LIMIT = Duration.ofSeconds(10);
+
+  // The permit comes back from process.onExit(), which completes asynchronously.
+  private static void awaitIdle(XtellaProcessPool pool) throws InterruptedException {
+    long deadline = System.nanoTime() + LIMIT.toNanos();
+
+    while (pool.getRunningCount() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+
+    assertEquals(0, pool.getRunningCount());
+  }
+
+  private static Object run(XtellaVM vm, Object process, int... code) {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(1);
+
+    for (int word : code) {
+      chunk.emit(word);
+    }
+
+    return vm.evaluate(chunk, 100, process);
+  }
+
+  @Test
+  void permitsAreReleasedWhenProcessesExit() throws Exception {
+    XtellaProcessPool pool = new XtellaProcessPool(1, 0);
+
+    assertTimeoutPreemptively(
+        LIMIT,
+        () -> {
+          for (int i = 0; i < 3; i++) {
+            try (XtellaProcess process = pool.start("true")) {
+              assertEquals(0, process.waitFor());
+            }
+
+            awaitIdle(pool);
+          }
+        });
+  }
+
+  @Test
+  void processesAreKilledWhenTheyTimeOut() throws Exception {
+    XtellaProcessPool pool = new XtellaProcessPool(1, 200);
+    XtellaProcess process = pool.start("sleep 30");
+
+    IllegalStateException timedOut =
+        assertTimeoutPreemptively(
+            LIMIT, () -> assertThrows(IllegalStateException.class, process::waitFor));
+
+    assertEquals("Command timed out: sleep 30", timedOut.getMessage());
+    assertTrue(process.isTimedOut());
+    assertFalse(process.isAlive());
+    awaitIdle(pool);
+  }
+
+  @Test
+  void readLineReturnsAnEmptyStringAtEndOfOutput() throws IOException, InterruptedException {
+    XtellaVM vm = new XtellaVM();
+
+    try (XtellaProcess process = new XtellaProcessPool().start("echo hello")) {
+      int[] readLine = {XtellaVM.LOAD_LOCAL, 0, XtellaVM.READ_LINE_FROM_PROCESS};
+
+      assertEquals("hello", run(vm, process, readLine));
+      assertEquals("", run(vm, process, readLine));
+      assertEquals("", run(vm, process, readLine));
+    }
+  }
+
+  @Test
+  void waitProcessDrainsUnreadOutput() throws InterruptedException {
+    XtellaProcessPool pool = new XtellaProcessPool(1, 0);
+    XtellaVM vm = new XtellaVM();
+    vm.setProcessPool(pool);
+    vm.beginChunk(0);
+    vm.addInstruction(XtellaVM.PUSH_STRING);
+    vm.addOperand((Object) "seq 1 100000");
+    vm.addInstruction(XtellaVM.EXEC_COMMAND);
+    vm.addInstruction(XtellaVM.WAIT_PROCESS);
+    vm.endChunk();
+
+    // seq writes about 575 KB, far more than a pipe buffer holds.
+    assertEquals(0, assertTimeoutPreemptively(LIMIT, () -> vm.evaluate(vm.getChunk(), 100)));
+    awaitIdle(pool);
+  }
+}
@@ -0,0 +1,55 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class XtellaRegexCacheTest {
+  @Test
+  void evictsTheLeastRecentlyUsedPattern() {
+    XtellaRegexCache cache = new XtellaRegexCache(2);
+    Pattern a = cache.compile("a+");
+    Pattern b = cache.compile("b+");
+
+    assertSame(a, cache.compile("a+"));
+    Pattern c = cache.compile("c+");
+
+    assertEquals(2, cache.size());
+    assertSame(a, cache.compile("a+"));
+    assertNotSame(b, cache.compile("b+"));
+    assertNotSame(c, cache.compile("c+"));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void countsHitsAndMisses() {
+    XtellaRegexCache cache = new XtellaRegexCache();
+
+    for (int i = 0; i < 10; i++) {
+      cache.compile("[0-9]+");
+      cache.compile("x" + (i % 3));
+    }
+
+    assertEquals(4, cache.size());
+    assertEquals(4, cache.getMissCount());
+    assertEquals(16, cache.getHitCount());
+
+    cache.clear();
+
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getMissCount());
+    assertEquals(0, cache.getHitCount());
+    cache.compile("[0-9]+");
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  void capacityMustBePositive() {
+    assertThrows(IllegalArgumentException.class, () -> new XtellaRegexCache(0));
+    assertEquals(XtellaRegexCache.DEFAULT_CAPACITY, new XtellaRegexCache().getCapacity());
+  }
+}
@@ -0,0 +1,110 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class XtellaRegexSetTest {
+  private static final String[] PATTERNS = {
+    "abc",
+    "abcd",
+    "bc",
+    ".*bcd.*",
+    "a[bc]+d",
+    "[^a]*cab",
+    "ab?c",
+    "x*abc",
+    "a{0,2}bcd",
+    "a\\.b.*",
+    "\\Qa.b\\E",
+    "(ab|cd)+",
+    "(da|x)b.*",
+    "cat|dog",
+    "\\d+ab",
+    "(?i)ABC",
+    "d.?a.b"
+  };
+
+  private static final String ALPHABET = "abcdx.1";
+
+  private static int bruteFirstMatch(CharSequence input) {
+    for (int i = 0; i < PATTERNS.length; i++) {
+      if (Pattern.matches(PATTERNS[i], input)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private static int[] bruteAllMatches(CharSequence input) {
+    List<Integer> matches = new ArrayList<>();
+
+    for (int i = 0; i < PATTERNS.length; i++) {
+      if (Pattern.matches(PATTERNS[i], input)) {
+        matches.add(i);
+      }
+    }
+
+    return matches.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static void assertAgrees(XtellaRegexSet set, CharSequence input) {
+    assertEquals(bruteFirstMatch(input), set.firstMatch(input), () -> "firstMatch " + input);
+    assertArrayEquals(bruteAllMatches(input), set.allMatches(input), () -> "allMatches " + input);
+  }
+
+  @Test
+  void requiredLiteralsAreSubstringsOfEveryMatch() {
+    assertEquals("abc", XtellaRegexSet.requiredLiteral("abc"));
+    assertEquals("a", XtellaRegexSet.requiredLiteral("ab?c"));
+    assertEquals("abc", XtellaRegexSet.requiredLiteral("x*abc"));
+    assertEquals("abc", XtellaRegexSet.requiredLiteral("abc+"));
+    assertEquals("bcd", XtellaRegexSet.requiredLiteral("a{0,2}bcd"));
+    assertEquals("foo", XtellaRegexSet.requiredLiteral("foo[0-9]+bar"));
+    assertEquals("a.b", XtellaRegexSet.requiredLiteral("a\\.b.*"));
+    assertEquals("food", XtellaRegexSet.requiredLiteral("(cat|dog)food"));
+    assertEquals("ab", XtellaRegexSet.requiredLiteral("\\d+ab"));
+    assertNull(XtellaRegexSet.requiredLiteral("\\Qa.b\\E"));
+    assertNull(XtellaRegexSet.requiredLiteral("cat|dog"));
+    assertNull(XtellaRegexSet.requiredLiteral("(?i)ABC"));
+    assertNull(XtellaRegexSet.requiredLiteral("[abc]*"));
+  }
+
+  @Test
+  void matchesAgreeWithTryingEveryPattern() {
+    XtellaRegexSet set = new XtellaRegexSet(PATTERNS);
+    Random random = new Random(42);
+
+    for (String input :
+        new String[] {"", "abc", "abcd", "bc", "xabc", "bcd", "a.b", "a.bx", "cdab", "12ab"}) {
+      assertAgrees(set, input);
+    }
+
+    for (int round = 0; round < 20_000; round++) {
+      StringBuilder input = new StringBuilder();
+      int length = random.nextInt(8);
+
+      for (int i = 0; i < length; i++) {
+        input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+      }
+
+      assertAgrees(set, input.toString());
+    }
+  }
+
+  @Test
+  void ropeInputsMatchLikeStrings() {
+    XtellaRegexSet set = new XtellaRegexSet(PATTERNS);
+
+    assertAgrees(set, XtellaRope.of("ab").append("cd"));
+    assertAgrees(set, XtellaRope.of("a.").append("b"));
+    assertAgrees(set, XtellaRope.of("da").append("xb"));
+  }
+}
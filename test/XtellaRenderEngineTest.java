@@ -0,0 +1,184 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class XtellaRenderEngineTest {
+  // loop forever: slot0 = slot0 ^ 1
+  private static XtellaBytecodeChunk spin() {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(1);
+
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(0);
+
+    int loopStart = chunk.getCodeLength();
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.BITWISE_XOR);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.JUMP);
+    chunk.emit(loopStart);
+    return chunk;
+  }
+
+  // returns 1 + 2 + ... + n for the argument n
+  private static XtellaBytecodeChunk sum() {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(3);
+
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(2);
+
+    int loopStart = chunk.getCodeLength();
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.LESS_THAN);
+    chunk.emit(XtellaVM.JUMP_IF_FALSE);
+    int exitOperand = chunk.emit(0);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.ADD);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(2);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.ADD);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(2);
+    chunk.emit(XtellaVM.JUMP);
+    chunk.emit(loopStart);
+
+    chunk.patch(exitOperand, chunk.getCodeLength());
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(2);
+    return chunk;
+  }
+
+  // counts a local up to `limit` and returns it; used as a binaryAdd method body
+  private static XtellaBytecodeChunk count(int limit) {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(3);
+
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(2);
+
+    int loopStart = chunk.getCodeLength();
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(2);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(limit);
+    chunk.emit(XtellaVM.LESS_THAN);
+    chunk.emit(XtellaVM.JUMP_IF_FALSE);
+    int exitOperand = chunk.emit(0);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(2);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.ADD);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(2);
+    chunk.emit(XtellaVM.JUMP);
+    chunk.emit(loopStart);
+
+    chunk.patch(exitOperand, chunk.getCodeLength());
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(2);
+    return chunk;
+  }
+
+  // returns argument + 1, which calls the argument's binaryAdd method
+  private static XtellaBytecodeChunk addOne() {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(1);
+
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.ADD);
+    return chunk;
+  }
+
+  @Test
+  void timeoutStopsCompiledLoops() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    XtellaBytecodeChunk chunk = spin();
+
+    try (XtellaRenderEngine engine = new XtellaRenderEngine(executor, 1)) {
+      XtellaRenderEngine.Limits limits = new XtellaRenderEngine.Limits(Long.MAX_VALUE, 200);
+
+      assertThrows(IllegalStateException.class, () -> engine.render(chunk, limits));
+      assertTrue(engine.getTier2().isCompiled(chunk));
+    } finally {
+      executor.shutdown();
+    }
+
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void concurrentRendersShareOneChunk() throws Exception {
+    XtellaBytecodeChunk chunk = sum();
+
+    try (XtellaRenderEngine engine = new XtellaRenderEngine()) {
+      List<Future<Object>> results = new ArrayList<>();
+
+      for (int render = 0; render < 400; render++) {
+        results.add(engine.submit(chunk, 1000 + render % 10));
+      }
+
+      for (int render = 0; render < results.size(); render++) {
+        int n = 1000 + render % 10;
+        assertEquals(n * (n + 1) / 2, results.get(render).get());
+      }
+    }
+  }
+
+  @Test
+  void nestedCallsDrawOnTheRenderBudget() {
+    XtellaObject receiver =
+        new XtellaObject(XtellaObject.XtellaType.INTEGER, new XtellaBytecodeChunk(), null);
+    receiver.addMethod(
+        "binaryAdd", new XtellaObject(XtellaObject.XtellaType.METHOD, count(5000), null));
+    XtellaBytecodeChunk chunk = addOne();
+
+    try (XtellaRenderEngine engine = new XtellaRenderEngine()) {
+      XtellaRenderEngine.Limits limits = new XtellaRenderEngine.Limits(1000, 0);
+
+      assertEquals(5000, engine.render(chunk, receiver));
+
+      IllegalStateException e =
+          assertThrows(IllegalStateException.class, () -> engine.render(chunk, limits, receiver));
+      assertTrue(e.getMessage().contains("exhausted"), e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class XtellaResolverTest {
+  @TempDir Path directory;
+
+  private static IdentifierNode load(String name) {
+    return new IdentifierNode(name, XtellaVM.LOAD_VARIABLE);
+  }
+
+  private static AssignStmtNode assign(String name, ExpressionNode expression) {
+    return new AssignStmtNode(new IdentifierNode(name, XtellaVM.STORE_VARIABLE), expression);
+  }
+
+  private static BlockNode block(StatementNode... statements) {
+    return new BlockNode(new StatementListNode(new ArrayList<>(Arrays.asList(statements))));
+  }
+
+  private static ProgramNode program(StatementNode... statements) {
+    return new ProgramNode(new StatementListNode(new ArrayList<>(Arrays.asList(statements))));
+  }
+
+  private static RWStmtNode print(ExpressionNode expression) {
+    AbsynListNode parts = new AbsynListNode(expression);
+    parts.addToList(new StringConstNode("\n"));
+    return new RWStmtNode(RWMode.WRITING, new FStringConstNode(parts), "out");
+  }
+
+  private static int slot(AssignStmtNode assignment) {
+    return assignment.getIdentifier().getSlot();
+  }
+
+  private String run(XtellaVM vm, StatementNode... statements) throws IOException {
+    Path output = this.directory.resolve("out.txt");
+    List<StatementNode> body = new ArrayList<>();
+    body.add(new OpenStmtNode(output.toString(), RWMode.WRITING, "out"));
+    body.addAll(Arrays.asList(statements));
+    body.add(new CloseStmtNode("out"));
+
+    ProgramNode program = new ProgramNode(new StatementListNode(body));
+    XtellaResolver resolver = new XtellaResolver();
+    program.accept(resolver);
+
+    vm.beginChunk(resolver.getLocalCount());
+    program.interpretSelf(vm);
+    vm.endChunk();
+    vm.run();
+    return Files.readString(output);
+  }
+
+  @Test
+  void innerBlocksReuseOuterSlotsAndReleaseTheirOwn() {
+    AssignStmtNode outer = assign("x", new LiteralNode(1));
+    AssignStmtNode shadow = assign("x", new LiteralNode(2));
+    AssignStmtNode first = assign("y", new LiteralNode(3));
+    AssignStmtNode sibling = assign("z", new LiteralNode(4));
+    IdentifierNode read = load("x");
+    ConditionNode condition = new ConditionNode(load("flag"));
+    ProgramNode program =
+        program(
+            outer,
+            new IfStmtNode(condition, block(shadow, first), block(sibling)),
+            assign("w", read));
+
+    XtellaResolver resolver = new XtellaResolver();
+    program.accept(resolver);
+
+    assertEquals(0, slot(outer));
+    assertEquals(0, slot(shadow));
+    assertEquals(1, slot(first));
+    assertEquals(1, slot(sibling));
+    assertEquals(0, read.getSlot());
+    assertEquals(2, resolver.getLocalCount());
+  }
+
+  @Test
+  void namesReadBeforeAssignmentStayGlobal() throws IOException {
+    XtellaVM vm = new XtellaVM();
+    vm.setGlobal("w", "outer");
+    IdentifierNode early = load("w");
+    AssignStmtNode assignment = assign("w", new StringConstNode("inner"));
+
+    String output = run(vm, print(early), assignment, print(load("w")));
+
+    assertEquals("outer\ninner\n", output);
+    assertFalse(early.isLocal());
+    assertFalse(assignment.getIdentifier().isLocal());
+    assertEquals("inner", vm.getGlobal("w"));
+  }
+
+  @Test
+  void namesUsedByIndexedOrCallOpcodesArePinned() throws IOException {
+    XtellaVM vm = new XtellaVM();
+    List<ExpressionNode> elements = Arrays.asList(new LiteralNode(10), new LiteralNode(20));
+    AssignStmtNode items = assign("items", new ArrayNode(elements));
+    AssignStmtNode local = assign("count", new LiteralNode(2));
+
+    String output =
+        run(
+            vm,
+            items,
+            local,
+            print(new PrimaryExprNode("items", new LiteralNode(1))),
+            print(load("count")));
+
+    assertEquals("20\n2\n", output);
+    assertFalse(items.getIdentifier().isLocal());
+    assertTrue(local.getIdentifier().isLocal());
+
+    AssignStmtNode callee = assign("f", new LiteralNode(1));
+    FunctionCallNode call = new FunctionCallNode("f", new ArrayList<>());
+    ProgramNode program = program(callee, print(new PrimaryExprNode(call)));
+    XtellaResolver resolver = new XtellaResolver();
+    program.accept(resolver);
+
+    assertTrue(resolver.isPinned("f"));
+    assertFalse(callee.getIdentifier().isLocal());
+    assertEquals(0, resolver.getLocalCount());
+  }
+}
@@ -0,0 +1,120 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class XtellaRopeTest {
+  private static final int CHUNK_SIZE = 8192;
+
+  @TempDir Path directory;
+
+  private static String text(int length) {
+    StringBuilder text = new StringBuilder(length);
+
+    for (int i = 0; i < length; i++) {
+      text.append(i % 97 == 0 ? 'é' : (char) ('a' + i % 26));
+    }
+
+    return text.toString();
+  }
+
+  @Test
+  void smallAppendsGrowChunksAndTheChunkTable() {
+    String expected = text(5 * CHUNK_SIZE + 7);
+    XtellaRope rope = XtellaRope.of("");
+
+    for (int i = 0; i < expected.length(); i += 13) {
+      rope = rope.append(expected.substring(i, Math.min(i + 13, expected.length())));
+    }
+
+    assertEquals(expected.length(), rope.length());
+    assertEquals(expected, rope.toString());
+
+    for (int boundary = CHUNK_SIZE; boundary < expected.length(); boundary += CHUNK_SIZE) {
+      assertEquals(expected.charAt(boundary - 1), rope.charAt(boundary - 1));
+      assertEquals(expected.charAt(boundary), rope.charAt(boundary));
+    }
+
+    char[] window = new char[20];
+    rope.getChars(CHUNK_SIZE - 10, CHUNK_SIZE + 10, window, 0);
+    assertEquals(expected.substring(CHUNK_SIZE - 10, CHUNK_SIZE + 10), new String(window));
+  }
+
+  @Test
+  void shortConcatenationsStayFlatStrings() {
+    String half = text(64);
+
+    assertTrue(XtellaRope.concat(half, half) instanceof String);
+    assertTrue(XtellaRope.concat(half, half + "x") instanceof XtellaRope);
+    assertTrue(XtellaRope.concat(XtellaRope.of("a"), "b") instanceof XtellaRope);
+    assertEquals("a1", XtellaRope.concat("a", 1));
+    assertSame(half, XtellaRope.concat(half, ""));
+    assertSame(half, XtellaRope.concat("", half));
+    assertEquals(half + half + "x", XtellaRope.concat(half, half + "x").toString());
+  }
+
+  @Test
+  void hashCodesMatchStrings() {
+    for (int length : new int[] {0, 1, 31, 128, CHUNK_SIZE, 3 * CHUNK_SIZE + 1}) {
+      String expected = text(length);
+
+      assertEquals(expected.hashCode(), XtellaRope.of(expected).hashCode());
+      assertEquals(expected.hashCode(), XtellaRope.of("").append(expected).hashCode());
+    }
+  }
+
+  @Test
+  void contentEqualsComparesCharacters() {
+    XtellaRope rope = XtellaRope.of("ab").append("cd");
+
+    assertTrue(XtellaRope.contentEquals(rope, "abcd"));
+    assertTrue(XtellaRope.contentEquals("abcd", rope));
+    assertTrue(XtellaRope.contentEquals(rope, new StringBuilder("abcd")));
+    assertFalse(XtellaRope.contentEquals(rope, "abce"));
+    assertFalse(XtellaRope.contentEquals(rope, "abc"));
+    assertTrue(rope.equals(XtellaRope.of("abcd")));
+    assertFalse(rope.equals("abcd"));
+  }
+
+  @Test
+  void appendsToASharedRopeDoNotLeakIntoEachOther() {
+    XtellaRope base = XtellaRope.of("abc");
+    XtellaRope left = base.append("def");
+    XtellaRope right = base.append("XYZ");
+    CharSequence joined = XtellaRope.concat(left, "!");
+    XtellaRope branch = left.append("?");
+
+    assertEquals("abc", base.toString());
+    assertEquals("abcdef", left.toString());
+    assertEquals("abcXYZ", right.toString());
+    assertEquals("abcdef!", joined.toString());
+    assertEquals("abcdef?", branch.toString());
+    assertEquals("abcdef!!", XtellaRope.concat(joined, "!").toString());
+  }
+
+  @Test
+  void writeToEncodesEveryChunk() throws IOException {
+    String expected = text(2 * CHUNK_SIZE + 100);
+    Path output = this.directory.resolve("rope.txt");
+
+    try (FileChannel channel =
+        FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      XtellaOutputSink sink = new XtellaOutputSink(channel, StandardCharsets.UTF_8, 1024);
+      XtellaRope.of(expected).writeTo(sink);
+      sink.flush();
+    }
+
+    assertEquals(expected, Files.readString(output));
+  }
+}
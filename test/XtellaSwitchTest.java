@@ -0,0 +1,176 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class XtellaSwitchTest {
+  private static final int SUBJECT_SLOT = 0;
+  private static final int COUNTER_SLOT = 1;
+  private static final long BUDGET = 10_000;
+
+  private static IdentifierNode local(String name, int opcode, int slot) {
+    IdentifierNode identifier = new IdentifierNode(name, opcode);
+    identifier.resolveSlot(slot);
+    return identifier;
+  }
+
+  // counter = counter + 1; result = value
+  private static MatchCaseNode arm(ExpressionNode pattern, String value) {
+    IdentifierNode counter = local("counter", XtellaVM.STORE_VARIABLE, COUNTER_SLOT);
+    ExpressionNode increment =
+        new CompoundExprNode(
+            local("counter", XtellaVM.LOAD_VARIABLE, COUNTER_SLOT), new LiteralNode(1), "PLUS");
+    IdentifierNode result = new IdentifierNode("result", XtellaVM.STORE_VARIABLE);
+    List<StatementNode> statements =
+        Arrays.asList(
+            new AssignStmtNode(counter, increment),
+            new AssignStmtNode(result, new StringConstNode(value)));
+    return new MatchCaseNode(pattern, new BlockNode(new StatementListNode(statements)));
+  }
+
+  private static MatchStmtNode match(ExpressionNode... patterns) {
+    List<MatchCaseNode> arms = new ArrayList<>();
+
+    for (ExpressionNode pattern : patterns) {
+      arms.add(arm(pattern, "case" + arms.size()));
+    }
+
+    return new MatchStmtNode(local("subject", XtellaVM.LOAD_VARIABLE, SUBJECT_SLOT), arms);
+  }
+
+  private static ExpressionNode[] integers(int... keys) {
+    ExpressionNode[] patterns = new ExpressionNode[keys.length];
+
+    for (int i = 0; i < keys.length; i++) {
+      patterns[i] = new LiteralNode(keys[i]);
+    }
+
+    return patterns;
+  }
+
+  private static XtellaVM compile(MatchStmtNode match, XtellaPeephole peephole) {
+    XtellaVM vm = new XtellaVM();
+    vm.setPeephole(peephole);
+    vm.beginChunk(2);
+    new AssignStmtNode(local("counter", XtellaVM.STORE_VARIABLE, COUNTER_SLOT), new LiteralNode(0))
+        .interpretSelf(vm);
+    match.interpretSelf(vm);
+    vm.endChunk();
+    return vm;
+  }
+
+  private static Object result(XtellaVM vm, Object subject) {
+    vm.setGlobal("result", "default");
+    vm.evaluate(vm.getChunk(), BUDGET, subject);
+    return vm.getGlobal("result");
+  }
+
+  private static List<Integer> opcodes(XtellaBytecodeChunk chunk) {
+    List<Integer> opcodes = new ArrayList<>();
+    int[] code = chunk.getCode();
+
+    for (int ip = 0; ip < chunk.getCodeLength(); ip += 1 + XtellaVM.operandCount(code[ip])) {
+      opcodes.add(code[ip]);
+    }
+
+    return opcodes;
+  }
+
+  @Test
+  void denseKeysUseATableSwitch() {
+    XtellaVM vm = compile(match(integers(3, 1, 2, 5)), null);
+
+    assertTrue(opcodes(vm.getChunk()).contains(XtellaVM.TABLE_SWITCH));
+    assertEquals("case0", result(vm, 3));
+    assertEquals("case1", result(vm, 1));
+    assertEquals("case2", result(vm, 2));
+    assertEquals("case3", result(vm, 5));
+    assertEquals("default", result(vm, 4));
+    assertEquals("default", result(vm, 0));
+    assertEquals("default", result(vm, Integer.MIN_VALUE));
+    assertEquals("default", result(vm, "3"));
+  }
+
+  @Test
+  void sparseKeysUseALookupSwitch() {
+    XtellaVM vm = compile(match(integers(1_000_000, -7, 1, Integer.MAX_VALUE)), null);
+
+    assertTrue(opcodes(vm.getChunk()).contains(XtellaVM.LOOKUP_SWITCH));
+    assertFalse(opcodes(vm.getChunk()).contains(XtellaVM.TABLE_SWITCH));
+    assertEquals("case0", result(vm, 1_000_000));
+    assertEquals("case1", result(vm, -7));
+    assertEquals("case2", result(vm, 1));
+    assertEquals("case3", result(vm, Integer.MAX_VALUE));
+    assertEquals("default", result(vm, 2));
+    assertEquals("default", result(vm, 1_000_000L));
+  }
+
+  @Test
+  void stringKeysWithCollidingHashesStayApart() {
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    XtellaVM vm =
+        compile(
+            match(
+                new StringConstNode("Aa"), new StringConstNode("BB"), new StringConstNode("AaBB")),
+            null);
+
+    assertTrue(opcodes(vm.getChunk()).contains(XtellaVM.STRING_SWITCH));
+    assertEquals("case0", result(vm, "Aa"));
+    assertEquals("case1", result(vm, "BB"));
+    assertEquals("case2", result(vm, "AaBB"));
+    assertEquals("default", result(vm, "BBAa"));
+    assertEquals("default", result(vm, "C"));
+    assertEquals("default", result(vm, 1));
+  }
+
+  @Test
+  void ropeSubjectsMatchTheirContent() {
+    XtellaVM vm = compile(match(new StringConstNode("Aa"), new StringConstNode("BB")), null);
+
+    assertEquals("case1", result(vm, XtellaRope.of("B").append("B")));
+    assertEquals("case0", result(vm, XtellaRope.of("A").append("a")));
+    assertEquals("default", result(vm, XtellaRope.of("A").append("b")));
+  }
+
+  @Test
+  void regexKeysPickTheFirstFullMatch() {
+    XtellaVM vm =
+        compile(
+            match(
+                new RegexConstNode("[0-9]+"),
+                new RegexConstNode("item-[a-z]+"),
+                new RegexConstNode("item-.*")),
+            null);
+
+    assertTrue(opcodes(vm.getChunk()).contains(XtellaVM.REGEX_SWITCH));
+    assertEquals("case0", result(vm, "2024"));
+    assertEquals("case1", result(vm, "item-box"));
+    assertEquals("case2", result(vm, "item-42"));
+    assertEquals("case2", result(vm, XtellaRope.of("item-").append("7")));
+    assertEquals("default", result(vm, "2024-item"));
+  }
+
+  @Test
+  void peepholeRemapsTheJumpTable() {
+    MatchStmtNode plain = match(integers(1, 2, 3, 4));
+    MatchStmtNode fused = match(integers(1, 2, 3, 4));
+    XtellaVM unfused = compile(plain, null);
+    XtellaVM optimized = compile(fused, new XtellaPeephole());
+
+    assertTrue(
+        opcodes(optimized.getChunk()).contains(XtellaVM.LOAD_LOCAL_PUSH_INT_ADD_STORE_LOCAL));
+    assertTrue(optimized.getChunk().getCodeLength() < unfused.getChunk().getCodeLength());
+
+    for (int subject = 0; subject <= 5; subject++) {
+      assertEquals(result(unfused, subject), result(optimized, subject));
+    }
+
+    assertEquals("case3", result(optimized, 4));
+  }
+}
@@ -0,0 +1,166 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class XtellaTaskTest {
+  private static final long BUDGET = 1_000_000;
+
+  // Integer words are emitted as they are, strings as constant indexes.
+  private static XtellaBytecodeChunk chunk(int localCount, Object... words) {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(localCount);
+
+    for (Object word : words) {
+      chunk.emit(word instanceof String ? chunk.addConstant(word) : (Integer) word);
+    }
+
+    return chunk;
+  }
+
+  // producer(out, n): for i in 0 until n: out <- i; close(out)
+  private static XtellaBytecodeChunk producer() {
+    return chunk(
+        3,
+        XtellaVM.PUSH_INT, 0,
+        XtellaVM.STORE_LOCAL, 2,
+        XtellaVM.LOAD_LOCAL, 2,
+        XtellaVM.LOAD_LOCAL, 1,
+        XtellaVM.LESS_THAN,
+        XtellaVM.JUMP_IF_FALSE, 25,
+        XtellaVM.LOAD_LOCAL, 0,
+        XtellaVM.LOAD_LOCAL, 2,
+        XtellaVM.SEND,
+        XtellaVM.LOAD_LOCAL, 2,
+        XtellaVM.PUSH_INT, 1,
+        XtellaVM.ADD,
+        XtellaVM.STORE_LOCAL, 2,
+        XtellaVM.JUMP, 4,
+        XtellaVM.LOAD_LOCAL, 0,
+        XtellaVM.CLOSE_CHANNEL);
+  }
+
+  // doubler(in, out): for x in in: out <- x * 2; close(out)
+  private static XtellaBytecodeChunk doubler() {
+    return chunk(
+        2,
+        XtellaVM.LOAD_LOCAL, 0,
+        XtellaVM.GET_ITER,
+        XtellaVM.FOR_NEXT, 14,
+        XtellaVM.LOAD_LOCAL, 1,
+        XtellaVM.SWAP_VALUE,
+        XtellaVM.PUSH_INT, 2,
+        XtellaVM.MULTIPLY,
+        XtellaVM.SEND,
+        XtellaVM.JUMP, 3,
+        XtellaVM.LOAD_LOCAL, 1,
+        XtellaVM.CLOSE_CHANNEL);
+  }
+
+  // pipeline(n): sums doubler(producer(n)) and joins both stages
+  private static XtellaBytecodeChunk pipeline() {
+    return chunk(
+        4,
+        XtellaVM.MAKE_CHANNEL, 4,
+        XtellaVM.STORE_LOCAL, 1,
+        XtellaVM.MAKE_CHANNEL, 4,
+        XtellaVM.STORE_LOCAL, 2,
+        XtellaVM.PUSH_STRING, "producer",
+        XtellaVM.LOAD_LOCAL, 1,
+        XtellaVM.LOAD_LOCAL, 0,
+        XtellaVM.RUN_THREAD, 2,
+        XtellaVM.PUSH_STRING, "doubler",
+        XtellaVM.LOAD_LOCAL, 1,
+        XtellaVM.LOAD_LOCAL, 2,
+        XtellaVM.RUN_THREAD, 2,
+        XtellaVM.PUSH_INT, 0,
+        XtellaVM.STORE_LOCAL, 3,
+        XtellaVM.LOAD_LOCAL, 2,
+        XtellaVM.GET_ITER,
+        XtellaVM.FOR_NEXT, 40,
+        XtellaVM.LOAD_LOCAL, 3,
+        XtellaVM.ADD,
+        XtellaVM.STORE_LOCAL, 3,
+        XtellaVM.JUMP, 31,
+        XtellaVM.JOIN,
+        XtellaVM.STORE_LOCAL, 1,
+        XtellaVM.JOIN,
+        XtellaVM.STORE_LOCAL, 2,
+        XtellaVM.LOAD_LOCAL, 3);
+  }
+
+  // spawn(argument): pushes the handle of name(argument) without joining it
+  private static XtellaBytecodeChunk spawn(String name) {
+    return chunk(
+        1,
+        XtellaVM.PUSH_STRING, name,
+        XtellaVM.LOAD_LOCAL, 0,
+        XtellaVM.RUN_THREAD, 1);
+  }
+
+  @Test
+  void channelsConnectAPipelineOfTasks() {
+    XtellaVM vm = new XtellaVM();
+    vm.setGlobal("producer", producer());
+    vm.setGlobal("doubler", doubler());
+
+    assertEquals(200 * 199, vm.evaluate(pipeline(), BUDGET, 200));
+  }
+
+  @Test
+  void taskFailuresAreRethrownAtJoin() {
+    XtellaVM vm = new XtellaVM();
+    vm.setGlobal("divide", chunk(1, XtellaVM.PUSH_INT, 1, XtellaVM.LOAD_LOCAL, 0, XtellaVM.DIVIDE));
+    XtellaBytecodeChunk spawnAndJoin =
+        chunk(
+            1,
+            XtellaVM.PUSH_STRING, "divide",
+            XtellaVM.LOAD_LOCAL, 0,
+            XtellaVM.RUN_THREAD, 1,
+            XtellaVM.JOIN);
+
+    assertEquals(1, vm.evaluate(spawnAndJoin, BUDGET, 1));
+    assertThrows(ArithmeticException.class, () -> vm.evaluate(spawnAndJoin, BUDGET, 0));
+  }
+
+  @Test
+  void sentArraysAreCopies() throws InterruptedException {
+    XtellaArray numbers = XtellaArray.of(1, 2, 3);
+    XtellaChannel channel = new XtellaChannel();
+    channel.send(numbers);
+    numbers.set(0, 99);
+
+    XtellaArray received = (XtellaArray) channel.receive();
+
+    assertNotSame(numbers, received);
+    assertEquals(1, received.get(0));
+
+    XtellaVM vm = new XtellaVM();
+    vm.setGlobal("identity", chunk(1, XtellaVM.LOAD_LOCAL, 0));
+    XtellaTask task = (XtellaTask) vm.evaluate(spawn("identity"), BUDGET, numbers);
+    numbers.set(1, 98);
+    XtellaArray returned = (XtellaArray) task.join();
+
+    assertNotSame(numbers, returned);
+    assertEquals(99, returned.get(0));
+    assertEquals(2, returned.get(1));
+  }
+
+  @Test
+  void resetCancelsUnjoinedTasks() {
+    XtellaVM vm = new XtellaVM();
+    vm.setGlobal("blocked", chunk(1, XtellaVM.LOAD_LOCAL, 0, XtellaVM.RECEIVE));
+    XtellaChannel neverSent = new XtellaChannel();
+
+    XtellaTask task = (XtellaTask) vm.evaluate(spawn("blocked"), BUDGET, neverSent);
+    vm.reset();
+
+    assertTrue(task.isDone());
+    IllegalStateException cancelled = assertThrows(IllegalStateException.class, task::join);
+    assertEquals("Task was cancelled", cancelled.getMessage());
+  }
+}
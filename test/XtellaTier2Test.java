@@ -0,0 +1,154 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class XtellaTier2Test {
+  private static final int COUNTER_SLOT = 0;
+  private static final int ACCUMULATOR_SLOT = 1;
+  private static final int REFERENCE_SLOT = 2;
+  private static final int UNASSIGNED_SLOT = 3;
+
+  // for counter < 100: if counter > 1000 then reference = 1; unassigned = 2 end;
+  //   acc = acc + counter
+  private static XtellaBytecodeChunk conditionalStores() {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(4);
+
+    int loopStart = chunk.getCodeLength();
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(100);
+    chunk.emit(XtellaVM.LESS_THAN);
+    chunk.emit(XtellaVM.JUMP_IF_FALSE);
+    int exitOperand = chunk.emit(0);
+
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(1000);
+    chunk.emit(XtellaVM.GREATER_THAN);
+    chunk.emit(XtellaVM.JUMP_IF_FALSE);
+    int skipOperand = chunk.emit(0);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(REFERENCE_SLOT);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(2);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(UNASSIGNED_SLOT);
+    chunk.patch(skipOperand, chunk.getCodeLength());
+
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(ACCUMULATOR_SLOT);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    chunk.emit(XtellaVM.ADD);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(ACCUMULATOR_SLOT);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.ADD);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    chunk.emit(XtellaVM.JUMP);
+    chunk.emit(loopStart);
+
+    chunk.patch(exitOperand, chunk.getCodeLength());
+    return chunk;
+  }
+
+  // returns 1 + 2 + ... + n for the argument n
+  private static XtellaBytecodeChunk sum() {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(3);
+
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(2);
+
+    int loopStart = chunk.getCodeLength();
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.LESS_THAN);
+    chunk.emit(XtellaVM.JUMP_IF_FALSE);
+    int exitOperand = chunk.emit(0);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.ADD);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(2);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.ADD);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(2);
+    chunk.emit(XtellaVM.JUMP);
+    chunk.emit(loopStart);
+
+    chunk.patch(exitOperand, chunk.getCodeLength());
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(2);
+    return chunk;
+  }
+
+  @Test
+  void valueReturningChunksAreCompiled() {
+    XtellaBytecodeChunk chunk = sum();
+    XtellaTier2 tier2 = new XtellaTier2(1, 1);
+    XtellaVM vm = new XtellaVM();
+    vm.setTier2(tier2);
+
+    assertEquals(500500, vm.evaluate(chunk, XtellaVM.DEFAULT_INSTRUCTION_BUDGET, 1000));
+    assertTrue(tier2.isCompiled(chunk));
+    assertEquals(0, tier2.getDeoptimizationCount());
+
+    XtellaOperandStack stack = new XtellaOperandStack();
+    stack.pushInt(10);
+    stack.reserve(2);
+
+    int resume = tier2.onInvocation(chunk, stack, 0, new long[] {Long.MAX_VALUE});
+
+    assertEquals(chunk.getCodeLength(), resume);
+    assertEquals(4, stack.size());
+    assertEquals(55, stack.intAt(3));
+  }
+
+  @Test
+  void compiledCodeOnlyWritesBackAssignedSlots() {
+    XtellaBytecodeChunk chunk = conditionalStores();
+    XtellaTier2 tier2 = new XtellaTier2(1, 1);
+    XtellaOperandStack stack = new XtellaOperandStack();
+    stack.pushInt(0);
+    stack.pushInt(0);
+    stack.pushReference("kept");
+    stack.reserve(1);
+
+    int resume = tier2.onInvocation(chunk, stack, 0, new long[] {Long.MAX_VALUE});
+
+    assertTrue(tier2.isCompiled(chunk));
+    assertEquals(chunk.getCodeLength(), resume);
+    assertEquals(100, stack.intAt(COUNTER_SLOT));
+    assertEquals(4950, stack.intAt(ACCUMULATOR_SLOT));
+    assertEquals(XtellaOperandStack.TAG_REFERENCE, stack.tagAt(REFERENCE_SLOT));
+    assertEquals("kept", stack.referenceAt(REFERENCE_SLOT));
+    assertEquals(XtellaOperandStack.TAG_NONE, stack.tagAt(UNASSIGNED_SLOT));
+  }
+}
@@ -0,0 +1,161 @@
+package xtella;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class XtellaVMTest {
+  private static final int ARGUMENT_SLOT = 0;
+  private static final int ACCUMULATOR_SLOT = 1;
+  private static final int COUNTER_SLOT = 2;
+
+  // acc = argument; repeat `iterations` times: acc = acc + argument; leaves acc on the stack.
+  private static XtellaBytecodeChunk repeatedAdd(int iterations) {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.setLocalCount(3);
+
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(ARGUMENT_SLOT);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(ACCUMULATOR_SLOT);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(0);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+
+    int loopStart = chunk.getCodeLength();
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(iterations);
+    chunk.emit(XtellaVM.LESS_THAN);
+    chunk.emit(XtellaVM.JUMP_IF_FALSE);
+    int exitOperand = chunk.emit(0);
+
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(ACCUMULATOR_SLOT);
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(ARGUMENT_SLOT);
+    chunk.emit(XtellaVM.ADD);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(ACCUMULATOR_SLOT);
+
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(1);
+    chunk.emit(XtellaVM.ADD);
+    chunk.emit(XtellaVM.STORE_LOCAL);
+    chunk.emit(COUNTER_SLOT);
+    chunk.emit(XtellaVM.JUMP);
+    chunk.emit(loopStart);
+
+    chunk.patch(exitOperand, chunk.getCodeLength());
+    chunk.emit(XtellaVM.LOAD_LOCAL);
+    chunk.emit(ACCUMULATOR_SLOT);
+    return chunk;
+  }
+
+  @Test
+  void quickenedChunkRunsOnSeveralThreads() throws Exception {
+    XtellaBytecodeChunk chunk = repeatedAdd(1000);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    try {
+      List<Future<?>> results = new ArrayList<>();
+
+      for (int thread = 0; thread < 8; thread++) {
+        boolean floats = thread % 2 == 1;
+
+        results.add(
+            executor.submit(
+                () -> {
+                  XtellaVM vm = new XtellaVM();
+                  vm.setTier2(null);
+
+                  for (int run = 0; run < 200; run++) {
+                    if (floats) {
+                      assertEquals(500.5f, vm.evaluate(chunk, Long.MAX_VALUE, 0.5f));
+                    } else {
+                      assertEquals(3003, vm.evaluate(chunk, Long.MAX_VALUE, 3));
+                    }
+                  }
+
+                  return null;
+                }));
+      }
+
+      for (Future<?> result : results) {
+        result.get();
+      }
+
+      assertTrue(Arrays.stream(chunk.getCode()).anyMatch(opcode -> opcode == XtellaVM.ADD_INT));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Object shift(int opcode, int value, int distance) {
+    XtellaBytecodeChunk chunk = new XtellaBytecodeChunk();
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(value);
+    chunk.emit(XtellaVM.PUSH_INT);
+    chunk.emit(distance);
+    chunk.emit(opcode);
+    return new XtellaVM().evaluate(chunk, Long.MAX_VALUE);
+  }
+
+  @Test
+  void intShiftsPromoteInsteadOfWrapping() {
+    assertEquals(1L << 31, shift(XtellaVM.SHIFT_LEFT, 1, 31));
+    assertEquals(1L << 32, shift(XtellaVM.SHIFT_LEFT, 1, 32));
+    assertEquals(-(1L << 40), shift(XtellaVM.SHIFT_LEFT, -1, 40));
+    assertEquals(0, shift(XtellaVM.SHIFT_RIGHT, 1, 32));
+    assertEquals(-1, shift(XtellaVM.SHIFT_RIGHT, -1, 40));
+    assertThrows(ArithmeticException.class, () -> shift(XtellaVM.SHIFT_LEFT, 1, -1));
+    assertThrows(ArithmeticException.class, () -> shift(XtellaVM.SHIFT_LEFT, 1, 2_000_000_000));
+  }
+
+  private static Object mixed(int opcode, int integral, double floating) {
+    XtellaVM vm = new XtellaVM();
+    vm.beginChunk(0);
+    vm.addInstruction(XtellaVM.PUSH_INT);
+    vm.addOperand(integral);
+    vm.addInstruction(XtellaVM.PUSH_DOUBLE);
+    vm.addLongOperand(Double.doubleToRawLongBits(floating));
+    vm.addInstruction(opcode);
+    vm.endChunk();
+    return vm.evaluate(vm.getChunk(), Long.MAX_VALUE);
+  }
+
+  @Test
+  void mixedIntAndDoubleOperandsPromoteToDouble() {
+    assertEquals(3.5, mixed(XtellaVM.ADD, 3, 0.5));
+    assertEquals(2.5, mixed(XtellaVM.SUBTRACT, 3, 0.5));
+    assertEquals(1.5, mixed(XtellaVM.MULTIPLY, 3, 0.5));
+    assertEquals(6.0, mixed(XtellaVM.DIVIDE, 3, 0.5));
+    assertEquals(true, mixed(XtellaVM.LESS_THAN, 3, 3.5));
+    assertEquals(true, mixed(XtellaVM.EQUAL, 3, 3.0));
+    assertEquals(false, mixed(XtellaVM.GREATER_THAN_OR_EQUAL, 3, 3.25));
+    assertThrows(IllegalArgumentException.class, () -> mixed(XtellaVM.MODULO, 3, 0.5));
+  }
+
+  @Test
+  void compiledShiftsBailOutInsteadOfWrapping() {
+    assertEquals(1 << 30, XtellaTier2Compiler.shiftLeftExact(1, 30));
+    assertEquals(Integer.MIN_VALUE, XtellaTier2Compiler.shiftLeftExact(-1, 31));
+    assertThrows(ArithmeticException.class, () -> XtellaTier2Compiler.shiftLeftExact(1, 31));
+    assertThrows(ArithmeticException.class, () -> XtellaTier2Compiler.shiftLeftExact(1, 32));
+    assertThrows(ArithmeticException.class, () -> XtellaTier2Compiler.shiftLeftExact(1, -1));
+    assertEquals(-1, XtellaTier2Compiler.shiftRightExact(-1, 32));
+    assertEquals(0, XtellaTier2Compiler.shiftRightExact(Integer.MAX_VALUE, 40));
+  }
+}